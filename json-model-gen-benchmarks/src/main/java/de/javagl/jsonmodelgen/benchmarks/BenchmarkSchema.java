@@ -0,0 +1,159 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.jsonmodelgen.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import de.javagl.jsonmodelgen.json.DocumentLoader;
+import de.javagl.jsonmodelgen.json.JsonUtils;
+
+/**
+ * The schemas that serve as the inputs for the benchmarks.<br>
+ * <br>
+ * The glTF schema is read from the class path. The documents are 
+ * stored in the <code>schemas/gltf</code> resource directory of this 
+ * module, so that the results do not depend on network access or on
+ * changes of the upstream repository. The root URI is a 
+ * <code>file:</code> URI, so that the references can be resolved, and
+ * the path of each document URI is resolved against the 
+ * <code>schemas</code> resource directory.<br>
+ * <br>
+ * The synthetic schemas are created in memory, with the 
+ * {@link SyntheticSchemas} class.
+ */
+public enum BenchmarkSchema
+{
+    /**
+     * A reduced subset of the glTF 2.0 schema, consisting of 17 documents
+     */
+    GLTF("file:/gltf/glTF.schema.json", 0),
+    
+    /**
+     * A synthetic schema that consists of 100 documents
+     */
+    SYNTHETIC_SMALL("file:/synthetic-small/root.schema.json", 100),
+    
+    /**
+     * A synthetic schema that consists of 2000 documents
+     */
+    SYNTHETIC_LARGE("file:/synthetic-large/root.schema.json", 2000);
+    
+    /**
+     * The seed for the random generation of the synthetic schemas
+     */
+    private static final long SEED = 0;
+    
+    /**
+     * The root URI
+     */
+    private final URI rootUri;
+    
+    /**
+     * The number of documents of a synthetic schema, or 0 for schemas 
+     * that are read from the class path
+     */
+    private final int numSyntheticDocuments;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param rootUriString The root URI string
+     * @param numSyntheticDocuments The number of synthetic documents
+     */
+    private BenchmarkSchema(String rootUriString, int numSyntheticDocuments)
+    {
+        this.rootUri = URI.create(rootUriString);
+        this.numSyntheticDocuments = numSyntheticDocuments;
+    }
+    
+    /**
+     * Returns the root URI of this schema
+     * 
+     * @return The root URI
+     */
+    public URI getRootUri()
+    {
+        return rootUri;
+    }
+    
+    /**
+     * Creates a new {@link DocumentLoader} for the documents of this 
+     * schema
+     * 
+     * @return The {@link DocumentLoader}
+     */
+    public DocumentLoader createDocumentLoader()
+    {
+        if (numSyntheticDocuments > 0)
+        {
+            Map<URI, JsonNode> documents = SyntheticSchemas.createDocuments(
+                rootUri, numSyntheticDocuments, SEED);
+            return documents::get;
+        }
+        return BenchmarkSchema::loadResource;
+    }
+    
+    /**
+     * Load the document with the given URI from the <code>schemas</code>
+     * resource directory. Returns <code>null</code> if the document does 
+     * not exist or cannot be parsed.
+     * 
+     * @param uri The URI
+     * @return The document, or <code>null</code>
+     */
+    private static JsonNode loadResource(URI uri)
+    {
+        String resourceName = "/schemas" + uri.getPath();
+        try (InputStream inputStream = 
+            BenchmarkSchema.class.getResourceAsStream(resourceName))
+        {
+            if (inputStream == null)
+            {
+                return null;
+            }
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read = 0;
+            while ((read = inputStream.read(buffer)) != -1)
+            {
+                outputStream.write(buffer, 0, read);
+            }
+            return JsonUtils.parseNodeOptional(uri, outputStream.toByteArray());
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.jsonmodelgen.benchmarks;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.javagl.jsonmodelgen.json.DocumentLoader;
+import de.javagl.jsonmodelgen.json.NodeRepository;
+import de.javagl.jsonmodelgen.json.NodeRepository.IndexingMode;
+import de.javagl.jsonmodelgen.json.RetainingDocumentLoader;
+
+/**
+ * Utility methods for the benchmarks
+ */
+class BenchmarkUtils
+{
+    /**
+     * Disable all log messages except for severe ones, so that the 
+     * benchmarks do not measure the logging
+     */
+    static void initLogging()
+    {
+        Logger.getLogger("").setLevel(Level.SEVERE);
+    }
+    
+    /**
+     * Creates a {@link DocumentLoader} that already contains all documents
+     * of the given {@link BenchmarkSchema}, so that the benchmarks do not
+     * measure reading and parsing the documents
+     * 
+     * @param schema The {@link BenchmarkSchema}
+     * @return The {@link DocumentLoader}
+     * @throws IllegalStateException If the root document of the given 
+     * schema cannot be read
+     */
+    static DocumentLoader createPreloadedDocumentLoader(
+        BenchmarkSchema schema)
+    {
+        RetainingDocumentLoader documentLoader = 
+            new RetainingDocumentLoader(schema.createDocumentLoader());
+        if (documentLoader.load(schema.getRootUri()) == null)
+        {
+            throw new IllegalStateException(
+                "Could not read " + schema.getRootUri());
+        }
+        new NodeRepository(schema.getRootUri(), documentLoader, 
+            IndexingMode.SCHEMA_POSITIONS);
+        return documentLoader;
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private BenchmarkUtils()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
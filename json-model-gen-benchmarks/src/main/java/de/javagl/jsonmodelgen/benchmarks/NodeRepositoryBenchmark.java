@@ -0,0 +1,99 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.jsonmodelgen.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.javagl.jsonmodelgen.json.DocumentLoader;
+import de.javagl.jsonmodelgen.json.NodeRepository;
+import de.javagl.jsonmodelgen.json.NodeRepository.IndexingMode;
+
+/**
+ * Benchmark for the construction of a {@link NodeRepository}, which 
+ * includes traversing all documents and resolving all references. The
+ * documents are already loaded and parsed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeRepositoryBenchmark
+{
+    /**
+     * The {@link BenchmarkSchema}
+     */
+    @Param
+    public BenchmarkSchema schema;
+    
+    /**
+     * The {@link IndexingMode}
+     */
+    @Param
+    public IndexingMode indexingMode;
+    
+    /**
+     * The {@link DocumentLoader} that contains all documents
+     */
+    private DocumentLoader documentLoader;
+    
+    /**
+     * Prepare the benchmark
+     */
+    @Setup
+    public void setup()
+    {
+        BenchmarkUtils.initLogging();
+        documentLoader = BenchmarkUtils.createPreloadedDocumentLoader(schema);
+    }
+    
+    /**
+     * Create the {@link NodeRepository}
+     * 
+     * @return The {@link NodeRepository}
+     */
+    @Benchmark
+    public NodeRepository createNodeRepository()
+    {
+        return new NodeRepository(
+            schema.getRootUri(), documentLoader, indexingMode);
+    }
+}
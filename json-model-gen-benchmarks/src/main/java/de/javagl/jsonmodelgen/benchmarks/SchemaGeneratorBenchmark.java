@@ -0,0 +1,116 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.jsonmodelgen.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.javagl.jsonmodelgen.json.NodeRepository;
+import de.javagl.jsonmodelgen.json.NodeRepository.IndexingMode;
+import de.javagl.jsonmodelgen.json.schema.codemodel.GeneratorConfig;
+import de.javagl.jsonmodelgen.json.schema.v202012.SchemaGenerator;
+
+/**
+ * Benchmark for the resolution of the schemas by the 
+ * {@link SchemaGenerator}, based on an existing {@link NodeRepository}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchemaGeneratorBenchmark
+{
+    /**
+     * The {@link BenchmarkSchema}
+     */
+    @Param
+    public BenchmarkSchema schema;
+    
+    /**
+     * Whether the schemas should be resolved in parallel
+     */
+    @Param({"false", "true"})
+    public boolean parallel;
+    
+    /**
+     * Whether equivalent schemas should be merged
+     */
+    @Param({"true", "false"})
+    public boolean mergeEquivalentSchemas;
+    
+    /**
+     * The {@link NodeRepository}
+     */
+    private NodeRepository nodeRepository;
+    
+    /**
+     * The {@link GeneratorConfig}
+     */
+    private GeneratorConfig config;
+    
+    /**
+     * Prepare the benchmark
+     */
+    @Setup
+    public void setup()
+    {
+        BenchmarkUtils.initLogging();
+        nodeRepository = new NodeRepository(schema.getRootUri(), 
+            BenchmarkUtils.createPreloadedDocumentLoader(schema), 
+            IndexingMode.SCHEMA_POSITIONS);
+        config = GeneratorConfig.DEFAULT
+            .withMergeEquivalentSchemas(mergeEquivalentSchemas);
+    }
+    
+    /**
+     * Create the {@link SchemaGenerator}
+     * 
+     * @return The {@link SchemaGenerator}
+     */
+    @Benchmark
+    public SchemaGenerator createSchemaGenerator()
+    {
+        ForkJoinPool forkJoinPool = 
+            parallel ? ForkJoinPool.commonPool() : null;
+        return new SchemaGenerator(nodeRepository, forkJoinPool, config);
+    }
+}
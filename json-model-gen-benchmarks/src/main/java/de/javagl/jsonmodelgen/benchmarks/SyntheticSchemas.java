@@ -0,0 +1,250 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.jsonmodelgen.benchmarks;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Methods for creating synthetic JSON schemas of arbitrary size.<br>
+ * <br>
+ * The schemas are modeled after the structure of the glTF schema: The
+ * root schema contains one array property for each type. Each type is 
+ * defined in its own document, extends a common base schema with 
+ * <code>allOf</code>, and contains properties with different types and 
+ * constraints, enum-like <code>anyOf</code> properties, and references 
+ * to randomly chosen other types, including cyclic references.
+ */
+class SyntheticSchemas
+{
+    /**
+     * The node factory
+     */
+    private static final JsonNodeFactory factory = JsonNodeFactory.instance;
+    
+    /**
+     * The name of the base schema document
+     */
+    private static final String BASE_NAME = "base.schema.json";
+    
+    /**
+     * Creates the documents of a synthetic schema. The result will be a 
+     * mapping from the URIs of the documents to the documents, containing
+     * the root document for the given URI, a base document, and the given
+     * number of type documents, which are located next to the root 
+     * document.
+     * 
+     * @param rootUri The root URI
+     * @param numDocuments The number of type documents
+     * @param seed The random seed
+     * @return The documents
+     */
+    static Map<URI, JsonNode> createDocuments(
+        URI rootUri, int numDocuments, long seed)
+    {
+        Random random = new Random(seed);
+        Map<URI, JsonNode> documents = new LinkedHashMap<URI, JsonNode>();
+        documents.put(rootUri, createRootDocument(numDocuments));
+        documents.put(rootUri.resolve(BASE_NAME), createBaseDocument());
+        for (int i = 0; i < numDocuments; i++)
+        {
+            documents.put(rootUri.resolve(createTypeName(i)), 
+                createTypeDocument(i, numDocuments, random));
+        }
+        return documents;
+    }
+    
+    /**
+     * Returns the name of the document for the type with the given index
+     * 
+     * @param index The index
+     * @return The name
+     */
+    private static String createTypeName(int index)
+    {
+        return "type" + index + ".schema.json";
+    }
+    
+    /**
+     * Creates a new object node for a schema with the given title
+     * 
+     * @param title The title
+     * @return The node
+     */
+    private static ObjectNode createObjectSchema(String title)
+    {
+        ObjectNode schema = factory.objectNode();
+        schema.put("$schema", "https://json-schema.org/draft/2020-12/schema");
+        schema.put("title", title);
+        schema.put("type", "object");
+        schema.put("description", "The synthetic " + title + " schema.");
+        return schema;
+    }
+    
+    /**
+     * Creates a node that contains a reference to the given URI
+     * 
+     * @param uri The URI
+     * @return The node
+     */
+    private static ObjectNode createRef(String uri)
+    {
+        ObjectNode ref = factory.objectNode();
+        ref.put("$ref", uri);
+        return ref;
+    }
+    
+    /**
+     * Creates a node that contains an array schema with the given items
+     * 
+     * @param items The items schema
+     * @param description The description
+     * @return The node
+     */
+    private static ObjectNode createArray(
+        JsonNode items, String description)
+    {
+        ObjectNode array = factory.objectNode();
+        array.put("type", "array");
+        array.put("description", description);
+        array.set("items", items);
+        array.put("minItems", 1);
+        return array;
+    }
+    
+    /**
+     * Creates the root document, which contains one array property for
+     * each type
+     * 
+     * @param numDocuments The number of type documents
+     * @return The root document
+     */
+    private static ObjectNode createRootDocument(int numDocuments)
+    {
+        ObjectNode root = createObjectSchema("Root");
+        root.putArray("allOf").add(createRef(BASE_NAME));
+        ObjectNode properties = root.putObject("properties");
+        for (int i = 0; i < numDocuments; i++)
+        {
+            properties.set("type" + i + "s", createArray(
+                createRef(createTypeName(i)), "The type " + i + " array."));
+        }
+        return root;
+    }
+    
+    /**
+     * Creates the base document, which is extended by all other documents
+     * 
+     * @return The base document
+     */
+    private static ObjectNode createBaseDocument()
+    {
+        ObjectNode base = createObjectSchema("Base");
+        ObjectNode properties = base.putObject("properties");
+        ObjectNode extensions = properties.putObject("extensions");
+        extensions.put("type", "object");
+        extensions.put("description", "The extensions.");
+        extensions.putObject("additionalProperties").put("type", "object");
+        properties.putObject("extras").put("description", "The extras.");
+        return base;
+    }
+    
+    /**
+     * Creates the document for the type with the given index
+     * 
+     * @param index The index
+     * @param numDocuments The number of type documents
+     * @param random The random number generator
+     * @return The document
+     */
+    private static ObjectNode createTypeDocument(
+        int index, int numDocuments, Random random)
+    {
+        ObjectNode type = createObjectSchema("Type" + index);
+        type.putArray("allOf").add(createRef(BASE_NAME));
+        ObjectNode properties = type.putObject("properties");
+        
+        ObjectNode name = properties.putObject("name");
+        name.put("type", "string");
+        name.put("description", "The name.");
+        
+        ObjectNode count = properties.putObject("count");
+        count.put("type", "integer");
+        count.put("description", "The count.");
+        count.put("minimum", 0);
+        count.put("default", 1);
+        
+        ObjectNode weight = factory.objectNode();
+        weight.put("type", "number");
+        weight.put("minimum", 0.0);
+        weight.put("maximum", 1.0);
+        properties.set("weights", createArray(weight, "The weights."));
+        
+        ObjectNode mode = properties.putObject("mode");
+        mode.put("description", "The mode.");
+        ArrayNode anyOf = mode.putArray("anyOf");
+        anyOf.addObject().put("const", "FIRST");
+        anyOf.addObject().put("const", "SECOND");
+        anyOf.addObject().put("type", "string");
+        
+        int numReferences = 1 + random.nextInt(3);
+        for (int i = 0; i < numReferences; i++)
+        {
+            String target = createTypeName(random.nextInt(numDocuments));
+            ObjectNode reference = createRef(target);
+            properties.set("reference" + i, reference);
+        }
+        String arrayTarget = createTypeName(random.nextInt(numDocuments));
+        properties.set("children", 
+            createArray(createRef(arrayTarget), "The children."));
+        
+        String mapTarget = createTypeName(random.nextInt(numDocuments));
+        ObjectNode lookup = properties.putObject("lookup");
+        lookup.put("type", "object");
+        lookup.put("description", "The lookup.");
+        lookup.set("additionalProperties", createRef(mapTarget));
+        
+        type.putArray("required").add("name");
+        return type;
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private SyntheticSchemas()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * JMH benchmarks for the stages of the class generation pipeline.<br>
+ * <br>
+ * The benchmarks are packaged into an executable JAR with
+ * <pre><code>
+ * mvn install                  (in the json-model-gen directory)
+ * mvn package                  (in the json-model-gen-benchmarks directory)
+ * </code></pre>
+ * and can be run with
+ * <pre><code>
+ * java -jar target/benchmarks.jar -prof gc
+ * </code></pre>
+ * where <code>-prof gc</code> also reports the allocation rates. The
+ * inputs are described in {@link BenchmarkSchema}.
+ * Additional system properties for the benchmarks have to be passed to 
+ * the forked JVMs, with 
+ * <code>-jvmArgsAppend "-Dname=value"</code>
+ */
+package de.javagl.jsonmodelgen.benchmarks;
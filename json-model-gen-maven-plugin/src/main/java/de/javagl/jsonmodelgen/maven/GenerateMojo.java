@@ -0,0 +1,454 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.maven;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import de.javagl.jsonmodelgen.json.CachingDocumentLoader;
+import de.javagl.jsonmodelgen.json.CachingDocumentLoader.Mode;
+import de.javagl.jsonmodelgen.json.DocumentLoader;
+import de.javagl.jsonmodelgen.json.Hashes;
+import de.javagl.jsonmodelgen.json.JsonException;
+import de.javagl.jsonmodelgen.json.NodeRepository;
+import de.javagl.jsonmodelgen.json.NodeRepository.IndexingMode;
+import de.javagl.jsonmodelgen.json.RetainingDocumentLoader;
+import de.javagl.jsonmodelgen.json.schema.codemodel.ConcurrentFileCodeWriter.WriteMode;
+import de.javagl.jsonmodelgen.json.schema.codemodel.GeneratorConfig;
+import de.javagl.jsonmodelgen.json.schema.v202012.SchemaGenerator;
+import de.javagl.jsonmodelgen.json.schema.v202012.codemodel.ClassGenerator;
+
+/**
+ * Generates the model classes for a JSON schema, and adds the output 
+ * directory as a source root of the project.
+ * <br>
+ * <br>
+ * After each generation, a fingerprint is stored. It consists of hashes 
+ * of the generator version, the options, and the contents of all schema 
+ * documents that have been used. When the fingerprint did not change in 
+ * a later build, the generation is skipped completely. Documents are 
+ * read through a {@link CachingDocumentLoader}. By default, it uses the
+ * {@link Mode#REVALIDATE} mode, so cached remote documents are checked 
+ * with a conditional request in each build, and changes of the remote 
+ * documents cause a new generation. Each document is only requested 
+ * once per build, even when it is used for the up-to-date check and 
+ * for the generation. With the {@link Mode#DEFAULT} mode, 
+ * remote documents are only fetched once, and are then considered to be 
+ * unchanged until the cache is cleared. With the {@link Mode#OFFLINE}
+ * mode, only cached documents can be used.
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.GENERATE_SOURCES, 
+    threadSafe = true)
+public class GenerateMojo extends AbstractMojo
+{
+    /**
+     * The artifact ID of the generator library
+     */
+    private static final String GENERATOR_ARTIFACT_ID = "json-model-gen";
+    
+    /**
+     * The URI of the root schema. Relative file paths are resolved 
+     * against the base directory of the project.
+     */
+    @Parameter(required = true)
+    private String rootUri;
+    
+    /**
+     * The package name for the generated classes
+     */
+    @Parameter(required = true)
+    private String packageName;
+    
+    /**
+     * The optional header code for each generated file
+     */
+    @Parameter(defaultValue = "")
+    private String headerCode;
+    
+    /**
+     * The output directory for the generated sources
+     */
+    @Parameter(defaultValue = 
+        "${project.build.directory}/generated-sources/json-model-gen")
+    private File outputDirectory;
+    
+    /**
+     * The {@link WriteMode} for the generated files
+     */
+    @Parameter(defaultValue = "CHANGED")
+    private WriteMode writeMode;
+    
+    /**
+     * The class names or property paths that select the subset of 
+     * classes that should be generated. If this is empty, then all 
+     * classes are generated. See {@link GeneratorConfig#getSelection()}.
+     */
+    @Parameter
+    private List<String> selection;
+    
+    /**
+     * The directory for caching the schema documents that are fetched 
+     * from remote URIs
+     */
+    @Parameter(defaultValue = "${user.home}/.json-model-gen/cache")
+    private File cacheDirectory;
+    
+    /**
+     * The {@link Mode} of the cache for the remote schema documents. 
+     * See the class documentation for details.
+     */
+    @Parameter(property = "jsonmodelgen.cacheMode", 
+        defaultValue = "REVALIDATE")
+    private Mode cacheMode;
+    
+    /**
+     * The directory that stores the fingerprints of the generations
+     */
+    @Parameter(defaultValue = "${project.build.directory}/json-model-gen")
+    private File fingerprintDirectory;
+    
+    /**
+     * Whether the generation should be skipped
+     */
+    @Parameter(property = "jsonmodelgen.skip", defaultValue = "false")
+    private boolean skip;
+    
+    /**
+     * Whether the generation should be performed even when the 
+     * fingerprint did not change
+     */
+    @Parameter(property = "jsonmodelgen.force", defaultValue = "false")
+    private boolean force;
+    
+    /**
+     * The project
+     */
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+    
+    /**
+     * The execution of this goal
+     */
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    private MojoExecution mojoExecution;
+    
+    /**
+     * The descriptor of this plugin
+     */
+    @Parameter(defaultValue = "${plugin}", readonly = true)
+    private PluginDescriptor pluginDescriptor;
+    
+    @Override
+    public void execute() throws MojoExecutionException
+    {
+        if (skip)
+        {
+            getLog().info("Skipping generation");
+            return;
+        }
+        project.addCompileSourceRoot(outputDirectory.getPath());
+        
+        URI resolvedRootUri = resolveRootUri();
+        File fingerprintFile = new File(fingerprintDirectory, 
+            mojoExecution.getExecutionId() + ".properties");
+        try
+        {
+            // The documents that are loaded for checking whether the 
+            // sources are up to date are retained, so that each document
+            // is only requested once, even when it has to be revalidated
+            DocumentLoader documentLoader = new RetainingDocumentLoader(
+                new CachingDocumentLoader(cacheDirectory, cacheMode));
+            Properties fingerprint = new Properties();
+            fingerprint.setProperty("generator", computeGeneratorHash());
+            fingerprint.setProperty("options", computeOptionsHash());
+            
+            if (!force && outputDirectory.isDirectory() && 
+                isUpToDate(fingerprintFile, fingerprint, documentLoader))
+            {
+                getLog().info("Generated sources are up to date");
+                return;
+            }
+            NodeRepository nodeRepository = 
+                generate(resolvedRootUri, documentLoader);
+            int index = 0;
+            for (URI documentUri : nodeRepository.getDocumentUris())
+            {
+                fingerprint.setProperty(
+                    "document." + index + ".uri", documentUri.toString());
+                fingerprint.setProperty("document." + index + ".hash", 
+                    computeDocumentHash(
+                        nodeRepository.getDocument(documentUri)));
+                index++;
+            }
+            write(fingerprintFile, fingerprint);
+        }
+        catch (IOException | JsonException e)
+        {
+            throw new MojoExecutionException(
+                "Could not generate classes for " + resolvedRootUri, e);
+        }
+    }
+    
+    /**
+     * Resolve the root URI against the base directory of the project
+     * 
+     * @return The root URI
+     * @throws MojoExecutionException If the root URI is not valid
+     */
+    private URI resolveRootUri() throws MojoExecutionException
+    {
+        try
+        {
+            URI uri = new URI(rootUri);
+            if (uri.isAbsolute())
+            {
+                return uri;
+            }
+            return project.getBasedir().toURI().resolve(uri);
+        }
+        catch (URISyntaxException e)
+        {
+            throw new MojoExecutionException(
+                "Invalid root URI: " + rootUri, e);
+        }
+    }
+    
+    /**
+     * Generate the classes for the schema with the given root URI
+     * 
+     * @param uri The root URI
+     * @param documentLoader The {@link DocumentLoader}
+     * @return The {@link NodeRepository} that contains the documents 
+     * that have been used
+     * @throws IOException If an IO error occurs
+     * @throws JsonException If the schema cannot be processed
+     */
+    private NodeRepository generate(
+        URI uri, DocumentLoader documentLoader) 
+        throws IOException
+    {
+        getLog().info("Generating classes for " + uri);
+        NodeRepository nodeRepository = new NodeRepository(
+            uri, documentLoader, IndexingMode.SCHEMA_POSITIONS);
+        SchemaGenerator schemaGenerator = 
+            new SchemaGenerator(nodeRepository);
+        String header = headerCode == null ? "" : headerCode;
+        GeneratorConfig config = 
+            GeneratorConfig.DEFAULT.withSelection(selection);
+        ClassGenerator classGenerator = new ClassGenerator(
+            schemaGenerator, packageName, header, config);
+        outputDirectory.mkdirs();
+        classGenerator.generate(outputDirectory, writeMode);
+        return nodeRepository;
+    }
+    
+    /**
+     * Returns whether the fingerprint in the given file matches the given
+     * fingerprint, and the recorded hashes of all documents are equal to
+     * the hashes of the current documents
+     * 
+     * @param fingerprintFile The fingerprint file
+     * @param fingerprint The current fingerprint, without documents
+     * @param documentLoader The {@link DocumentLoader}
+     * @return Whether the generated sources are up to date
+     * @throws IOException If an IO error occurs
+     */
+    private static boolean isUpToDate(File fingerprintFile, 
+        Properties fingerprint, DocumentLoader documentLoader) 
+            throws IOException
+    {
+        if (!fingerprintFile.exists())
+        {
+            return false;
+        }
+        Properties previous = read(fingerprintFile);
+        for (String key : fingerprint.stringPropertyNames())
+        {
+            if (!Objects.equals(
+                fingerprint.getProperty(key), previous.getProperty(key)))
+            {
+                return false;
+            }
+        }
+        int index = 0;
+        while (true)
+        {
+            String uriString = 
+                previous.getProperty("document." + index + ".uri");
+            if (uriString == null)
+            {
+                return index > 0;
+            }
+            String hash = previous.getProperty("document." + index + ".hash");
+            URI documentUri = URI.create(uriString);
+            JsonNode document = documentLoader.load(documentUri);
+            if (!Objects.equals(hash, computeDocumentHash(document)))
+            {
+                return false;
+            }
+            index++;
+        }
+    }
+    
+    /**
+     * Compute the hash of the generator, based on the plugin version and 
+     * the contents of the generator library
+     * 
+     * @return The hash
+     * @throws IOException If an IO error occurs
+     */
+    private String computeGeneratorHash() throws IOException
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(pluginDescriptor.getVersion());
+        for (Artifact artifact : pluginDescriptor.getArtifacts())
+        {
+            File file = artifact.getFile();
+            if (GENERATOR_ARTIFACT_ID.equals(artifact.getArtifactId()) && 
+                file != null && file.isFile())
+            {
+                sb.append(Hashes.hash(Files.readAllBytes(file.toPath())));
+            }
+        }
+        return Hashes.hash(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Compute the hash of the options of the generation
+     * 
+     * @return The hash
+     */
+    private String computeOptionsHash()
+    {
+        String options = String.join("\n", rootUri, packageName, 
+            String.valueOf(headerCode), outputDirectory.getAbsolutePath(),
+            String.valueOf(writeMode), String.valueOf(selection));
+        return Hashes.hash(options.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Compute the hash of the given document. This is the hash of the 
+     * JSON text of the parsed document, which does not depend on the 
+     * formatting of the document. If the given document is 
+     * <code>null</code>, then an empty string is returned.
+     * 
+     * @param node The root node of the document
+     * @return The hash
+     */
+    private static String computeDocumentHash(JsonNode node)
+    {
+        if (node == null)
+        {
+            return "";
+        }
+        return Hashes.hash(node.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Read the properties from the given file
+     * 
+     * @param file The file
+     * @return The properties
+     * @throws IOException If an IO error occurs
+     */
+    private static Properties read(File file) throws IOException
+    {
+        Properties properties = new Properties();
+        try (InputStream inputStream = new FileInputStream(file))
+        {
+            properties.load(inputStream);
+        }
+        return properties;
+    }
+    
+    /**
+     * Write the given properties to the given file. The properties are 
+     * written into a temporary file in the same directory, which is then
+     * moved to the given file, so that an interrupted build does not 
+     * leave a partially written file.
+     * 
+     * @param file The file
+     * @param properties The properties
+     * @throws IOException If an IO error occurs
+     */
+    private static void write(File file, Properties properties) 
+        throws IOException
+    {
+        Path path = file.toPath().toAbsolutePath();
+        Path directory = path.getParent();
+        Files.createDirectories(directory);
+        Path tempPath = Files.createTempFile(
+            directory, path.getFileName().toString(), ".tmp");
+        try
+        {
+            try (OutputStream outputStream = Files.newOutputStream(tempPath))
+            {
+                properties.store(outputStream, "JsonModelGen fingerprint");
+            }
+            try
+            {
+                Files.move(tempPath, path, 
+                    StandardCopyOption.ATOMIC_MOVE, 
+                    StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(tempPath, path, 
+                    StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+}
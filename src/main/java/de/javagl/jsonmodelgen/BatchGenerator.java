@@ -0,0 +1,225 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import de.javagl.jsonmodelgen.json.DocumentLoader;
+import de.javagl.jsonmodelgen.json.JsonException;
+import de.javagl.jsonmodelgen.json.NodeRepository;
+import de.javagl.jsonmodelgen.json.NodeRepository.IndexingMode;
+import de.javagl.jsonmodelgen.json.ParallelDocumentLoader;
+import de.javagl.jsonmodelgen.json.schema.codemodel.ConcurrentFileCodeWriter.WriteMode;
+import de.javagl.jsonmodelgen.json.schema.codemodel.GeneratorConfig;
+import de.javagl.jsonmodelgen.json.schema.v202012.SchemaGenerator;
+import de.javagl.jsonmodelgen.json.schema.v202012.codemodel.ClassGenerator;
+
+/**
+ * A class that generates the classes for multiple root schemas in one
+ * batch.
+ * <br>
+ * <br>
+ * All root schemas are read into a single {@link NodeRepository}, so 
+ * that documents that are shared between the roots (like common 
+ * definitions) are only fetched, parsed and resolved once. The roots
+ * are grouped by their package name. For each package, one 
+ * {@link ClassGenerator} generates the classes for all roots of this 
+ * package, so that the classes for shared schemas are only generated 
+ * once per package. The packages are generated in parallel.
+ */
+public final class BatchGenerator
+{
+    /**
+     * The logger used in this class
+     */
+    private static final Logger logger = 
+        Logger.getLogger(BatchGenerator.class.getName());
+    
+    /**
+     * The {@link DocumentLoader} for the schema documents
+     */
+    private final DocumentLoader documentLoader;
+    
+    /**
+     * The header code for each generated file
+     */
+    private final String headerCode;
+    
+    /**
+     * The {@link GeneratorConfig} for the generated classes
+     */
+    private final GeneratorConfig config;
+    
+    /**
+     * The mapping from package names to the root URIs of the schemas 
+     * whose classes should be generated in the respective package
+     */
+    private final Map<String, List<URI>> packageRootUris;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param documentLoader The {@link DocumentLoader} for the schema
+     * documents. This must be thread-safe.
+     * @param headerCode The header code for each generated file
+     */
+    public BatchGenerator(DocumentLoader documentLoader, String headerCode)
+    {
+        this(documentLoader, headerCode, GeneratorConfig.DEFAULT);
+    }
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param documentLoader The {@link DocumentLoader} for the schema
+     * documents. This must be thread-safe.
+     * @param headerCode The header code for each generated file
+     * @param config The {@link GeneratorConfig} for the generated classes
+     */
+    public BatchGenerator(DocumentLoader documentLoader, String headerCode,
+        GeneratorConfig config)
+    {
+        this.documentLoader = documentLoader;
+        this.headerCode = headerCode;
+        this.config = config;
+        this.packageRootUris = new LinkedHashMap<String, List<URI>>();
+    }
+    
+    /**
+     * Add the given root schema URI to this batch
+     * 
+     * @param rootUri The root URI
+     * @param packageName The package name for the generated classes
+     */
+    public void add(URI rootUri, String packageName)
+    {
+        List<URI> rootUris = packageRootUris.computeIfAbsent(
+            packageName, p -> new ArrayList<URI>());
+        rootUris.add(rootUri.normalize());
+    }
+    
+    /**
+     * Generate the classes for all root schemas that have been added to
+     * this batch, and write them into the given output directory. The
+     * given executor service is used for reading the documents and for
+     * generating the classes of the different packages. The caller is 
+     * responsible for shutting down the executor service.
+     * 
+     * @param outputDirectory The output directory
+     * @param writeMode The {@link WriteMode} for the generated files
+     * @param executorService The executor service
+     * @throws IOException If an IO error occurs
+     * @throws JsonException If the generation failed
+     */
+    public void generate(File outputDirectory, WriteMode writeMode, 
+        ExecutorService executorService) throws IOException
+    {
+        List<URI> rootUris = new ArrayList<URI>();
+        for (List<URI> uris : packageRootUris.values())
+        {
+            rootUris.addAll(uris);
+        }
+        if (rootUris.isEmpty())
+        {
+            return;
+        }
+        ParallelDocumentLoader parallelDocumentLoader = 
+            new ParallelDocumentLoader(executorService, documentLoader);
+        parallelDocumentLoader.prefetch(rootUris);
+        NodeRepository nodeRepository = new NodeRepository(
+            rootUris, parallelDocumentLoader, IndexingMode.SCHEMA_POSITIONS);
+        SchemaGenerator schemaGenerator = 
+            new SchemaGenerator(
+                nodeRepository, ForkJoinPool.commonPool(), config);
+        logger.info("Generating " + packageRootUris.size() 
+            + " packages for " + rootUris.size() + " root schemas");
+        
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (Entry<String, List<URI>> entry : packageRootUris.entrySet())
+        {
+            String packageName = entry.getKey();
+            List<URI> uris = entry.getValue();
+            futures.add(executorService.submit(() ->
+            {
+                ClassGenerator classGenerator = new ClassGenerator(
+                    schemaGenerator, uris, packageName, headerCode, config);
+                classGenerator.generate(outputDirectory, writeMode);
+                return null;
+            }));
+        }
+        for (Future<Void> future : futures)
+        {
+            await(future);
+        }
+    }
+    
+    /**
+     * Wait for the given future to complete
+     * 
+     * @param future The future
+     * @throws IOException If the task caused an IO error
+     * @throws JsonException If the thread was interrupted, or the task
+     * caused an unexpected exception
+     */
+    private static void await(Future<Void> future) throws IOException
+    {
+        try
+        {
+            future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new JsonException("Interrupted while generating", e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new JsonException("Could not generate classes", cause);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * A thin client for sending requests to a {@link GenerationDaemon}
+ */
+public final class GenerationClient
+{
+    /**
+     * The object mapper for requests and responses
+     */
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
+    /**
+     * Send the given request to the {@link GenerationDaemon} that is 
+     * running on the local host with the given port, and return the
+     * response. If the request does not contain a <code>token</code>, 
+     * then the token is read from the 
+     * {@link GenerationDaemon#getDefaultTokenFile(int) default token file}
+     * for the given port.
+     * 
+     * @param port The port
+     * @param request The request
+     * @return The response
+     * @throws IOException If an IO error occurs, for example, when no
+     * daemon is running
+     */
+    public static JsonNode send(int port, ObjectNode request) 
+        throws IOException
+    {
+        if (!request.has("token"))
+        {
+            request = request.deepCopy();
+            request.put("token", 
+                readToken(GenerationDaemon.getDefaultTokenFile(port)));
+        }
+        InetAddress address = InetAddress.getLoopbackAddress();
+        try (Socket socket = new Socket(address, port))
+        {
+            PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                socket.getOutputStream(), StandardCharsets.UTF_8));
+            writer.println(OBJECT_MAPPER.writeValueAsString(request));
+            writer.flush();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                socket.getInputStream(), StandardCharsets.UTF_8));
+            String line = reader.readLine();
+            if (line == null)
+            {
+                throw new IOException("No response from the daemon");
+            }
+            return OBJECT_MAPPER.readTree(line);
+        }
+    }
+    
+    /**
+     * Read the token of a {@link GenerationDaemon} from the given file
+     * 
+     * @param tokenFile The token file
+     * @return The token
+     * @throws IOException If the file cannot be read, for example, when 
+     * no daemon is running
+     */
+    private static String readToken(File tokenFile) throws IOException
+    {
+        byte[] bytes = Files.readAllBytes(tokenFile.toPath());
+        return new String(bytes, StandardCharsets.UTF_8).trim();
+    }
+    
+    /**
+     * Entry point of the client. The arguments are the root URI, the
+     * package name and the output directory, or only <code>stop</code> 
+     * for stopping the daemon. The port may be given with the system 
+     * property <code>jsonmodelgen.port</code>. The response is printed,
+     * and the exit code is 1 if the request failed.
+     * 
+     * @param args The arguments
+     * @throws IOException If an IO error occurs
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int port = Integer.getInteger(
+            "jsonmodelgen.port", GenerationDaemon.DEFAULT_PORT);
+        ObjectNode request = OBJECT_MAPPER.createObjectNode();
+        if (args.length == 1 && args[0].equals("stop"))
+        {
+            request.put("command", "stop");
+        }
+        else if (args.length == 3)
+        {
+            request.put("rootUri", args[0]);
+            request.put("packageName", args[1]);
+            request.put("outputDirectory", 
+                new File(args[2]).getAbsolutePath());
+        }
+        else
+        {
+            System.err.println("Usage: GenerationClient "
+                + "(<rootUri> <packageName> <outputDirectory> | stop)");
+            System.exit(2);
+            return;
+        }
+        JsonNode response = send(port, request);
+        System.out.println(response);
+        if (!"ok".equals(response.path("status").asText()))
+        {
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private GenerationClient()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
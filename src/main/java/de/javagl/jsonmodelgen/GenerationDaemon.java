@@ -0,0 +1,814 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import de.javagl.jsonmodelgen.json.CachingDocumentLoader;
+import de.javagl.jsonmodelgen.json.CachingDocumentLoader.Mode;
+import de.javagl.jsonmodelgen.json.DocumentLoader;
+import de.javagl.jsonmodelgen.json.JsonException;
+import de.javagl.jsonmodelgen.json.NodeRepository;
+import de.javagl.jsonmodelgen.json.NodeRepository.IndexingMode;
+import de.javagl.jsonmodelgen.json.RetainingDocumentLoader;
+import de.javagl.jsonmodelgen.json.schema.codemodel.ConcurrentFileCodeWriter.WriteMode;
+import de.javagl.jsonmodelgen.json.schema.codemodel.GeneratorConfig;
+import de.javagl.jsonmodelgen.json.schema.v202012.SchemaGenerator;
+import de.javagl.jsonmodelgen.json.schema.v202012.codemodel.ClassGenerator;
+
+/**
+ * A long-running process that accepts generation requests on a local 
+ * socket, and keeps the parsed documents and the generators between 
+ * the requests. 
+ * <br>
+ * <br>
+ * Each request is a single line that contains a JSON object with the
+ * following properties:
+ * <ul>
+ *   <li><code>token</code>: The token of the daemon, as described 
+ *   below</li>
+ *   <li><code>rootUri</code>: The root schema URI</li>
+ *   <li><code>packageName</code>: The package name</li>
+ *   <li><code>outputDirectory</code>: The output directory</li>
+ *   <li><code>headerCode</code>: The optional header code</li>
+ *   <li><code>writeMode</code>: The optional {@link WriteMode} name. 
+ *   The default is {@link WriteMode#CHANGED}.</li>
+ *   <li><code>refresh</code>: Whether the documents should be read
+ *   again, even if they are cached. The default is <code>false</code>.
+ *   </li>
+ *   <li><code>createAddersAndRemovers</code>, 
+ *   <code>createGettersWithDefault</code>, 
+ *   <code>removeAdditionalProperties</code>, 
+ *   <code>mergeEquivalentSchemas</code>: The optional flags for the
+ *   {@link GeneratorConfig}. The defaults are the values from 
+ *   {@link GeneratorConfig#DEFAULT}.</li>
+ *   <li><code>selection</code>: The optional array of class names or
+ *   property paths that select the subset of classes that should be
+ *   generated. See {@link GeneratorConfig#getSelection()}.</li>
+ * </ul>
+ * A request with a <code>"command"</code> property with the value 
+ * <code>"stop"</code> stops the daemon. The response is a single line
+ * that contains a JSON object with a <code>status</code> that is either 
+ * <code>"ok"</code> or <code>"error"</code>, and further information
+ * about the result or the error. Each connection is handled by its own
+ * thread, so that the requests of different clients are processed 
+ * concurrently. The {@link GenerationClient} can be used for sending 
+ * requests.
+ * <br>
+ * <br>
+ * When the daemon is started, it creates a random token, and writes it
+ * into a token file that can only be read by the current user. (By 
+ * default, this is the file that is returned by 
+ * {@link #getDefaultTokenFile(int)}). Requests that do not contain this
+ * token are rejected, and the connection is closed. This prevents other
+ * users, and web pages that send requests to the local port, from
+ * reading files or writing classes. The output directories of all 
+ * requests must be located in the output base directory of the daemon.
+ * <br>
+ * <br>
+ * For each combination of root URI, package name, header code and 
+ * {@link GeneratorConfig}, the {@link ClassGenerator} is cached, so 
+ * that a repeated request only has to write the classes. Before a 
+ * cached generator is used, the modification times of its local 
+ * documents are checked, and changed documents are read again. The 
+ * size of a cache entry is estimated with the length of the JSON text
+ * of its documents. When the total size exceeds the memory budget, the
+ * least recently used entries are evicted, together with the documents
+ * that are no longer used.
+ */
+public final class GenerationDaemon
+{
+    /**
+     * The logger used in this class
+     */
+    private static final Logger logger = 
+        Logger.getLogger(GenerationDaemon.class.getName());
+    
+    /**
+     * The default port of the daemon
+     */
+    public static final int DEFAULT_PORT = 47474;
+    
+    /**
+     * The default memory budget, as the total length of the JSON text of 
+     * the documents of all cache entries
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+    
+    /**
+     * A cached generator, together with the information that is required
+     * for checking whether it is still valid
+     */
+    private static final class CacheEntry
+    {
+        /**
+         * The {@link ClassGenerator}
+         */
+        private final ClassGenerator classGenerator;
+        
+        /**
+         * The URIs of all documents of the generator
+         */
+        private final Set<URI> documentUris;
+        
+        /**
+         * The modification times of all local documents of the generator
+         */
+        private final Map<URI, Long> lastModified;
+        
+        /**
+         * The estimated size of the entry
+         */
+        private final long size;
+        
+        /**
+         * Creates a new instance
+         * 
+         * @param classGenerator The {@link ClassGenerator}
+         * @param documentUris The document URIs
+         * @param lastModified The modification times of local documents
+         * @param size The estimated size
+         */
+        CacheEntry(ClassGenerator classGenerator, Set<URI> documentUris, 
+            Map<URI, Long> lastModified, long size)
+        {
+            this.classGenerator = classGenerator;
+            this.documentUris = documentUris;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+    }
+    
+    /**
+     * The port
+     */
+    private final int port;
+    
+    /**
+     * The file that receives the token
+     */
+    private final File tokenFile;
+    
+    /**
+     * The directory that must contain the output directories of all
+     * requests
+     */
+    private final File outputBaseDirectory;
+    
+    /**
+     * The token that has to be contained in each request. This is 
+     * created when the daemon is started.
+     */
+    private String token;
+    
+    /**
+     * The memory budget, as the total length of the JSON text of the 
+     * documents of all cache entries
+     */
+    private final long memoryBudget;
+    
+    /**
+     * The {@link RetainingDocumentLoader} that keeps the parsed documents
+     */
+    private final RetainingDocumentLoader documentLoader;
+    
+    /**
+     * The cache entries, in the order of their last use. Accesses to 
+     * this map are synchronized on the map.
+     */
+    private final LinkedHashMap<String, CacheEntry> cacheEntries;
+    
+    /**
+     * The object mapper for requests and responses
+     */
+    private final ObjectMapper objectMapper;
+    
+    /**
+     * Creates a new instance that writes its token into the 
+     * {@link #getDefaultTokenFile(int) default token file}, and only 
+     * accepts output directories in the current working directory
+     * 
+     * @param port The port
+     * @param documentLoader The {@link DocumentLoader} for reading the 
+     * documents that are not cached
+     * @param memoryBudget The memory budget, as the total length of the
+     * JSON text of the documents of all cache entries
+     */
+    public GenerationDaemon(
+        int port, DocumentLoader documentLoader, long memoryBudget)
+    {
+        this(port, documentLoader, memoryBudget, getDefaultTokenFile(port),
+            new File(System.getProperty("user.dir")));
+    }
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param port The port
+     * @param documentLoader The {@link DocumentLoader} for reading the 
+     * documents that are not cached
+     * @param memoryBudget The memory budget, as the total length of the
+     * JSON text of the documents of all cache entries
+     * @param tokenFile The file that receives the token
+     * @param outputBaseDirectory The directory that must contain the 
+     * output directories of all requests
+     */
+    public GenerationDaemon(int port, DocumentLoader documentLoader, 
+        long memoryBudget, File tokenFile, File outputBaseDirectory)
+    {
+        this.port = port;
+        this.tokenFile = tokenFile;
+        this.outputBaseDirectory = outputBaseDirectory;
+        this.memoryBudget = memoryBudget;
+        this.documentLoader = new RetainingDocumentLoader(documentLoader);
+        this.cacheEntries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, 
+            true);
+        this.objectMapper = new ObjectMapper();
+    }
+    
+    /**
+     * Returns the default token file for a daemon that listens on the 
+     * given port. This is the file <code>daemon-PORT.token</code> in 
+     * the <code>.json-model-gen</code> directory of the user home 
+     * directory.
+     * 
+     * @param port The port
+     * @return The token file
+     */
+    public static File getDefaultTokenFile(int port)
+    {
+        File directory = 
+            new File(System.getProperty("user.home"), ".json-model-gen");
+        return new File(directory, "daemon-" + port + ".token");
+    }
+    
+    /**
+     * Accept and process requests, until a <code>"stop"</code> command
+     * is received. Each connection is handled by its own thread.
+     * 
+     * @throws IOException If the server socket or the token file cannot 
+     * be created
+     */
+    public void run() throws IOException
+    {
+        token = createToken();
+        writeToken(tokenFile, token);
+        InetAddress address = InetAddress.getLoopbackAddress();
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        try (ServerSocket serverSocket = new ServerSocket(port, 50, address))
+        {
+            logger.info("Listening on " + serverSocket.getLocalSocketAddress()
+                + ", token file " + tokenFile);
+            while (!serverSocket.isClosed())
+            {
+                Socket socket = null;
+                try
+                {
+                    socket = serverSocket.accept();
+                }
+                catch (IOException e)
+                {
+                    if (!serverSocket.isClosed())
+                    {
+                        logger.warning("Accept failed: " + e.getMessage());
+                    }
+                    continue;
+                }
+                Socket acceptedSocket = socket;
+                executorService.execute(() -> 
+                    handle(acceptedSocket, serverSocket));
+            }
+        }
+        finally
+        {
+            executorService.shutdown();
+            Files.deleteIfExists(tokenFile.toPath());
+        }
+        logger.info("Stopped");
+    }
+    
+    /**
+     * Creates a new random token
+     * 
+     * @return The token
+     */
+    private static String createToken()
+    {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes)
+        {
+            sb.append(String.format("%02x", b & 0xFF));
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Write the given token into the given file, which is created so 
+     * that it can only be read and written by the current user
+     * 
+     * @param tokenFile The token file
+     * @param token The token
+     * @throws IOException If an IO error occurs
+     */
+    private static void writeToken(File tokenFile, String token) 
+        throws IOException
+    {
+        Path path = tokenFile.toPath().toAbsolutePath();
+        Files.createDirectories(path.getParent());
+        Files.deleteIfExists(path);
+        if (FileSystems.getDefault().supportedFileAttributeViews()
+            .contains("posix"))
+        {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(
+                PosixFilePermissions.fromString("rw-------")));
+        }
+        else
+        {
+            Files.createFile(path);
+            File file = path.toFile();
+            file.setReadable(false, false);
+            file.setReadable(true, true);
+            file.setWritable(false, false);
+            file.setWritable(true, true);
+        }
+        Files.write(path, token.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Handle the requests that are received from the given socket, and
+     * close the given server socket when a <code>"stop"</code> command
+     * is received
+     * 
+     * @param socket The socket
+     * @param serverSocket The server socket
+     */
+    private void handle(Socket socket, ServerSocket serverSocket)
+    {
+        try (Socket s = socket)
+        {
+            if (!handleConnection(s))
+            {
+                serverSocket.close();
+            }
+        }
+        catch (IOException e)
+        {
+            logger.warning("Connection failed: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Handle the requests that are received from the given socket. If a
+     * request cannot be parsed, or does not contain the right token, 
+     * then an error response is sent, and the connection is closed.
+     * 
+     * @param socket The socket
+     * @return Whether the daemon should continue running
+     * @throws IOException If an IO error occurs
+     */
+    private boolean handleConnection(Socket socket) throws IOException
+    {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+            socket.getInputStream(), StandardCharsets.UTF_8));
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+            socket.getOutputStream(), StandardCharsets.UTF_8));
+        String line = null;
+        while ((line = reader.readLine()) != null)
+        {
+            ObjectNode response = objectMapper.createObjectNode();
+            JsonNode request = parseAuthorizedRequest(line);
+            if (request == null)
+            {
+                logger.warning("Rejected request from " 
+                    + socket.getRemoteSocketAddress());
+                response.put("status", "error");
+                response.put("message", "Invalid request or token");
+                writer.println(objectMapper.writeValueAsString(response));
+                writer.flush();
+                return true;
+            }
+            boolean running = true;
+            try
+            {
+                if ("stop".equals(request.path("command").asText()))
+                {
+                    running = false;
+                }
+                else
+                {
+                    process(request, response);
+                }
+                response.put("status", "ok");
+            }
+            catch (IOException | RuntimeException e)
+            {
+                logger.severe("Request failed: " + e);
+                response.removeAll();
+                response.put("status", "error");
+                response.put("message", String.valueOf(e.getMessage()));
+            }
+            writer.println(objectMapper.writeValueAsString(response));
+            writer.flush();
+            if (!running)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Parse the given request line. Returns <code>null</code> if the 
+     * line does not contain a JSON object with the right token.
+     * 
+     * @param line The line
+     * @return The request
+     */
+    private JsonNode parseAuthorizedRequest(String line)
+    {
+        JsonNode request = null;
+        try
+        {
+            request = objectMapper.readTree(line);
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+        if (request == null || !request.isObject())
+        {
+            return null;
+        }
+        byte[] expected = token.getBytes(StandardCharsets.UTF_8);
+        byte[] actual = 
+            request.path("token").asText("").getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(expected, actual))
+        {
+            return null;
+        }
+        return request;
+    }
+    
+    /**
+     * Returns the canonical form of the given output directory
+     * 
+     * @param outputDirectory The output directory
+     * @return The canonical output directory
+     * @throws IOException If an IO error occurs
+     * @throws IllegalArgumentException If the given directory is not 
+     * located in the output base directory
+     */
+    private File validateOutputDirectory(File outputDirectory) 
+        throws IOException
+    {
+        File canonicalBaseDirectory = outputBaseDirectory.getCanonicalFile();
+        File canonicalDirectory = outputDirectory.getCanonicalFile();
+        if (!canonicalDirectory.toPath().startsWith(
+            canonicalBaseDirectory.toPath()))
+        {
+            throw new IllegalArgumentException("The output directory " 
+                + outputDirectory + " is not located in " 
+                + canonicalBaseDirectory);
+        }
+        return canonicalDirectory;
+    }
+    
+    /**
+     * Process the given generation request
+     * 
+     * @param request The request
+     * @param response The response that receives information about the
+     * result
+     * @throws IOException If an IO error occurs
+     * @throws JsonException If the generation fails
+     * @throws IllegalArgumentException If the request is not valid
+     */
+    private void process(JsonNode request, ObjectNode response) 
+        throws IOException
+    {
+        long before = System.nanoTime();
+        URI rootUri = parseUri(requiredText(request, "rootUri")).normalize();
+        String packageName = requiredText(request, "packageName");
+        File outputDirectory = validateOutputDirectory(
+            new File(requiredText(request, "outputDirectory")));
+        String headerCode = request.path("headerCode").asText("");
+        WriteMode writeMode = WriteMode.valueOf(
+            request.path("writeMode").asText(WriteMode.CHANGED.name()));
+        boolean refresh = request.path("refresh").asBoolean(false);
+        GeneratorConfig config = GeneratorConfig.DEFAULT
+            .withCreateAddersAndRemovers(request.path(
+                "createAddersAndRemovers").asBoolean(true))
+            .withCreateGettersWithDefault(request.path(
+                "createGettersWithDefault").asBoolean(true))
+            .withRemoveAdditionalProperties(request.path(
+                "removeAdditionalProperties").asBoolean(true))
+            .withMergeEquivalentSchemas(request.path(
+                "mergeEquivalentSchemas").asBoolean(false))
+            .withSelection(optionalTexts(request, "selection"));
+        
+        String key = rootUri + "\n" + packageName + "\n" + headerCode 
+            + "\n" + config;
+        CacheEntry cacheEntry = null;
+        synchronized (cacheEntries)
+        {
+            cacheEntry = cacheEntries.get(key);
+            if (cacheEntry != null && (refresh || !isValid(cacheEntry)))
+            {
+                for (URI documentUri : cacheEntry.documentUris)
+                {
+                    if (refresh || isModified(cacheEntry, documentUri))
+                    {
+                        documentLoader.invalidate(documentUri);
+                    }
+                }
+                cacheEntries.remove(key);
+                cacheEntry = null;
+            }
+        }
+        boolean cached = cacheEntry != null;
+        if (!cached)
+        {
+            cacheEntry = createCacheEntry(
+                rootUri, packageName, headerCode, config);
+            synchronized (cacheEntries)
+            {
+                cacheEntries.put(key, cacheEntry);
+                evict(key);
+            }
+        }
+        outputDirectory.mkdirs();
+        synchronized (cacheEntry)
+        {
+            cacheEntry.classGenerator.generate(outputDirectory, writeMode);
+        }
+        
+        long after = System.nanoTime();
+        response.put("cached", cached);
+        response.put("documents", cacheEntry.documentUris.size());
+        response.put("millis", TimeUnit.NANOSECONDS.toMillis(after - before));
+        logger.info("Processed " + rootUri + " (cached: " + cached + ") in " 
+            + response.get("millis") + " ms");
+    }
+    
+    /**
+     * Create a new {@link CacheEntry} for the given parameters
+     * 
+     * @param rootUri The root URI
+     * @param packageName The package name
+     * @param headerCode The header code
+     * @param config The {@link GeneratorConfig}
+     * @return The {@link CacheEntry}
+     */
+    private CacheEntry createCacheEntry(URI rootUri, String packageName, 
+        String headerCode, GeneratorConfig config)
+    {
+        NodeRepository nodeRepository = new NodeRepository(
+            rootUri, documentLoader, IndexingMode.SCHEMA_POSITIONS);
+        SchemaGenerator schemaGenerator = 
+            new SchemaGenerator(nodeRepository, null, config);
+        ClassGenerator classGenerator = new ClassGenerator(
+            schemaGenerator, packageName, headerCode, config);
+        
+        Set<URI> documentUris = nodeRepository.getDocumentUris();
+        Map<URI, Long> lastModified = new LinkedHashMap<URI, Long>();
+        long size = 0;
+        for (URI documentUri : documentUris)
+        {
+            if ("file".equals(documentUri.getScheme()))
+            {
+                lastModified.put(documentUri, lastModified(documentUri));
+            }
+            JsonNode node = nodeRepository.getDocument(documentUri);
+            if (node != null)
+            {
+                size += node.toString().length();
+            }
+        }
+        return new CacheEntry(
+            classGenerator, documentUris, lastModified, size);
+    }
+    
+    /**
+     * Returns whether none of the local documents of the given entry has
+     * been modified since the entry was created
+     * 
+     * @param cacheEntry The {@link CacheEntry}
+     * @return Whether the entry is still valid
+     */
+    private static boolean isValid(CacheEntry cacheEntry)
+    {
+        for (URI documentUri : cacheEntry.lastModified.keySet())
+        {
+            if (isModified(cacheEntry, documentUri))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Returns whether the given document is a local document that has 
+     * been modified since the given entry was created
+     * 
+     * @param cacheEntry The {@link CacheEntry}
+     * @param documentUri The document URI
+     * @return Whether the document was modified
+     */
+    private static boolean isModified(CacheEntry cacheEntry, URI documentUri)
+    {
+        Long lastModified = cacheEntry.lastModified.get(documentUri);
+        if (lastModified == null)
+        {
+            return false;
+        }
+        return !Objects.equals(lastModified, lastModified(documentUri));
+    }
+    
+    /**
+     * Returns the modification time of the file with the given URI, or
+     * 0 if the file does not exist
+     * 
+     * @param fileUri The file URI
+     * @return The modification time
+     */
+    private static long lastModified(URI fileUri)
+    {
+        return Paths.get(fileUri).toFile().lastModified();
+    }
+    
+    /**
+     * Evict the least recently used cache entries, except for the one 
+     * with the given key, until the total size of the entries is not
+     * larger than the memory budget. Afterwards, release all documents 
+     * that are not used by any remaining entry. This must be called 
+     * while holding the lock of the {@link #cacheEntries}.
+     * 
+     * @param retainedKey The key of the entry that should be retained
+     */
+    private void evict(String retainedKey)
+    {
+        long totalSize = 0;
+        for (CacheEntry cacheEntry : cacheEntries.values())
+        {
+            totalSize += cacheEntry.size;
+        }
+        Iterator<Entry<String, CacheEntry>> iterator = 
+            cacheEntries.entrySet().iterator();
+        while (totalSize > memoryBudget && iterator.hasNext())
+        {
+            Entry<String, CacheEntry> entry = iterator.next();
+            if (!entry.getKey().equals(retainedKey))
+            {
+                totalSize -= entry.getValue().size;
+                iterator.remove();
+                logger.info("Evicted " + entry.getKey().split("\n")[0]);
+            }
+        }
+        Set<URI> usedDocumentUris = new LinkedHashSet<URI>();
+        for (CacheEntry cacheEntry : cacheEntries.values())
+        {
+            usedDocumentUris.addAll(cacheEntry.documentUris);
+        }
+        documentLoader.retainAll(usedDocumentUris);
+    }
+    
+    /**
+     * Returns the text of the specified property of the given request
+     * 
+     * @param request The request
+     * @param name The property name
+     * @return The text
+     * @throws IllegalArgumentException If the property is missing
+     */
+    private static String requiredText(JsonNode request, String name)
+    {
+        JsonNode node = request.get(name);
+        if (node == null || !node.isTextual())
+        {
+            throw new IllegalArgumentException(
+                "The request does not contain a '" + name + "'");
+        }
+        return node.asText();
+    }
+    
+    /**
+     * Returns the texts of the elements of the specified array property of
+     * the given request. If the property is missing, then an empty list 
+     * is returned.
+     * 
+     * @param request The request
+     * @param name The property name
+     * @return The texts
+     */
+    private static List<String> optionalTexts(JsonNode request, String name)
+    {
+        List<String> texts = new ArrayList<String>();
+        for (JsonNode element : request.path(name))
+        {
+            texts.add(element.asText());
+        }
+        return texts;
+    }
+    
+    /**
+     * Parse the given URI string
+     * 
+     * @param uriString The URI string
+     * @return The URI
+     * @throws IllegalArgumentException If the string is not a valid URI
+     */
+    private static URI parseUri(String uriString)
+    {
+        try
+        {
+            return new URI(uriString);
+        }
+        catch (URISyntaxException e)
+        {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Entry point of the daemon
+     * 
+     * @param args The optional port, and the optional output base 
+     * directory, which is the current working directory by default
+     * @throws IOException If the server socket cannot be created
+     */
+    public static void main(String[] args) throws IOException
+    {
+        LoggerUtil.initLogging();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        DocumentLoader documentLoader = 
+            new CachingDocumentLoader(new File("./data/cache/"), Mode.DEFAULT);
+        File outputBaseDirectory = new File(
+            args.length > 1 ? args[1] : System.getProperty("user.dir"));
+        GenerationDaemon generationDaemon = new GenerationDaemon(port, 
+            documentLoader, DEFAULT_MEMORY_BUDGET, 
+            getDefaultTokenFile(port), outputBaseDirectory);
+        generationDaemon.run();
+    }
+}
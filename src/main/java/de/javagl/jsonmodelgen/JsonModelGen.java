@@ -29,10 +29,27 @@ package de.javagl.jsonmodelgen;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
 
+import de.javagl.jsonmodelgen.json.CachingDocumentLoader;
+import de.javagl.jsonmodelgen.json.CachingDocumentLoader.Mode;
+import de.javagl.jsonmodelgen.json.DocumentLoader;
 import de.javagl.jsonmodelgen.json.NodeRepository;
+import de.javagl.jsonmodelgen.json.NodeRepository.IndexingMode;
+import de.javagl.jsonmodelgen.json.ParallelDocumentLoader;
+import de.javagl.jsonmodelgen.json.schema.codemodel.ConcurrentFileCodeWriter.WriteMode;
+import de.javagl.jsonmodelgen.json.schema.codemodel.GeneratorConfig;
+import de.javagl.jsonmodelgen.json.schema.codemodel.SchemaGraph;
+import de.javagl.jsonmodelgen.json.schema.codemodel.SchemaSnapshot;
+import de.javagl.jsonmodelgen.json.schema.v202012.Schema;
 import de.javagl.jsonmodelgen.json.schema.v202012.SchemaGenerator;
 import de.javagl.jsonmodelgen.json.schema.v202012.codemodel.ClassGenerator;
 
@@ -47,6 +64,63 @@ public class JsonModelGen
     private static final Logger logger = 
         Logger.getLogger(JsonModelGen.class.getName());
     
+    /**
+     * The number of threads that are used for fetching the schema documents
+     */
+    private static final int NUM_FETCH_THREADS = 8;
+    
+    /**
+     * The directory for caching the schema documents that are fetched
+     */
+    private static final File CACHE_DIRECTORY = new File("./data/cache/");
+    
+    /**
+     * The mode for using the {@link #CACHE_DIRECTORY}. With 
+     * {@link Mode#REVALIDATE}, changes in the schema documents will be
+     * detected. With {@link Mode#OFFLINE}, the generation will only use
+     * the cached documents.
+     */
+    private static final Mode CACHE_MODE = Mode.DEFAULT;
+    
+    /**
+     * The {@link IndexingMode} for the {@link NodeRepository}
+     */
+    private static final IndexingMode INDEXING_MODE = 
+        IndexingMode.SCHEMA_POSITIONS;
+    
+    /**
+     * Whether the schemas of independent documents should be resolved
+     * in parallel by the {@link SchemaGenerator}
+     */
+    private static final boolean PARALLEL_SCHEMA_GENERATION = true;
+    
+    /**
+     * The {@link WriteMode} for the generated files. With 
+     * {@link WriteMode#CHANGED}, files whose contents did not change
+     * are not written again, so that their time stamps are preserved.
+     */
+    private static final WriteMode WRITE_MODE = WriteMode.CHANGED;
+    
+    /**
+     * The {@link GeneratorConfig} for the generated classes
+     */
+    private static final GeneratorConfig GENERATOR_CONFIG = 
+        GeneratorConfig.DEFAULT;
+    
+    /**
+     * Whether the resolved schemas should be stored in a 
+     * {@link SchemaSnapshot}, and restored from there when the schema 
+     * documents did not change. Remote documents are checked for changes
+     * through the document cache, according to the {@link #CACHE_MODE}.
+     */
+    private static final boolean USE_SCHEMA_SNAPSHOTS = true;
+    
+    /**
+     * The directory for the {@link SchemaSnapshot} files
+     */
+    private static final File SNAPSHOT_DIRECTORY = 
+        new File("./data/snapshots/");
+    
     /**
      * Entry point of the application
      * 
@@ -60,6 +134,7 @@ public class JsonModelGen
         
         generateGlTF();
         //generateTiles();
+        //watchGlTF();
     }
     
     /**
@@ -79,40 +154,64 @@ public class JsonModelGen
         generate(rootUri, packageName, headerCode, outputDirectory);
     }
     
-    
-    
-    //--------------------------------------------------------------------------
-    // Experimental 3D Tiles generation
     /**
-     * Performs the actual generation
+     * Generate the classes from a local copy of the glTF schema, and
+     * regenerate them whenever one of the schema files changes. This
+     * only returns when the thread is interrupted.
      * 
      * @throws Exception If an error occurs
      */
-    private static void generateTiles() throws Exception
+    private static void watchGlTF() throws Exception
     {
-        //generateTiles("tileset.schema.json", ".impl");
-        generateTiles("i3dm.featureTable.schema.json", ".impl");
-        generateTiles("pnts.featureTable.schema.json", ".impl");
+        File rootFile = new File("./data/schema/glTF/glTF.schema.json");
+        String headerCode = createHeaderCode("glTF JSON model"); 
+        String packageName = "de.javagl.jgltf.impl.v2";
+        
+        File outputDirectory = new File("./data/output/");
+        ModelWatcher modelWatcher = new ModelWatcher(rootFile.toURI(), 
+            packageName, headerCode, outputDirectory, WRITE_MODE);
+        modelWatcher.watch();
     }
     
+    
+    
+    //--------------------------------------------------------------------------
+    // Experimental 3D Tiles generation
     /**
      * Performs the actual generation
      * 
      * @throws Exception If an error occurs
      */
-    private static void generateTiles(
-        String fileName, String packageNameSuffixStartingWithDot) 
-            throws Exception
+    private static void generateTiles() throws Exception
     {
-        String urlString = "https://raw.githubusercontent.com/CesiumGS/"
-            + "3d-tiles/master/specification/schema/" + fileName;
+        String baseUrlString = "https://raw.githubusercontent.com/CesiumGS/"
+            + "3d-tiles/master/specification/schema/";
         String headerCode = createHeaderCode("3D Tiles JSON model"); 
-        String packageName = 
-            "de.javagl.cesium.j3dtiles" + packageNameSuffixStartingWithDot;
+        String packageName = "de.javagl.cesium.j3dtiles.impl";
+        
+        DocumentLoader documentLoader = 
+            new CachingDocumentLoader(CACHE_DIRECTORY, CACHE_MODE);
+        BatchGenerator batchGenerator = new BatchGenerator(
+            documentLoader, headerCode, GENERATOR_CONFIG);
+        //batchGenerator.add(
+        //    new URI(baseUrlString + "tileset.schema.json"), packageName);
+        batchGenerator.add(new URI(
+            baseUrlString + "i3dm.featureTable.schema.json"), packageName);
+        batchGenerator.add(new URI(
+            baseUrlString + "pnts.featureTable.schema.json"), packageName);
         
-        URI rootUri = new URI(urlString);
         File outputDirectory = new File("./data/output/");
-        generate(rootUri, packageName, headerCode, outputDirectory);
+        ExecutorService executorService = 
+            Executors.newFixedThreadPool(NUM_FETCH_THREADS);
+        try
+        {
+            batchGenerator.generate(
+                outputDirectory, WRITE_MODE, executorService);
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
     }
     //--------------------------------------------------------------------------
     
@@ -131,25 +230,119 @@ public class JsonModelGen
     private static void generate(URI rootUri, String packageName, 
         String headerCode, File outputDirectory) throws IOException
     {
-        logger.info("Creating NodeRepository");
-        NodeRepository nodeRepository = new NodeRepository(rootUri);
-        logger.info("Creating NodeRepository DONE");
-        //System.out.println(nodeRepository.createDebugString());
-        
-        logger.info("Creating SchemaGenerator");
-        SchemaGenerator schemaGenerator = new SchemaGenerator(nodeRepository);
-        logger.info("Creating SchemaGenerator DONE");
+        File snapshotFile = new File(SNAPSHOT_DIRECTORY, 
+            createSnapshotFileName(rootUri));
+        SchemaGraph<Schema> schemaGraph = null;
+        if (USE_SCHEMA_SNAPSHOTS)
+        {
+            DocumentLoader documentLoader = 
+                new CachingDocumentLoader(CACHE_DIRECTORY, CACHE_MODE);
+            schemaGraph = SchemaSnapshot.read(snapshotFile, rootUri, 
+                GENERATOR_CONFIG, Schema.class, documentLoader);
+        }
+        if (schemaGraph != null)
+        {
+            logger.info("Using schema snapshot " + snapshotFile);
+        }
+        else
+        {
+            NodeRepository nodeRepository = createNodeRepository(rootUri);
+            
+            logger.info("Creating SchemaGenerator");
+            ForkJoinPool forkJoinPool = 
+                PARALLEL_SCHEMA_GENERATION ? ForkJoinPool.commonPool() : null;
+            SchemaGenerator schemaGenerator = new SchemaGenerator(
+                nodeRepository, forkJoinPool, GENERATOR_CONFIG);
+            logger.info("Creating SchemaGenerator DONE");
+            logMergedUris(schemaGenerator.getMergedUris());
+            
+            if (USE_SCHEMA_SNAPSHOTS)
+            {
+                SchemaSnapshot.create(
+                    schemaGenerator, nodeRepository, GENERATOR_CONFIG)
+                        .write(snapshotFile, rootUri);
+            }
+            schemaGraph = schemaGenerator;
+        }
         
         logger.info("Creating ClassGenerator");
-        ClassGenerator classGenerator = 
-            new ClassGenerator(schemaGenerator, packageName, headerCode);
+        ClassGenerator classGenerator = new ClassGenerator(
+            schemaGraph, packageName, headerCode, GENERATOR_CONFIG);
         logger.info("Creating ClassGenerator DONE");
         
         logger.info("Creating classes");
-        classGenerator.generate(outputDirectory);
+        classGenerator.generate(outputDirectory, WRITE_MODE);
         logger.info("Creating DONE");
     }
     
+    /**
+     * Create the {@link NodeRepository} for the given root URI, fetching 
+     * the documents in parallel, through the document cache
+     * 
+     * @param rootUri The root URI
+     * @return The {@link NodeRepository}
+     */
+    private static NodeRepository createNodeRepository(URI rootUri)
+    {
+        logger.info("Creating NodeRepository");
+        ExecutorService executorService = 
+            Executors.newFixedThreadPool(NUM_FETCH_THREADS);
+        NodeRepository nodeRepository = null;
+        try
+        {
+            DocumentLoader cachingDocumentLoader = 
+                new CachingDocumentLoader(CACHE_DIRECTORY, CACHE_MODE);
+            ParallelDocumentLoader documentLoader = 
+                new ParallelDocumentLoader(
+                    executorService, cachingDocumentLoader);
+            documentLoader.prefetch(rootUri);
+            nodeRepository = new NodeRepository(
+                rootUri, documentLoader, INDEXING_MODE);
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+        logger.info("Creating NodeRepository DONE");
+        //System.out.println(nodeRepository.createDebugString());
+        return nodeRepository;
+    }
+    
+    /**
+     * Creates the name of the {@link SchemaSnapshot} file for the given
+     * root URI and the {@link #GENERATOR_CONFIG}, so that snapshots for 
+     * different configurations do not replace each other. Different root
+     * URIs or configurations may lead to the same name, but 
+     * {@link SchemaSnapshot#read(File, URI, GeneratorConfig, Class, 
+     * DocumentLoader)} only returns snapshots for the right root URI and
+     * configuration. 
+     * 
+     * @param rootUri The root URI
+     * @return The file name
+     */
+    private static String createSnapshotFileName(URI rootUri)
+    {
+        int hash = Objects.hash(
+            rootUri.normalize().toString(), GENERATOR_CONFIG);
+        return String.format(Locale.ENGLISH, "%08x.snapshot", hash);
+    }
+    
+    /**
+     * Log the information about the URIs of schemas that have been merged 
+     * into other, structurally equivalent schemas
+     * 
+     * @param mergedUris The mapping from the URIs of the remaining schemas
+     * to the URIs of the schemas that have been merged into them
+     */
+    private static void logMergedUris(Map<URI, List<URI>> mergedUris)
+    {
+        for (Entry<URI, List<URI>> entry : mergedUris.entrySet())
+        {
+            logger.fine("Merged into " + entry.getKey() + ": " 
+                + entry.getValue());
+        }
+    }
+    
     /**
      * Creates the header code to be inserted into every generated class,
      * with the given title
@@ -0,0 +1,399 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import de.javagl.jsonmodelgen.json.JsonException;
+import de.javagl.jsonmodelgen.json.JsonLocation;
+import de.javagl.jsonmodelgen.json.NodeRepository;
+import de.javagl.jsonmodelgen.json.NodeRepository.IndexingMode;
+import de.javagl.jsonmodelgen.json.RetainingDocumentLoader;
+import de.javagl.jsonmodelgen.json.schema.codemodel.ConcurrentFileCodeWriter.WriteMode;
+import de.javagl.jsonmodelgen.json.schema.v202012.SchemaGenerator;
+import de.javagl.jsonmodelgen.json.schema.v202012.codemodel.ClassGenerator;
+
+/**
+ * A class that generates the classes for a schema from local files, 
+ * and watches the directories of the schema documents for changes.
+ * <br>
+ * <br>
+ * The parsed documents are retained in a {@link RetainingDocumentLoader}.
+ * When a document changes, only this document is read and parsed again.
+ * The documents that (transitively) depend on the changed documents are
+ * determined from the references that have been found during the last
+ * generation. The classes are then generated in memory, and only the 
+ * files whose contents changed are written, using 
+ * {@link WriteMode#CHANGED} (or another {@link WriteMode} that was 
+ * given in the constructor). Changes of files that are not documents 
+ * of the schema are ignored.
+ */
+public final class ModelWatcher
+{
+    /**
+     * The logger used in this class
+     */
+    private static final Logger logger = 
+        Logger.getLogger(ModelWatcher.class.getName());
+    
+    /**
+     * The time, in milliseconds, to wait for further changes after a 
+     * change was detected. Editors often cause multiple events for 
+     * saving a single file, and these should cause only one generation.
+     */
+    private static final long SETTLE_DELAY_MS = 50;
+    
+    /**
+     * The root URI, which must be a <code>file:</code> URI
+     */
+    private final URI rootUri;
+    
+    /**
+     * The package name for the generated classes
+     */
+    private final String packageName;
+    
+    /**
+     * The header code for each generated file
+     */
+    private final String headerCode;
+    
+    /**
+     * The output directory
+     */
+    private final File outputDirectory;
+    
+    /**
+     * The {@link WriteMode} for the generated files
+     */
+    private final WriteMode writeMode;
+    
+    /**
+     * The {@link RetainingDocumentLoader} that keeps the parsed documents
+     */
+    private final RetainingDocumentLoader documentLoader;
+    
+    /**
+     * The mapping from the paths of the local documents to the URIs of
+     * these documents. This contains the documents of all generations, 
+     * so that a document that temporarily could not be parsed is still
+     * watched.
+     */
+    private final Map<Path, URI> documentPaths;
+    
+    /**
+     * The mapping from document URIs to the URIs of the documents that 
+     * directly refer to them, as found in the last generation
+     */
+    private final Map<URI, Set<URI>> referringDocuments;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param rootUri The root URI. This must be a <code>file:</code> URI.
+     * @param packageName The package name for the generated classes
+     * @param headerCode The header code for each generated file
+     * @param outputDirectory The output directory
+     * @param writeMode The {@link WriteMode} for the generated files
+     * @throws IllegalArgumentException If the given URI is not a 
+     * <code>file:</code> URI
+     */
+    public ModelWatcher(URI rootUri, String packageName, String headerCode,
+        File outputDirectory, WriteMode writeMode)
+    {
+        if (!"file".equals(rootUri.getScheme()))
+        {
+            throw new IllegalArgumentException(
+                "Only file URIs can be watched, but got " + rootUri);
+        }
+        this.rootUri = rootUri.normalize();
+        this.packageName = packageName;
+        this.headerCode = headerCode;
+        this.outputDirectory = outputDirectory;
+        this.writeMode = writeMode;
+        this.documentLoader = new RetainingDocumentLoader();
+        this.documentPaths = new LinkedHashMap<Path, URI>();
+        this.referringDocuments = new LinkedHashMap<URI, Set<URI>>();
+    }
+    
+    /**
+     * Generate the classes, using the documents that have not been 
+     * invalidated since the last generation, and reading all others
+     * 
+     * @throws IOException If an IO error occurs
+     * @throws JsonException If the generation failed
+     */
+    public void generate() throws IOException
+    {
+        long before = System.nanoTime();
+        NodeRepository nodeRepository = new NodeRepository(
+            rootUri, documentLoader, IndexingMode.SCHEMA_POSITIONS);
+        SchemaGenerator schemaGenerator = 
+            new SchemaGenerator(nodeRepository);
+        ClassGenerator classGenerator = 
+            new ClassGenerator(schemaGenerator, packageName, headerCode);
+        classGenerator.generate(outputDirectory, writeMode);
+        updateDocuments(nodeRepository);
+        long after = System.nanoTime();
+        long ms = TimeUnit.NANOSECONDS.toMillis(after - before);
+        logger.info("Generation took " + ms + " ms");
+    }
+    
+    /**
+     * Update the document paths and the references between the documents,
+     * based on the given {@link NodeRepository}, and release all documents
+     * that are no longer part of the schema
+     * 
+     * @param nodeRepository The {@link NodeRepository}
+     */
+    private void updateDocuments(NodeRepository nodeRepository)
+    {
+        Set<URI> documentUris = new LinkedHashSet<URI>();
+        for (JsonLocation location : nodeRepository.getLocations())
+        {
+            documentUris.add(location.getDocumentLocation().toUri());
+        }
+        documentLoader.retainAll(documentUris);
+        
+        for (URI documentUri : documentUris)
+        {
+            if ("file".equals(documentUri.getScheme()))
+            {
+                Path path = Paths.get(documentUri).toAbsolutePath();
+                documentPaths.put(path.normalize(), documentUri);
+            }
+        }
+        
+        referringDocuments.clear();
+        Map<JsonLocation, JsonLocation> references = 
+            nodeRepository.getReferences();
+        for (Entry<JsonLocation, JsonLocation> entry : references.entrySet())
+        {
+            URI source = entry.getKey().getDocumentLocation().toUri();
+            URI target = entry.getValue().getDocumentLocation().toUri();
+            if (!source.equals(target))
+            {
+                referringDocuments.computeIfAbsent(target, 
+                    k -> new LinkedHashSet<URI>()).add(source);
+            }
+        }
+    }
+    
+    /**
+     * Compute the set of documents that are affected by changes in the
+     * given documents. These are the given documents, and all documents
+     * that (transitively) refer to them.
+     * 
+     * @param changedDocuments The changed documents
+     * @return The affected documents
+     */
+    private Set<URI> computeAffectedDocuments(Set<URI> changedDocuments)
+    {
+        Set<URI> affected = new LinkedHashSet<URI>(changedDocuments);
+        Deque<URI> queue = new ArrayDeque<URI>(changedDocuments);
+        while (!queue.isEmpty())
+        {
+            URI document = queue.poll();
+            Set<URI> referring = referringDocuments.getOrDefault(
+                document, Collections.emptySet());
+            for (URI referringDocument : referring)
+            {
+                if (affected.add(referringDocument))
+                {
+                    queue.add(referringDocument);
+                }
+            }
+        }
+        return affected;
+    }
+    
+    /**
+     * Generate the classes, and then watch the directories of all local
+     * schema documents for changes. When a document changes, the classes
+     * are generated again, as described in the class documentation. 
+     * Errors during the generation after a change are logged, and the
+     * watcher continues, so that the error may be fixed in the documents.
+     * <br>
+     * <br>
+     * This method only returns when the calling thread is interrupted.
+     * 
+     * @throws IOException If an IO error occurs
+     * @throws JsonException If the initial generation failed
+     */
+    public void watch() throws IOException
+    {
+        generate();
+        try (WatchService watchService = 
+            FileSystems.getDefault().newWatchService())
+        {
+            Set<Path> watchedDirectories = new LinkedHashSet<Path>();
+            while (!Thread.currentThread().isInterrupted())
+            {
+                register(watchService, watchedDirectories);
+                Set<Path> changedPaths = new LinkedHashSet<Path>();
+                boolean complete = awaitChanges(watchService, changedPaths);
+                if (Thread.currentThread().isInterrupted())
+                {
+                    break;
+                }
+                Set<URI> changedDocuments = new LinkedHashSet<URI>();
+                for (Entry<Path, URI> entry : documentPaths.entrySet())
+                {
+                    if (!complete || changedPaths.contains(entry.getKey()))
+                    {
+                        changedDocuments.add(entry.getValue());
+                    }
+                }
+                if (changedDocuments.isEmpty())
+                {
+                    continue;
+                }
+                regenerate(changedDocuments);
+            }
+        }
+    }
+    
+    /**
+     * Register the directories of all local documents at the given watch
+     * service, if they are not yet contained in the given set of watched
+     * directories
+     * 
+     * @param watchService The watch service
+     * @param watchedDirectories The watched directories
+     * @throws IOException If an IO error occurs
+     */
+    private void register(WatchService watchService, 
+        Set<Path> watchedDirectories) throws IOException
+    {
+        for (Path path : documentPaths.keySet())
+        {
+            Path directory = path.getParent();
+            if (watchedDirectories.add(directory))
+            {
+                directory.register(watchService, 
+                    ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                logger.info("Watching " + directory);
+            }
+        }
+    }
+    
+    /**
+     * Wait until changes are reported by the given watch service, and
+     * collect the paths of all changed files in the given set. After the
+     * first change, this waits until no further changes are reported for
+     * the {@link #SETTLE_DELAY_MS}. Returns whether all changes could be 
+     * collected. If events have been lost, then <code>false</code> is 
+     * returned, and all documents have to be considered to be changed.
+     * If the thread is interrupted while waiting, then the interruption
+     * flag will be set and this method returns.
+     * 
+     * @param watchService The watch service
+     * @param changedPaths The set that will store the changed paths
+     * @return Whether the changes are complete
+     */
+    private static boolean awaitChanges(
+        WatchService watchService, Set<Path> changedPaths)
+    {
+        boolean complete = true;
+        try
+        {
+            WatchKey key = watchService.take();
+            while (key != null)
+            {
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents())
+                {
+                    if (event.kind() == OVERFLOW)
+                    {
+                        complete = false;
+                        continue;
+                    }
+                    Path name = (Path) event.context();
+                    Path path = directory.resolve(name).toAbsolutePath();
+                    changedPaths.add(path.normalize());
+                }
+                key.reset();
+                key = watchService.poll(
+                    SETTLE_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        return complete;
+    }
+    
+    /**
+     * Invalidate the given documents, and generate the classes
+     * 
+     * @param changedDocuments The changed documents
+     */
+    private void regenerate(Set<URI> changedDocuments)
+    {
+        Set<URI> affectedDocuments = 
+            computeAffectedDocuments(changedDocuments);
+        logger.info("Changed documents: " + changedDocuments);
+        logger.info("Affected documents: " + affectedDocuments.size() 
+            + " of " + documentPaths.size());
+        for (URI changedDocument : changedDocuments)
+        {
+            documentLoader.invalidate(changedDocument);
+        }
+        try
+        {
+            generate();
+        }
+        catch (IOException | JsonException e)
+        {
+            logger.severe("Generation failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * The original documents of the definitions in a bundle that was created
+ * with the {@link SchemaBundler}.<br>
+ * <br>
+ * The {@link SchemaBundler} records the URI of the document that each
+ * definition was created from, in the {@link #ORIGIN_KEYWORD} of the 
+ * definition. This class reads these records from the root documents 
+ * of a {@link NodeRepository}, and maps locations inside the recorded
+ * definitions back to URIs in the original documents. For example:
+ * <pre><code>
+ * Location in the bundle:
+ *     glTF.schema.json#/$defs/node.schema.json/properties/matrix
+ * Original URI:
+ *     node.schema.json#/properties/matrix
+ * </code></pre>
+ * Locations that are not inside a recorded definition are not mapped.
+ */
+public final class BundleOrigins
+{
+    /**
+     * The annotation keyword that stores the URI of the original 
+     * document of a definition. The URI is relative to the bundle
+     * if possible.
+     */
+    public static final String ORIGIN_KEYWORD = "x-bundle-origin";
+    
+    /**
+     * The keywords that may contain the definitions of a bundle
+     */
+    private static final List<String> DEFINITIONS_KEYWORDS = 
+        Collections.unmodifiableList(Arrays.asList("$defs", "definitions"));
+    
+    /**
+     * The mapping from the locations of recorded definitions to the URIs
+     * of their original documents
+     */
+    private final Map<JsonLocation, URI> originalUris;
+    
+    /**
+     * Creates a new instance with the given mapping
+     * 
+     * @param originalUris The mapping from definition locations to the
+     * URIs of the original documents
+     */
+    private BundleOrigins(Map<JsonLocation, URI> originalUris)
+    {
+        this.originalUris = originalUris;
+    }
+    
+    /**
+     * Reads the {@link #ORIGIN_KEYWORD} entries of the definitions in 
+     * the root documents of the given {@link NodeRepository}
+     * 
+     * @param nodeRepository The {@link NodeRepository}
+     * @return The {@link BundleOrigins}
+     */
+    public static BundleOrigins read(NodeRepository nodeRepository)
+    {
+        Map<JsonLocation, URI> originalUris = 
+            new LinkedHashMap<JsonLocation, URI>();
+        for (JsonLocation rootLocation : nodeRepository.getRootLocations())
+        {
+            JsonLocation documentLocation = 
+                rootLocation.getDocumentLocation();
+            URI documentUri = documentLocation.toUri();
+            JsonNode document = nodeRepository.getDocument(documentUri);
+            if (document == null)
+            {
+                continue;
+            }
+            for (String keyword : DEFINITIONS_KEYWORDS)
+            {
+                JsonNode definitions = document.get(keyword);
+                if (definitions == null || !definitions.isObject())
+                {
+                    continue;
+                }
+                Iterator<Entry<String, JsonNode>> fields = 
+                    definitions.fields();
+                while (fields.hasNext())
+                {
+                    Entry<String, JsonNode> field = fields.next();
+                    JsonNode origin = field.getValue().get(ORIGIN_KEYWORD);
+                    if (origin != null && origin.isTextual())
+                    {
+                        JsonLocation definitionLocation = documentLocation
+                            .child(keyword).child(field.getKey());
+                        originalUris.put(definitionLocation, 
+                            documentUri.resolve(origin.asText()));
+                    }
+                }
+            }
+        }
+        return new BundleOrigins(originalUris);
+    }
+    
+    /**
+     * Returns the URI of the given location in its original document. 
+     * If the given location is not inside a recorded definition, then 
+     * the URI of the location is returned.
+     * 
+     * @param location The location
+     * @return The original URI
+     */
+    public URI toOriginalUri(JsonLocation location)
+    {
+        if (originalUris.isEmpty())
+        {
+            return location.toUri();
+        }
+        JsonLocation current = location;
+        while (current != null)
+        {
+            URI originalUri = originalUris.get(current);
+            if (originalUri != null)
+            {
+                if (current == location)
+                {
+                    return originalUri;
+                }
+                String pointer = location.toString().substring(
+                    current.toString().length());
+                return URI.create(originalUri + "#" + pointer);
+            }
+            current = current.getParent();
+        }
+        return location.toUri();
+    }
+    
+}
@@ -0,0 +1,433 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Implementation of a {@link DocumentLoader} that stores the documents
+ * that are read from <code>http</code> or <code>https</code> URIs in
+ * a persistent cache directory.<br>
+ * <br>
+ * The cache is content-addressed: The contents of each document are 
+ * stored in a file whose name is the SHA-256 hash of the contents. For 
+ * each (normalized) document URI, an index file stores the hash of the
+ * contents, together with the <code>ETag</code> and 
+ * <code>Last-Modified</code> values that the server reported. How the
+ * cache is used is determined by the {@link Mode}.<br>
+ * <br>
+ * Documents from other URIs (for example, <code>file</code> URIs) are 
+ * always read directly, and are not cached.<br>
+ * <br>
+ * Instances of this class are thread-safe, and several instances may 
+ * use the same cache directory.
+ */
+public class CachingDocumentLoader implements DocumentLoader
+{
+    /**
+     * The logger used in this class
+     */
+    private static final Logger logger = 
+        Logger.getLogger(CachingDocumentLoader.class.getName());
+    
+    /**
+     * The debug log level
+     */
+    private static final Level level = Level.FINE;
+    
+    /**
+     * The modes for using the cache
+     */
+    public enum Mode
+    {
+        /**
+         * Documents that are contained in the cache are used directly.
+         * Other documents are fetched and stored in the cache.
+         */
+        DEFAULT,
+        
+        /**
+         * Only documents that are contained in the cache are used. 
+         * Documents that are not contained in the cache cannot be loaded.
+         */
+        OFFLINE,
+        
+        /**
+         * For documents that are contained in the cache, a conditional 
+         * request is sent, based on the stored <code>ETag</code> and 
+         * <code>Last-Modified</code> values. The cached document is only 
+         * used when the server reports that it was not modified, or when
+         * the server cannot be reached. Other documents are fetched and 
+         * stored in the cache.
+         */
+        REVALIDATE
+    }
+    
+    /**
+     * The name of the index property that stores the URI
+     */
+    private static final String URI_PROPERTY = "uri";
+    
+    /**
+     * The name of the index property that stores the content hash
+     */
+    private static final String CONTENT_HASH_PROPERTY = "contentHash";
+    
+    /**
+     * The name of the index property that stores the ETag
+     */
+    private static final String ETAG_PROPERTY = "eTag";
+    
+    /**
+     * The name of the index property that stores the Last-Modified value
+     */
+    private static final String LAST_MODIFIED_PROPERTY = "lastModified";
+    
+    /**
+     * The directory that contains the index files
+     */
+    private final Path indexDirectory;
+    
+    /**
+     * The directory that contains the content files
+     */
+    private final Path contentDirectory;
+    
+    /**
+     * The {@link Mode}
+     */
+    private final Mode mode;
+    
+    /**
+     * Creates a new instance that uses the given cache directory. The 
+     * directory will be created if it does not exist yet.
+     * 
+     * @param cacheDirectory The cache directory
+     * @param mode The {@link Mode}
+     * @throws JsonException If the cache directory cannot be created
+     */
+    public CachingDocumentLoader(File cacheDirectory, Mode mode)
+    {
+        Path cachePath = cacheDirectory.toPath();
+        this.indexDirectory = cachePath.resolve("index");
+        this.contentDirectory = cachePath.resolve("content");
+        this.mode = mode;
+        try
+        {
+            Files.createDirectories(indexDirectory);
+            Files.createDirectories(contentDirectory);
+        }
+        catch (IOException e)
+        {
+            throw new JsonException(
+                "Could not create cache directory " + cacheDirectory, e);
+        }
+    }
+    
+    @Override
+    public JsonNode load(URI uri)
+    {
+        URI documentUri = URIs.removeFragment(uri.normalize());
+        String scheme = documentUri.getScheme();
+        if (!"http".equalsIgnoreCase(scheme) && 
+            !"https".equalsIgnoreCase(scheme))
+        {
+            return JsonUtils.readNodeOptional(documentUri);
+        }
+        byte[] data = null;
+        try
+        {
+            data = read(documentUri);
+        }
+        catch (IOException e)
+        {
+            logger.warning(
+                "Could not read schema from "+documentUri+
+                " - skipping ("+e.getMessage()+")");
+            return null;
+        }
+        if (data == null)
+        {
+            logger.warning(
+                "Could not read schema from "+documentUri+
+                " - skipping (not contained in the cache)");
+            return null;
+        }
+        return JsonUtils.parseNodeOptional(documentUri, data);
+    }
+    
+    /**
+     * Read the contents of the given document URI, according to the
+     * {@link Mode} of this loader. Returns <code>null</code> if the 
+     * mode is {@link Mode#OFFLINE} and the document is not contained
+     * in the cache.
+     * 
+     * @param documentUri The document URI
+     * @return The contents
+     * @throws IOException If an IO error occurs
+     */
+    private byte[] read(URI documentUri) throws IOException
+    {
+        byte[] uriBytes = documentUri.toString().getBytes(
+            StandardCharsets.UTF_8);
+        Path indexFile = indexDirectory.resolve(Hashes.hash(uriBytes));
+        Properties index = readIndex(indexFile);
+        byte[] cachedData = null;
+        if (index != null)
+        {
+            cachedData = readContent(index.getProperty(CONTENT_HASH_PROPERTY));
+        }
+        if (cachedData != null && mode != Mode.REVALIDATE)
+        {
+            log("Cache hit for " + documentUri);
+            return cachedData;
+        }
+        if (mode == Mode.OFFLINE)
+        {
+            return null;
+        }
+        
+        HttpURLConnection httpConnection = 
+            (HttpURLConnection)documentUri.toURL().openConnection();
+        if (cachedData != null)
+        {
+            String eTag = index.getProperty(ETAG_PROPERTY);
+            if (eTag != null)
+            {
+                httpConnection.setRequestProperty("If-None-Match", eTag);
+            }
+            String lastModified = index.getProperty(LAST_MODIFIED_PROPERTY);
+            if (lastModified != null)
+            {
+                httpConnection.setRequestProperty(
+                    "If-Modified-Since", lastModified);
+            }
+        }
+        byte[] data = null;
+        try
+        {
+            data = UriContents.readHttp(httpConnection);
+        }
+        catch (IOException e)
+        {
+            if (cachedData != null)
+            {
+                logger.warning("Could not revalidate " + documentUri 
+                    + ", using cached contents (" + e.getMessage() + ")");
+                return cachedData;
+            }
+            throw e;
+        }
+        if (cachedData != null && httpConnection.getResponseCode() == 
+            HttpURLConnection.HTTP_NOT_MODIFIED)
+        {
+            log("Cache hit for " + documentUri + " (not modified)");
+            return cachedData;
+        }
+        log("Cache miss for " + documentUri);
+        
+        String contentHash = Hashes.hash(data);
+        writeAtomically(contentDirectory.resolve(contentHash), data);
+        Properties newIndex = new Properties();
+        newIndex.setProperty(URI_PROPERTY, documentUri.toString());
+        newIndex.setProperty(CONTENT_HASH_PROPERTY, contentHash);
+        setPropertyOptional(newIndex, ETAG_PROPERTY, 
+            httpConnection.getHeaderField("ETag"));
+        setPropertyOptional(newIndex, LAST_MODIFIED_PROPERTY, 
+            httpConnection.getHeaderField("Last-Modified"));
+        writeIndex(indexFile, newIndex);
+        return data;
+    }
+    
+    /**
+     * Read the index properties from the given file. Returns 
+     * <code>null</code> if the file does not exist or cannot be read.
+     * 
+     * @param indexFile The index file
+     * @return The properties
+     */
+    private static Properties readIndex(Path indexFile)
+    {
+        if (!Files.exists(indexFile))
+        {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = 
+            Files.newBufferedReader(indexFile, StandardCharsets.UTF_8))
+        {
+            properties.load(reader);
+            return properties;
+        }
+        catch (IOException e)
+        {
+            logger.warning("Could not read cache index " + indexFile 
+                + " (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+    
+    /**
+     * Write the given index properties to the given file
+     * 
+     * @param indexFile The index file
+     * @param properties The properties
+     * @throws IOException If an IO error occurs
+     */
+    private static void writeIndex(Path indexFile, Properties properties) 
+        throws IOException
+    {
+        Path tempFile = Files.createTempFile(
+            indexFile.getParent(), "index", ".tmp");
+        try (Writer writer = 
+            Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8))
+        {
+            properties.store(writer, null);
+        }
+        move(tempFile, indexFile);
+    }
+    
+    /**
+     * Read the content with the given hash from the cache. Returns 
+     * <code>null</code> if the given hash is <code>null</code>, the 
+     * content is not contained in the cache, or the content does not
+     * match the hash.
+     * 
+     * @param contentHash The content hash
+     * @return The content
+     */
+    private byte[] readContent(String contentHash)
+    {
+        if (contentHash == null)
+        {
+            return null;
+        }
+        Path contentFile = contentDirectory.resolve(contentHash);
+        if (!Files.exists(contentFile))
+        {
+            return null;
+        }
+        try
+        {
+            byte[] data = Files.readAllBytes(contentFile);
+            if (!Hashes.hash(data).equals(contentHash))
+            {
+                logger.warning("Ignoring corrupt cache entry " + contentFile);
+                return null;
+            }
+            return data;
+        }
+        catch (IOException e)
+        {
+            logger.warning("Could not read cache entry " + contentFile 
+                + " (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+    
+    /**
+     * Write the given data to the given file, by writing it into a 
+     * temporary file and moving this file to the target
+     * 
+     * @param file The file
+     * @param data The data
+     * @throws IOException If an IO error occurs
+     */
+    private static void writeAtomically(Path file, byte[] data) 
+        throws IOException
+    {
+        Path tempFile = Files.createTempFile(
+            file.getParent(), "content", ".tmp");
+        Files.write(tempFile, data);
+        move(tempFile, file);
+    }
+    
+    /**
+     * Move the given source file to the given target file, atomically
+     * if possible, replacing the target file if it exists
+     * 
+     * @param source The source file
+     * @param target The target file
+     * @throws IOException If an IO error occurs
+     */
+    private static void move(Path source, Path target) throws IOException
+    {
+        try
+        {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e)
+        {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * Set the specified property in the given properties, if the given
+     * value is not <code>null</code>
+     * 
+     * @param properties The properties
+     * @param key The key
+     * @param value The value
+     */
+    private static void setPropertyOptional(
+        Properties properties, String key, String value)
+    {
+        if (value != null)
+        {
+            properties.setProperty(key, value);
+        }
+    }
+    
+    /**
+     * Debug logging utility method
+     *
+     * @param s The string for the log message
+     */
+    private static void log(String s)
+    {
+        if (logger.isLoggable(level))
+        {
+            logger.log(level, s);
+        }
+    }
+}
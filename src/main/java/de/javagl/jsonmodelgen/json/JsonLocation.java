@@ -0,0 +1,377 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A location of a JSON value, consisting of the URI of a document and
+ * a JSON pointer into this document.<br>
+ * <br>
+ * Locations are organized as a trie: Each location stores its parent
+ * location and the pointer token that leads from the parent to this
+ * location, and the children are interned in their parent. Instances 
+ * are obtained from a {@link NodeRepository}, via 
+ * {@link NodeRepository#getLocation(URI)}, or via the 
+ * {@link #child(String)} method of an existing location. So two 
+ * locations that were obtained from the same {@link NodeRepository} 
+ * are equal if and only if they are identical, and appending a token,
+ * comparing locations and computing their hash code are constant time 
+ * operations.<br>
+ * <br>
+ * The tokens of a location are the unescaped property names or array
+ * indices. The URI of a location is only created on demand, via 
+ * {@link #toUri()}. In this URI, the tokens are escaped as described in
+ * RFC 6901: The characters <code>'~'</code> and <code>'/'</code> are 
+ * replaced with <code>"~0"</code> and <code>"~1"</code>, and characters
+ * that are not allowed in a URI fragment are percent-encoded.
+ */
+public final class JsonLocation
+{
+    /**
+     * The URI of the document, without a fragment
+     */
+    private final URI documentUri;
+    
+    /**
+     * The function that returns the interned location for a URI. This is
+     * <code>null</code> for locations that are not document locations.
+     */
+    private final Function<URI, JsonLocation> locations;
+    
+    /**
+     * The parent location. This is <code>null</code> for the location
+     * of a document.
+     */
+    private final JsonLocation parent;
+    
+    /**
+     * The unescaped JSON pointer token that leads from the parent to this 
+     * location. This is <code>null</code> for the location of a document.
+     */
+    private final String token;
+    
+    /**
+     * The interned child locations, lazily created
+     */
+    private Map<String, JsonLocation> children;
+    
+    /**
+     * The URI of this location, lazily created
+     */
+    private volatile URI uri;
+    
+    /**
+     * Creates the location of the document with the given URI
+     * 
+     * @param documentUri The normalized document URI, without a fragment
+     * @param locations The function that returns the interned location 
+     * for a URI, used for {@link #resolve(String)}
+     */
+    JsonLocation(URI documentUri, Function<URI, JsonLocation> locations)
+    {
+        this.documentUri = documentUri;
+        this.locations = locations;
+        this.parent = null;
+        this.token = null;
+        this.uri = documentUri;
+    }
+    
+    /**
+     * Creates a new child location
+     * 
+     * @param parent The parent location
+     * @param token The token
+     */
+    private JsonLocation(JsonLocation parent, String token)
+    {
+        this.documentUri = parent.documentUri;
+        this.locations = null;
+        this.parent = parent;
+        this.token = token;
+    }
+    
+    /**
+     * Returns the location that is obtained by appending the given 
+     * JSON pointer token to this location.
+     * 
+     * @param token The unescaped token, for example, a property name or 
+     * an array index
+     * @return The child location
+     */
+    public synchronized JsonLocation child(String token)
+    {
+        if (children == null)
+        {
+            children = new HashMap<String, JsonLocation>();
+        }
+        JsonLocation child = children.get(token);
+        if (child == null)
+        {
+            child = new JsonLocation(this, token);
+            children.put(token, child);
+        }
+        return child;
+    }
+    
+    /**
+     * Returns the location that is obtained by appending the given 
+     * array index to this location.
+     * 
+     * @param index The index
+     * @return The child location
+     */
+    public JsonLocation child(int index)
+    {
+        return child(String.valueOf(index));
+    }
+    
+    /**
+     * Resolves the given (relative) reference, like the value of a 
+     * <code>"$ref"</code>, against the URI of this location, and 
+     * returns the location of the result.
+     * 
+     * @param reference The reference
+     * @return The resolved location
+     * @throws IllegalArgumentException If the given reference is not
+     * a valid URI reference
+     */
+    public JsonLocation resolve(String reference)
+    {
+        URI resolvedUri = toUri().resolve(reference);
+        return getDocumentLocation().locations.apply(resolvedUri);
+    }
+    
+    /**
+     * Returns the location of the document that this location belongs to
+     * 
+     * @return The document location
+     */
+    public JsonLocation getDocumentLocation()
+    {
+        JsonLocation current = this;
+        while (current.parent != null)
+        {
+            current = current.parent;
+        }
+        return current;
+    }
+    
+    /**
+     * Returns the parent of this location, or <code>null</code> if this
+     * is the location of a document
+     * 
+     * @return The parent location
+     */
+    public JsonLocation getParent()
+    {
+        return parent;
+    }
+    
+    /**
+     * Returns the unescaped JSON pointer token that leads from the parent
+     * to this location, or <code>null</code> if this is the location of a
+     * document
+     * 
+     * @return The token
+     */
+    public String getToken()
+    {
+        return token;
+    }
+    
+    /**
+     * Returns an unmodifiable list containing the tokens that lead from 
+     * the given ancestor to this location. 
+     * 
+     * @param ancestor The ancestor location
+     * @return The tokens
+     * @throws IllegalArgumentException If the given location is not
+     * an ancestor of this location
+     */
+    List<String> getTokensFrom(JsonLocation ancestor)
+    {
+        List<String> tokens = new ArrayList<String>();
+        JsonLocation current = this;
+        while (current != ancestor)
+        {
+            if (current.parent == null)
+            {
+                throw new IllegalArgumentException(
+                    ancestor + " is not an ancestor of " + this);
+            }
+            tokens.add(current.token);
+            current = current.parent;
+        }
+        Collections.reverse(tokens);
+        return Collections.unmodifiableList(tokens);
+    }
+    
+    /**
+     * Returns the URI of this location. For the location of a document,
+     * this is the document URI. Otherwise, it is the document URI with
+     * the JSON pointer as its fragment.
+     * 
+     * @return The URI
+     * @throws IllegalArgumentException If the tokens of this location 
+     * cause an invalid URI syntax
+     */
+    public URI toUri()
+    {
+        URI result = uri;
+        if (result != null)
+        {
+            return result;
+        }
+        
+        // Collect the ancestors whose URI is not yet known, so that
+        // deeply nested locations do not cause a deep recursion
+        List<JsonLocation> pending = new ArrayList<JsonLocation>();
+        JsonLocation current = this;
+        while (current.uri == null)
+        {
+            pending.add(current);
+            current = current.parent;
+        }
+        for (int i = pending.size() - 1; i >= 0; i--)
+        {
+            JsonLocation location = pending.get(i);
+            location.uri = location.createUri();
+        }
+        return uri;
+    }
+    
+    /**
+     * Create the URI of this location, assuming that the URI of the 
+     * parent location is already known.
+     * 
+     * @return The URI
+     * @throws IllegalArgumentException If the token of this location 
+     * causes an invalid URI syntax
+     */
+    private URI createUri()
+    {
+        String uriString = parent.uri.toString();
+        if (parent.parent == null)
+        {
+            uriString += "#";
+        }
+        try
+        {
+            return new URI(uriString + "/" + escapeToken(token));
+        }
+        catch (URISyntaxException e)
+        {
+            throw new IllegalArgumentException(
+                "Could not append fragment "+token+" to "+parent, e);
+        }
+    }
+    
+    /**
+     * Escape the given JSON pointer token, so that it can be appended to
+     * the fragment of a URI: The characters <code>'~'</code> and 
+     * <code>'/'</code> are replaced with <code>"~0"</code> and 
+     * <code>"~1"</code>, and characters that are not allowed in a URI 
+     * fragment are percent-encoded.
+     * 
+     * @param token The unescaped token
+     * @return The escaped token
+     * @throws URISyntaxException If the token cannot be encoded
+     */
+    static String escapeToken(String token) throws URISyntaxException
+    {
+        if (!requiresEscaping(token))
+        {
+            return token;
+        }
+        String escaped = token.replace("~", "~0").replace("/", "~1");
+        return new URI(null, null, escaped).getRawFragment();
+    }
+    
+    /**
+     * Returns whether the given token contains characters that have to
+     * be escaped with {@link #escapeToken(String)}. This is only a quick
+     * check that returns <code>false</code> for the common tokens that 
+     * only consist of letters, digits, and some unreserved characters.
+     * 
+     * @param token The token
+     * @return Whether the token has to be escaped
+     */
+    private static boolean requiresEscaping(String token)
+    {
+        for (int i = 0; i < token.length(); i++)
+        {
+            char c = token.charAt(i);
+            boolean plain = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+                || (c >= '0' && c <= '9') || c == '$' || c == '_' 
+                || c == '-' || c == '.';
+            if (!plain)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Unescape the given JSON pointer token from a URI fragment. This 
+     * reverts the escaping that is described in 
+     * {@link #escapeToken(String)}.
+     * 
+     * @param rawToken The token, as it appears in the raw URI fragment
+     * @return The unescaped token
+     * @throws IllegalArgumentException If the token contains invalid 
+     * percent-encoded characters
+     */
+    static String unescapeToken(String rawToken)
+    {
+        String token = rawToken;
+        if (token.indexOf('%') != -1)
+        {
+            token = URI.create("#" + token).getFragment();
+        }
+        if (token.indexOf('~') != -1)
+        {
+            token = token.replace("~1", "/").replace("~0", "~");
+        }
+        return token;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return toUri().toString();
+    }
+    
+}
@@ -28,6 +28,7 @@ package de.javagl.jsonmodelgen.json;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -40,6 +41,8 @@ import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 
 /**
  * Utility methods related to JSON parsing 
@@ -52,6 +55,14 @@ public class JsonUtils
     private static final Logger logger = 
         Logger.getLogger(JsonUtils.class.getName());
     
+    /**
+     * The reader for JSON nodes. Instances of this class are immutable
+     * and thread-safe, so a single instance is shared for reading all
+     * documents.
+     */
+    private static final ObjectReader NODE_READER = 
+        new ObjectMapper().readerFor(JsonNode.class);
+    
     /**
      * The set of valid JSON type strings
      */
@@ -564,13 +575,59 @@ public class JsonUtils
      * @return The JSON node, or <code>null</code>
      */
     public static JsonNode readNodeOptional(URI uri)
+    {
+        ByteBuffer data = null;
+        try
+        {
+            data = UriContents.readBuffer(uri);
+        }
+        catch (IOException e)
+        {
+            logger.warning(
+                "Could not read schema from "+uri+
+                " - skipping ("+e.getMessage()+")");
+            return null;
+        }
+        return parseNodeOptional(uri, data);
+    }
+    
+    /**
+     * Parse the JSON node from the given data that was read from the 
+     * given URI. Returns <code>null</code> if the node could not be 
+     * parsed for any reason. Will print a warning if no node could be 
+     * parsed.
+     *  
+     * @param uri The URI that the data was read from
+     * @param data The data
+     * @return The JSON node, or <code>null</code>
+     */
+    public static JsonNode parseNodeOptional(URI uri, byte[] data)
+    {
+        return parseNodeOptional(uri, ByteBuffer.wrap(data));
+    }
+    
+    /**
+     * Parse the JSON node from the remaining bytes of the given buffer 
+     * that was read from the given URI. Returns <code>null</code> if the 
+     * node could not be parsed for any reason. Will print a warning if 
+     * no node could be parsed.
+     *  
+     * @param uri The URI that the data was read from
+     * @param data The data
+     * @return The JSON node, or <code>null</code>
+     */
+    public static JsonNode parseNodeOptional(URI uri, ByteBuffer data)
     {
         Exception exception = null;
         try
         {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode refNode = mapper.readValue(uri.toURL(), JsonNode.class);
-            return refNode;
+            if (data.hasArray())
+            {
+                return NODE_READER.readValue(data.array(), 
+                    data.arrayOffset() + data.position(), data.remaining());
+            }
+            return NODE_READER.readValue(
+                new ByteBufferBackedInputStream(data.duplicate()));
         }
         catch (JsonParseException e)
         {
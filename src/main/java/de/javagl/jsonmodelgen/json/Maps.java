@@ -27,7 +27,6 @@
 package de.javagl.jsonmodelgen.json;
 
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -38,22 +37,25 @@ import java.util.Map.Entry;
 public class Maps
 {
     /**
-     * Returns an unmodifiable map that maps the keys of the given map to
-     * unmodifiable views on the values of the given map.
+     * Returns an unmodifiable view on the given map, after replacing all
+     * values of the given map with unmodifiable views on these values.<br>
+     * <br>
+     * The given map is not copied. So the result will retain the key
+     * semantics of the given map (for example, when it is an 
+     * <code>IdentityHashMap</code>), and the keys do not have to be
+     * hashed again.
      * 
      * @param map The map
      * @return The deeply unmodifiable result
      */
     static <K, V> Map<K, List<V>> deepUnmodifiable(Map<K, List<V>> map)
     {
-        Map<K, List<V>> result = new LinkedHashMap<K, List<V>>();
         for (Entry<K, List<V>> entry : map.entrySet())
         {
-            K key = entry.getKey();
             List<V> value = entry.getValue();
-            result.put(key, Collections.unmodifiableList(value));
+            entry.setValue(Collections.unmodifiableList(value));
         }
-        return Collections.unmodifiableMap(result);
+        return Collections.unmodifiableMap(map);
     }
     
     /**
@@ -26,23 +26,26 @@
  */
 package de.javagl.jsonmodelgen.json;
 
-import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 
 /**
@@ -62,9 +65,43 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  *     file:/C:/extends.json
  * will both map to the same node, which was parsed from "extended.json"
  * </code></pre>
+ * The URI of a reference site is only stored as an alias for the URI 
+ * of the referenced node. The nodes of the referenced document are 
+ * registered once, under the URI of the referenced document. URIs that 
+ * point into a referenced document through a reference site, like
+ * <pre><code>
+ *     file:/C:/root.json#/extends/properties/example
+ * </code></pre>
+ * are resolved lazily, by {@link #get(URI)} and 
+ * {@link #getCanonicalUri(URI)}, replacing the longest aliased prefix 
+ * with the URI that it refers to.<br>
+ * <br>
+ * Internally, the URIs are represented as {@link JsonLocation} objects,
+ * which are interned in this repository. The methods that receive or
+ * return {@link JsonLocation} objects avoid creating and parsing URIs. 
  */
 public class NodeRepository
 {
+    /**
+     * The modes for indexing the nodes of the documents
+     */
+    public enum IndexingMode
+    {
+        /**
+         * Each value of each document is stored, with its URI
+         */
+        ALL_VALUES,
+        
+        /**
+         * Only the values at schema positions are stored. These are the
+         * documents themselves, and the values of keywords like 
+         * <code>"items"</code>, <code>"allOf"</code> or
+         * <code>"properties"</code> that contain subschemas. All other 
+         * values are resolved on demand.
+         */
+        SCHEMA_POSITIONS
+    }
+    
     /**
      * The logger used in this class
      */
@@ -77,16 +114,19 @@ public class NodeRepository
     private static final Level level = Level.FINE;
     
     /**
-     * Logging indentation level 
+     * Logging indentation level. This is the depth of the traversal 
+     * of the nodes of this repository.
      */
-    private static int logIndent = 0;
+    private int logIndent = 0;
 
     /**
-     * Logging utility method
+     * Logging utility method. The given parameters will only be 
+     * converted into strings when the message is actually logged.
      * 
      * @param s The log message
+     * @param parameters The parameters for the log message
      */
-    private static void log(String s)
+    private void log(String s, Object ... parameters)
     {
         if (logger.isLoggable(level))
         {
@@ -95,242 +135,841 @@ public class NodeRepository
             {
                 indent += "  ";
             }
-            logger.log(level, indent+s);
+            logger.log(level, indent+s, parameters);
         }
     }
     
     
     
     /**
-     * The mapping from URIs to JSON nodes
+     * The mapping from locations to JSON nodes
+     */
+    private final Map<JsonLocation, JsonNode> locationToNode;
+    
+    /**
+     * The mapping from locations to canonical locations. This can be 
+     * imagined as the mapping from URIs with fragments to URIs without 
+     * fragments (if they exist). 
      */
-    private final Map<URI, JsonNode> uriToNode;
+    private final Map<JsonLocation, JsonLocation> locationToCanonicalLocation;
     
     /**
-     * The mapping from URIs to canonical URIs. This can be imagined
-     * as the mapping from URIs with fragments to URIs without fragments
-     * (if they exist). 
+     * The interned locations of the documents, for the normalized 
+     * document URIs without fragments
      */
-    private final Map<URI, URI> uriToCanonicalUri;
+    private final Map<URI, JsonLocation> documentLocations;
     
     /**
      * The root URI
      */
     private final URI rootUri;
     
+    /**
+     * The root location
+     */
+    private final JsonLocation rootLocation;
+    
     /**
      * The root node
      */
     private final JsonNode rootNode;
     
     /**
-     * Create a new repository by parsing the given URI
+     * The (unmodifiable) list of the locations of all root URIs
+     */
+    private final List<JsonLocation> rootLocations;
+    
+    /**
+     * The {@link DocumentLoader} that is used for reading the nodes
+     * of referenced documents
+     */
+    private final DocumentLoader documentLoader;
+    
+    /**
+     * The mapping from document URIs (without fragments) to the nodes
+     * that have been read for these documents. This ensures that each
+     * document is represented by exactly one node instance, so that
+     * nodes may be compared by their identity.
+     */
+    private final Map<URI, JsonNode> documents;
+    
+    /**
+     * The {@link IndexingMode}
+     */
+    private final IndexingMode indexingMode;
+    
+    /**
+     * Create a new repository by parsing the given URI. Referenced 
+     * documents will be read sequentially, when they are encountered.
      * 
      * @param rootUri The root URI
      */
     public NodeRepository(URI rootUri)
     {
-        rootUri = rootUri.normalize();
-        this.rootUri = rootUri;
-        this.rootNode = JsonUtils.readNodeOptional(rootUri);
+        this(rootUri, JsonUtils::readNodeOptional);
+    }
+    
+    /**
+     * Create a new repository by parsing the given URI. The document of
+     * the given URI and all documents that are (transitively) referenced 
+     * from there will first be read with the given executor service, 
+     * using a {@link ParallelDocumentLoader}. The resulting repository 
+     * will be the same as one that was created with 
+     * {@link #NodeRepository(URI)}. The caller is responsible for 
+     * shutting down the given executor service.
+     * 
+     * @param rootUri The root URI
+     * @param executorService The executor service
+     */
+    public NodeRepository(URI rootUri, ExecutorService executorService)
+    {
+        this(rootUri, createPrefetchedLoader(rootUri, executorService));
+    }
+    
+    /**
+     * Create a new repository by parsing the given URI, reading the 
+     * root document and all referenced documents with the given 
+     * {@link DocumentLoader}
+     * 
+     * @param rootUri The root URI
+     * @param documentLoader The {@link DocumentLoader}
+     */
+    public NodeRepository(URI rootUri, DocumentLoader documentLoader)
+    {
+        this(rootUri, documentLoader, IndexingMode.ALL_VALUES);
+    }
+    
+    /**
+     * Create a new repository by parsing the given URI, reading the 
+     * root document and all referenced documents with the given 
+     * {@link DocumentLoader}, and storing the nodes according to the
+     * given {@link IndexingMode}
+     * 
+     * @param rootUri The root URI
+     * @param documentLoader The {@link DocumentLoader}
+     * @param indexingMode The {@link IndexingMode}
+     */
+    public NodeRepository(URI rootUri, DocumentLoader documentLoader,
+        IndexingMode indexingMode)
+    {
+        this(Collections.singletonList(rootUri), documentLoader, indexingMode);
+    }
+    
+    /**
+     * Create a new repository by parsing all of the given URIs, reading 
+     * the root documents and all referenced documents with the given 
+     * {@link DocumentLoader}, and storing the nodes according to the
+     * given {@link IndexingMode}. Documents that are referenced from 
+     * multiple roots are only read and traversed once. The first URI 
+     * is the one that is returned by {@link #getRootUri()}.
+     * 
+     * @param rootUris The root URIs
+     * @param documentLoader The {@link DocumentLoader}
+     * @param indexingMode The {@link IndexingMode}
+     * @throws IllegalArgumentException If the given list is empty
+     * @throws JsonException If one of the root documents cannot be read
+     */
+    public NodeRepository(List<URI> rootUris, DocumentLoader documentLoader,
+        IndexingMode indexingMode)
+    {
+        if (rootUris.isEmpty())
+        {
+            throw new IllegalArgumentException("No root URIs given");
+        }
+        this.rootUri = rootUris.get(0).normalize();
+        this.documentLoader = documentLoader;
+        this.indexingMode = indexingMode;
+        this.documents = new LinkedHashMap<URI, JsonNode>();
+        this.rootNode = loadDocument(rootUri);
         if (rootNode == null)
         {
             throw new JsonException("Could not read node from "+rootUri); 
         }
-        this.uriToNode = new LinkedHashMap<URI, JsonNode>();
-        this.uriToCanonicalUri = new LinkedHashMap<URI, URI>();
+        this.locationToNode = new LinkedHashMap<JsonLocation, JsonNode>();
+        this.locationToCanonicalLocation = 
+            new LinkedHashMap<JsonLocation, JsonLocation>();
+        this.documentLocations = new ConcurrentHashMap<URI, JsonLocation>();
+        this.rootLocation = getLocation(rootUri);
 
-        generateNodes(rootUri, rootNode);
+        List<JsonLocation> locations = new ArrayList<JsonLocation>();
+        for (URI uri : rootUris)
+        {
+            URI normalizedUri = uri.normalize();
+            JsonNode node = loadDocument(normalizedUri);
+            if (node == null)
+            {
+                throw new JsonException(
+                    "Could not read node from " + normalizedUri); 
+            }
+            JsonLocation location = getLocation(normalizedUri);
+            locations.add(location);
+            generateNodes(location, node);
+        }
+        this.rootLocations = Collections.unmodifiableList(locations);
     }
     
     /**
-     * Generate the nodes that start at the given URI, with the given node
-     * that was parsed from the given URI
+     * Create a {@link ParallelDocumentLoader} that uses the given executor
+     * service, and that has already prefetched all documents that are 
+     * (transitively) referenced from the given root URI
      * 
-     * @param uri The current URI
-     * @param node The current node
+     * @param rootUri The root URI
+     * @param executorService The executor service
+     * @return The {@link DocumentLoader}
      */
-    private void generateNodes(URI uri, JsonNode node)
+    private static DocumentLoader createPrefetchedLoader(
+        URI rootUri, ExecutorService executorService)
+    {
+        ParallelDocumentLoader documentLoader = 
+            new ParallelDocumentLoader(executorService);
+        documentLoader.prefetch(rootUri);
+        return documentLoader;
+    }
+    
+    /**
+     * Returns the node for the document that the given URI refers to, 
+     * loading it with the {@link DocumentLoader} if it was not loaded 
+     * yet. Returns <code>null</code> if the document could not be loaded.
+     * 
+     * @param uri The URI
+     * @return The node
+     */
+    private JsonNode loadDocument(URI uri)
+    {
+        URI documentUri = URIs.removeFragment(uri);
+        if (documents.containsKey(documentUri))
+        {
+            return documents.get(documentUri);
+        }
+        JsonNode node = documentLoader.load(uri);
+        documents.put(documentUri, node);
+        return node;
+    }
+    
+    /**
+     * Returns the {@link JsonLocation} for the given URI. The fragment 
+     * of the given URI is interpreted as a JSON pointer. 
+     * 
+     * @param uri The URI
+     * @return The {@link JsonLocation}
+     */
+    public JsonLocation getLocation(URI uri)
     {
         uri = uri.normalize();
-        
-        logger.info("Generate nodes      for "+uri);
-        
-        if (uriToNode.containsKey(uri)) 
+        URI documentUri = URIs.removeFragment(uri);
+        JsonLocation location = documentLocations.computeIfAbsent(
+            documentUri, u -> new JsonLocation(u, this::getLocation));
+        String fragment = uri.getRawFragment();
+        if (fragment == null)
         {
-            logger.info("Node already known for  "+uri);
-            return;
+            return location;
         }
+        for (String token : fragment.split("/"))
+        {
+            if (!token.isEmpty())
+            {
+                location = location.child(JsonLocation.unescapeToken(token));
+            }
+        }
+        return location;
+    }
+    
+    /**
+     * A node that has to be stored and traversed during the generation
+     * of the nodes. The traversal uses an explicit stack of these tasks 
+     * instead of recursion, so that the depth of the documents is not 
+     * limited by the stack size.
+     */
+    private static class NodeTask
+    {
+        /**
+         * The location of the node. For object nodes, this is replaced
+         * with its canonical location while the fields are traversed.
+         */
+        JsonLocation location;
         
-        log("generateNodes");
-        log("    uri "+uri);
-        log("    node "+node);
+        /**
+         * The node
+         */
+        final JsonNode node;
+        
+        /**
+         * Whether the node has already been stored
+         */
+        boolean stored;
+        
+        /**
+         * The iterator over the fields of an object node
+         */
+        Iterator<Entry<String, JsonNode>> fields;
         
-        put(uri, node);
+        /**
+         * The field whose sub-nodes have to be generated after the 
+         * nodes of the document that it referred to via "$ref"
+         */
+        Entry<String, JsonNode> pendingField;
         
-        logIndent++;
-        generateSubNodes(uri, node);
-        logIndent--;
+        /**
+         * The index of the next element of an array node
+         */
+        int index;
         
-        logger.info("Generate nodes DONE for "+uri);
+        /**
+         * Creates a new task
+         * 
+         * @param location The location
+         * @param node The node
+         */
+        NodeTask(JsonLocation location, JsonNode node)
+        {
+            this.location = location;
+            this.node = node;
+        }
     }
     
     /**
-     * Generate the sub-nodes ... TODO real comment
+     * Generate the nodes that start at the given location, with the given 
+     * node that was parsed from the given location
      * 
-     * @param uri The current URI
+     * @param location The current location
      * @param node The current node
      */
-    private void generateSubNodes(URI uri, JsonNode node)
+    private void generateNodes(JsonLocation location, JsonNode node)
     {
-        log("generateSubNodes of "+uri);
+        Deque<NodeTask> stack = new ArrayDeque<NodeTask>();
+        stack.push(new NodeTask(location, node));
+        while (!stack.isEmpty())
+        {
+            logIndent = stack.size() - 1;
+            NodeTask task = stack.peek();
+            if (!task.stored)
+            {
+                if (!storeNode(task))
+                {
+                    stack.pop();
+                }
+            }
+            else if (!generateNextSubNodes(task, stack))
+            {
+                stack.pop();
+                logger.log(Level.INFO, 
+                    "Generate nodes DONE for {0}", task.location);
+            }
+        }
+        logIndent = 0;
+    }
+    
+    /**
+     * Store the node of the given task, if its location is not yet 
+     * contained in this repository
+     * 
+     * @param task The task
+     * @return Whether the node was stored
+     */
+    private boolean storeNode(NodeTask task)
+    {
+        logger.log(Level.INFO, "Generate nodes      for {0}", task.location);
         
-        if (node.isArray())
+        if (locationToNode.containsKey(task.location)) 
+        {
+            logger.log(Level.INFO, 
+                "Node already known for  {0}", task.location);
+            return false;
+        }
+        
+        log("generateNodes");
+        log("    location {0}", task.location);
+        log("    node {0}", task.node);
+        
+        put(task.location, task.node);
+        task.stored = true;
+        task.fields = task.node.fields();
+        
+        log("generateSubNodes of {0}", task.location);
+        return true;
+    }
+    
+    /**
+     * Push the tasks for the sub-nodes of the next field or array element 
+     * of the given task onto the given stack. The tasks are pushed so 
+     * that they are processed in the same order as in a depth-first 
+     * traversal. Returns <code>false</code> if there are no further fields
+     * or array elements.
+     * 
+     * @param task The current task
+     * @param stack The stack
+     * @return Whether there may be further fields or array elements
+     */
+    private boolean generateNextSubNodes(NodeTask task, Deque<NodeTask> stack)
+    {
+        JsonNode node = task.node;
+        if (indexingMode != IndexingMode.SCHEMA_POSITIONS && node.isArray())
         {
-            for (int i=0; i<node.size(); i++)
+            if (task.index >= node.size())
             {
-                JsonNode arrayItem = node.get(i);
+                return false;
+            }
+            int i = task.index++;
+            JsonNode arrayItem = node.get(i);
 
-                log("generateSubNodes for array item "+arrayItem);
-                
-                URI itemUri = URIs.appendToFragment(uri, String.valueOf(i));
-                
-                logIndent++;
-                generateNodes(itemUri, arrayItem);
-                logIndent--;
+            log("generateSubNodes for array item {0}", arrayItem);
+            
+            stack.push(new NodeTask(task.location.child(i), arrayItem));
+            return true;
+        }
+        Entry<String, JsonNode> field = task.pendingField;
+        task.pendingField = null;
+        if (field == null)
+        {
+            if (!task.fields.hasNext())
+            {
+                return false;
+            }
+            field = task.fields.next();
+            
+            log("generateSubNodes field ''{0}'' value {1}", 
+                field.getKey(), field.getValue());
+            
+            if (field.getKey().equals("$ref"))
+            {
+                String refString = field.getValue().asText();
+                NodeTask refTask = processRef(task.location, refString);
+                if (refTask != null)
+                {
+                    task.pendingField = field;
+                    stack.push(refTask);
+                    return true;
+                }
+            }
+        }
+        String fieldName = field.getKey();
+        JsonNode fieldValue = field.getValue();
+        
+        task.location = getCanonicalLocation(task.location);
+        JsonLocation propertyLocation = task.location.child(fieldName);
+        
+        if (indexingMode == IndexingMode.SCHEMA_POSITIONS)
+        {
+            List<NodeTask> subTasks = createSchemaSubTasks(
+                propertyLocation, fieldName, fieldValue);
+            for (int i = subTasks.size() - 1; i >= 0; i--)
+            {
+                stack.push(subTasks.get(i));
             }
         }
         else
         {
-            Iterator<Entry<String, JsonNode>> iterator = node.fields();
-            while (iterator.hasNext())
+            stack.push(new NodeTask(propertyLocation, fieldValue));
+        }
+        return true;
+    }
+
+    /**
+     * Create the tasks for the sub-nodes of the given field of a schema 
+     * node that are subschemas, for the 
+     * {@link IndexingMode#SCHEMA_POSITIONS} mode
+     * 
+     * @param propertyLocation The location of the field
+     * @param fieldName The field name
+     * @param fieldValue The field value
+     * @return The tasks
+     */
+    private static List<NodeTask> createSchemaSubTasks(
+        JsonLocation propertyLocation, String fieldName, JsonNode fieldValue)
+    {
+        List<NodeTask> subTasks = new ArrayList<NodeTask>();
+        if (SchemaKeywords.isSubschemaKeyword(fieldName))
+        {
+            if (fieldValue.isArray())
             {
-                Entry<String, JsonNode> field = iterator.next();
-                String fieldName = field.getKey();
-                JsonNode fieldValue = field.getValue();
-                
-                log("generateSubNodes field '"+fieldName+"' value "+fieldValue);
-                
-                if (fieldName.equals("$ref"))
+                for (int i=0; i<fieldValue.size(); i++)
                 {
-                    String refString = fieldValue.asText();
-                    processRef(uri, node, refString);
+                    subTasks.add(new NodeTask(
+                        propertyLocation.child(i), fieldValue.get(i)));
+                }
+            }
+            else
+            {
+                subTasks.add(new NodeTask(propertyLocation, fieldValue));
+            }
+        }
+        else if (SchemaKeywords.isSubschemaMapKeyword(fieldName))
+        {
+            Iterator<Entry<String, JsonNode>> subschemas = 
+                fieldValue.fields();
+            while (subschemas.hasNext())
+            {
+                Entry<String, JsonNode> subschema = subschemas.next();
+                JsonNode subschemaNode = subschema.getValue();
+                if (subschemaNode.isObject() || subschemaNode.isBoolean())
+                {
+                    JsonLocation subschemaLocation = 
+                        propertyLocation.child(subschema.getKey());
+                    subTasks.add(
+                        new NodeTask(subschemaLocation, subschemaNode));
                 }
-                
-                uri = getCanonicalUri(uri);
-                URI propertyUri = URIs.appendToFragment(uri, fieldName);
-                
-                logIndent++;
-                generateNodes(propertyUri, fieldValue);
-                logIndent--;
             }
         }
+        return subTasks;
     }
 
     /**
-     * Process a "$ref" (reference) that was parsed from a JSON field
+     * Process a "$ref" (reference) that was parsed from a JSON field.
+     * If the reference refers to a document that was not processed yet,
+     * then the task for generating the nodes of this document is returned.
+     * Otherwise, <code>null</code> is returned.
      * 
-     * @param uri The current URI
-     * @param node The current node
+     * @param location The current location
      * @param refString The string value of the "$ref" field 
+     * @return The task for the referenced node, or <code>null</code>
      */
-    private void processRef(URI uri, JsonNode node, String refString)
+    private NodeTask processRef(JsonLocation location, String refString)
     {
+        JsonLocation refLocation = location.resolve(refString);
+        URI refUri = refLocation.toUri();
         if (refString.equals("#"))
         {
-            URI refUri = uri.resolve(refString).normalize();
-            System.out.println("Self-reference "+refUri+" to "+rootNode);
-            put(refUri, rootNode);
+            JsonNode documentNode = loadDocument(refUri);
+            System.out.println("Self-reference "+refUri+" to "+documentNode);
+            if (!containsLocation(refLocation))
+            {
+                put(refLocation, documentNode);
+            }
+            return null;
         }
-        else
+        refLocation = getCanonicalLocation(refLocation);
+        if (containsLocation(refLocation))
         {
-            URI refUri = uri.resolve(refString).normalize();
-            if (!containsUri(refUri))
-            {
-                JsonNode refNode = JsonUtils.readNodeOptional(refUri);
-                if (refNode != null)
-                {
-                    log("generateSubNodes");
-                    log("   uri          "+uri);
-                    log("   canonicalUri "+refUri);
+            log("generateSubNodes with known ref");
+            log("   location          {0}", location);
+            log("   canonicalLocation {0}", refLocation);
 
-                    uriToCanonicalUri.put(uri, refUri);
+            locationToCanonicalLocation.put(location, refLocation);
+            return null;
+        }
+        NodeTask refTask = resolveRefTarget(refLocation);
+        if (refTask == null)
+        {
+            log("WARNING: generateSubNodes: " + 
+                "No node found for refUri {0}", refUri);
+            log("WARNING:    location     {0}", location);
+            
+            logger.warning("No node found for refUri "+refUri);
+            return null;
+        }
+        refLocation = refTask.location;
+        log("generateSubNodes");
+        log("   location          {0}", location);
+        log("   canonicalLocation {0}", refLocation);
 
-                    logIndent++;
-                    generateNodes(uri, refNode);
-                    logIndent--;
-                    logIndent++;
-                    generateNodes(refUri, refNode);
-                    logIndent--;
-                }
-                else
+        locationToCanonicalLocation.put(location, refLocation);
+        if (containsLocation(refLocation))
+        {
+            return null;
+        }
+        return refTask;
+    }
+
+    /**
+     * Resolve the given target location of a "$ref", by walking its 
+     * tokens as a JSON pointer in the document that contains it. When 
+     * the walk reaches a node that is a "$ref" itself, then the walk 
+     * continues with the remaining tokens at the location that this 
+     * reference refers to. This is the equivalent of 
+     * {@link #getCanonicalLocation(JsonLocation)} for reference sites 
+     * that have not been processed yet. Returns the task for the 
+     * resulting location and its node, or <code>null</code> if the 
+     * location cannot be resolved.<br>
+     * <br>
+     * A reference site may be passed multiple times, for example, for 
+     * recursive structures, but only with a decreasing number of 
+     * remaining tokens. Otherwise, the references are cyclic and the 
+     * location cannot be resolved.
+     * 
+     * @param refLocation The location
+     * @return The task, or <code>null</code>
+     */
+    private NodeTask resolveRefTarget(JsonLocation refLocation)
+    {
+        Map<JsonLocation, Integer> refSiteRemainingTokens = 
+            new HashMap<JsonLocation, Integer>();
+        JsonLocation targetLocation = refLocation;
+        while (true)
+        {
+            if (containsLocation(targetLocation))
+            {
+                return new NodeTask(
+                    targetLocation, locationToNode.get(targetLocation));
+            }
+            JsonLocation documentLocation = 
+                targetLocation.getDocumentLocation();
+            List<String> tokens = 
+                targetLocation.getTokensFrom(documentLocation);
+            JsonNode node = loadDocument(documentLocation.toUri());
+            JsonLocation nodeLocation = documentLocation;
+            int index = 0;
+            while (node != null && index < tokens.size())
+            {
+                JsonNode child = getChild(node, tokens.get(index));
+                if (child == null)
                 {
-                    log("WARNING: generateSubNodes: " + 
-                        "No node found for refUri "+refUri);
-                    log("WARNING:    uri          "+uri);
-                    
-                    logger.warning("No node found for refUri "+refUri);
+                    break;
                 }
+                node = child;
+                nodeLocation = nodeLocation.child(tokens.get(index));
+                index++;
             }
-            else
+            if (node == null)
             {
-                log("generateSubNodes with known ref");
-                log("   uri          "+uri);
-                log("   canonicalUri "+refUri);
-
-                JsonNode refNode = get(refUri);
-                uriToCanonicalUri.put(uri, refUri);
-                logIndent++;
-                generateNodes(uri, refNode);
-                logIndent--;
+                return null;
+            }
+            if (index == tokens.size())
+            {
+                return new NodeTask(targetLocation, node);
+            }
+            JsonNode refNode = node.get("$ref");
+            if (refNode == null || !refNode.isTextual())
+            {
+                return null;
             }
+            int remaining = tokens.size() - index;
+            Integer previousRemaining = 
+                refSiteRemainingTokens.put(nodeLocation, remaining);
+            if (previousRemaining != null && previousRemaining <= remaining)
+            {
+                logger.warning("Cyclic reference for " + refLocation);
+                return null;
+            }
+            JsonLocation aliasedLocation = 
+                nodeLocation.resolve(refNode.asText());
+            for (String token : tokens.subList(index, tokens.size()))
+            {
+                aliasedLocation = aliasedLocation.child(token);
+            }
+            targetLocation = getCanonicalLocation(aliasedLocation);
         }
     }
 
     /**
      * Returns the canonical URI for the given URI. If there is a basic
      * URI (for example, one without fragments) that points to the same
-     * node as the given URI, then this basic URI is returned. Otherwise,
-     * the given URI is returned as it is
+     * node as the given URI, then this basic URI is returned. If the 
+     * given URI is not contained in this repository, then the prefixes
+     * of its fragment that are reference sites are replaced with the
+     * URIs that they refer to. Otherwise, the given URI is returned as 
+     * it is
      * 
      * @param uri The URI
      * @return The canonical URI
      */
     public URI getCanonicalUri(URI uri)
     {
-        uri = uri.normalize();
-        URI result = uriToCanonicalUri.get(uri);
-        if (result == null)
+        return getCanonicalLocation(getLocation(uri)).toUri();
+    }
+    
+    /**
+     * Returns the canonical location for the given location. This is
+     * the equivalent of {@link #getCanonicalUri(URI)} for 
+     * {@link JsonLocation} objects.
+     * 
+     * @param location The location
+     * @return The canonical location
+     */
+    public JsonLocation getCanonicalLocation(JsonLocation location)
+    {
+        JsonLocation result = locationToCanonicalLocation.get(location);
+        if (result != null)
         {
-            return uri;
+            return result;
         }
-        return result;
+        if (locationToNode.containsKey(location))
+        {
+            return location;
+        }
+        JsonLocation resolvedLocation = resolveAliases(location);
+        if (resolvedLocation == location)
+        {
+            return location;
+        }
+        return getCanonicalLocation(resolvedLocation);
+    }
+    
+    /**
+     * Resolve the given location, which is not contained in this 
+     * repository, against the reference sites that have been recorded 
+     * as aliases. If the given location is below a reference site, then
+     * this prefix is replaced with the location that is referred to. 
+     * This is repeated until a location is found that is contained in 
+     * this repository, or no further prefix can be replaced.
+     * 
+     * @param location The location
+     * @return The resolved location
+     */
+    private JsonLocation resolveAliases(JsonLocation location)
+    {
+        JsonLocation currentLocation = location;
+        for (int i = 0; i < locationToCanonicalLocation.size(); i++)
+        {
+            if (locationToNode.containsKey(currentLocation))
+            {
+                return currentLocation;
+            }
+            JsonLocation aliasedLocation = 
+                resolveAliasPrefix(currentLocation);
+            if (aliasedLocation == null)
+            {
+                return currentLocation;
+            }
+            currentLocation = aliasedLocation;
+        }
+        return currentLocation;
+    }
+    
+    /**
+     * Replace the nearest ancestor of the given location that is a 
+     * reference site with the location that it refers to. If no ancestor
+     * is a reference site, then <code>null</code> is returned.
+     * 
+     * @param location The location
+     * @return The location with the replaced prefix, or <code>null</code>
+     */
+    private JsonLocation resolveAliasPrefix(JsonLocation location)
+    {
+        JsonLocation prefix = location.getParent();
+        while (prefix != null)
+        {
+            JsonLocation refLocation = 
+                locationToCanonicalLocation.get(prefix);
+            if (refLocation != null)
+            {
+                JsonLocation result = refLocation;
+                for (String token : location.getTokensFrom(prefix))
+                {
+                    result = result.child(token);
+                }
+                return result;
+            }
+            prefix = prefix.getParent();
+        }
+        return null;
+    }
+    
+    /**
+     * Resolve the node for the given location, which is not contained in
+     * this repository, by walking the remaining tokens as a JSON pointer,
+     * starting at the node of the nearest ancestor of the location that 
+     * is contained in this repository. If no such node can be found,
+     * then <code>null</code> is returned.
+     * 
+     * @param location The location
+     * @return The node, or <code>null</code>
+     */
+    private JsonNode resolvePointer(JsonLocation location)
+    {
+        JsonLocation prefix = location.getParent();
+        while (prefix != null)
+        {
+            JsonNode node = locationToNode.get(prefix);
+            if (node != null)
+            {
+                for (String token : location.getTokensFrom(prefix))
+                {
+                    node = getChild(node, token);
+                    if (node == null)
+                    {
+                        return null;
+                    }
+                }
+                return node;
+            }
+            prefix = prefix.getParent();
+        }
+        return null;
+    }
+    
+    /**
+     * Returns the child of the given node that is identified by the 
+     * given unescaped JSON pointer token, or <code>null</code> if there
+     * is no such child.
+     * 
+     * @param node The node
+     * @param token The token
+     * @return The child node
+     */
+    private static JsonNode getChild(JsonNode node, String token)
+    {
+        if (node.isObject())
+        {
+            return node.get(token);
+        }
+        if (node.isArray())
+        {
+            try
+            {
+                return node.get(Integer.parseInt(token));
+            }
+            catch (NumberFormatException e)
+            {
+                return null;
+            }
+        }
+        return null;
     }
     
     /**
      * Computes an unmodifiable map from nodes to the (unmodifiable) lists 
-     * of URIs that are mapped to the given node
+     * of URIs that are mapped to the given node.<br>
+     * <br>
+     * The keys of the returned map are compared by their <b>identity</b>.
+     * Structurally equal nodes that appear at different locations are 
+     * different keys. The iteration order of the map is unspecified.
      * 
      * @return The map
      */
     public Map<JsonNode, List<URI>> computeNodeToUrisMapping()
     {
         Map<JsonNode, List<URI>> nodeToUris = 
-            new LinkedHashMap<JsonNode, List<URI>>();
-        for (URI uri : getUris())
+            new IdentityHashMap<JsonNode, List<URI>>();
+        for (Entry<JsonLocation, JsonNode> entry : locationToNode.entrySet())
         {
-            JsonNode node = get(uri);
+            JsonNode node = entry.getValue();
             List<URI> uris = nodeToUris.get(node);
             if (uris == null)
             {
                 uris = new ArrayList<URI>();
                 nodeToUris.put(node, uris);
             }
-            uris.add(uri);
+            uris.add(entry.getKey().toUri());
         }
         return Maps.deepUnmodifiable(nodeToUris);
     }
     
+    /**
+     * Computes an unmodifiable map from nodes to the (unmodifiable) lists 
+     * of locations that are mapped to the given node. This is the 
+     * equivalent of {@link #computeNodeToUrisMapping()} for 
+     * {@link JsonLocation} objects.
+     * 
+     * @return The map
+     */
+    public Map<JsonNode, List<JsonLocation>> computeNodeToLocationsMapping()
+    {
+        Map<JsonNode, List<JsonLocation>> nodeToLocations = 
+            new IdentityHashMap<JsonNode, List<JsonLocation>>();
+        for (Entry<JsonLocation, JsonNode> entry : locationToNode.entrySet())
+        {
+            JsonNode node = entry.getValue();
+            List<JsonLocation> locations = nodeToLocations.get(node);
+            if (locations == null)
+            {
+                locations = new ArrayList<JsonLocation>();
+                nodeToLocations.put(node, locations);
+            }
+            locations.add(entry.getKey());
+        }
+        return Maps.deepUnmodifiable(nodeToLocations);
+    }
+    
     
     /**
      * Returns the root node that was parsed from the URI that was 
@@ -354,48 +993,158 @@ public class NodeRepository
     }
     
     /**
-     * Store the given mapping from a URI to a node
+     * Returns the location of the root URI that was given in the 
+     * constructor
      * 
-     * @param uri The URI
+     * @return The root location
+     */
+    public JsonLocation getRootLocation()
+    {
+        return rootLocation;
+    }
+    
+    /**
+     * Returns an unmodifiable list containing the locations of all root 
+     * URIs that have been given in the constructor
+     * 
+     * @return The root locations
+     */
+    public List<JsonLocation> getRootLocations()
+    {
+        return rootLocations;
+    }
+    
+    /**
+     * Store the given mapping from a location to a node
+     * 
+     * @param location The location
      * @param node The node
      */
-    void put(URI uri, JsonNode node)
+    void put(JsonLocation location, JsonNode node)
     {
-        uriToNode.put(uri, node);
+        locationToNode.put(location, node);
     }
     
     /**
-     * Returns whether this repository contains the given URI
+     * Returns whether this repository contains the given location
      * 
-     * @param uri The URI
-     * @return Whether this repository contains the given URI
+     * @param location The location
+     * @return Whether this repository contains the given location
      */
-    boolean containsUri(URI uri)
+    boolean containsLocation(JsonLocation location)
     {
-        return uriToNode.containsKey(uri);
+        return locationToNode.containsKey(location);
     }
     
     /**
-     * Returns an unmodifiable view on the set of URIs that are
-     * contained in this repository
+     * Returns an unmodifiable set containing the URIs that are contained 
+     * in this repository
      * 
      * @return The URIs
      */
     public Set<URI> getUris()
     {
-        return Collections.unmodifiableSet(uriToNode.keySet());
+        Set<URI> uris = new LinkedHashSet<URI>();
+        for (JsonLocation location : locationToNode.keySet())
+        {
+            uris.add(location.toUri());
+        }
+        return Collections.unmodifiableSet(uris);
+    }
+    
+    /**
+     * Returns an unmodifiable set containing the URIs of all documents 
+     * that have been read successfully for this repository
+     * 
+     * @return The document URIs
+     */
+    public Set<URI> getDocumentUris()
+    {
+        Set<URI> documentUris = new LinkedHashSet<URI>();
+        for (Entry<URI, JsonNode> entry : documents.entrySet())
+        {
+            if (entry.getValue() != null)
+            {
+                documentUris.add(entry.getKey());
+            }
+        }
+        return Collections.unmodifiableSet(documentUris);
+    }
+    
+    /**
+     * Returns the root node of the document with the given URI, or 
+     * <code>null</code> if this document has not been read for this 
+     * repository. This is the node that was parsed from the document,
+     * even if the document itself was never referred to, but only 
+     * locations inside of it.
+     * 
+     * @param documentUri The document URI
+     * @return The document node
+     */
+    public JsonNode getDocument(URI documentUri)
+    {
+        return documents.get(URIs.removeFragment(documentUri));
+    }
+    
+    /**
+     * Returns an unmodifiable view on the set of locations that are
+     * contained in this repository
+     * 
+     * @return The locations
+     */
+    public Set<JsonLocation> getLocations()
+    {
+        return Collections.unmodifiableSet(locationToNode.keySet());
+    }
+    
+    /**
+     * Returns an unmodifiable view on the mapping from the locations of
+     * the nodes that contained a <code>"$ref"</code> to the locations that
+     * they referred to, in the order in which they have been encountered.
+     * 
+     * @return The references
+     */
+    public Map<JsonLocation, JsonLocation> getReferences()
+    {
+        return Collections.unmodifiableMap(locationToCanonicalLocation);
     }
     
     /**
      * Returns the node that was stored for the given URI, or <code>null</code>
-     * if no such node can be found
+     * if no such node can be found. If no node was stored for the given
+     * URI, then it is resolved through the reference sites, and the 
+     * remaining part of its fragment is resolved as a JSON pointer,
+     * starting at the nearest node that was stored.
      * 
      * @param uri The URI
      * @return The node
      */
     public JsonNode get(URI uri)
     {
-        return uriToNode.get(uri);
+        return get(getLocation(uri));
+    }
+    
+    /**
+     * Returns the node for the given location. This is the equivalent 
+     * of {@link #get(URI)} for {@link JsonLocation} objects.
+     * 
+     * @param location The location
+     * @return The node
+     */
+    public JsonNode get(JsonLocation location)
+    {
+        JsonNode node = locationToNode.get(location);
+        if (node != null)
+        {
+            return node;
+        }
+        JsonLocation resolvedLocation = resolveAliases(location);
+        node = locationToNode.get(resolvedLocation);
+        if (node != null)
+        {
+            return node;
+        }
+        return resolvePointer(resolvedLocation);
     }
     
     
@@ -408,36 +1157,22 @@ public class NodeRepository
     {
         StringBuilder sb = new StringBuilder();
         Map<JsonNode, List<URI>> nodeToUris = computeNodeToUrisMapping();
-        for (Entry<JsonNode, List<URI>> entry : nodeToUris.entrySet())
+        Set<JsonNode> visitedNodes = 
+            Collections.newSetFromMap(new IdentityHashMap<JsonNode, Boolean>());
+        for (JsonNode node : locationToNode.values())
         {
-            JsonNode node = entry.getKey();
-            List<URI> uris = entry.getValue();
+            if (!visitedNodes.add(node))
+            {
+                continue;
+            }
+            List<URI> uris = nodeToUris.get(node);
             sb.append("URIs:\n");
             for (URI uri : uris)
             {
                 sb.append("    "+uri+"\n");
             }
             sb.append("Node:\n");
-            try
-            {
-                ObjectMapper mapper = new ObjectMapper();
-                Object json = mapper.readValue(node.toString(), Object.class);
-                String indented = mapper.writerWithDefaultPrettyPrinter()
-                    .writeValueAsString(json);
-                sb.append(indented+"\n\n");
-            }
-            catch (JsonParseException e)
-            {
-                sb.append("ERROR: "+e.getMessage()+"\n");
-            }
-            catch (JsonMappingException e)
-            {
-                sb.append("ERROR: "+e.getMessage()+"\n");
-            }
-            catch (IOException e)
-            {
-                sb.append("ERROR: "+e.getMessage()+"\n");
-            }
+            sb.append(node.toPrettyString()+"\n\n");
         }
         return sb.toString();
     }
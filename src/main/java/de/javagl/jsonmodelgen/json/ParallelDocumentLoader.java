@@ -0,0 +1,327 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json;
+
+import java.net.URI;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Implementation of a {@link DocumentLoader} that can fetch a set of 
+ * documents in parallel. The {@link #prefetch(URI)} method will read 
+ * the document from a root URI, find all documents that are referenced
+ * from there via <code>"$ref"</code>, and read them (transitively) with 
+ * a given executor. The {@link #load(URI)} method will then return the 
+ * documents that have been fetched, and only fall back to reading a 
+ * document directly when it was not fetched before.
+ */
+public class ParallelDocumentLoader implements DocumentLoader
+{
+    /**
+     * The logger used in this class
+     */
+    private static final Logger logger = 
+        Logger.getLogger(ParallelDocumentLoader.class.getName());
+    
+    /**
+     * The executor service that will be used for reading the documents
+     */
+    private final ExecutorService executorService;
+    
+    /**
+     * The {@link DocumentLoader} that will be used for reading the 
+     * individual documents
+     */
+    private final DocumentLoader delegate;
+    
+    /**
+     * The mapping from document URIs (without fragments) to the nodes
+     * that have been read from these URIs
+     */
+    private final Map<URI, JsonNode> documents;
+    
+    /**
+     * The set of document URIs for which reading the document failed
+     */
+    private final Set<URI> failedDocuments;
+    
+    /**
+     * Creates a new instance that reads the documents with the given
+     * executor service. The caller is responsible for shutting down
+     * the executor service.
+     * 
+     * @param executorService The executor service
+     */
+    public ParallelDocumentLoader(ExecutorService executorService)
+    {
+        this(executorService, JsonUtils::readNodeOptional);
+    }
+    
+    /**
+     * Creates a new instance that reads the documents with the given
+     * {@link DocumentLoader}, using the given executor service. The 
+     * given {@link DocumentLoader} must be thread-safe. The caller is 
+     * responsible for shutting down the executor service.
+     * 
+     * @param executorService The executor service
+     * @param delegate The {@link DocumentLoader} for the documents
+     */
+    public ParallelDocumentLoader(
+        ExecutorService executorService, DocumentLoader delegate)
+    {
+        this.executorService = executorService;
+        this.delegate = delegate;
+        this.documents = new ConcurrentHashMap<URI, JsonNode>();
+        this.failedDocuments = 
+            Collections.newSetFromMap(new ConcurrentHashMap<URI, Boolean>());
+    }
+    
+    /**
+     * Read the document from the given root URI and all documents that
+     * are (transitively) referenced from this document, using the 
+     * executor service that was given in the constructor. This method
+     * will block until all documents have been read.
+     * 
+     * @param rootUri The root URI
+     * @throws JsonException If the thread was interrupted while waiting
+     * for the documents, or reading a document caused an unexpected 
+     * exception
+     */
+    public void prefetch(URI rootUri)
+    {
+        prefetch(Collections.singleton(rootUri));
+    }
+    
+    /**
+     * Read the documents from the given root URIs and all documents that
+     * are (transitively) referenced from these documents, using the 
+     * executor service that was given in the constructor. Documents that 
+     * are referenced from multiple roots are only read once. This method
+     * will block until all documents have been read.
+     * 
+     * @param rootUris The root URIs
+     * @throws JsonException If the thread was interrupted while waiting
+     * for the documents, or reading a document caused an unexpected 
+     * exception. In this case, the tasks for reading the remaining 
+     * documents are cancelled.
+     */
+    public void prefetch(Collection<URI> rootUris)
+    {
+        CompletionService<Entry<URI, JsonNode>> completionService = 
+            new ExecutorCompletionService<Entry<URI, JsonNode>>(
+                executorService);
+        Set<URI> requested = new LinkedHashSet<URI>();
+        List<Future<Entry<URI, JsonNode>>> futures = 
+            new ArrayList<Future<Entry<URI, JsonNode>>>();
+        
+        int pending = 0;
+        for (URI rootUri : rootUris)
+        {
+            URI rootDocumentUri = URIs.removeFragment(rootUri.normalize());
+            if (requested.add(rootDocumentUri))
+            {
+                futures.add(submit(completionService, rootDocumentUri));
+                pending++;
+            }
+        }
+        try
+        {
+            while (pending > 0)
+            {
+                Entry<URI, JsonNode> result = take(completionService);
+                pending--;
+                
+                URI documentUri = result.getKey();
+                JsonNode node = result.getValue();
+                if (node == null)
+                {
+                    failedDocuments.add(documentUri);
+                    continue;
+                }
+                documents.put(documentUri, node);
+                for (URI refDocumentUri : 
+                    collectRefDocumentUris(documentUri, node))
+                {
+                    if (requested.add(refDocumentUri))
+                    {
+                        futures.add(
+                            submit(completionService, refDocumentUri));
+                        pending++;
+                    }
+                }
+            }
+        }
+        catch (JsonException e)
+        {
+            // Do not leave the remaining tasks running in the background
+            for (Future<Entry<URI, JsonNode>> future : futures)
+            {
+                future.cancel(true);
+            }
+            throw e;
+        }
+        logger.info("Prefetched " + documents.size() + " documents");
+    }
+    
+    /**
+     * Submit a task for reading the document from the given URI to the
+     * given completion service
+     * 
+     * @param completionService The completion service
+     * @param documentUri The document URI
+     * @return The future for the task
+     */
+    private Future<Entry<URI, JsonNode>> submit(
+        CompletionService<Entry<URI, JsonNode>> completionService, 
+        URI documentUri)
+    {
+        return completionService.submit(() -> 
+        {
+            JsonNode node = delegate.load(documentUri);
+            return new SimpleImmutableEntry<URI, JsonNode>(documentUri, node);
+        });
+    }
+    
+    /**
+     * Take the next result from the given completion service
+     * 
+     * @param completionService The completion service
+     * @return The result
+     * @throws JsonException If the thread was interrupted, or the task
+     * caused an exception
+     */
+    private static Entry<URI, JsonNode> take(
+        CompletionService<Entry<URI, JsonNode>> completionService)
+    {
+        try
+        {
+            return completionService.take().get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new JsonException("Interrupted while reading documents", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new JsonException("Could not read document", e.getCause());
+        }
+    }
+    
+    /**
+     * Collect the URIs of all documents that are referenced via 
+     * <code>"$ref"</code> from the given node. The references are 
+     * resolved against the given document URI. The fragments of the 
+     * resulting URIs are removed.
+     * 
+     * @param documentUri The document URI
+     * @param node The node
+     * @return The referenced document URIs
+     */
+    private static Set<URI> collectRefDocumentUris(
+        URI documentUri, JsonNode node)
+    {
+        Set<URI> result = new LinkedHashSet<URI>();
+        Deque<JsonNode> stack = new ArrayDeque<JsonNode>();
+        stack.push(node);
+        while (!stack.isEmpty())
+        {
+            JsonNode current = stack.pop();
+            if (current.isArray())
+            {
+                for (int i = 0; i < current.size(); i++)
+                {
+                    stack.push(current.get(i));
+                }
+            }
+            else if (current.isObject())
+            {
+                Iterator<Entry<String, JsonNode>> fields = current.fields();
+                while (fields.hasNext())
+                {
+                    Entry<String, JsonNode> field = fields.next();
+                    JsonNode fieldValue = field.getValue();
+                    if (field.getKey().equals("$ref") && 
+                        fieldValue.isTextual())
+                    {
+                        String refString = fieldValue.asText();
+                        if (!refString.equals("#"))
+                        {
+                            URI refUri = 
+                                documentUri.resolve(refString).normalize();
+                            result.add(URIs.removeFragment(refUri));
+                        }
+                    }
+                    stack.push(fieldValue);
+                }
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public JsonNode load(URI uri)
+    {
+        URI documentUri = URIs.removeFragment(uri.normalize());
+        JsonNode node = documents.get(documentUri);
+        if (node != null)
+        {
+            return node;
+        }
+        if (failedDocuments.contains(documentUri))
+        {
+            return null;
+        }
+        node = delegate.load(documentUri);
+        if (node == null)
+        {
+            failedDocuments.add(documentUri);
+            return null;
+        }
+        documents.put(documentUri, node);
+        return node;
+    }
+}
@@ -0,0 +1,434 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * The graph of the references between the documents of a 
+ * {@link NodeRepository}. The documents are partitioned into the 
+ * strongly connected components of this graph. Documents that refer 
+ * to each other (directly or indirectly) are in the same component.
+ * The components are sorted so that each component comes after the
+ * components that it refers to.
+ */
+public final class ReferenceGraph
+{
+    /**
+     * A strongly connected component of a {@link ReferenceGraph}
+     */
+    public static final class Component
+    {
+        /**
+         * The locations of the documents in this component
+         */
+        private final Set<JsonLocation> documentLocations;
+        
+        /**
+         * The locations that are referred to from outside of this 
+         * component, or from other documents of this component. If this
+         * component contains the root document, then this also contains
+         * the root location.
+         */
+        private final Set<JsonLocation> entryLocations;
+        
+        /**
+         * The components that this component refers to
+         */
+        private final Set<Component> dependencies;
+        
+        /**
+         * Creates a new component
+         * 
+         * @param documentLocations The document locations
+         */
+        Component(Set<JsonLocation> documentLocations)
+        {
+            this.documentLocations = documentLocations;
+            this.entryLocations = new LinkedHashSet<JsonLocation>();
+            this.dependencies = new LinkedHashSet<Component>();
+        }
+        
+        /**
+         * Returns an unmodifiable view on the locations of the documents 
+         * in this component
+         * 
+         * @return The document locations
+         */
+        public Set<JsonLocation> getDocumentLocations()
+        {
+            return Collections.unmodifiableSet(documentLocations);
+        }
+        
+        /**
+         * Returns an unmodifiable view on the canonical locations in the
+         * documents of this component that are the targets of references, 
+         * in the order in which the references have been encountered. If 
+         * this component contains the root document, then the first entry
+         * location is the root location.
+         * 
+         * @return The entry locations
+         */
+        public Set<JsonLocation> getEntryLocations()
+        {
+            return Collections.unmodifiableSet(entryLocations);
+        }
+        
+        /**
+         * Returns an unmodifiable view on the components that contain
+         * documents that the documents of this component refer to
+         * 
+         * @return The dependencies
+         */
+        public Set<Component> getDependencies()
+        {
+            return Collections.unmodifiableSet(dependencies);
+        }
+        
+        @Override
+        public String toString()
+        {
+            return "Component" + documentLocations;
+        }
+    }
+    
+    /**
+     * A vertex of the graph that is currently visited during the 
+     * computation of the strongly connected components
+     */
+    private static class Visit
+    {
+        /**
+         * The vertex
+         */
+        final JsonLocation vertex;
+        
+        /**
+         * The iterator over the successors of the vertex
+         */
+        final Iterator<JsonLocation> successors;
+        
+        /**
+         * Creates a new instance
+         * 
+         * @param vertex The vertex
+         * @param successors The successors
+         */
+        Visit(JsonLocation vertex, Iterator<JsonLocation> successors)
+        {
+            this.vertex = vertex;
+            this.successors = successors;
+        }
+    }
+    
+    /**
+     * The components, in dependency order
+     */
+    private final List<Component> components;
+    
+    /**
+     * Creates the reference graph for the given {@link NodeRepository}
+     * 
+     * @param nodeRepository The {@link NodeRepository}
+     */
+    public ReferenceGraph(NodeRepository nodeRepository)
+    {
+        Set<JsonLocation> documentLocations = 
+            new LinkedHashSet<JsonLocation>();
+        for (JsonLocation location : nodeRepository.getLocations())
+        {
+            documentLocations.add(location.getDocumentLocation());
+        }
+        JsonLocation rootLocation = nodeRepository.getRootLocation();
+        documentLocations.add(rootLocation.getDocumentLocation());
+        
+        Map<JsonLocation, Set<JsonLocation>> successors = 
+            new LinkedHashMap<JsonLocation, Set<JsonLocation>>();
+        Map<JsonLocation, Set<JsonLocation>> entryLocations = 
+            new LinkedHashMap<JsonLocation, Set<JsonLocation>>();
+        addEntryLocation(entryLocations, rootLocation);
+        for (Entry<JsonLocation, JsonLocation> entry : 
+            nodeRepository.getReferences().entrySet())
+        {
+            JsonLocation source = entry.getKey().getDocumentLocation();
+            JsonLocation targetLocation = 
+                nodeRepository.getCanonicalLocation(entry.getValue());
+            JsonLocation target = targetLocation.getDocumentLocation();
+            documentLocations.add(target);
+            addEntryLocation(entryLocations, targetLocation);
+            if (source != target)
+            {
+                successors.computeIfAbsent(source, 
+                    s -> new LinkedHashSet<JsonLocation>()).add(target);
+            }
+        }
+        
+        List<Set<JsonLocation>> documentComponents = 
+            computeStronglyConnectedComponents(
+                documentLocations, successors);
+        
+        Map<JsonLocation, Component> documentToComponent = 
+            new HashMap<JsonLocation, Component>();
+        List<Component> components = new ArrayList<Component>();
+        for (Set<JsonLocation> documentComponent : documentComponents)
+        {
+            Component component = new Component(documentComponent);
+            for (JsonLocation documentLocation : documentComponent)
+            {
+                documentToComponent.put(documentLocation, component);
+            }
+            for (JsonLocation documentLocation : documentComponent)
+            {
+                Set<JsonLocation> entries = 
+                    entryLocations.get(documentLocation);
+                if (entries != null)
+                {
+                    component.entryLocations.addAll(entries);
+                }
+                Set<JsonLocation> targets = successors.getOrDefault(
+                    documentLocation, Collections.emptySet());
+                for (JsonLocation target : targets)
+                {
+                    Component dependency = documentToComponent.get(target);
+                    if (dependency != component)
+                    {
+                        component.dependencies.add(dependency);
+                    }
+                }
+            }
+            components.add(component);
+        }
+        this.components = Collections.unmodifiableList(components);
+    }
+    
+    /**
+     * Add the given location to the entry locations of its document
+     * 
+     * @param entryLocations The entry locations of the documents
+     * @param location The location
+     */
+    private static void addEntryLocation(
+        Map<JsonLocation, Set<JsonLocation>> entryLocations, 
+        JsonLocation location)
+    {
+        entryLocations.computeIfAbsent(location.getDocumentLocation(), 
+            d -> new LinkedHashSet<JsonLocation>()).add(location);
+    }
+    
+    /**
+     * Compute the strongly connected components of the given graph, using
+     * Tarjan's algorithm, with an explicit stack instead of recursion. 
+     * Each component is returned after all components that can be reached 
+     * from it. The vertices of each component are in the order in which
+     * they have been visited.
+     * 
+     * @param vertices The vertices
+     * @param successors The successors of each vertex
+     * @return The components
+     */
+    private static List<Set<JsonLocation>> computeStronglyConnectedComponents(
+        Set<JsonLocation> vertices, 
+        Map<JsonLocation, Set<JsonLocation>> successors)
+    {
+        List<Set<JsonLocation>> result = new ArrayList<Set<JsonLocation>>();
+        Map<JsonLocation, Integer> indices = 
+            new HashMap<JsonLocation, Integer>();
+        Map<JsonLocation, Integer> lowLinks = 
+            new HashMap<JsonLocation, Integer>();
+        Deque<JsonLocation> stack = new ArrayDeque<JsonLocation>();
+        Set<JsonLocation> onStack = new HashSet<JsonLocation>();
+        Deque<Visit> visits = new ArrayDeque<Visit>();
+        for (JsonLocation start : vertices)
+        {
+            if (indices.containsKey(start))
+            {
+                continue;
+            }
+            visits.push(visit(start, successors, indices, lowLinks, 
+                stack, onStack));
+            while (!visits.isEmpty())
+            {
+                Visit current = visits.peek();
+                JsonLocation v = current.vertex;
+                if (current.successors.hasNext())
+                {
+                    JsonLocation w = current.successors.next();
+                    if (!indices.containsKey(w))
+                    {
+                        visits.push(visit(w, successors, indices, lowLinks,
+                            stack, onStack));
+                    }
+                    else if (onStack.contains(w))
+                    {
+                        lowLinks.put(v, 
+                            Math.min(lowLinks.get(v), indices.get(w)));
+                    }
+                    continue;
+                }
+                visits.pop();
+                if (lowLinks.get(v).equals(indices.get(v)))
+                {
+                    List<JsonLocation> members = new ArrayList<JsonLocation>();
+                    JsonLocation w = null;
+                    do
+                    {
+                        w = stack.pop();
+                        onStack.remove(w);
+                        members.add(w);
+                    }
+                    while (w != v);
+                    Collections.reverse(members);
+                    result.add(new LinkedHashSet<JsonLocation>(members));
+                }
+                if (!visits.isEmpty())
+                {
+                    JsonLocation u = visits.peek().vertex;
+                    lowLinks.put(u, Math.min(lowLinks.get(u), lowLinks.get(v)));
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Start the visit of the given vertex in 
+     * {@link #computeStronglyConnectedComponents}
+     * 
+     * @param v The vertex
+     * @param successors The successors of each vertex
+     * @param indices The indices of the vertices
+     * @param lowLinks The low links of the vertices
+     * @param stack The stack of vertices
+     * @param onStack The vertices that are on the stack
+     * @return The {@link Visit}
+     */
+    private static Visit visit(JsonLocation v, 
+        Map<JsonLocation, Set<JsonLocation>> successors,
+        Map<JsonLocation, Integer> indices, 
+        Map<JsonLocation, Integer> lowLinks,
+        Deque<JsonLocation> stack, Set<JsonLocation> onStack)
+    {
+        int index = indices.size();
+        indices.put(v, index);
+        lowLinks.put(v, index);
+        stack.push(v);
+        onStack.add(v);
+        Set<JsonLocation> vertexSuccessors = 
+            successors.getOrDefault(v, Collections.emptySet());
+        return new Visit(v, vertexSuccessors.iterator());
+    }
+    
+    /**
+     * Returns an unmodifiable list containing the components of this 
+     * graph. Each component appears after all its 
+     * {@link Component#getDependencies() dependencies}.
+     * 
+     * @return The components
+     */
+    public List<Component> getComponents()
+    {
+        return components;
+    }
+    
+    /**
+     * Pass each component of this graph to the given action, after all 
+     * its dependencies have been passed to the action.<br>
+     * <br>
+     * If the given pool is <code>null</code>, then the components will be
+     * passed to the action on the calling thread, in the order of the
+     * {@link #getComponents() components}. Otherwise, the components will
+     * be passed to the action on the given pool, so that components that 
+     * do not depend on each other may be processed concurrently. This 
+     * method returns when all components have been processed.<br>
+     * <br>
+     * If the action throws an exception for one component, then the 
+     * components that depend on it will not be processed, and the 
+     * exception will be thrown to the caller.
+     * 
+     * @param forkJoinPool The optional pool
+     * @param action The action
+     */
+    public void forEachComponent(
+        ForkJoinPool forkJoinPool, Consumer<? super Component> action)
+    {
+        if (forkJoinPool == null)
+        {
+            for (Component component : components)
+            {
+                action.accept(component);
+            }
+            return;
+        }
+        Map<Component, CompletableFuture<Void>> futures = 
+            new HashMap<Component, CompletableFuture<Void>>();
+        for (Component component : components)
+        {
+            CompletableFuture<?>[] dependencies = 
+                component.dependencies.stream()
+                    .map(futures::get)
+                    .toArray(CompletableFuture<?>[]::new);
+            CompletableFuture<Void> future = 
+                CompletableFuture.allOf(dependencies).thenRunAsync(
+                    () -> action.accept(component), forkJoinPool);
+            futures.put(component, future);
+        }
+        try
+        {
+            CompletableFuture.allOf(futures.values().toArray(
+                new CompletableFuture<?>[0])).join();
+        }
+        catch (CompletionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new JsonException(cause.getMessage(), cause);
+        }
+    }
+}
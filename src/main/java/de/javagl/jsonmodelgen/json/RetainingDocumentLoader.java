@@ -0,0 +1,150 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Implementation of a {@link DocumentLoader} that retains the documents
+ * that have been loaded. Each document is only read once with a 
+ * delegate {@link DocumentLoader}. Later calls to {@link #load(URI)} 
+ * return the same node instance, until the document is invalidated 
+ * with {@link #invalidate(URI)}. This allows building new 
+ * {@link NodeRepository} instances after some documents have changed, 
+ * where only the changed documents have to be read and parsed again.
+ */
+public class RetainingDocumentLoader implements DocumentLoader
+{
+    /**
+     * The logger used in this class
+     */
+    private static final Logger logger = 
+        Logger.getLogger(RetainingDocumentLoader.class.getName());
+    
+    /**
+     * The {@link DocumentLoader} that will be used for reading the 
+     * individual documents
+     */
+    private final DocumentLoader delegate;
+    
+    /**
+     * The mapping from document URIs (without fragments) to the nodes
+     * that have been read from these URIs
+     */
+    private final Map<URI, JsonNode> documents;
+    
+    /**
+     * Creates a new instance that reads the documents with
+     * {@link JsonUtils#readNodeOptional(URI)}
+     */
+    public RetainingDocumentLoader()
+    {
+        this(JsonUtils::readNodeOptional);
+    }
+    
+    /**
+     * Creates a new instance that reads the documents with the given
+     * {@link DocumentLoader}. The given {@link DocumentLoader} must be
+     * thread-safe if this instance is used by multiple threads.
+     * 
+     * @param delegate The {@link DocumentLoader} for the documents
+     */
+    public RetainingDocumentLoader(DocumentLoader delegate)
+    {
+        this.delegate = delegate;
+        this.documents = new ConcurrentHashMap<URI, JsonNode>();
+    }
+    
+    @Override
+    public JsonNode load(URI uri)
+    {
+        URI documentUri = URIs.removeFragment(uri.normalize());
+        JsonNode node = documents.get(documentUri);
+        if (node != null)
+        {
+            return node;
+        }
+        node = delegate.load(documentUri);
+        if (node == null)
+        {
+            return null;
+        }
+        JsonNode previous = documents.putIfAbsent(documentUri, node);
+        if (previous != null)
+        {
+            return previous;
+        }
+        return node;
+    }
+    
+    /**
+     * Invalidate the document with the given URI, so that it will be 
+     * read again when it is loaded the next time
+     * 
+     * @param uri The URI of the document
+     * @return Whether the document was retained
+     */
+    public boolean invalidate(URI uri)
+    {
+        URI documentUri = URIs.removeFragment(uri.normalize());
+        boolean removed = documents.remove(documentUri) != null;
+        if (removed)
+        {
+            logger.fine("Invalidated " + documentUri);
+        }
+        return removed;
+    }
+    
+    /**
+     * Invalidate all documents whose URIs are not contained in the 
+     * given set
+     * 
+     * @param documentUris The URIs of the documents to retain
+     */
+    public void retainAll(Set<URI> documentUris)
+    {
+        documents.keySet().retainAll(documentUris);
+    }
+    
+    /**
+     * Returns an unmodifiable view on the URIs of the documents that are
+     * currently retained
+     * 
+     * @return The document URIs
+     */
+    public Set<URI> getDocumentUris()
+    {
+        return Collections.unmodifiableSet(documents.keySet());
+    }
+}
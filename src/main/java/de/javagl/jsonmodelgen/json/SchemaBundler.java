@@ -0,0 +1,518 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * A class for bundling all documents of a {@link NodeRepository} into
+ * a single, self-contained document.<br>
+ * <br>
+ * Each document that is referred to from the root document (directly 
+ * or indirectly) is inserted into the <code>"$defs"</code> of the
+ * root document, using its file name as the key. (For root documents 
+ * with a <code>"$schema"</code> of draft 4 to 7, the 
+ * <code>"definitions"</code> are used instead). Each 
+ * <code>"$ref"</code> is rewritten to a JSON pointer into the bundle.
+ * For example:
+ * <pre><code>
+ * Original reference in glTF.schema.json:
+ *     "$ref" : "node.schema.json#/properties/matrix"
+ * Reference in the bundle:
+ *     "$ref" : "#/$defs/node.schema.json/properties/matrix"
+ * </code></pre>
+ * Each document is inserted once, regardless of how often it is referred
+ * to. Documents that are equal after their references have been 
+ * rewritten are only inserted once, and all references to them point
+ * to the same definition. The <code>"$schema"</code> and 
+ * <code>"$id"</code> of inserted documents are removed, so that the
+ * references are resolved against the bundle. The URI of the original
+ * document is recorded in the {@link BundleOrigins#ORIGIN_KEYWORD} of 
+ * each definition, relative to the root document if possible.<br>
+ * <br>
+ * Loading the bundle requires a single document to be parsed, and no 
+ * references have to be fetched. The schema generators map the URIs 
+ * inside the definitions back to the original documents, using the 
+ * {@link BundleOrigins}. So the class names that are derived for the 
+ * definitions are the same as the ones that are derived for the 
+ * original documents.
+ */
+public final class SchemaBundler
+{
+    /**
+     * The logger used in this class
+     */
+    private static final Logger logger = 
+        Logger.getLogger(SchemaBundler.class.getName());
+    
+    /**
+     * The keywords whose values are not schemas, and that therefore are
+     * not searched for references
+     */
+    private static final Set<String> VALUE_KEYWORDS = 
+        Collections.unmodifiableSet(new LinkedHashSet<String>(Arrays.asList(
+            "const",
+            "default",
+            "enum",
+            "examples"
+        )));
+    
+    /**
+     * The keywords that are removed from the inserted documents
+     */
+    private static final Set<String> DOCUMENT_KEYWORDS = 
+        Collections.unmodifiableSet(new LinkedHashSet<String>(Arrays.asList(
+            "$schema",
+            "$id",
+            "id"
+        )));
+    
+    /**
+     * The repository that contains the documents
+     */
+    private final NodeRepository nodeRepository;
+    
+    /**
+     * The location of the root document
+     */
+    private final JsonLocation rootDocumentLocation;
+    
+    /**
+     * The keyword for the definitions, <code>"$defs"</code> or 
+     * <code>"definitions"</code>
+     */
+    private final String definitionsKeyword;
+    
+    /**
+     * The mapping from the locations of all documents except for the 
+     * root document to the names of their definitions in the bundle. 
+     * Equal documents are mapped to the same name.
+     */
+    private final Map<JsonLocation, String> definitionNames;
+    
+    /**
+     * Creates a new bundler for the documents in the given repository
+     * 
+     * @param nodeRepository The {@link NodeRepository}
+     */
+    public SchemaBundler(NodeRepository nodeRepository)
+    {
+        this.nodeRepository = nodeRepository;
+        this.rootDocumentLocation = 
+            nodeRepository.getRootLocation().getDocumentLocation();
+        this.definitionsKeyword = 
+            selectDefinitionsKeyword(nodeRepository.getRootNode());
+        this.definitionNames = new LinkedHashMap<JsonLocation, String>();
+    }
+    
+    /**
+     * Bundle all documents that are reachable from the given root URI,
+     * and write the result to the given file
+     * 
+     * @param rootUri The root URI
+     * @param outputFile The output file
+     * @throws IOException If an IO error occurs
+     */
+    public static void bundle(URI rootUri, File outputFile) 
+        throws IOException
+    {
+        NodeRepository nodeRepository = new NodeRepository(rootUri);
+        SchemaBundler schemaBundler = new SchemaBundler(nodeRepository);
+        ObjectNode bundle = schemaBundler.createBundle();
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(
+            outputFile, bundle);
+    }
+    
+    /**
+     * Creates the bundle, containing all documents of the repository.
+     * The nodes of the repository are not modified.
+     * 
+     * @return The bundle
+     * @throws JsonException If the root document contains definitions 
+     * that are not an object
+     */
+    public ObjectNode createBundle()
+    {
+        JsonNode rootNode = 
+            nodeRepository.getDocument(rootDocumentLocation.toUri());
+        if (rootNode == null || !rootNode.isObject())
+        {
+            throw new JsonException(
+                "The root document is not an object: " + rootDocumentLocation);
+        }
+        JsonNode existingDefinitions = rootNode.get(definitionsKeyword);
+        Set<String> reservedNames = new HashSet<String>();
+        if (existingDefinitions != null)
+        {
+            if (!existingDefinitions.isObject())
+            {
+                throw new JsonException("The " + definitionsKeyword 
+                    + " of the root document are not an object");
+            }
+            existingDefinitions.fieldNames().forEachRemaining(
+                reservedNames::add);
+        }
+        
+        Map<JsonLocation, JsonNode> documents = 
+            new LinkedHashMap<JsonLocation, JsonNode>();
+        for (URI documentUri : nodeRepository.getDocumentUris())
+        {
+            JsonLocation location = nodeRepository.getLocation(documentUri);
+            if (location != rootDocumentLocation)
+            {
+                documents.put(location, 
+                    nodeRepository.getDocument(documentUri));
+            }
+        }
+        definitionNames.clear();
+        for (JsonLocation location : documents.keySet())
+        {
+            String name = createUniqueName(
+                createDefinitionName(location), reservedNames);
+            reservedNames.add(name);
+            definitionNames.put(location, name);
+        }
+        Map<String, JsonNode> definitions = 
+            createDefinitions(documents);
+        
+        ObjectNode bundle = (ObjectNode) rewrite(
+            rootDocumentLocation, rootNode);
+        ObjectNode bundleDefinitions = 
+            (ObjectNode) bundle.get(definitionsKeyword);
+        if (bundleDefinitions == null)
+        {
+            bundleDefinitions = bundle.putObject(definitionsKeyword);
+        }
+        bundleDefinitions.setAll(definitions);
+        
+        logger.info("Bundled " + documents.size() + " documents into " 
+            + definitions.size() + " definitions of " 
+            + rootDocumentLocation);
+        return bundle;
+    }
+    
+    /**
+     * Creates the mapping from the definition names to the rewritten 
+     * documents. Documents that are equal after rewriting are merged, 
+     * by mapping their locations to the same name in the 
+     * {@link #definitionNames}. Merging documents may cause further
+     * documents to become equal, so this is repeated until no more 
+     * documents are merged.
+     * 
+     * @param documents The documents, excluding the root document
+     * @return The definitions
+     */
+    private Map<String, JsonNode> createDefinitions(
+        Map<JsonLocation, JsonNode> documents)
+    {
+        while (true)
+        {
+            Map<String, JsonNode> definitions = 
+                new LinkedHashMap<String, JsonNode>();
+            for (Entry<JsonLocation, JsonNode> entry : documents.entrySet())
+            {
+                String name = definitionNames.get(entry.getKey());
+                if (!definitions.containsKey(name))
+                {
+                    JsonNode definition = 
+                        rewrite(entry.getKey(), entry.getValue());
+                    if (definition.isObject())
+                    {
+                        ((ObjectNode) definition).remove(DOCUMENT_KEYWORDS);
+                    }
+                    definitions.put(name, definition);
+                }
+            }
+            
+            Map<String, String> merged = new HashMap<String, String>();
+            Map<JsonNode, String> contentToName = 
+                new HashMap<JsonNode, String>();
+            Iterator<Entry<String, JsonNode>> iterator = 
+                definitions.entrySet().iterator();
+            while (iterator.hasNext())
+            {
+                Entry<String, JsonNode> entry = iterator.next();
+                String name = 
+                    contentToName.putIfAbsent(entry.getValue(), entry.getKey());
+                if (name != null)
+                {
+                    merged.put(entry.getKey(), name);
+                    iterator.remove();
+                }
+            }
+            if (merged.isEmpty())
+            {
+                recordOrigins(definitions);
+                return definitions;
+            }
+            for (Entry<JsonLocation, String> entry : 
+                definitionNames.entrySet())
+            {
+                String name = merged.get(entry.getValue());
+                if (name != null)
+                {
+                    logger.fine("Merging " + entry.getKey() 
+                        + " into definition " + name);
+                    entry.setValue(name);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Stores the URI of the original document of each of the given 
+     * definitions in its {@link BundleOrigins#ORIGIN_KEYWORD}. If 
+     * multiple documents have been merged into one definition, then 
+     * this is the URI of the first of these documents.
+     * 
+     * @param definitions The definitions
+     */
+    private void recordOrigins(Map<String, JsonNode> definitions)
+    {
+        URI rootDirectoryUri = rootDocumentLocation.toUri().resolve(".");
+        for (Entry<JsonLocation, String> entry : definitionNames.entrySet())
+        {
+            JsonNode definition = definitions.get(entry.getValue());
+            if (definition != null && definition.isObject() && 
+                !definition.has(BundleOrigins.ORIGIN_KEYWORD))
+            {
+                URI documentUri = entry.getKey().toUri();
+                URI originUri = rootDirectoryUri.relativize(documentUri);
+                ((ObjectNode) definition).put(
+                    BundleOrigins.ORIGIN_KEYWORD, originUri.toString());
+            }
+        }
+    }
+    
+    /**
+     * Creates a deep copy of the given node, which was found at the
+     * given document location, where all <code>"$ref"</code> values
+     * have been rewritten to point into the bundle
+     * 
+     * @param documentLocation The document location
+     * @param node The node
+     * @return The rewritten copy
+     */
+    private JsonNode rewrite(JsonLocation documentLocation, JsonNode node)
+    {
+        JsonNode result = node.deepCopy();
+        Deque<JsonNode> stack = new ArrayDeque<JsonNode>();
+        stack.push(result);
+        while (!stack.isEmpty())
+        {
+            JsonNode current = stack.pop();
+            if (current.isArray())
+            {
+                current.forEach(stack::push);
+            }
+            else if (current.isObject())
+            {
+                ObjectNode objectNode = (ObjectNode) current;
+                JsonNode ref = objectNode.get("$ref");
+                if (ref != null && ref.isTextual())
+                {
+                    objectNode.put("$ref", 
+                        rewriteRef(documentLocation, ref.asText()));
+                }
+                Iterator<Entry<String, JsonNode>> fields = 
+                    objectNode.fields();
+                while (fields.hasNext())
+                {
+                    Entry<String, JsonNode> field = fields.next();
+                    if (!VALUE_KEYWORDS.contains(field.getKey()))
+                    {
+                        stack.push(field.getValue());
+                    }
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Rewrite the given reference, which appeared in the document with
+     * the given location, so that it points into the bundle. References
+     * to documents that are not part of the bundle are made absolute.
+     * 
+     * @param documentLocation The document location
+     * @param ref The reference
+     * @return The rewritten reference
+     */
+    private String rewriteRef(JsonLocation documentLocation, String ref)
+    {
+        JsonLocation refLocation = null;
+        try
+        {
+            refLocation = documentLocation.resolve(ref);
+        }
+        catch (IllegalArgumentException e)
+        {
+            logger.warning("Invalid reference " + ref 
+                + " in " + documentLocation + ": " + e.getMessage());
+            return ref;
+        }
+        URI refUri = refLocation.toUri();
+        String fragment = refUri.getRawFragment();
+        String pointer = fragment == null ? "" : fragment;
+        JsonLocation targetDocumentLocation = 
+            refLocation.getDocumentLocation();
+        if (targetDocumentLocation == rootDocumentLocation)
+        {
+            return "#" + pointer;
+        }
+        String name = definitionNames.get(targetDocumentLocation);
+        if (name == null)
+        {
+            logger.warning("Document " + targetDocumentLocation 
+                + " is not part of the bundle");
+            return refUri.toString();
+        }
+        return "#/" + definitionsKeyword + "/" + name + pointer;
+    }
+    
+    /**
+     * Returns the keyword for the definitions in the given root node. 
+     * This is <code>"definitions"</code> if the root node declares a 
+     * <code>"$schema"</code> of draft 4 to 7, and <code>"$defs"</code>
+     * otherwise.
+     * 
+     * @param rootNode The root node
+     * @return The keyword
+     */
+    private static String selectDefinitionsKeyword(JsonNode rootNode)
+    {
+        if (rootNode == null)
+        {
+            return "$defs";
+        }
+        String schema = JsonUtils.getStringOptional(rootNode, "$schema", null);
+        if (schema != null && schema.matches(".*draft-0[4-7].*"))
+        {
+            return "definitions";
+        }
+        return "$defs";
+    }
+    
+    /**
+     * Creates the name for the definition of the document with the given
+     * location. This is the file name of the document, where characters
+     * that would have to be escaped in a JSON pointer or URI are 
+     * replaced with underscores.
+     * 
+     * @param documentLocation The document location
+     * @return The name
+     */
+    private static String createDefinitionName(JsonLocation documentLocation)
+    {
+        String uriString = documentLocation.toUri().toString();
+        int queryIndex = uriString.indexOf('?');
+        if (queryIndex != -1)
+        {
+            uriString = uriString.substring(0, queryIndex);
+        }
+        String fileName = uriString.substring(uriString.lastIndexOf('/') + 1);
+        String name = fileName.replaceAll("[^A-Za-z0-9._-]", "_");
+        if (name.isEmpty())
+        {
+            return "schema";
+        }
+        return name;
+    }
+    
+    /**
+     * Returns the given name if it is not contained in the given set. 
+     * Otherwise, a numeric suffix is inserted into the name, before the
+     * first <code>'.'</code>, so that it is not contained in the set.
+     * 
+     * @param name The name
+     * @param reservedNames The names that may not be used
+     * @return The unique name
+     */
+    private static String createUniqueName(
+        String name, Set<String> reservedNames)
+    {
+        if (!reservedNames.contains(name))
+        {
+            return name;
+        }
+        int dotIndex = name.indexOf('.');
+        String base = dotIndex == -1 ? name : name.substring(0, dotIndex);
+        String suffix = dotIndex == -1 ? "" : name.substring(dotIndex);
+        int counter = 2;
+        while (true)
+        {
+            String candidate = base + "_" + counter + suffix;
+            if (!reservedNames.contains(candidate))
+            {
+                return candidate;
+            }
+            counter++;
+        }
+    }
+    
+    /**
+     * Entry point of the bundler
+     * 
+     * @param args The root URI or file of the schema, and the output file
+     * @throws IOException If an IO error occurs
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 2)
+        {
+            System.err.println("Usage: SchemaBundler <rootUri> <outputFile>");
+            System.exit(2);
+            return;
+        }
+        URI rootUri = URI.create(args[0]);
+        if (!rootUri.isAbsolute())
+        {
+            rootUri = new File(args[0]).getAbsoluteFile().toURI();
+        }
+        bundle(rootUri, new File(args[1]));
+    }
+}
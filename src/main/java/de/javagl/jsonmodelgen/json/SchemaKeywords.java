@@ -0,0 +1,108 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The keywords of JSON Schema that contain subschemas. This covers the
+ * keywords of draft 4 and of draft 2020-12.
+ */
+class SchemaKeywords
+{
+    /**
+     * The keywords whose value is a subschema or an array of subschemas
+     */
+    private static final Set<String> SUBSCHEMA_KEYWORDS = 
+        Collections.unmodifiableSet(new LinkedHashSet<String>(Arrays.asList(
+            "additionalItems",
+            "additionalProperties",
+            "allOf",
+            "anyOf",
+            "contains",
+            "contentSchema",
+            "else",
+            "if",
+            "items",
+            "not",
+            "oneOf",
+            "prefixItems",
+            "propertyNames",
+            "then",
+            "unevaluatedItems",
+            "unevaluatedProperties"
+        )));
+    
+    /**
+     * The keywords whose value is an object that maps names to subschemas
+     */
+    private static final Set<String> SUBSCHEMA_MAP_KEYWORDS = 
+        Collections.unmodifiableSet(new LinkedHashSet<String>(Arrays.asList(
+            "$defs",
+            "definitions",
+            "dependencies",
+            "dependentSchemas",
+            "patternProperties",
+            "properties"
+        )));
+    
+    /**
+     * Returns whether the value of the given keyword is a subschema or
+     * an array of subschemas
+     * 
+     * @param keyword The keyword
+     * @return Whether the keyword contains subschemas
+     */
+    static boolean isSubschemaKeyword(String keyword)
+    {
+        return SUBSCHEMA_KEYWORDS.contains(keyword);
+    }
+
+    /**
+     * Returns whether the value of the given keyword is an object that
+     * maps names to subschemas
+     * 
+     * @param keyword The keyword
+     * @return Whether the keyword contains a map of subschemas
+     */
+    static boolean isSubschemaMapKeyword(String keyword)
+    {
+        return SUBSCHEMA_MAP_KEYWORDS.contains(keyword);
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private SchemaKeywords()
+    {
+        // Private constructor to prevent instantiation
+    }
+
+}
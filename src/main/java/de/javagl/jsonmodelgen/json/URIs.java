@@ -66,6 +66,35 @@ public class URIs
         }
     }
     
+    /**
+     * Returns the given URI without its fragment. If the given URI does
+     * not have a fragment, then it is returned as it is. Example:
+     * <pre><code>
+     * removeFragment("uri#/fragment") = "uri"
+     * </code></pre>
+     * 
+     * @param uri The URI
+     * @return The URI without the fragment
+     * @throws IllegalArgumentException If the fragment cannot be removed
+     * due to an invalid URI syntax
+     */
+    public static URI removeFragment(URI uri)
+    {
+        if (uri.getFragment() == null)
+        {
+            return uri;
+        }
+        try
+        {
+            return new URI(uri.getScheme(), uri.getSchemeSpecificPart(), null);
+        }
+        catch (URISyntaxException e)
+        {
+            throw new IllegalArgumentException(
+                "Could not remove fragment from " + uri, e);
+        }
+    }
+    
     /**
      * Private constructor to prevent instantiation
      */
@@ -0,0 +1,259 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Utility methods for reading the contents of URIs.<br>
+ * <br>
+ * For <code>http</code> and <code>https</code> URIs, the content is
+ * requested with <code>gzip</code> encoding, and the response is always
+ * read completely and closed, so that the underlying connection can be 
+ * kept alive and re-used for subsequent requests to the same host.
+ */
+public class UriContents
+{
+    /**
+     * The size of the buffer for reading streams
+     */
+    private static final int BUFFER_SIZE = 8192;
+    
+    /**
+     * The file size (in bytes) above which files will be read via memory 
+     * mapping in {@link #readBuffer(URI)}
+     */
+    private static final long MAPPING_THRESHOLD = 1024 * 1024;
+    
+    /**
+     * Read the full contents of the given URI into a byte buffer.<br>
+     * <br>
+     * For <code>file</code> URIs, the contents are read with a single 
+     * <code>FileChannel</code> read into a buffer of the exact file size. 
+     * Files that are larger than an unspecified threshold are mapped into 
+     * memory instead. For all other URIs, this returns a buffer that wraps 
+     * the result of {@link #read(URI)}.
+     * 
+     * @param uri The URI
+     * @return The byte buffer
+     * @throws IOException If the contents cannot be read
+     */
+    public static ByteBuffer readBuffer(URI uri) throws IOException
+    {
+        if (!"file".equalsIgnoreCase(uri.getScheme()))
+        {
+            return ByteBuffer.wrap(read(uri));
+        }
+        Path path = toPath(uri);
+        try (FileChannel channel = FileChannel.open(path))
+        {
+            long size = channel.size();
+            if (size > MAPPING_THRESHOLD)
+            {
+                return channel.map(MapMode.READ_ONLY, 0, size);
+            }
+            return ByteBuffer.wrap(readFully(channel, (int)size));
+        }
+    }
+    
+    /**
+     * Read the full contents of the given URI
+     * 
+     * @param uri The URI
+     * @return The contents
+     * @throws IOException If the contents cannot be read
+     */
+    public static byte[] read(URI uri) throws IOException
+    {
+        if ("file".equalsIgnoreCase(uri.getScheme()))
+        {
+            Path path = toPath(uri);
+            try (FileChannel channel = FileChannel.open(path))
+            {
+                return readFully(channel, (int)channel.size());
+            }
+        }
+        URLConnection connection = uri.toURL().openConnection();
+        if (connection instanceof HttpURLConnection)
+        {
+            return readHttp((HttpURLConnection)connection);
+        }
+        try (InputStream inputStream = connection.getInputStream())
+        {
+            return readFully(inputStream);
+        }
+    }
+    
+    /**
+     * Read the full contents from the given HTTP connection. If the 
+     * response code is <code>304 (Not Modified)</code>, then an empty
+     * array will be returned.
+     * 
+     * @param connection The connection
+     * @return The contents
+     * @throws IOException If the contents cannot be read
+     */
+    static byte[] readHttp(HttpURLConnection connection) 
+        throws IOException
+    {
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        int responseCode = connection.getResponseCode();
+        if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED)
+        {
+            connection.getInputStream().close();
+            return new byte[0];
+        }
+        if (responseCode >= 400)
+        {
+            // Consume the error stream, so that the connection 
+            // may still be re-used
+            InputStream errorStream = connection.getErrorStream();
+            if (errorStream != null)
+            {
+                try (InputStream inputStream = errorStream)
+                {
+                    readFully(inputStream);
+                }
+            }
+            throw new IOException("Could not read " + connection.getURL()
+                + ": HTTP " + responseCode);
+        }
+        try (InputStream inputStream = openDecoded(connection))
+        {
+            return readFully(inputStream);
+        }
+    }
+    
+    /**
+     * Open the input stream of the given connection, decoding it if it
+     * uses the <code>gzip</code> content encoding
+     * 
+     * @param connection The connection
+     * @return The input stream
+     * @throws IOException If the stream cannot be opened
+     */
+    private static InputStream openDecoded(URLConnection connection) 
+        throws IOException
+    {
+        InputStream inputStream = connection.getInputStream();
+        if ("gzip".equalsIgnoreCase(connection.getContentEncoding()))
+        {
+            return new GZIPInputStream(inputStream);
+        }
+        return inputStream;
+    }
+    
+    /**
+     * Read all bytes from the given stream. The caller is responsible
+     * for closing the stream.
+     * 
+     * @param inputStream The input stream
+     * @return The bytes
+     * @throws IOException If an IO error occurs
+     */
+    static byte[] readFully(InputStream inputStream) throws IOException
+    {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (true)
+        {
+            int read = inputStream.read(buffer);
+            if (read < 0)
+            {
+                break;
+            }
+            baos.write(buffer, 0, read);
+        }
+        return baos.toByteArray();
+    }
+    
+    /**
+     * Read the given number of bytes from the given channel
+     * 
+     * @param channel The channel
+     * @param size The size
+     * @return The bytes
+     * @throws IOException If an IO error occurs, or the channel ended 
+     * before the given number of bytes could be read
+     */
+    private static byte[] readFully(FileChannel channel, int size) 
+        throws IOException
+    {
+        byte[] data = new byte[size];
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer) < 0)
+            {
+                throw new IOException("Unexpected end of file after " 
+                    + buffer.position() + " of " + size + " bytes");
+            }
+        }
+        return data;
+    }
+    
+    /**
+     * Convert the given <code>file</code> URI into a path. The fragment
+     * of the URI (if present) is ignored.
+     * 
+     * @param uri The URI
+     * @return The path
+     * @throws IOException If the URI cannot be converted into a path
+     */
+    private static Path toPath(URI uri) throws IOException
+    {
+        try
+        {
+            return Paths.get(URIs.removeFragment(uri));
+        }
+        catch (IllegalArgumentException | FileSystemNotFoundException e)
+        {
+            throw new IOException("Invalid file URI: " + uri, e);
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private UriContents()
+    {
+        // Private constructor to prevent instantiation
+    }
+
+}
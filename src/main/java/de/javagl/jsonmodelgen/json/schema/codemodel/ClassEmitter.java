@@ -0,0 +1,230 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.codemodel;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import com.sun.codemodel.CodeWriter;
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JFieldVar;
+import com.sun.codemodel.JFormatter;
+import com.sun.codemodel.JMethod;
+
+/**
+ * A class that writes single top-level classes of a code model as soon
+ * as they are complete, instead of writing all classes at once with
+ * {@link JCodeModel#build(CodeWriter)}.
+ * <br>
+ * <br>
+ * After a class has been emitted, it is hidden, so that it is skipped
+ * by a later {@link JCodeModel#build(CodeWriter)}, and its members and
+ * documentation are released. The class itself remains in the code 
+ * model, so that other classes can still refer to it. This way, the 
+ * memory that is required for the code model is bounded by the classes
+ * that have not been emitted yet. The output is the same as the output 
+ * of {@link JCodeModel#build(CodeWriter)}, as long as emitted classes 
+ * are not modified afterwards.
+ * <br>
+ * <br>
+ * The code model library only offers writing a single class internally.
+ * If this is not accessible, then {@link #isSupported()} returns 
+ * <code>false</code>, and {@link #emit(JDefinedClass)} does nothing, so
+ * that all classes are written by {@link JCodeModel#build(CodeWriter)}.
+ * A warning is logged when this happens for the first time.
+ */
+public final class ClassEmitter
+{
+    /**
+     * The logger used in this class
+     */
+    private static final Logger logger = 
+        Logger.getLogger(ClassEmitter.class.getName());
+    
+    /**
+     * The reason why the {@link #WRITE_METHOD} is not accessible, or 
+     * <code>null</code> if it is accessible
+     */
+    private static String writeMethodFailure;
+    
+    /**
+     * The internal method <code>JFormatter#write(JDefinedClass)</code>,
+     * or <code>null</code> if it is not accessible
+     */
+    private static final Method WRITE_METHOD = obtainWriteMethod();
+    
+    /**
+     * Whether the warning about the fallback to writing all classes at
+     * the end has already been logged
+     */
+    private static final AtomicBoolean fallbackWarningLogged = 
+        new AtomicBoolean();
+    
+    /**
+     * Obtain the internal method <code>JFormatter#write(JDefinedClass)</code>
+     * that writes a single class, or <code>null</code> if this method is
+     * not accessible
+     * 
+     * @return The method
+     */
+    private static Method obtainWriteMethod()
+    {
+        // This relies on the package-private method JFormatter#write(
+        // JDefinedClass) of com.sun.codemodel:codemodel version 2.6. 
+        // It is not part of the public API, and may not be accessible 
+        // with other versions, or when the codemodel classes are loaded
+        // as a named module.
+        try
+        {
+            Method method = JFormatter.class.getDeclaredMethod(
+                "write", JDefinedClass.class);
+            method.setAccessible(true);
+            return method;
+        }
+        catch (NoSuchMethodException | RuntimeException e)
+        {
+            writeMethodFailure = e.toString();
+            return null;
+        }
+    }
+    
+    /**
+     * The code writer for the classes
+     */
+    private final CodeWriter codeWriter;
+    
+    /**
+     * Creates a new instance that writes to the given code writer
+     * 
+     * @param codeWriter The code writer
+     */
+    public ClassEmitter(CodeWriter codeWriter)
+    {
+        this.codeWriter = codeWriter;
+    }
+    
+    /**
+     * Returns whether classes can be emitted individually
+     * 
+     * @return Whether classes can be emitted individually
+     */
+    public static boolean isSupported()
+    {
+        return WRITE_METHOD != null;
+    }
+    
+    /**
+     * Write the given top-level class, hide it, and release its members,
+     * as described in the class documentation. If the class was already 
+     * hidden, or classes cannot be emitted individually, then nothing is 
+     * done.
+     * 
+     * @param definedClass The class
+     * @return Whether the class was emitted
+     * @throws IOException If an IO error occurs
+     */
+    public boolean emit(JDefinedClass definedClass) throws IOException
+    {
+        if (WRITE_METHOD == null)
+        {
+            if (fallbackWarningLogged.compareAndSet(false, true))
+            {
+                logger.warning("Classes cannot be emitted individually, "
+                    + "all classes will be written at the end: " 
+                    + writeMethodFailure);
+            }
+            return false;
+        }
+        if (definedClass.isHidden())
+        {
+            return false;
+        }
+        Writer writer = codeWriter.openSource(
+            definedClass._package(), definedClass.name() + ".java");
+        JFormatter formatter = 
+            new JFormatter(new PrintWriter(new BufferedWriter(writer)));
+        try
+        {
+            WRITE_METHOD.invoke(formatter, definedClass);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new IOException("Could not write " + definedClass, e);
+        }
+        catch (InvocationTargetException e)
+        {
+            throw new IOException("Could not write " + definedClass, 
+                e.getCause());
+        }
+        finally
+        {
+            formatter.close();
+        }
+        definedClass.hide();
+        release(definedClass);
+        return true;
+    }
+    
+    /**
+     * Release the fields, constructors, methods, nested classes and 
+     * the documentation of the given class
+     * 
+     * @param definedClass The class
+     */
+    private static void release(JDefinedClass definedClass)
+    {
+        List<JFieldVar> fields = 
+            new ArrayList<JFieldVar>(definedClass.fields().values());
+        for (JFieldVar field : fields)
+        {
+            definedClass.removeField(field);
+        }
+        Iterator<JMethod> constructors = definedClass.constructors();
+        while (constructors.hasNext())
+        {
+            constructors.next();
+            constructors.remove();
+        }
+        definedClass.methods().clear();
+        Iterator<JDefinedClass> nestedClasses = definedClass.classes();
+        while (nestedClasses.hasNext())
+        {
+            release(nestedClasses.next());
+        }
+        definedClass.javadoc().clear();
+    }
+}
@@ -32,8 +32,6 @@ import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.logging.Logger;
 
-import de.javagl.jsonmodelgen.GlTFConfig;
-
 
 /**
  * Utility methods for deriving class names from a collection of URIs.
@@ -55,6 +53,22 @@ public class ClassNameUtils
      * @throws IllegalArgumentException If the given collection is empty
      */
     public static String deriveClassName(Collection<URI> uris)
+    {
+        return deriveClassName(uris, GeneratorConfig.DEFAULT);
+    }
+    
+    /**
+     * Derive a class name from the given collection of URIs, using the
+     * given {@link GeneratorConfig}. The process of how the class name is
+     * derived is unspecified.
+     *  
+     * @param uris The URIs
+     * @param config The {@link GeneratorConfig}
+     * @return The class name
+     * @throws IllegalArgumentException If the given collection is empty
+     */
+    public static String deriveClassName(
+        Collection<URI> uris, GeneratorConfig config)
     {
         if (uris.isEmpty())
         {
@@ -64,7 +78,7 @@ public class ClassNameUtils
         if (uris.size() == 1)
         {
             URI uri = uris.iterator().next();
-            return deriveClassName(uri);
+            return deriveClassName(uri, config);
         }
         
         Set<URI> urisWithoutFragment = new LinkedHashSet<URI>();
@@ -91,10 +105,10 @@ public class ClassNameUtils
                 logger.warning("    "+uri);
             }
             URI uri = shortest(uris);
-            return deriveClassName(uri);
+            return deriveClassName(uri, config);
         }
         URI uri = urisWithoutFragment.iterator().next();
-        return deriveClassName(uri);
+        return deriveClassName(uri, config);
     }
     
     
@@ -127,14 +141,15 @@ public class ClassNameUtils
      * of how the class name is derived is unspecified.
      *  
      * @param uri The URI
+     * @param config The {@link GeneratorConfig}
      * @return The class name
      */
-    private static String deriveClassName(URI uri)
+    private static String deriveClassName(URI uri, GeneratorConfig config)
     {
         String uriString = uri.toString();
         
         // TODO These are somewhat specific - handle this differently?
-        if (GlTFConfig.REMOVE_ADDITIONAL_PROPERTIES)
+        if (config.isRemoveAdditionalProperties())
         {
             uriString = uriString.replaceAll("/properties", "");
             uriString = uriString.replaceAll("/additionalProperties", "");
@@ -0,0 +1,387 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.codemodel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.codemodel.CodeWriter;
+import com.sun.codemodel.JPackage;
+import com.sun.codemodel.writer.FileCodeWriter;
+
+/**
+ * A CodeWriter that writes the files into a target directory, like a
+ * {@link FileCodeWriter}, but writes them concurrently. Each file is 
+ * collected in memory. When it is closed, it is written to the target 
+ * directory by a task that is submitted to an executor service. This 
+ * way, the files are written while the code model is still rendering
+ * the subsequent files. An optional header is prepended to each file.
+ * The {@link #close()} method waits until all files have been written.
+ * Depending on the {@link WriteMode}, files whose contents did not
+ * change are not written, and stale files are deleted.
+ */
+public final class ConcurrentFileCodeWriter extends CodeWriter
+{
+    /**
+     * The modes for writing the files
+     */
+    public enum WriteMode
+    {
+        /**
+         * All files are written, replacing any previous versions
+         */
+        ALWAYS,
+        
+        /**
+         * Files are only written when their contents differ from the
+         * contents of the existing files. Unchanged files keep their
+         * time stamps.
+         */
+        CHANGED,
+        
+        /**
+         * Files are written as in {@link #CHANGED} mode. Additionally,
+         * <code>.java</code> files that are contained in the directories 
+         * of the written packages, but have not been generated, are 
+         * deleted when the writer is closed.
+         */
+        SYNCHRONIZE
+    }
+    
+    /**
+     * The target directory
+     */
+    private final File target;
+    
+    /**
+     * The bytes of the header that is prepended to each file
+     */
+    private final byte[] header;
+    
+    /**
+     * The executor service that writes the files
+     */
+    private final ExecutorService executorService;
+    
+    /**
+     * The {@link WriteMode}
+     */
+    private final WriteMode writeMode;
+    
+    /**
+     * The futures of the tasks that write the files
+     */
+    private final List<Future<?>> futures;
+    
+    /**
+     * The files that have been generated
+     */
+    private final Set<File> generatedFiles;
+    
+    /**
+     * The number of files that have been written
+     */
+    private final AtomicInteger writtenFileCount;
+    
+    /**
+     * The number of files that have not been written because their
+     * contents did not change
+     */
+    private final AtomicInteger unchangedFileCount;
+    
+    /**
+     * The number of stale files that have been deleted
+     */
+    private int deletedFileCount;
+    
+    /**
+     * Creates a new instance that writes all files, using 
+     * {@link WriteMode#ALWAYS}
+     * 
+     * @param target The target directory
+     * @param headerCode The optional header code for each file. This is
+     * converted to bytes with the default charset.
+     * @param executorService The executor service that writes the files
+     * @throws IOException If the target directory does not exist
+     */
+    public ConcurrentFileCodeWriter(File target, String headerCode, 
+        ExecutorService executorService) throws IOException
+    {
+        this(target, headerCode, executorService, WriteMode.ALWAYS);
+    }
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param target The target directory
+     * @param headerCode The optional header code for each file. This is
+     * converted to bytes with the default charset.
+     * @param executorService The executor service that writes the files
+     * @param writeMode The {@link WriteMode}
+     * @throws IOException If the target directory does not exist
+     */
+    public ConcurrentFileCodeWriter(File target, String headerCode, 
+        ExecutorService executorService, WriteMode writeMode) 
+            throws IOException
+    {
+        if (!target.exists() || !target.isDirectory())
+        {
+            throw new IOException(target + ": non-existent directory");
+        }
+        this.target = target;
+        this.header = headerCode == null ? new byte[0] : headerCode.getBytes();
+        this.executorService = executorService;
+        this.writeMode = writeMode;
+        this.futures = new ArrayList<Future<?>>();
+        this.generatedFiles = new LinkedHashSet<File>();
+        this.writtenFileCount = new AtomicInteger();
+        this.unchangedFileCount = new AtomicInteger();
+        this.deletedFileCount = 0;
+    }
+    
+    /**
+     * Returns the number of files that have been written
+     * 
+     * @return The number of written files
+     */
+    public int getWrittenFileCount()
+    {
+        return writtenFileCount.get();
+    }
+    
+    /**
+     * Returns the number of files that have not been written, because
+     * their contents did not change
+     * 
+     * @return The number of unchanged files
+     */
+    public int getUnchangedFileCount()
+    {
+        return unchangedFileCount.get();
+    }
+    
+    /**
+     * Returns the number of stale files that have been deleted when
+     * this writer was closed
+     * 
+     * @return The number of deleted files
+     */
+    public int getDeletedFileCount()
+    {
+        return deletedFileCount;
+    }
+    
+    @Override
+    public OutputStream openBinary(JPackage pkg, String fileName)
+        throws IOException
+    {
+        File directory = pkg.isUnnamed() ? target : 
+            new File(target, pkg.name().replace('.', File.separatorChar));
+        File file = new File(directory, fileName);
+        generatedFiles.add(file);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream()
+        {
+            /**
+             * Whether this stream was already closed
+             */
+            private boolean closed = false;
+            
+            @Override
+            public void close() throws IOException
+            {
+                if (!closed)
+                {
+                    closed = true;
+                    byte[] data = toByteArray();
+                    futures.add(executorService.submit(() -> 
+                    {
+                        if (writeMode != WriteMode.ALWAYS 
+                            && hasContents(file, data))
+                        {
+                            unchangedFileCount.incrementAndGet();
+                        }
+                        else
+                        {
+                            writeFile(file, data);
+                            writtenFileCount.incrementAndGet();
+                        }
+                        return null;
+                    }));
+                }
+            }
+        };
+        buffer.write(header);
+        return buffer;
+    }
+    
+    /**
+     * Write the given data into the given file, creating the parent 
+     * directory if necessary, and deleting any previous version of 
+     * the file
+     * 
+     * @param file The file
+     * @param data The data
+     * @throws IOException If an IO error occurs
+     */
+    private static void writeFile(File file, byte[] data) throws IOException
+    {
+        File directory = file.getParentFile();
+        if (!directory.exists())
+        {
+            directory.mkdirs();
+        }
+        if (file.exists() && !file.delete())
+        {
+            throw new IOException(file + ": Can't delete previous version");
+        }
+        try (OutputStream outputStream = new FileOutputStream(file))
+        {
+            outputStream.write(data);
+        }
+    }
+    
+    /**
+     * Returns whether the given file exists and has the given contents
+     * 
+     * @param file The file
+     * @param data The data
+     * @return Whether the file has the given contents
+     * @throws IOException If an IO error occurs
+     */
+    private static boolean hasContents(File file, byte[] data) 
+        throws IOException
+    {
+        if (!file.isFile() || file.length() != data.length)
+        {
+            return false;
+        }
+        byte[] existingData = Files.readAllBytes(file.toPath());
+        return Arrays.equals(existingData, data);
+    }
+    
+    /**
+     * Delete all <code>.java</code> files from the directories that 
+     * contain generated files, which have not been generated
+     * 
+     * @throws IOException If a file cannot be deleted
+     */
+    private void deleteStaleFiles() throws IOException
+    {
+        Set<File> directories = new LinkedHashSet<File>();
+        for (File generatedFile : generatedFiles)
+        {
+            directories.add(generatedFile.getParentFile());
+        }
+        for (File directory : directories)
+        {
+            File[] files = directory.listFiles();
+            if (files == null)
+            {
+                continue;
+            }
+            Arrays.sort(files);
+            for (File file : files)
+            {
+                if (!file.isFile() || !file.getName().endsWith(".java") 
+                    || generatedFiles.contains(file))
+                {
+                    continue;
+                }
+                if (!file.delete())
+                {
+                    throw new IOException(file + ": Can't delete stale file");
+                }
+                deletedFileCount++;
+            }
+        }
+    }
+    
+    @Override
+    public void close() throws IOException
+    {
+        IOException exception = null;
+        for (Future<?> future : futures)
+        {
+            try
+            {
+                future.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(
+                    "Interrupted while writing files");
+            }
+            catch (ExecutionException e)
+            {
+                if (exception == null)
+                {
+                    exception = asIOException(e.getCause());
+                }
+            }
+        }
+        futures.clear();
+        if (exception != null)
+        {
+            throw exception;
+        }
+        if (writeMode == WriteMode.SYNCHRONIZE)
+        {
+            deleteStaleFiles();
+        }
+    }
+    
+    /**
+     * Returns the given throwable as an IOException, wrapping it into
+     * one if necessary
+     * 
+     * @param t The throwable
+     * @return The IOException
+     */
+    private static IOException asIOException(Throwable t)
+    {
+        if (t instanceof IOException)
+        {
+            return (IOException) t;
+        }
+        return new IOException(t);
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.codemodel;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The configuration of a single class generation run.<br>
+ * <br>
+ * Instances of this class are immutable. Modified configurations are 
+ * created with the <code>with...</code> methods, for example
+ * <pre><code>
+ * GeneratorConfig config = GeneratorConfig.DEFAULT
+ *     .withCreateGettersWithDefault(false);
+ * </code></pre>
+ * Each class generator receives its own configuration, so generations
+ * with different configurations may run concurrently. Configurations 
+ * are serializable, so that they can be stored in a 
+ * {@link SchemaSnapshot}.
+ */
+public final class GeneratorConfig implements Serializable
+{
+    /**
+     * Serial UID
+     */
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * The default configuration, where all flags are <code>true</code>,
+     * except for {@link #isMergeEquivalentSchemas()}, and the selection
+     * is empty
+     */
+    public static final GeneratorConfig DEFAULT = new GeneratorConfig(
+        true, true, true, false, Collections.<String>emptySet());
+    
+    /**
+     * Whether adder and remover methods should be created for array- 
+     * and map-typed properties
+     */
+    private final boolean createAddersAndRemovers;
+    
+    /**
+     * Whether getter methods that return the default value should be 
+     * created for properties that have a default value
+     */
+    private final boolean createGettersWithDefault;
+    
+    /**
+     * Whether the <code>/properties</code> and 
+     * <code>/additionalProperties</code> parts of URIs should be 
+     * omitted when deriving class names from URIs
+     */
+    private final boolean removeAdditionalProperties;
+    
+    /**
+     * Whether structurally equivalent schemas should be merged, so that
+     * only a single class is generated for them
+     */
+    private final boolean mergeEquivalentSchemas;
+    
+    /**
+     * The names of classes and paths of properties of the root schema 
+     * that select the subset of classes that should be generated
+     */
+    private final Set<String> selection;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param createAddersAndRemovers Whether adders and removers should
+     * be created
+     * @param createGettersWithDefault Whether getters for default values
+     * should be created
+     * @param removeAdditionalProperties Whether property paths should be
+     * omitted in class names
+     * @param mergeEquivalentSchemas Whether equivalent schemas should be
+     * merged
+     * @param selection The unmodifiable selection
+     */
+    private GeneratorConfig(boolean createAddersAndRemovers, 
+        boolean createGettersWithDefault, boolean removeAdditionalProperties,
+        boolean mergeEquivalentSchemas, Set<String> selection)
+    {
+        this.createAddersAndRemovers = createAddersAndRemovers;
+        this.createGettersWithDefault = createGettersWithDefault;
+        this.removeAdditionalProperties = removeAdditionalProperties;
+        this.mergeEquivalentSchemas = mergeEquivalentSchemas;
+        this.selection = selection;
+    }
+    
+    /**
+     * Returns whether adder and remover methods should be created for 
+     * array- and map-typed properties
+     * 
+     * @return The flag
+     */
+    public boolean isCreateAddersAndRemovers()
+    {
+        return createAddersAndRemovers;
+    }
+    
+    /**
+     * Returns whether getter methods that return the default value should
+     * be created for properties that have a default value
+     * 
+     * @return The flag
+     */
+    public boolean isCreateGettersWithDefault()
+    {
+        return createGettersWithDefault;
+    }
+    
+    /**
+     * Returns whether the <code>/properties</code> and 
+     * <code>/additionalProperties</code> parts of URIs should be 
+     * omitted when deriving class names from URIs
+     * 
+     * @return The flag
+     */
+    public boolean isRemoveAdditionalProperties()
+    {
+        return removeAdditionalProperties;
+    }
+    
+    /**
+     * Returns whether structurally equivalent schemas should be merged
+     * by the schema generator, so that only a single class is generated
+     * for them. This is <code>false</code> by default, because it 
+     * changes the set of generated classes.
+     * 
+     * @return The flag
+     */
+    public boolean isMergeEquivalentSchemas()
+    {
+        return mergeEquivalentSchemas;
+    }
+    
+    /**
+     * Returns the unmodifiable set of strings that select the subset of
+     * classes that should be generated. Each string is either the name 
+     * of a class, or a path of property names, separated by 
+     * <code>/</code> slashes, starting at the root schema, like
+     * <code>"meshes/primitives"</code>. The classes for the selected 
+     * schemas and for all schemas that are reachable from them are 
+     * generated, together with the root classes. References to all other
+     * classes are typed as <code>Object</code>. If the selection is empty,
+     * then all classes are generated.
+     * 
+     * @return The selection
+     */
+    public Set<String> getSelection()
+    {
+        return selection;
+    }
+    
+    /**
+     * Returns a configuration that is equal to this one, except for the
+     * given flag
+     * 
+     * @param createAddersAndRemovers The flag
+     * @return The configuration
+     * @see #isCreateAddersAndRemovers()
+     */
+    public GeneratorConfig withCreateAddersAndRemovers(
+        boolean createAddersAndRemovers)
+    {
+        return new GeneratorConfig(createAddersAndRemovers, 
+            createGettersWithDefault, removeAdditionalProperties, 
+            mergeEquivalentSchemas, selection);
+    }
+    
+    /**
+     * Returns a configuration that is equal to this one, except for the
+     * given flag
+     * 
+     * @param createGettersWithDefault The flag
+     * @return The configuration
+     * @see #isCreateGettersWithDefault()
+     */
+    public GeneratorConfig withCreateGettersWithDefault(
+        boolean createGettersWithDefault)
+    {
+        return new GeneratorConfig(createAddersAndRemovers, 
+            createGettersWithDefault, removeAdditionalProperties, 
+            mergeEquivalentSchemas, selection);
+    }
+    
+    /**
+     * Returns a configuration that is equal to this one, except for the
+     * given flag
+     * 
+     * @param removeAdditionalProperties The flag
+     * @return The configuration
+     * @see #isRemoveAdditionalProperties()
+     */
+    public GeneratorConfig withRemoveAdditionalProperties(
+        boolean removeAdditionalProperties)
+    {
+        return new GeneratorConfig(createAddersAndRemovers, 
+            createGettersWithDefault, removeAdditionalProperties, 
+            mergeEquivalentSchemas, selection);
+    }
+    
+    /**
+     * Returns a configuration that is equal to this one, except for the
+     * given flag
+     * 
+     * @param mergeEquivalentSchemas The flag
+     * @return The configuration
+     * @see #isMergeEquivalentSchemas()
+     */
+    public GeneratorConfig withMergeEquivalentSchemas(
+        boolean mergeEquivalentSchemas)
+    {
+        return new GeneratorConfig(createAddersAndRemovers, 
+            createGettersWithDefault, removeAdditionalProperties, 
+            mergeEquivalentSchemas, selection);
+    }
+    
+    /**
+     * Returns a configuration that is equal to this one, except for the
+     * given selection. The given collection will be copied.
+     * 
+     * @param selection The selection. If this is <code>null</code> or 
+     * empty, then all classes will be generated.
+     * @return The configuration
+     * @see #getSelection()
+     */
+    public GeneratorConfig withSelection(Collection<String> selection)
+    {
+        Set<String> newSelection = Collections.<String>emptySet();
+        if (selection != null && !selection.isEmpty())
+        {
+            newSelection = Collections.unmodifiableSet(
+                new LinkedHashSet<String>(selection));
+        }
+        return new GeneratorConfig(createAddersAndRemovers, 
+            createGettersWithDefault, removeAdditionalProperties, 
+            mergeEquivalentSchemas, newSelection);
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(createAddersAndRemovers, 
+            createGettersWithDefault, removeAdditionalProperties, 
+            mergeEquivalentSchemas, selection);
+    }
+    
+    @Override
+    public boolean equals(Object object)
+    {
+        if (this == object)
+        {
+            return true;
+        }
+        if (!(object instanceof GeneratorConfig))
+        {
+            return false;
+        }
+        GeneratorConfig other = (GeneratorConfig) object;
+        return createAddersAndRemovers == other.createAddersAndRemovers
+            && createGettersWithDefault == other.createGettersWithDefault
+            && removeAdditionalProperties == other.removeAdditionalProperties
+            && mergeEquivalentSchemas == other.mergeEquivalentSchemas
+            && selection.equals(other.selection);
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "GeneratorConfig["
+            + "createAddersAndRemovers=" + createAddersAndRemovers + ","
+            + "createGettersWithDefault=" + createGettersWithDefault + ","
+            + "removeAdditionalProperties=" + removeAdditionalProperties + ","
+            + "mergeEquivalentSchemas=" + mergeEquivalentSchemas + ","
+            + "selection=" + selection
+            + "]";
+    }
+}
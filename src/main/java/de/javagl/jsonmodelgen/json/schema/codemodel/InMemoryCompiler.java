@@ -0,0 +1,467 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.codemodel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+/**
+ * A class for compiling source code in memory, with the system 
+ * {@link JavaCompiler}. 
+ * <br>
+ * <br>
+ * The sources are compiled in batches that are processed by an executor
+ * service. All sources are visible to each batch, via the source path, 
+ * so that they may refer to each other. Each batch only creates the 
+ * class files of its own sources. The result is a mapping from binary 
+ * class names to the bytecode of the classes. This mapping can be used 
+ * to create a class loader, with 
+ * {@link #createClassLoader(Map, ClassLoader)}.
+ */
+public final class InMemoryCompiler
+{
+    /**
+     * The options for the compiler. Annotation processing is disabled,
+     * and class files are only generated for the sources of a batch, 
+     * and not for the sources that are only referred to from the batch.
+     */
+    private static final List<String> OPTIONS = 
+        Arrays.asList("-proc:none", "-implicit:none");
+    
+    /**
+     * The executor service that compiles the batches
+     */
+    private final ExecutorService executorService;
+    
+    /**
+     * The number of batches
+     */
+    private final int numBatches;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param executorService The executor service that compiles the 
+     * batches. The caller is responsible for shutting it down.
+     * @param numBatches The number of batches that the sources should be
+     * split into. This is usually the number of threads of the executor
+     * service.
+     * @throws IllegalArgumentException If the number of batches is not 
+     * positive
+     */
+    public InMemoryCompiler(ExecutorService executorService, int numBatches)
+    {
+        if (numBatches <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The number of batches must be positive, but is " 
+                + numBatches);
+        }
+        this.executorService = executorService;
+        this.numBatches = numBatches;
+    }
+    
+    /**
+     * Compile the given sources. The given map is a mapping from fully 
+     * qualified class names to the source code of the classes. The 
+     * result will be a mapping from binary class names to the bytecode 
+     * of all classes (including nested classes) of the sources.
+     * 
+     * @param sources The sources
+     * @return The compiled classes
+     * @throws IllegalStateException If no Java compiler is available (for
+     * example, when running on a JRE), or the sources do not compile. In
+     * the latter case, the message contains the compiler errors.
+     */
+    public Map<String, byte[]> compile(Map<String, String> sources)
+    {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null)
+        {
+            throw new IllegalStateException("No Java compiler available");
+        }
+        Map<String, JavaFileObject> sourceFiles = 
+            new LinkedHashMap<String, JavaFileObject>();
+        for (Entry<String, String> entry : sources.entrySet())
+        {
+            String className = entry.getKey();
+            sourceFiles.put(className, 
+                new SourceFile(className, entry.getValue()));
+        }
+        Map<String, byte[]> classes = new ConcurrentHashMap<String, byte[]>();
+        
+        int n = Math.max(1, Math.min(numBatches, sourceFiles.size()));
+        List<List<JavaFileObject>> batches = 
+            new ArrayList<List<JavaFileObject>>();
+        for (int i = 0; i < n; i++)
+        {
+            batches.add(new ArrayList<JavaFileObject>());
+        }
+        int index = 0;
+        for (JavaFileObject sourceFile : sourceFiles.values())
+        {
+            batches.get(index % n).add(sourceFile);
+            index++;
+        }
+        
+        List<Future<List<String>>> futures = 
+            new ArrayList<Future<List<String>>>();
+        for (List<JavaFileObject> batch : batches)
+        {
+            futures.add(executorService.submit(() -> 
+                compileBatch(compiler, batch, sourceFiles, classes)));
+        }
+        List<String> errors = new ArrayList<String>();
+        for (Future<List<String>> future : futures)
+        {
+            errors.addAll(obtain(future));
+        }
+        if (!errors.isEmpty())
+        {
+            throw new IllegalStateException(
+                "Compilation failed:\n" + String.join("\n", errors));
+        }
+        return new TreeMap<String, byte[]>(classes);
+    }
+    
+    /**
+     * Compile the given batch of source files, and put the resulting 
+     * bytecode into the given map
+     * 
+     * @param compiler The compiler
+     * @param batch The source files of the batch
+     * @param sourceFiles All source files, which are visible via the 
+     * source path
+     * @param classes The map that will receive the compiled classes
+     * @return The list of error messages, which is empty if the 
+     * compilation succeeded
+     * @throws IOException If an IO error occurs
+     */
+    private static List<String> compileBatch(JavaCompiler compiler, 
+        List<JavaFileObject> batch, Map<String, JavaFileObject> sourceFiles,
+        Map<String, byte[]> classes) throws IOException
+    {
+        DiagnosticCollector<JavaFileObject> diagnostics = 
+            new DiagnosticCollector<JavaFileObject>();
+        StandardJavaFileManager standardFileManager = 
+            compiler.getStandardFileManager(
+                diagnostics, null, Charset.defaultCharset());
+        List<String> errors = new ArrayList<String>();
+        try (JavaFileManager fileManager = new MemoryFileManager(
+            standardFileManager, sourceFiles, classes))
+        {
+            boolean success = compiler.getTask(null, fileManager, 
+                diagnostics, OPTIONS, null, batch).call();
+            if (!success)
+            {
+                for (Diagnostic<? extends JavaFileObject> diagnostic : 
+                    diagnostics.getDiagnostics())
+                {
+                    if (diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                    {
+                        errors.add(diagnostic.toString());
+                    }
+                }
+            }
+        }
+        return errors;
+    }
+    
+    /**
+     * Obtain the result of the given future
+     * 
+     * @param future The future
+     * @return The result
+     * @throws IllegalStateException If the thread was interrupted, or the
+     * task caused an exception
+     */
+    private static <T> T obtain(Future<T> future)
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(
+                "Interrupted while compiling", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IllegalStateException(
+                "Could not compile", e.getCause());
+        }
+    }
+    
+    /**
+     * Creates a class loader that defines the given classes. The given 
+     * map is a mapping from binary class names to bytecode, as returned
+     * by {@link #compile(Map)}.
+     * 
+     * @param classes The classes
+     * @param parent The parent class loader
+     * @return The class loader
+     */
+    public static ClassLoader createClassLoader(
+        Map<String, byte[]> classes, ClassLoader parent)
+    {
+        Map<String, byte[]> classesCopy = 
+            new LinkedHashMap<String, byte[]>(classes);
+        return new ClassLoader(parent)
+        {
+            @Override
+            protected Class<?> findClass(String name)
+                throws ClassNotFoundException
+            {
+                byte[] bytecode = classesCopy.get(name);
+                if (bytecode == null)
+                {
+                    throw new ClassNotFoundException(name);
+                }
+                return defineClass(name, bytecode, 0, bytecode.length);
+            }
+        };
+    }
+    
+    /**
+     * A Java source file that is stored in memory
+     */
+    private static final class SourceFile extends SimpleJavaFileObject
+    {
+        /**
+         * The binary name of the class
+         */
+        private final String className;
+        
+        /**
+         * The source code
+         */
+        private final String source;
+        
+        /**
+         * Creates a new instance
+         * 
+         * @param className The fully qualified class name
+         * @param source The source code
+         */
+        SourceFile(String className, String source)
+        {
+            super(URI.create("string:///" + className.replace('.', '/') 
+                + Kind.SOURCE.extension), Kind.SOURCE);
+            this.className = className;
+            this.source = source;
+        }
+        
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors)
+        {
+            return source;
+        }
+    }
+    
+    /**
+     * A Java class file that is written into a map
+     */
+    private static final class ClassFile extends SimpleJavaFileObject
+    {
+        /**
+         * The binary name of the class
+         */
+        private final String className;
+        
+        /**
+         * The map that receives the bytecode
+         */
+        private final Map<String, byte[]> classes;
+        
+        /**
+         * Creates a new instance
+         * 
+         * @param className The binary class name
+         * @param classes The map that receives the bytecode
+         */
+        ClassFile(String className, Map<String, byte[]> classes)
+        {
+            super(URI.create("bytes:///" + className.replace('.', '/') 
+                + Kind.CLASS.extension), Kind.CLASS);
+            this.className = className;
+            this.classes = classes;
+        }
+        
+        @Override
+        public OutputStream openOutputStream()
+        {
+            return new ByteArrayOutputStream()
+            {
+                @Override
+                public void close()
+                {
+                    classes.put(className, toByteArray());
+                }
+            };
+        }
+    }
+    
+    /**
+     * A file manager that provides the {@link SourceFile} instances via
+     * the source path, and writes the class files into a map
+     */
+    private static final class MemoryFileManager 
+        extends ForwardingJavaFileManager<StandardJavaFileManager>
+    {
+        /**
+         * The mapping from class names to source files
+         */
+        private final Map<String, JavaFileObject> sourceFiles;
+        
+        /**
+         * The map that receives the bytecode
+         */
+        private final Map<String, byte[]> classes;
+        
+        /**
+         * Creates a new instance
+         * 
+         * @param fileManager The delegate file manager
+         * @param sourceFiles The mapping from class names to source files
+         * @param classes The map that receives the bytecode
+         */
+        MemoryFileManager(StandardJavaFileManager fileManager, 
+            Map<String, JavaFileObject> sourceFiles, 
+            Map<String, byte[]> classes)
+        {
+            super(fileManager);
+            this.sourceFiles = sourceFiles;
+            this.classes = classes;
+        }
+        
+        @Override
+        public boolean hasLocation(Location location)
+        {
+            if (location == StandardLocation.SOURCE_PATH)
+            {
+                return true;
+            }
+            return super.hasLocation(location);
+        }
+        
+        @Override
+        public Iterable<JavaFileObject> list(Location location, 
+            String packageName, Set<Kind> kinds, boolean recurse)
+                throws IOException
+        {
+            if (location != StandardLocation.SOURCE_PATH)
+            {
+                return super.list(location, packageName, kinds, recurse);
+            }
+            if (!kinds.contains(Kind.SOURCE))
+            {
+                return Collections.emptyList();
+            }
+            List<JavaFileObject> result = new ArrayList<JavaFileObject>();
+            String prefix = packageName.isEmpty() ? "" : packageName + ".";
+            for (Entry<String, JavaFileObject> entry : sourceFiles.entrySet())
+            {
+                String className = entry.getKey();
+                if (!className.startsWith(prefix))
+                {
+                    continue;
+                }
+                String rest = className.substring(prefix.length());
+                if (recurse || rest.indexOf('.') == -1)
+                {
+                    result.add(entry.getValue());
+                }
+            }
+            return result;
+        }
+        
+        @Override
+        public String inferBinaryName(Location location, JavaFileObject file)
+        {
+            if (file instanceof SourceFile)
+            {
+                return ((SourceFile) file).className;
+            }
+            return super.inferBinaryName(location, file);
+        }
+        
+        @Override
+        public boolean isSameFile(FileObject a, FileObject b)
+        {
+            if (a instanceof SimpleJavaFileObject 
+                || b instanceof SimpleJavaFileObject)
+            {
+                return a.equals(b);
+            }
+            return super.isSameFile(a, b);
+        }
+        
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location,
+            String className, Kind kind, FileObject sibling)
+                throws IOException
+        {
+            if (kind == Kind.CLASS)
+            {
+                return new ClassFile(className, classes);
+            }
+            return super.getJavaFileForOutput(
+                location, className, kind, sibling);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.codemodel;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import com.sun.codemodel.CodeWriter;
+import com.sun.codemodel.JPackage;
+
+/**
+ * A CodeWriter that writes all files into a single JAR file. The files
+ * are written sequentially, into one buffered stream, which avoids the
+ * overhead of creating many small files. An optional header is prepended
+ * to each file. The JAR file is complete when {@link #close()} has been
+ * called.
+ * <br>
+ * <br>
+ * The {@link #writeClasses(File, Map)} method can be used to write 
+ * classes that have been compiled with an {@link InMemoryCompiler} into 
+ * a JAR file in the same way.
+ */
+public final class JarCodeWriter extends CodeWriter
+{
+    /**
+     * The bytes of the header that is prepended to each file
+     */
+    private final byte[] header;
+    
+    /**
+     * The stream for the JAR file
+     */
+    private final JarOutputStream jarOutputStream;
+    
+    /**
+     * Creates a new instance that writes into the given JAR file. If 
+     * the file already exists, it is overwritten.
+     * 
+     * @param jarFile The JAR file
+     * @param headerCode The optional header code for each file. This is
+     * converted to bytes with the default charset.
+     * @throws IOException If the file cannot be created
+     */
+    public JarCodeWriter(File jarFile, String headerCode) throws IOException
+    {
+        this.header = headerCode == null ? new byte[0] : headerCode.getBytes();
+        this.jarOutputStream = createJarOutputStream(jarFile);
+    }
+    
+    /**
+     * Create a buffered stream for writing the given JAR file, with a 
+     * default manifest
+     * 
+     * @param jarFile The JAR file
+     * @return The stream
+     * @throws IOException If the file cannot be created
+     */
+    private static JarOutputStream createJarOutputStream(File jarFile) 
+        throws IOException
+    {
+        File directory = jarFile.getAbsoluteFile().getParentFile();
+        if (!directory.exists())
+        {
+            directory.mkdirs();
+        }
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(
+            Attributes.Name.MANIFEST_VERSION, "1.0");
+        return new JarOutputStream(new BufferedOutputStream(
+            new FileOutputStream(jarFile)), manifest);
+    }
+    
+    @Override
+    public OutputStream openBinary(JPackage pkg, String fileName)
+        throws IOException
+    {
+        String entryName = pkg.isUnnamed() ? fileName : 
+            pkg.name().replace('.', '/') + "/" + fileName;
+        jarOutputStream.putNextEntry(new JarEntry(entryName));
+        jarOutputStream.write(header);
+        return new FilterOutputStream(jarOutputStream)
+        {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException
+            {
+                out.write(b, off, len);
+            }
+            
+            @Override
+            public void close() throws IOException
+            {
+                // Only close the entry, not the JAR stream
+                flush();
+                jarOutputStream.closeEntry();
+            }
+        };
+    }
+    
+    @Override
+    public void close() throws IOException
+    {
+        jarOutputStream.close();
+    }
+    
+    /**
+     * Write the given classes into the given JAR file. The given map is
+     * a mapping from binary class names to bytecode, as returned by 
+     * {@link InMemoryCompiler#compile(Map)}. If the file already exists, 
+     * it is overwritten.
+     * 
+     * @param jarFile The JAR file
+     * @param classes The classes
+     * @throws IOException If an IO error occurs
+     */
+    public static void writeClasses(File jarFile, Map<String, byte[]> classes)
+        throws IOException
+    {
+        try (JarOutputStream jos = createJarOutputStream(jarFile))
+        {
+            for (Entry<String, byte[]> entry : classes.entrySet())
+            {
+                String entryName = 
+                    entry.getKey().replace('.', '/') + ".class";
+                jos.putNextEntry(new JarEntry(entryName));
+                jos.write(entry.getValue());
+                jos.closeEntry();
+            }
+        }
+    }
+}
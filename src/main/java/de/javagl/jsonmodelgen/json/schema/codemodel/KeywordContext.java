@@ -0,0 +1,185 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.codemodel;
+
+import java.util.function.Function;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import de.javagl.jsonmodelgen.json.JsonLocation;
+
+/**
+ * The context that is passed to a {@link KeywordHandler}. It describes 
+ * the keyword that is currently processed by a {@link KeywordDispatcher}, 
+ * and the schema that it is processed for. A context is only valid during
+ * the call to {@link KeywordHandler#handle(KeywordContext)}.
+ *
+ * @param <S> The schema type
+ */
+public final class KeywordContext<S>
+{
+    /**
+     * The schema
+     */
+    private final S schema;
+    
+    /**
+     * The location of the schema node
+     */
+    private final JsonLocation location;
+    
+    /**
+     * The schema node
+     */
+    private final JsonNode node;
+    
+    /**
+     * The function that resolves the schemas for locations
+     */
+    private final Function<JsonLocation, S> schemaResolver;
+    
+    /**
+     * The current keyword
+     */
+    private String keyword;
+    
+    /**
+     * The value of the current keyword
+     */
+    private JsonNode value;
+    
+    /**
+     * Creates a new context
+     * 
+     * @param schema The schema
+     * @param location The location of the schema node
+     * @param node The schema node
+     * @param schemaResolver The function that resolves the schemas 
+     * for locations
+     */
+    KeywordContext(S schema, JsonLocation location, JsonNode node,
+        Function<JsonLocation, S> schemaResolver)
+    {
+        this.schema = schema;
+        this.location = location;
+        this.node = node;
+        this.schemaResolver = schemaResolver;
+    }
+    
+    /**
+     * Set the current keyword and its value
+     * 
+     * @param keyword The keyword
+     * @param value The value
+     */
+    void set(String keyword, JsonNode value)
+    {
+        this.keyword = keyword;
+        this.value = value;
+    }
+    
+    /**
+     * Returns the schema that is currently processed
+     * 
+     * @return The schema
+     */
+    public S getSchema()
+    {
+        return schema;
+    }
+    
+    /**
+     * Returns the location of the schema node
+     * 
+     * @return The location
+     */
+    public JsonLocation getLocation()
+    {
+        return location;
+    }
+    
+    /**
+     * Returns the schema node that contains the keyword
+     * 
+     * @return The node
+     */
+    public JsonNode getNode()
+    {
+        return node;
+    }
+    
+    /**
+     * Returns the keyword
+     * 
+     * @return The keyword
+     */
+    public String getKeyword()
+    {
+        return keyword;
+    }
+    
+    /**
+     * Returns the value of the keyword
+     * 
+     * @return The value
+     */
+    public JsonNode getValue()
+    {
+        return value;
+    }
+    
+    /**
+     * Returns the location of the value of the keyword
+     * 
+     * @return The location
+     */
+    public JsonLocation getValueLocation()
+    {
+        return location.child(keyword);
+    }
+    
+    /**
+     * Returns the function that resolves the schemas for locations
+     * 
+     * @return The schema resolver
+     */
+    public Function<JsonLocation, S> getSchemaResolver()
+    {
+        return schemaResolver;
+    }
+    
+    /**
+     * Resolve the schema for the given location
+     * 
+     * @param schemaLocation The location
+     * @return The schema
+     */
+    public S resolve(JsonLocation schemaLocation)
+    {
+        return schemaResolver.apply(schemaLocation);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.codemodel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import de.javagl.jsonmodelgen.json.JsonLocation;
+
+/**
+ * A class that processes the keywords of schema nodes. It maintains a 
+ * registry of {@link KeywordHandler} instances. Each schema node is 
+ * processed in a single pass over its fields, where each field is passed
+ * to the handlers that have been registered for its name. Fields for 
+ * which no handler has been registered are ignored.<br>
+ * <br>
+ * Instances of this class may be used by multiple threads, as long as
+ * no handlers are registered while schema nodes are processed.
+ *
+ * @param <S> The schema type
+ */
+public final class KeywordDispatcher<S>
+{
+    /**
+     * A {@link KeywordHandler} together with the condition for the
+     * schemas that it applies to
+     *
+     * @param <S> The schema type
+     */
+    private static class Registration<S>
+    {
+        /**
+         * The condition for the schemas that the handler applies to
+         */
+        final Predicate<? super S> condition;
+        
+        /**
+         * The handler
+         */
+        final KeywordHandler<S> handler;
+        
+        /**
+         * Creates a new instance
+         * 
+         * @param condition The condition
+         * @param handler The handler
+         */
+        Registration(Predicate<? super S> condition, KeywordHandler<S> handler)
+        {
+            this.condition = condition;
+            this.handler = handler;
+        }
+    }
+    
+    /**
+     * The mapping from keywords to the handlers for the keywords, in the
+     * order in which they have been registered
+     */
+    private final Map<String, List<Registration<S>>> registrations;
+    
+    /**
+     * Creates a new, empty dispatcher
+     */
+    public KeywordDispatcher()
+    {
+        this.registrations = new HashMap<String, List<Registration<S>>>();
+    }
+    
+    /**
+     * Register the given handler for the given keyword, for all schemas
+     * 
+     * @param keyword The keyword
+     * @param handler The handler
+     */
+    public void register(String keyword, KeywordHandler<S> handler)
+    {
+        register(keyword, s -> true, handler);
+    }
+    
+    /**
+     * Register the given handler for the given keyword, for all schemas
+     * that match the given condition. If other handlers have already been
+     * registered for the same keyword, then the given handler will be 
+     * called after them.
+     * 
+     * @param keyword The keyword
+     * @param condition The condition
+     * @param handler The handler
+     */
+    public void register(String keyword, Predicate<? super S> condition,
+        KeywordHandler<S> handler)
+    {
+        Objects.requireNonNull(keyword, "The keyword may not be null");
+        Objects.requireNonNull(condition, "The condition may not be null");
+        Objects.requireNonNull(handler, "The handler may not be null");
+        List<Registration<S>> list = registrations.computeIfAbsent(
+            keyword, k -> new ArrayList<Registration<S>>());
+        list.add(new Registration<S>(condition, handler));
+    }
+    
+    /**
+     * Returns an unmodifiable view on the keywords for which handlers 
+     * have been registered
+     * 
+     * @return The keywords
+     */
+    public Set<String> getKeywords()
+    {
+        return Collections.unmodifiableSet(registrations.keySet());
+    }
+    
+    /**
+     * Process all fields of the given schema node, by passing them to the
+     * handlers that have been registered for the respective field names
+     * and that apply to the given schema.
+     * 
+     * @param schema The schema
+     * @param location The location of the schema node
+     * @param node The schema node
+     * @param schemaResolver The function that resolves the schemas for
+     * locations
+     */
+    public void dispatch(S schema, JsonLocation location, JsonNode node,
+        Function<JsonLocation, S> schemaResolver)
+    {
+        KeywordContext<S> context = null;
+        Iterator<Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext())
+        {
+            Entry<String, JsonNode> field = fields.next();
+            String keyword = field.getKey();
+            List<Registration<S>> list = registrations.get(keyword);
+            if (list == null)
+            {
+                continue;
+            }
+            for (Registration<S> registration : list)
+            {
+                if (!registration.condition.test(schema))
+                {
+                    continue;
+                }
+                if (context == null)
+                {
+                    context = new KeywordContext<S>(
+                        schema, location, node, schemaResolver);
+                }
+                context.set(keyword, field.getValue());
+                registration.handler.handle(context);
+            }
+        }
+    }
+}
@@ -24,19 +24,21 @@
  * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
  * OTHER DEALINGS IN THE SOFTWARE.
  */
-package de.javagl.jsonmodelgen;
+package de.javagl.jsonmodelgen.json.schema.codemodel;
 
 /**
- * Preliminary compile-time flags for different configurations.
- * This will be solved with a more generic runtime configuration
- * in the future.
- * 
- * @deprecated Preliminary!
+ * Interface for classes that can process a single keyword of a schema
+ * node, and store the resulting information in a schema
+ *
+ * @param <S> The schema type
  */
-@SuppressWarnings("javadoc")
-public class GlTFConfig
+@FunctionalInterface
+public interface KeywordHandler<S>
 {
-    public static boolean CREATE_ADDERS_AND_REMOVERS = true;
-    public static boolean CREATE_GETTERS_WITH_DEFAULT = true;
-    public static boolean REMOVE_ADDITIONAL_PROPERTIES = true;
+    /**
+     * Process the keyword that is described by the given context
+     * 
+     * @param context The {@link KeywordContext}
+     */
+    void handle(KeywordContext<S> context);
 }
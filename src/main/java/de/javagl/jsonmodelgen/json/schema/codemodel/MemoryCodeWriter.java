@@ -0,0 +1,118 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.codemodel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.sun.codemodel.CodeWriter;
+import com.sun.codemodel.JPackage;
+
+/**
+ * A CodeWriter that collects the generated source code in memory. The 
+ * sources can be obtained with {@link #getSources()}, as a mapping from
+ * the fully qualified class names to the source code. An optional header
+ * is prepended to each source.
+ */
+public final class MemoryCodeWriter extends CodeWriter
+{
+    /**
+     * The file name extension of Java source files
+     */
+    private static final String JAVA_EXTENSION = ".java";
+    
+    /**
+     * The bytes of the header that is prepended to each file
+     */
+    private final byte[] header;
+    
+    /**
+     * The mapping from fully qualified class names to source code
+     */
+    private final Map<String, String> sources;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param headerCode The optional header code for each file
+     */
+    public MemoryCodeWriter(String headerCode)
+    {
+        this.header = headerCode == null ? new byte[0] : headerCode.getBytes();
+        this.sources = new LinkedHashMap<String, String>();
+    }
+    
+    @Override
+    public OutputStream openBinary(JPackage pkg, String fileName)
+        throws IOException
+    {
+        if (!fileName.endsWith(JAVA_EXTENSION))
+        {
+            throw new IOException(
+                "Only source files can be written into memory: " + fileName);
+        }
+        String simpleName = fileName.substring(
+            0, fileName.length() - JAVA_EXTENSION.length());
+        String className = pkg.isUnnamed() ? simpleName : 
+            pkg.name() + "." + simpleName;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream()
+        {
+            @Override
+            public void close() throws IOException
+            {
+                // The code model writes the sources with the default 
+                // charset, just like the header
+                String source = toString(Charset.defaultCharset().name());
+                sources.put(className, source);
+            }
+        };
+        buffer.write(header);
+        return buffer;
+    }
+    
+    /**
+     * Returns an unmodifiable view on the mapping from fully qualified 
+     * class names to the source code that was written
+     * 
+     * @return The sources
+     */
+    public Map<String, String> getSources()
+    {
+        return Collections.unmodifiableMap(sources);
+    }
+    
+    @Override
+    public void close() throws IOException
+    {
+        // Nothing to do here
+    }
+}
@@ -26,18 +26,22 @@
  */
 package de.javagl.jsonmodelgen.json.schema.codemodel;
 
-import java.net.URI;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
-import de.javagl.jsonmodelgen.json.URIs;
+import de.javagl.jsonmodelgen.json.JsonLocation;
 
 /**
  * Utility methods for schema generators 
@@ -60,26 +64,26 @@ public class SchemaGeneratorUtils
      * of type strings.<br>  
      * <br>
      * If a reference or is present, it is resolved against the given base 
-     * URI and passed to the given schema resolver for resolution.<br>
+     * location and passed to the given schema resolver for resolution.<br>
      * <br> 
-     * If a standalone schema is present, then the fragment of the given
-     * URI is extended with a fragment that is derived from the given 
-     * propertyName, and the resulting URI is passed to the given schema 
+     * If a standalone schema is present, then the given location is 
+     * extended with the given propertyName and the index or name of the
+     * element, and the resulting location is passed to the given schema 
      * resolver for resolution.<br>
      * <br>
      * Otherwise, a warning is printed and <code>null</code> is returned.
      * 
-     * @param uri The base URI of the schema
+     * @param location The base location of the schema
      * @param node The node
      * @param propertyName The name of the property that contains an array
      * of references
      * @param schemaResolver The function that can resolve schemas for a
-     * given URI
+     * given location
      * @return The resolved schemas
      */
     public static <S> List<S> getSubSchemasArray(
-        URI uri, JsonNode node, String propertyName, 
-        Function<URI, S> schemaResolver)
+        JsonLocation location, JsonNode node, String propertyName, 
+        Function<JsonLocation, S> schemaResolver)
     {
         JsonNode propertyNode = node.get(propertyName);
         if (propertyNode == null)
@@ -102,8 +106,10 @@ public class SchemaGeneratorUtils
         {
             String propertyNodeItemName = propertyName+"/"+i;
             JsonNode propertyNodeItem = propertyNode.get(i);
-            S subSchema = getSubSchema(uri, propertyNodeItem, 
-                propertyNodeItemName, schemaResolver);
+            JsonLocation propertyNodeItemLocation = 
+                location.child(propertyName).child(i);
+            S subSchema = getSubSchema(propertyNodeItemLocation, 
+                propertyNodeItem, schemaResolver);
             if (subSchema == null)
             {
                 logger.warning("getSubSchemas: The " + propertyName + " array element " + 
@@ -130,26 +136,26 @@ public class SchemaGeneratorUtils
      * of type strings.<br>  
      * <br>
      * If a reference or is present, it is resolved against the given base 
-     * URI and passed to the given schema resolver for resolution.<br>
+     * location and passed to the given schema resolver for resolution.<br>
      * <br> 
-     * If a standalone schema is present, then the fragment of the given
-     * URI is extended with a fragment that is derived from the given 
-     * propertyName, and the resulting URI is passed to the given schema 
+     * If a standalone schema is present, then the given location is 
+     * extended with the given propertyName and the index or name of the
+     * element, and the resulting location is passed to the given schema 
      * resolver for resolution.<br>
      * <br>
      * Otherwise, a warning is printed and <code>null</code> is returned.
      * 
-     * @param uri The base URI of the schema
+     * @param location The base location of the schema
      * @param node The node
      * @param propertyName The name of the property that contains a dictionary
      * of references
      * @param schemaResolver The function that can resolve schemas for a
-     * given URI
+     * given location
      * @return The resolved schemas
      */
     public static <S> Map<String, S> getSubSchemasMap(
-        URI uri, JsonNode node, String propertyName, 
-        Function<URI, S> schemaResolver)
+        JsonLocation location, JsonNode node, String propertyName, 
+        Function<JsonLocation, S> schemaResolver)
     {
         JsonNode propertyNode = node.get(propertyName);
         if (propertyNode == null)
@@ -175,8 +181,10 @@ public class SchemaGeneratorUtils
             String fieldName = fieldNames.next();
             String propertyNodeItemName = propertyName+"/"+fieldName;
             JsonNode propertyNodeItem = propertyNode.get(fieldName);
-            S subSchema = getSubSchema(uri, propertyNodeItem, 
-                propertyNodeItemName, schemaResolver);
+            JsonLocation propertyNodeItemLocation = 
+                location.child(propertyName).child(fieldName);
+            S subSchema = getSubSchema(propertyNodeItemLocation, 
+                propertyNodeItem, schemaResolver);
             if (subSchema == null)
             {
                 logger.warning("getSubSchemas: The " + propertyName + " element " + 
@@ -200,44 +208,41 @@ public class SchemaGeneratorUtils
      * contains an explicit <code>"type" : [ ... ]</code> property with a list 
      * of type strings.<br>  
      * <br>
-     * If a reference or is present, it is resolved against the given base 
-     * URI and passed to the given schema resolver for resolution.<br>
+     * If a reference or is present, it is resolved against the given 
+     * location and passed to the given schema resolver for resolution.<br>
      * <br> 
-     * If a standalone schema is present, then the fragment of the given
-     * URI is extended with the given subSchemaFragment, and the resulting
-     * URI is passed to the given schema resolver for resolution.<br>
+     * If a standalone schema is present, then the given location is 
+     * passed to the given schema resolver for resolution.<br>
      * <br>
      * Otherwise, a warning is printed and <code>null</code> is returned.
      * 
-     * @param uri The base URI of the schema
+     * @param location The location of the sub-schema node
      * @param node The node
-     * @param subSchemaFragment The sub-schema fragment 
      * @param schemaResolver The function that can resolve schemas for a
-     * given URI
+     * given location
      * @return The resolved schema
      */
     public static <S> S getSubSchema(
-        URI uri, JsonNode node, String subSchemaFragment, 
-        Function<URI, S> schemaResolver)
+        JsonLocation location, JsonNode node, 
+        Function<JsonLocation, S> schemaResolver)
     {
-        URI refUri = getRefUriOptional(uri, node);
-        if (refUri == null)
+        JsonLocation refLocation = getRefLocationOptional(location, node);
+        if (refLocation == null)
         {
-            //logger.warning("getSubSchema: Found no refUri in node");
+            //logger.warning("getSubSchema: Found no refLocation in node");
             //logger.warning("    node  "+node);
             //logger.warning("    Assuming type information to be present, resolving...");
             
-            URI subUri = URIs.appendToFragment(uri, subSchemaFragment);
-            return schemaResolver.apply(subUri);
+            return schemaResolver.apply(location);
         }
-        S subSchema = schemaResolver.apply(refUri);
+        S subSchema = schemaResolver.apply(refLocation);
         if (subSchema == null)
         {
             logger.warning("getSubSchema: " + 
                 "Could not resolve schema of node ref");
-            logger.warning("    uri              "+uri);
+            logger.warning("    location         "+location);
             logger.warning("    node              "+node);
-            logger.warning("    refUri           "+refUri);
+            logger.warning("    refLocation      "+refLocation);
             return null;
         }
         return subSchema;
@@ -246,14 +251,16 @@ public class SchemaGeneratorUtils
     
     /**
      * Tries to obtain the value of the <code>"$ref"</code> field from the 
-     * given node, and resolve it against the given URI. If the given node 
-     * has no <code>"$ref"</code> field, then <code>null</code> is returned.
+     * given node, and resolve it against the given location. If the given
+     * node has no <code>"$ref"</code> field, then <code>null</code> is 
+     * returned.
      * 
-     * @param uri The base URI
+     * @param location The base location
      * @param node The node
-     * @return The reference URI, or <code>null</code>
+     * @return The reference location, or <code>null</code>
      */
-    private static URI getRefUriOptional(URI uri, JsonNode node)
+    private static JsonLocation getRefLocationOptional(
+        JsonLocation location, JsonNode node)
     {
         if (!node.has("$ref"))
         {
@@ -261,8 +268,38 @@ public class SchemaGeneratorUtils
         }
         JsonNode refNode = node.get("$ref");
         String refString = refNode.asText();
-        URI refUri = uri.resolve(refString);
-        return refUri.normalize();
+        return location.resolve(refString);
+    }
+
+    /**
+     * Computes the set of all schemas that are reachable from the given
+     * schemas, including the given schemas themselves, by following the
+     * subschemas that are provided by the given {@link SchemaStructure}
+     * 
+     * @param schemas The start schemas
+     * @param schemaStructure The {@link SchemaStructure}
+     * @return The reachable schemas
+     */
+    public static <S> Set<S> computeReachableSchemas(
+        Collection<? extends S> schemas, SchemaStructure<S> schemaStructure)
+    {
+        Set<S> reachableSchemas = new LinkedHashSet<S>();
+        Deque<S> queue = new ArrayDeque<S>(schemas);
+        while (!queue.isEmpty())
+        {
+            S schema = queue.poll();
+            if (reachableSchemas.add(schema))
+            {
+                for (S subSchema : schemaStructure.getSubSchemas(schema))
+                {
+                    if (subSchema != null)
+                    {
+                        queue.add(subSchema);
+                    }
+                }
+            }
+        }
+        return reachableSchemas;
     }
 
     /**
@@ -0,0 +1,84 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.codemodel;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Interface for a resolved graph of schema instances, together with the
+ * URIs that define them. This is the information that is required for
+ * generating classes. It may either be computed from the schema 
+ * documents, or be restored from a {@link SchemaSnapshot}.
+ *
+ * @param <S> The schema type
+ */
+public interface SchemaGraph<S>
+{
+    /**
+     * Returns the root schema
+     *
+     * @return The root schema
+     */
+    S getRootSchema();
+    
+    /**
+     * Returns the schema for the given URI, or <code>null</code> if there
+     * is no schema for the given URI
+     *
+     * @param uri The URI
+     * @return The schema
+     */
+    S getSchema(URI uri);
+    
+    /**
+     * Returns the (unmodifiable) list of URIs that defined the given 
+     * schema, or <code>null</code> if the given schema is not part of 
+     * this graph
+     *
+     * @param schema The schema
+     * @return The list of URIs
+     */
+    List<URI> getUris(S schema);
+    
+    /**
+     * Returns the canonical URI for the given schema, or <code>null</code>
+     * if the given schema is not part of this graph
+     *
+     * @param schema The schema
+     * @return The canonical URI
+     */
+    URI getCanonicalUri(S schema);
+    
+    /**
+     * Returns an unmodifiable set containing all schemas of this graph
+     *
+     * @return The schema set
+     */
+    Set<S> getSchemaSet();
+}
@@ -0,0 +1,211 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.codemodel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class for finding and merging structurally equivalent schemas.<br>
+ * <br>
+ * Two schemas are equivalent if they have the same content (as 
+ * determined by a {@link SchemaStructure}), and their subschemas are 
+ * pairwise equivalent. The schemas may form cycles, so the equivalence 
+ * is computed by refining a partition of the schemas: Initially, the 
+ * schemas are grouped by their content. Then, each schema is assigned
+ * a signature that consists of its group and the groups of its 
+ * subschemas, and the schemas are grouped by these signatures. This is
+ * repeated until the number of groups no longer changes. For schemas
+ * that do not refer to themselves, this is the same as comparing a
+ * hash of the content that is computed bottom-up, from the innermost
+ * subschemas to the outermost ones.
+ *
+ * @param <S> The schema type
+ */
+public final class SchemaMerger<S>
+{
+    /**
+     * The {@link SchemaStructure}
+     */
+    private final SchemaStructure<S> schemaStructure;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param schemaStructure The {@link SchemaStructure}
+     */
+    public SchemaMerger(SchemaStructure<S> schemaStructure)
+    {
+        this.schemaStructure = schemaStructure;
+    }
+    
+    /**
+     * Computes the groups of equivalent schemas among the given schemas. 
+     * The result maps the first schema of each group (in the iteration 
+     * order of the given collection) to the list of all schemas of the 
+     * group, starting with this first schema. Only groups that contain 
+     * more than one schema are returned. Subschemas that are not 
+     * contained in the given collection are only equivalent to 
+     * themselves.
+     * 
+     * @param schemas The schemas
+     * @return The groups of equivalent schemas
+     */
+    public Map<S, List<S>> computeEquivalentSchemas(Collection<S> schemas)
+    {
+        Map<S, Integer> groups = new IdentityHashMap<S, Integer>();
+        Map<Object, Integer> contentGroups = new HashMap<Object, Integer>();
+        for (S schema : schemas)
+        {
+            Object content = schemaStructure.getContent(schema);
+            Integer group = contentGroups.get(content);
+            if (group == null)
+            {
+                group = contentGroups.size();
+                contentGroups.put(content, group);
+            }
+            groups.put(schema, group);
+        }
+        int numGroups = contentGroups.size();
+        Map<S, Integer> externalGroups = new IdentityHashMap<S, Integer>();
+        while (true)
+        {
+            Map<S, Integer> newGroups = new IdentityHashMap<S, Integer>();
+            Map<List<Integer>, Integer> signatureGroups = 
+                new HashMap<List<Integer>, Integer>();
+            for (S schema : schemas)
+            {
+                List<Integer> signature = new ArrayList<Integer>();
+                signature.add(groups.get(schema));
+                for (S subSchema : schemaStructure.getSubSchemas(schema))
+                {
+                    signature.add(
+                        getGroup(subSchema, groups, externalGroups));
+                }
+                Integer group = signatureGroups.get(signature);
+                if (group == null)
+                {
+                    group = signatureGroups.size();
+                    signatureGroups.put(signature, group);
+                }
+                newGroups.put(schema, group);
+            }
+            groups = newGroups;
+            if (signatureGroups.size() == numGroups)
+            {
+                break;
+            }
+            numGroups = signatureGroups.size();
+        }
+        
+        Map<Integer, List<S>> groupMembers = 
+            new LinkedHashMap<Integer, List<S>>();
+        for (S schema : schemas)
+        {
+            groupMembers.computeIfAbsent(groups.get(schema), 
+                g -> new ArrayList<S>()).add(schema);
+        }
+        Map<S, List<S>> result = new LinkedHashMap<S, List<S>>();
+        for (List<S> members : groupMembers.values())
+        {
+            if (members.size() > 1)
+            {
+                result.put(members.get(0), 
+                    Collections.unmodifiableList(members));
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+    
+    /**
+     * Returns the group of the given schema. For <code>null</code>, 
+     * this is -1. For schemas that are not contained in the given groups,
+     * a unique negative group is assigned and stored in the given 
+     * external groups.
+     * 
+     * @param schema The schema
+     * @param groups The groups
+     * @param externalGroups The groups of schemas that are not part of
+     * the given groups
+     * @return The group
+     */
+    private static <S> Integer getGroup(S schema, 
+        Map<S, Integer> groups, Map<S, Integer> externalGroups)
+    {
+        if (schema == null)
+        {
+            return -1;
+        }
+        Integer group = groups.get(schema);
+        if (group != null)
+        {
+            return group;
+        }
+        return externalGroups.computeIfAbsent(
+            schema, s -> -2 - externalGroups.size());
+    }
+    
+    /**
+     * Merge the given groups of equivalent schemas, as they have been 
+     * computed with {@link #computeEquivalentSchemas(Collection)}: In 
+     * each of the given schemas, each subschema that is part of a group 
+     * is replaced with the first schema of the group. Afterwards, only 
+     * the first schemas of the groups are referred to.
+     * 
+     * @param schemas The schemas
+     * @param equivalentSchemas The groups of equivalent schemas
+     * @return The mapping from each schema that was replaced to the 
+     * schema that replaced it
+     */
+    public Map<S, S> merge(Collection<S> schemas, 
+        Map<S, List<S>> equivalentSchemas)
+    {
+        Map<S, S> replacements = new IdentityHashMap<S, S>();
+        for (Map.Entry<S, List<S>> entry : equivalentSchemas.entrySet())
+        {
+            for (S member : entry.getValue())
+            {
+                if (member != entry.getKey())
+                {
+                    replacements.put(member, entry.getKey());
+                }
+            }
+        }
+        for (S schema : schemas)
+        {
+            schemaStructure.replaceSubSchemas(schema, 
+                s -> replacements.getOrDefault(s, s));
+        }
+        return Collections.unmodifiableMap(replacements);
+    }
+}
@@ -0,0 +1,573 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.codemodel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import de.javagl.jsonmodelgen.json.DocumentLoader;
+import de.javagl.jsonmodelgen.json.Hashes;
+import de.javagl.jsonmodelgen.json.NodeRepository;
+
+/**
+ * A {@link SchemaGraph} that was stored in a file, so that it can be 
+ * restored without reading the schema documents, resolving references 
+ * and creating the schemas again.<br>
+ * <br>
+ * A snapshot is created from a {@link SchemaGraph}, the 
+ * {@link NodeRepository} that it was generated from, and the 
+ * {@link GeneratorConfig} that was used for generating it, with 
+ * {@link #create(SchemaGraph, NodeRepository, GeneratorConfig)}. It 
+ * stores the schemas, their URIs and canonical URIs, the configuration,
+ * and the hashes of the contents of all documents of the repository. 
+ * The schemas are written with Java object serialization, and the file 
+ * is compressed.<br>
+ * <br>
+ * The hash of a document is the hash of the JSON text of the parsed 
+ * document. When the snapshot is read with 
+ * {@link #read(File, URI, GeneratorConfig, Class, DocumentLoader)}, the
+ * documents are loaded with the given {@link DocumentLoader}, and their 
+ * hashes are computed again. For remote documents, this is usually a
+ * {@link de.javagl.jsonmodelgen.json.CachingDocumentLoader}, which 
+ * provides the cached contents, or revalidates them, depending on its 
+ * mode. If any document changed, or the snapshot was written with a 
+ * different format version, generator version or configuration, then 
+ * <code>null</code> is returned, and the schemas have to be generated 
+ * again. The same applies when the snapshot file is corrupt: It is 
+ * deleted, and treated as if it did not exist. Snapshots do not record
+ * a custom {@link KeywordDispatcher} that may have been used for 
+ * creating the schemas.
+ *
+ * @param <S> The schema type
+ */
+public final class SchemaSnapshot<S extends Serializable> 
+    implements SchemaGraph<S>
+{
+    /**
+     * The logger used in this class
+     */
+    private static final Logger logger = 
+        Logger.getLogger(SchemaSnapshot.class.getName());
+    
+    /**
+     * The string that identifies a snapshot file
+     */
+    private static final String MAGIC = "JsonModelGen schema snapshot";
+    
+    /**
+     * The version of the snapshot format. This has to be incremented 
+     * whenever the format of the file or the serialized form of the 
+     * schema classes changes.
+     */
+    private static final int FORMAT_VERSION = 3;
+    
+    /**
+     * The version of the generator that writes the snapshot. This is the
+     * implementation version of the generator library, or 
+     * <code>"unknown"</code> if this is not available, for example, when
+     * the classes are not loaded from a JAR file.
+     */
+    private static final String GENERATOR_VERSION = 
+        computeGeneratorVersion();
+    
+    /**
+     * The hash that is stored for documents that cannot be read
+     */
+    private static final String MISSING = "missing";
+    
+    /**
+     * The root schema
+     */
+    private final S rootSchema;
+    
+    /**
+     * The mapping from schemas to the URIs that define them, in the order
+     * of the schemas of the original {@link SchemaGraph}
+     */
+    private final Map<S, List<URI>> schemaToUris;
+    
+    /**
+     * The mapping from schemas to their canonical URIs
+     */
+    private final Map<S, URI> schemaToCanonicalUri;
+    
+    /**
+     * The mapping from all URIs of the schemas to the schemas
+     */
+    private final Map<URI, S> uriToSchema;
+    
+    /**
+     * The mapping from the URIs of the documents to the hashes of their
+     * contents
+     */
+    private final Map<URI, String> documentHashes;
+    
+    /**
+     * The {@link GeneratorConfig} that the schemas were generated with
+     */
+    private final GeneratorConfig config;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param rootSchema The root schema
+     * @param schemaToUris The mapping from schemas to URIs
+     * @param schemaToCanonicalUri The mapping from schemas to canonical
+     * URIs
+     * @param documentHashes The document hashes
+     * @param config The {@link GeneratorConfig}
+     */
+    private SchemaSnapshot(S rootSchema, Map<S, List<URI>> schemaToUris, 
+        Map<S, URI> schemaToCanonicalUri, Map<URI, String> documentHashes,
+        GeneratorConfig config)
+    {
+        this.rootSchema = rootSchema;
+        this.schemaToUris = schemaToUris;
+        this.schemaToCanonicalUri = schemaToCanonicalUri;
+        this.uriToSchema = new LinkedHashMap<URI, S>();
+        for (Entry<S, List<URI>> entry : schemaToUris.entrySet())
+        {
+            for (URI uri : entry.getValue())
+            {
+                uriToSchema.putIfAbsent(uri, entry.getKey());
+            }
+        }
+        this.documentHashes = documentHashes;
+        this.config = config;
+    }
+    
+    /**
+     * Create a snapshot of the given {@link SchemaGraph}, which was 
+     * generated from the documents of the given {@link NodeRepository},
+     * with the {@link GeneratorConfig#DEFAULT} configuration
+     * 
+     * @param <S> The schema type
+     * @param schemaGraph The {@link SchemaGraph}
+     * @param nodeRepository The {@link NodeRepository}
+     * @return The snapshot
+     */
+    public static <S extends Serializable> SchemaSnapshot<S> create(
+        SchemaGraph<S> schemaGraph, NodeRepository nodeRepository)
+    {
+        return create(schemaGraph, nodeRepository, GeneratorConfig.DEFAULT);
+    }
+    
+    /**
+     * Create a snapshot of the given {@link SchemaGraph}, which was 
+     * generated from the documents of the given {@link NodeRepository},
+     * with the given {@link GeneratorConfig}
+     * 
+     * @param <S> The schema type
+     * @param schemaGraph The {@link SchemaGraph}
+     * @param nodeRepository The {@link NodeRepository}
+     * @param config The {@link GeneratorConfig}
+     * @return The snapshot
+     */
+    public static <S extends Serializable> SchemaSnapshot<S> create(
+        SchemaGraph<S> schemaGraph, NodeRepository nodeRepository,
+        GeneratorConfig config)
+    {
+        Map<S, List<URI>> schemaToUris = new LinkedHashMap<S, List<URI>>();
+        Map<S, URI> schemaToCanonicalUri = new IdentityHashMap<S, URI>();
+        for (S schema : schemaGraph.getSchemaSet())
+        {
+            schemaToUris.put(schema, schemaGraph.getUris(schema));
+            schemaToCanonicalUri.put(
+                schema, schemaGraph.getCanonicalUri(schema));
+        }
+        Map<URI, String> documentHashes = new LinkedHashMap<URI, String>();
+        for (URI documentUri : nodeRepository.getDocumentUris())
+        {
+            documentHashes.put(documentUri, 
+                computeDocumentHash(nodeRepository.getDocument(documentUri)));
+        }
+        return new SchemaSnapshot<S>(schemaGraph.getRootSchema(), 
+            schemaToUris, schemaToCanonicalUri, documentHashes, config);
+    }
+    
+    /**
+     * Write this snapshot to the given file, for the given root URI. 
+     * The file is first written to a temporary file, which is then 
+     * moved to the target location, so that concurrent readers never 
+     * see an incomplete snapshot.
+     * 
+     * @param file The file
+     * @param rootUri The root URI
+     * @throws IOException If an IO error occurs
+     */
+    public void write(File file, URI rootUri) throws IOException
+    {
+        List<S> schemas = new ArrayList<S>(schemaToUris.keySet());
+        List<List<String>> uriStrings = new ArrayList<List<String>>();
+        List<String> canonicalUriStrings = new ArrayList<String>();
+        int rootIndex = -1;
+        for (int i = 0; i < schemas.size(); i++)
+        {
+            S schema = schemas.get(i);
+            if (schema == rootSchema)
+            {
+                rootIndex = i;
+            }
+            List<String> strings = new ArrayList<String>();
+            for (URI uri : schemaToUris.get(schema))
+            {
+                strings.add(uri.toString());
+            }
+            uriStrings.add(strings);
+            URI canonicalUri = schemaToCanonicalUri.get(schema);
+            canonicalUriStrings.add(
+                canonicalUri == null ? null : canonicalUri.toString());
+        }
+        Map<String, String> hashes = new LinkedHashMap<String, String>();
+        for (Entry<URI, String> entry : documentHashes.entrySet())
+        {
+            hashes.put(entry.getKey().toString(), entry.getValue());
+        }
+        
+        File directory = file.getAbsoluteFile().getParentFile();
+        directory.mkdirs();
+        File tempFile = File.createTempFile("snapshot", ".tmp", directory);
+        try (ObjectOutputStream out = new ObjectOutputStream(
+            new GZIPOutputStream(new BufferedOutputStream(
+                new FileOutputStream(tempFile)))))
+        {
+            out.writeUTF(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(GENERATOR_VERSION);
+            out.writeUTF(rootUri.normalize().toString());
+            out.writeObject(config);
+            out.writeObject(hashes);
+            out.writeObject(schemas);
+            out.writeObject(uriStrings);
+            out.writeObject(canonicalUriStrings);
+            out.writeInt(rootIndex);
+        }
+        catch (IOException e)
+        {
+            tempFile.delete();
+            throw e;
+        }
+        Files.move(tempFile.toPath(), file.toPath(), 
+            StandardCopyOption.REPLACE_EXISTING, 
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Read the snapshot for the given root URI from the given file, 
+     * which was created with the {@link GeneratorConfig#DEFAULT} 
+     * configuration. See 
+     * {@link #read(File, URI, GeneratorConfig, Class, DocumentLoader)}.
+     * 
+     * @param <S> The schema type
+     * @param file The file
+     * @param rootUri The root URI
+     * @param schemaType The schema type
+     * @param documentLoader The {@link DocumentLoader} for loading the 
+     * documents whose hashes are compared to the ones in the snapshot
+     * @return The snapshot, or <code>null</code>
+     */
+    public static <S extends Serializable> SchemaSnapshot<S> read(
+        File file, URI rootUri, Class<S> schemaType, 
+        DocumentLoader documentLoader)
+    {
+        return read(file, rootUri, GeneratorConfig.DEFAULT, 
+            schemaType, documentLoader);
+    }
+    
+    /**
+     * Read the snapshot for the given root URI and configuration from 
+     * the given file. Returns <code>null</code> if the file does not 
+     * exist, was created for a different root URI, with a different 
+     * configuration, by an incompatible version, or for schemas of a 
+     * different type, or if one of the documents of the snapshot 
+     * changed. If the file cannot be read, because it is 
+     * truncated or otherwise corrupt, then a warning is logged, the file
+     * is deleted, and <code>null</code> is returned.
+     * 
+     * @param <S> The schema type
+     * @param file The file
+     * @param rootUri The root URI
+     * @param config The {@link GeneratorConfig} that the schemas must 
+     * have been generated with
+     * @param schemaType The schema type
+     * @param documentLoader The {@link DocumentLoader} for loading the 
+     * documents whose hashes are compared to the ones in the snapshot
+     * @return The snapshot, or <code>null</code>
+     */
+    public static <S extends Serializable> SchemaSnapshot<S> read(
+        File file, URI rootUri, GeneratorConfig config, 
+        Class<S> schemaType, DocumentLoader documentLoader)
+    {
+        if (!file.exists())
+        {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(
+            new GZIPInputStream(new BufferedInputStream(
+                new FileInputStream(file)))))
+        {
+            if (!MAGIC.equals(in.readUTF()) || 
+                in.readInt() != FORMAT_VERSION ||
+                !GENERATOR_VERSION.equals(in.readUTF()))
+            {
+                logger.info("Snapshot has an unknown format: " + file);
+                return null;
+            }
+            if (!rootUri.normalize().toString().equals(in.readUTF()))
+            {
+                logger.info("Snapshot is for a different root: " + file);
+                return null;
+            }
+            if (!config.equals(readObject(in, GeneratorConfig.class)))
+            {
+                logger.info("Snapshot has a different configuration: " 
+                    + file);
+                return null;
+            }
+            Map<URI, String> documentHashes = 
+                toUriMap(readObject(in, Map.class));
+            if (!documentHashes.equals(computeDocumentHashes(
+                documentHashes.keySet(), documentLoader)))
+            {
+                logger.info("Snapshot is outdated: " + file);
+                return null;
+            }
+            List<?> schemas = readObject(in, List.class);
+            List<?> uriStrings = readObject(in, List.class);
+            List<?> canonicalUriStrings = readObject(in, List.class);
+            int rootIndex = in.readInt();
+            
+            Map<S, List<URI>> schemaToUris = 
+                new LinkedHashMap<S, List<URI>>();
+            Map<S, URI> schemaToCanonicalUri = new IdentityHashMap<S, URI>();
+            for (int i = 0; i < schemas.size(); i++)
+            {
+                S schema = schemaType.cast(schemas.get(i));
+                List<URI> uris = new ArrayList<URI>();
+                for (Object uriString : (List<?>) uriStrings.get(i))
+                {
+                    uris.add(URI.create((String) uriString));
+                }
+                schemaToUris.put(schema, Collections.unmodifiableList(uris));
+                Object canonicalUriString = canonicalUriStrings.get(i);
+                if (canonicalUriString != null)
+                {
+                    schemaToCanonicalUri.put(
+                        schema, URI.create((String) canonicalUriString));
+                }
+            }
+            S rootSchema = 
+                rootIndex < 0 ? null : schemaType.cast(schemas.get(rootIndex));
+            return new SchemaSnapshot<S>(rootSchema, schemaToUris, 
+                schemaToCanonicalUri, documentHashes, config);
+        }
+        catch (IOException | ClassNotFoundException | ClassCastException 
+            | IllegalArgumentException | IndexOutOfBoundsException e)
+        {
+            logger.log(Level.WARNING, 
+                "Snapshot cannot be read, deleting " + file, e);
+            if (!file.delete())
+            {
+                logger.warning("Could not delete snapshot " + file);
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * Read an object of the given type from the given stream
+     * 
+     * @param <T> The type
+     * @param in The stream
+     * @param type The type
+     * @return The object
+     * @throws IOException If an IO error occurs
+     * @throws ClassNotFoundException If the class of the object is not 
+     * found
+     * @throws ClassCastException If the object has a different type
+     */
+    private static <T> T readObject(ObjectInputStream in, Class<T> type) 
+        throws IOException, ClassNotFoundException
+    {
+        return type.cast(in.readObject());
+    }
+    
+    /**
+     * Convert the given map from URI strings to hashes into a map from
+     * URIs to hashes
+     * 
+     * @param map The map
+     * @return The converted map
+     */
+    private static Map<URI, String> toUriMap(Map<?, ?> map)
+    {
+        Map<URI, String> result = new LinkedHashMap<URI, String>();
+        for (Entry<?, ?> entry : map.entrySet())
+        {
+            result.put(URI.create((String) entry.getKey()), 
+                (String) entry.getValue());
+        }
+        return result;
+    }
+    
+    /**
+     * Compute the hashes of the contents of the given documents, which 
+     * are loaded with the given {@link DocumentLoader}
+     * 
+     * @param documentUris The document URIs
+     * @param documentLoader The {@link DocumentLoader}
+     * @return The mapping from document URIs to hashes
+     */
+    private static Map<URI, String> computeDocumentHashes(
+        Iterable<URI> documentUris, DocumentLoader documentLoader)
+    {
+        Map<URI, String> documentHashes = new LinkedHashMap<URI, String>();
+        for (URI documentUri : documentUris)
+        {
+            documentHashes.put(documentUri, 
+                computeDocumentHash(documentLoader.load(documentUri)));
+        }
+        return documentHashes;
+    }
+    
+    /**
+     * Returns the implementation version of the generator library, or 
+     * <code>"unknown"</code> if it is not available
+     * 
+     * @return The generator version
+     */
+    private static String computeGeneratorVersion()
+    {
+        Package p = SchemaSnapshot.class.getPackage();
+        String version = p == null ? null : p.getImplementationVersion();
+        if (version == null)
+        {
+            return "unknown";
+        }
+        return version;
+    }
+    
+    /**
+     * Compute the hash of the given document. This is the hash of the 
+     * JSON text of the document, which does not depend on the formatting
+     * of the document. If the given document is <code>null</code>, then
+     * a fixed string is returned that indicates a missing document.
+     * 
+     * @param document The document
+     * @return The hash
+     */
+    private static String computeDocumentHash(JsonNode document)
+    {
+        if (document == null)
+        {
+            return MISSING;
+        }
+        MessageDigest messageDigest = Hashes.createDigest();
+        byte[] digest = messageDigest.digest(
+            document.toString().getBytes(StandardCharsets.UTF_8));
+        return Hashes.toHexString(digest);
+    }
+    
+    /**
+     * Returns a hash of the contents of all documents that this snapshot
+     * was created from. This changes when any document changes.
+     * 
+     * @return The hash
+     */
+    public String getInputHash()
+    {
+        Map<String, String> sortedHashes = new TreeMap<String, String>();
+        for (Entry<URI, String> entry : documentHashes.entrySet())
+        {
+            sortedHashes.put(entry.getKey().toString(), entry.getValue());
+        }
+        MessageDigest messageDigest = Hashes.createDigest();
+        for (Entry<String, String> entry : sortedHashes.entrySet())
+        {
+            String line = entry.getKey() + " " + entry.getValue() + "\n";
+            messageDigest.update(line.getBytes(StandardCharsets.UTF_8));
+        }
+        return Hashes.toHexString(messageDigest.digest());
+    }
+    
+    @Override
+    public S getRootSchema()
+    {
+        return rootSchema;
+    }
+    
+    @Override
+    public S getSchema(URI uri)
+    {
+        return uriToSchema.get(uri.normalize());
+    }
+    
+    @Override
+    public List<URI> getUris(S schema)
+    {
+        return schemaToUris.get(schema);
+    }
+    
+    @Override
+    public URI getCanonicalUri(S schema)
+    {
+        return schemaToCanonicalUri.get(schema);
+    }
+    
+    @Override
+    public Set<S> getSchemaSet()
+    {
+        return Collections.unmodifiableSet(schemaToUris.keySet());
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.codemodel;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Interface for classes that provide access to the structure of schema 
+ * instances, as it is required by the {@link SchemaMerger} and by 
+ * {@link SchemaGeneratorUtils#computeReachableSchemas}: The content
+ * of a schema itself, and the subschemas that it refers to.
+ *
+ * @param <S> The schema type
+ */
+public interface SchemaStructure<S>
+{
+    /**
+     * Returns an object that describes the content of the given schema,
+     * excluding its subschemas and its ID. Two schemas that only differ 
+     * in their subschemas or IDs must return equal objects. Otherwise,
+     * the returned objects must be different.<br>
+     * <br>
+     * The content must also determine the number of subschemas, so that
+     * the lists that are returned by {@link #getSubSchemas(Object)} 
+     * can be compared element by element.
+     * 
+     * @param schema The schema
+     * @return The content
+     */
+    Object getContent(S schema);
+    
+    /**
+     * Returns the subschemas of the given schema, in a fixed order. The 
+     * list may contain <code>null</code> elements.
+     * 
+     * @param schema The schema
+     * @return The subschemas
+     */
+    List<S> getSubSchemas(S schema);
+    
+    /**
+     * Replace each subschema of the given schema with the result of 
+     * applying the given function to it
+     * 
+     * @param schema The schema
+     * @param replacement The replacement function
+     */
+    void replaceSubSchemas(S schema, Function<S, S> replacement);
+}
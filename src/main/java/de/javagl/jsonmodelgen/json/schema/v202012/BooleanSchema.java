@@ -31,6 +31,11 @@ package de.javagl.jsonmodelgen.json.schema.v202012;
  */
 public class BooleanSchema extends Schema
 {
+    /**
+     * Serial UID
+     */
+    private static final long serialVersionUID = 1L;
+
     @Override
     public BooleanSchema asBoolean()
     {
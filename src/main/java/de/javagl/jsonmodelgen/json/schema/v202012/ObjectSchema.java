@@ -35,6 +35,11 @@ import java.util.Set;
  */
 public class ObjectSchema extends Schema
 {
+    /**
+     * Serial UID
+     */
+    private static final long serialVersionUID = 1L;
+
     /**
      * See {@link #getMaxProperties()}
      */
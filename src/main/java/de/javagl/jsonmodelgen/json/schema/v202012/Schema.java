@@ -26,16 +26,28 @@
  */
 package de.javagl.jsonmodelgen.json.schema.v202012;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import de.javagl.jsonmodelgen.json.schema.codemodel.SchemaSnapshot;
+
 /**
  * A class representing a JSON schema, version 2020-12, according to the 
  * definitions https://json-schema.org/draft/2020-12/json-schema-core.html
+ * <br>
+ * <br>
+ * Schemas are serializable, so that a resolved schema graph can be 
+ * stored in a {@link SchemaSnapshot}.
  */
-public class Schema
+public class Schema implements Serializable
 {
+    /**
+     * Serial UID
+     */
+    private static final long serialVersionUID = 1L;
+
     /**
      * See {@link #getId()}
      */
@@ -27,10 +27,13 @@
 package de.javagl.jsonmodelgen.json.schema.v202012;
 
 import java.net.URI;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -38,16 +41,27 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
+import de.javagl.jsonmodelgen.json.BundleOrigins;
+import de.javagl.jsonmodelgen.json.JsonException;
+import de.javagl.jsonmodelgen.json.JsonLocation;
 import de.javagl.jsonmodelgen.json.JsonUtils;
 import de.javagl.jsonmodelgen.json.NodeRepository;
-import de.javagl.jsonmodelgen.json.URIs;
+import de.javagl.jsonmodelgen.json.ReferenceGraph;
+import de.javagl.jsonmodelgen.json.schema.codemodel.GeneratorConfig;
+import de.javagl.jsonmodelgen.json.schema.codemodel.KeywordContext;
+import de.javagl.jsonmodelgen.json.schema.codemodel.KeywordDispatcher;
 import de.javagl.jsonmodelgen.json.schema.codemodel.SchemaGeneratorUtils;
+import de.javagl.jsonmodelgen.json.schema.codemodel.SchemaGraph;
+import de.javagl.jsonmodelgen.json.schema.codemodel.SchemaMerger;
 
 /**
  * A class that generates a {@link Schema} from a {@link NodeRepository}
@@ -55,7 +69,7 @@ import de.javagl.jsonmodelgen.json.schema.codemodel.SchemaGeneratorUtils;
  * from the {@link NodeRepository}, and create {@link Schema} instances
  * for the nodes.
  */
-public final class SchemaGenerator
+public final class SchemaGenerator implements SchemaGraph<Schema>
 {
     /**
      * The logger used in this class
@@ -87,25 +101,39 @@ public final class SchemaGenerator
     private final NodeRepository nodeRepository;
 
     /**
-     * A function that returns a Schema for a given URI. Internally, this
-     * just calls {@link #resolveSchema(URI)}.
+     * The {@link BundleOrigins} that map the URIs inside the definitions
+     * of a bundle to the URIs in the original documents
      */
-    private final Function<URI, Schema> schemaResolver;
+    private final BundleOrigins bundleOrigins;
 
     /**
-     * The mapping from Nodes of the {@link NodeRepository} to {@link Schema}
-     * instances
+     * The {@link KeywordDispatcher} that processes the keywords of the
+     * schema nodes
      */
-    private final Map<JsonNode, Schema> schemas;
+    private final KeywordDispatcher<Schema> keywordDispatcher;
 
     /**
-     * The mapping from {@link Schema} instances to the lists of URIs that
-     * defined the respective {@link Schema}. This just maps the values of
-     * the {@link #schemas} mapping to the URIs that are obtained for the
-     * respective keys of the {@link #schemas} using the
-     * {@link NodeRepository#computeNodeToUrisMapping()}
+     * The mapping from the keys of the nodes of the {@link NodeRepository} 
+     * to {@link Schema} instances. 
      */
-    private final Map<Schema, List<URI>> schemaToUris;
+    private final ConcurrentMap<SchemaKey, Schema> schemas;
+
+    /**
+     * The mapping from {@link Schema} instances to the lists of locations 
+     * that defined the respective {@link Schema}. This just maps the values
+     * of the {@link #schemas} mapping to the locations that are obtained 
+     * for the respective keys of the {@link #schemas} using the
+     * {@link NodeRepository#computeNodeToLocationsMapping()}. The schemas
+     * are in the order of the locations in the {@link NodeRepository}.
+     */
+    private final Map<Schema, List<JsonLocation>> schemaToLocations;
+
+    /**
+     * The mapping from the canonical URIs of schemas that equivalent 
+     * schemas have been merged into, to the canonical URIs of the 
+     * schemas that have been merged into them
+     */
+    private final Map<URI, List<URI>> mergedUris;
 
     /**
      * Create a new schema generator that operates on the given
@@ -115,76 +143,403 @@ public final class SchemaGenerator
      */
     public SchemaGenerator(NodeRepository nodeRepository)
     {
-        this.nodeRepository = nodeRepository;
-        this.schemaResolver = this::resolveSchema;
-        this.schemas = new LinkedHashMap<JsonNode, Schema>();
+        this(nodeRepository, createDefaultKeywordDispatcher(), null);
+    }
 
-        resolveSchema(nodeRepository.getRootUri());
-        this.schemaToUris = computeSchemaToUrisMapping();
+    /**
+     * Create a new schema generator that operates on the given
+     * {@link NodeRepository}. See 
+     * {@link #SchemaGenerator(NodeRepository, KeywordDispatcher, ForkJoinPool)}
+     *
+     * @param nodeRepository The {@link NodeRepository}
+     * @param forkJoinPool The optional pool for the parallel resolution
+     */
+    public SchemaGenerator(
+        NodeRepository nodeRepository, ForkJoinPool forkJoinPool)
+    {
+        this(nodeRepository, createDefaultKeywordDispatcher(), forkJoinPool);
     }
 
     /**
-     * Resolve the {@link Schema} for the given URI. If the {@link Schema} for
-     * the given URI is already known, then it is returned. Otherwise, it is
-     * created from the JSON node that is found in the {@link NodeRepository}
-     * for the given URI. (This may cause recursive calls to this method,
-     * if the Schema refers to other Schemas)
+     * Create a new schema generator that operates on the given
+     * {@link NodeRepository}, using the given {@link GeneratorConfig}. 
+     * See {@link #SchemaGenerator(NodeRepository, KeywordDispatcher, 
+     * ForkJoinPool, GeneratorConfig)}
      *
-     * @param uri The URI
-     * @return The {@link Schema} for the given URI
+     * @param nodeRepository The {@link NodeRepository}
+     * @param forkJoinPool The optional pool for the parallel resolution
+     * @param config The {@link GeneratorConfig}
      */
-    private Schema resolveSchema(URI uri)
+    public SchemaGenerator(NodeRepository nodeRepository, 
+        ForkJoinPool forkJoinPool, GeneratorConfig config)
     {
-        uri = getCanonicalUri(uri);
+        this(nodeRepository, createDefaultKeywordDispatcher(), forkJoinPool,
+            config);
+    }
 
-        log("resolveSchema");
-        log("    uri    : "+uri);
+    /**
+     * Create a new schema generator that operates on the given
+     * {@link NodeRepository}, and uses the given {@link KeywordDispatcher}
+     * for processing the keywords of the schema nodes. 
+     *
+     * @param nodeRepository The {@link NodeRepository}
+     * @param keywordDispatcher The {@link KeywordDispatcher}
+     * @see #createDefaultKeywordDispatcher()
+     */
+    public SchemaGenerator(NodeRepository nodeRepository, 
+        KeywordDispatcher<Schema> keywordDispatcher)
+    {
+        this(nodeRepository, keywordDispatcher, null);
+    }
+
+    /**
+     * Create a new schema generator that operates on the given
+     * {@link NodeRepository}, and uses the given {@link KeywordDispatcher}
+     * for processing the keywords of the schema nodes.<br>
+     * <br>
+     * The schemas are resolved separately for each component of the
+     * {@link ReferenceGraph} of the {@link NodeRepository}, after the
+     * schemas of the components that it refers to. If the given pool is
+     * not <code>null</code>, then independent components are resolved 
+     * in parallel, on the given pool. The resulting {@link Schema} 
+     * instances and their order are the same as for the sequential 
+     * resolution.
+     *
+     * @param nodeRepository The {@link NodeRepository}
+     * @param keywordDispatcher The {@link KeywordDispatcher}
+     * @param forkJoinPool The optional pool for the parallel resolution
+     */
+    public SchemaGenerator(NodeRepository nodeRepository, 
+        KeywordDispatcher<Schema> keywordDispatcher, 
+        ForkJoinPool forkJoinPool)
+    {
+        this(nodeRepository, keywordDispatcher, forkJoinPool, 
+            GeneratorConfig.DEFAULT);
+    }
+
+    /**
+     * Create a new schema generator that operates on the given
+     * {@link NodeRepository}, and uses the given {@link KeywordDispatcher}
+     * for processing the keywords of the schema nodes. The schemas are 
+     * resolved as described in {@link #SchemaGenerator(NodeRepository, 
+     * KeywordDispatcher, ForkJoinPool)}.<br>
+     * <br>
+     * If {@link GeneratorConfig#isMergeEquivalentSchemas()} is 
+     * <code>true</code>, then schemas that are structurally equivalent 
+     * are merged afterwards: All references to them are replaced with 
+     * a single one of them, which is then defined by the locations of 
+     * all merged schemas. The result is reported in 
+     * {@link #getMergedUris()}.
+     *
+     * @param nodeRepository The {@link NodeRepository}
+     * @param keywordDispatcher The {@link KeywordDispatcher}
+     * @param forkJoinPool The optional pool for the parallel resolution
+     * @param config The {@link GeneratorConfig}
+     * @see SchemaMerger
+     */
+    public SchemaGenerator(NodeRepository nodeRepository, 
+        KeywordDispatcher<Schema> keywordDispatcher, 
+        ForkJoinPool forkJoinPool, GeneratorConfig config)
+    {
+        this.nodeRepository = nodeRepository;
+        this.bundleOrigins = BundleOrigins.read(nodeRepository);
+        this.keywordDispatcher = keywordDispatcher;
+        this.schemas = new ConcurrentHashMap<SchemaKey, Schema>();
+
+        ReferenceGraph referenceGraph = new ReferenceGraph(nodeRepository);
+        referenceGraph.forEachComponent(forkJoinPool, component -> 
+        {
+            Resolution resolution = new Resolution();
+            for (JsonLocation entryLocation : component.getEntryLocations())
+            {
+                resolution.resolve(entryLocation);
+            }
+        });
+        Map<Schema, List<JsonLocation>> resolvedSchemaToLocations = 
+            computeSchemaToLocationsMapping();
+        if (config.isMergeEquivalentSchemas())
+        {
+            this.mergedUris = 
+                mergeEquivalentSchemas(resolvedSchemaToLocations);
+            this.schemaToLocations = computeSchemaToLocationsMapping();
+        }
+        else
+        {
+            this.mergedUris = Collections.emptyMap();
+            this.schemaToLocations = resolvedSchemaToLocations;
+        }
+    }
+
+    /**
+     * Merge the schemas that are structurally equivalent, using a 
+     * {@link SchemaMerger}, and replace the merged schemas in the
+     * {@link #schemas} mapping with the schemas that they have been
+     * merged into.
+     * 
+     * @param resolvedSchemaToLocations The mapping from all schemas to 
+     * their locations, before merging
+     * @return The mapping from the canonical URIs of the schemas that 
+     * other schemas have been merged into to the canonical URIs of the
+     * merged schemas
+     */
+    private Map<URI, List<URI>> mergeEquivalentSchemas(
+        Map<Schema, List<JsonLocation>> resolvedSchemaToLocations)
+    {
+        SchemaMerger<Schema> schemaMerger = 
+            new SchemaMerger<Schema>(DefaultSchemaStructure.INSTANCE);
+        Set<Schema> schemaSet = resolvedSchemaToLocations.keySet();
+        Map<Schema, List<Schema>> equivalentSchemas = 
+            schemaMerger.computeEquivalentSchemas(schemaSet);
+        Map<Schema, Schema> replacements = 
+            schemaMerger.merge(schemaSet, equivalentSchemas);
+        schemas.replaceAll((k, v) -> replacements.getOrDefault(v, v));
+        
+        Map<URI, List<URI>> result = new LinkedHashMap<URI, List<URI>>();
+        for (Entry<Schema, List<Schema>> entry : equivalentSchemas.entrySet())
+        {
+            List<Schema> members = entry.getValue();
+            List<URI> uris = new ArrayList<URI>();
+            for (Schema member : members.subList(1, members.size()))
+            {
+                uris.add(toCanonicalUri(
+                    resolvedSchemaToLocations.get(member)));
+            }
+            result.put(toCanonicalUri(
+                resolvedSchemaToLocations.get(entry.getKey())), 
+                Collections.unmodifiableList(uris));
+        }
+        if (!replacements.isEmpty())
+        {
+            logger.info("Merged " + replacements.size() 
+                + " equivalent schemas into " + equivalentSchemas.size()
+                + " schemas");
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Returns an unmodifiable mapping from the canonical URIs of schemas 
+     * that structurally equivalent schemas have been merged into, to the
+     * (unmodifiable) lists of canonical URIs of the schemas that have 
+     * been merged into them. This is empty when no schemas have been 
+     * merged.
+     * 
+     * @return The merged URIs
+     * @see GeneratorConfig#isMergeEquivalentSchemas()
+     */
+    public Map<URI, List<URI>> getMergedUris()
+    {
+        return mergedUris;
+    }
+
+    /**
+     * The key under which a {@link Schema} is stored. This is the node of
+     * the schema, compared by identity, so that looking up a node does not 
+     * require hashing the whole node structure. For value nodes (like the
+     * <code>true</code> and <code>false</code> schemas), which may be 
+     * shared by different locations, this is the location of the schema.
+     */
+    private static final class SchemaKey
+    {
+        /**
+         * The node
+         */
+        final JsonNode node;
+        
+        /**
+         * The canonical location of the node
+         */
+        final JsonLocation location;
+        
+        /**
+         * The object that identifies the key
+         */
+        private final Object identity;
+        
+        /**
+         * Creates a new key
+         * 
+         * @param node The node
+         * @param location The canonical location of the node
+         */
+        SchemaKey(JsonNode node, JsonLocation location)
+        {
+            this.node = node;
+            this.location = location;
+            this.identity = node.isContainerNode() ? node : location;
+        }
+        
+        @Override
+        public int hashCode()
+        {
+            return System.identityHashCode(identity);
+        }
+        
+        @Override
+        public boolean equals(Object object)
+        {
+            if (this == object)
+            {
+                return true;
+            }
+            if (!(object instanceof SchemaKey))
+            {
+                return false;
+            }
+            SchemaKey other = (SchemaKey) object;
+            return identity == other.identity;
+        }
+    }
 
-        JsonNode node = getNode(uri);
-        Schema schema = null;
+    /**
+     * The state of the resolution of the schemas for one component of 
+     * the {@link ReferenceGraph}. Each resolution is confined to a single 
+     * thread.
+     */
+    private final class Resolution
+    {
+        /**
+         * A function that returns a Schema for a given location. 
+         * Internally, this just calls 
+         * {@link SchemaGenerator#resolveSchema(JsonLocation, Resolution)}.
+         */
+        final Function<JsonLocation, Schema> schemaResolver;
+
+        /**
+         * The nodes for which a {@link Schema} is currently being 
+         * generated. This is used to detect schemas that (indirectly) 
+         * extend themselves.
+         */
+        final Set<JsonNode> generatingNodes;
+
+        /**
+         * The queue of schemas that have been generated, but not yet been
+         * processed. Processing a schema may resolve further schemas, 
+         * which are then appended to this queue, instead of being 
+         * processed recursively.
+         */
+        final Deque<Runnable> pendingSchemas;
+        
+        /**
+         * Creates a new resolution
+         */
+        Resolution()
+        {
+            this.schemaResolver = location -> resolveSchema(location, this);
+            this.generatingNodes = Collections.newSetFromMap(
+                new IdentityHashMap<JsonNode, Boolean>());
+            this.pendingSchemas = new ArrayDeque<Runnable>();
+        }
         
-        // Empty nodes should not cause the same ("any")-Schema object to 
-        // be used every time. The returned ("any")-Schema should contain
-        // a URI/id that is specific for THIS empty node.
-        if (node.size() != 0 || node.isValueNode())
+        /**
+         * Resolve the schema for the given location, and process all
+         * schemas that are resolved during this process
+         * 
+         * @param location The location
+         */
+        void resolve(JsonLocation location)
         {
-            schema = schemas.get(node);
-            if (schema != null)
+            resolveSchema(location, this);
+            while (!pendingSchemas.isEmpty())
             {
-                log("    found  : "+schema);
-                return schema;
+                pendingSchemas.poll().run();
             }
         }
+    }
+
+    /**
+     * Resolve the {@link Schema} for the given location. If the 
+     * {@link Schema} for the given location is already known, then it is 
+     * returned. Otherwise, it is created from the JSON node that is found 
+     * in the {@link NodeRepository} for the given location, and 
+     * scheduled for being processed in the given {@link Resolution}. 
+     * (Processing the schema happens later, so that Schemas that refer 
+     * to other Schemas do not cause a recursion that is as deep as the 
+     * schema structure)<br>
+     * <br>
+     * If the schema for the same node is generated concurrently by
+     * another {@link Resolution}, then only the schema that was stored 
+     * first is returned and processed. (Schemas of other resolutions are
+     * only referred to, or their type strings are read, which are set 
+     * before the schema is stored)
+     *
+     * @param location The location
+     * @param resolution The {@link Resolution}
+     * @return The {@link Schema} for the given location
+     */
+    private Schema resolveSchema(JsonLocation location, Resolution resolution)
+    {
+        location = getCanonicalLocation(location);
+
+        log("resolveSchema");
+        log("    location : "+location);
+
+        JsonNode node = getNode(location);
+        if (node == null)
+        {
+            logger.warning("resolveSchema: No node for "+location);
+            return null;
+        }
+        SchemaKey key = new SchemaKey(node, location);
+        Schema schema = schemas.get(key);
+        if (schema != null)
+        {
+            log("    found  : "+schema);
+            return schema;
+        }
         log("    resolveSchema calls generate...");
 
-        schema = generateSchema(uri);
-        schemas.put(node, schema);
-        processSchema(uri, schema);
+        if (!resolution.generatingNodes.add(node))
+        {
+            throw new JsonException(
+                "Schema at " + location + " extends itself");
+        }
+        try
+        {
+            schema = generateSchema(location, resolution.schemaResolver);
+        }
+        finally
+        {
+            resolution.generatingNodes.remove(node);
+        }
+        Schema existingSchema = schemas.putIfAbsent(key, schema);
+        if (existingSchema != null)
+        {
+            log("    found after generation : "+existingSchema);
+            return existingSchema;
+        }
+        JsonLocation schemaLocation = location;
+        Schema generatedSchema = schema;
+        resolution.pendingSchemas.add(() -> processSchema(
+            schemaLocation, generatedSchema, resolution.schemaResolver));
 
         log("resolveSchema generated");
-        log("    uri    : "+uri);
+        log("    location : "+location);
         log("    created: "+schema);
 
         return schema;
     }
 
     /**
-     * Generate the {@link Schema} for the given URI
+     * Generate the {@link Schema} for the given location
      *
-     * @param uri The URI
+     * @param location The location
+     * @param schemaResolver The function that resolves the schemas for 
+     * locations
      * @return The {@link Schema}
      */
-    private Schema generateSchema(URI uri)
+    private Schema generateSchema(JsonLocation location, 
+        Function<JsonLocation, Schema> schemaResolver)
     {
-        JsonNode node = getNode(uri);
+        JsonNode node = getNode(location);
 
         log("generateSchema");
-        log("    uri : "+uri);
+        log("    location : "+location);
         log("    node: "+node);
 
         if (node == null)
         {
-            logger.warning("generateSchema: No node for "+uri);
+            logger.warning("generateSchema: No node for "+location);
             return null;
         }
 
@@ -194,11 +549,11 @@ public final class SchemaGenerator
         {
             String typeString = typeStrings.iterator().next();
             Schema schema = SchemaFactory.createSchema(typeString);
-            schema.setId(uri.toString());
+            schema.setId(toOriginalUri(location).toString());
             schema.setTypeStrings(typeStrings);
 
             log("generateSchema: Found single type");
-            log("    uri          "+uri);
+            log("    location     "+location);
             log("    type strings "+typeStrings);
 
             return schema;
@@ -207,11 +562,11 @@ public final class SchemaGenerator
         if (typeStrings != null && typeStrings.size() > 0)
         {
             ObjectSchema schema = new ObjectSchema();
-            schema.setId(uri.toString());
+            schema.setId(toOriginalUri(location).toString());
             schema.setTypeStrings(typeStrings);
 
             log("generateSchema: WARNING: Found multiple types");
-            log("    uri          "+uri);
+            log("    location     "+location);
             log("    type strings "+typeStrings);
 
             logger.warning("Found multiple types: "+typeStrings);
@@ -226,10 +581,10 @@ public final class SchemaGenerator
         if (allOfNode != null)
         {
             ObjectSchema schema = new ObjectSchema();
-            schema.setId(uri.toString());
+            schema.setId(toOriginalUri(location).toString());
             List<Schema> subSchemas =
                 SchemaGeneratorUtils.getSubSchemasArray(
-                    uri, node, "allOf", schemaResolver);
+                    location, node, "allOf", schemaResolver);
             Set<String> allTypeStrings = new LinkedHashSet<String>();
             for (Schema subSchema : subSchemas)
             {
@@ -247,10 +602,10 @@ public final class SchemaGenerator
         if (anyOfNode != null)
         {
             ObjectSchema schema = new ObjectSchema();
-            schema.setId(uri.toString());
+            schema.setId(toOriginalUri(location).toString());
             List<Schema> subSchemas =
                 SchemaGeneratorUtils.getSubSchemasArray(
-                    uri, node, "anyOf", schemaResolver);
+                    location, node, "anyOf", schemaResolver);
             Set<String> allTypeStrings = new LinkedHashSet<String>();
             for (Schema subSchema : subSchemas)
             {
@@ -268,10 +623,10 @@ public final class SchemaGenerator
         if (oneOfNode != null)
         {
             ObjectSchema schema = new ObjectSchema();
-            schema.setId(uri.toString());
+            schema.setId(toOriginalUri(location).toString());
             List<Schema> subSchemas =
                 SchemaGeneratorUtils.getSubSchemasArray(
-                    uri, node, "oneOf", schemaResolver);
+                    location, node, "oneOf", schemaResolver);
             Set<String> allTypeStrings = new LinkedHashSet<String>();
             for (Schema subSchema : subSchemas)
             {
@@ -287,22 +642,22 @@ public final class SchemaGenerator
         if (notNode != null)
         {
             ObjectSchema schema = new ObjectSchema();
-            schema.setId(uri.toString());
+            schema.setId(toOriginalUri(location).toString());
             Schema subSchema =
                 SchemaGeneratorUtils.getSubSchema(
-                    uri, notNode, "not", schemaResolver);
+                    location.child("not"), notNode, schemaResolver);
             schema.setNot(subSchema);
             return schema;
         }
         
 
         ObjectSchema schema = new ObjectSchema(true);
-        schema.setId(uri.toString());
+        schema.setId(toOriginalUri(location).toString());
         schema.setTypeStrings(Collections.singleton("any"));
 
         log("generateSchema: NOTE: Found no type strings and no " +
             "extended schema - generate any");
-        log("    uri          "+uri);
+        log("    location     "+location);
         log("    type strings "+schema.getTypeStrings());
 
         return schema;
@@ -310,43 +665,50 @@ public final class SchemaGenerator
 
 
     /**
-     * Process the given {@link Schema}, based on its type, by delegating
-     * to the specific <code>process*Schema</code> methods.
+     * Process the given {@link Schema}, by passing the fields of its node
+     * to the {@link KeywordDispatcher}, in a single pass.
      *
-     * @param uri The URI
+     * @param location The location
      * @param schema The {@link Schema}
+     * @param schemaResolver The function that resolves the schemas for 
+     * locations
      */
-    private void processSchema(URI uri, Schema schema)
+    private void processSchema(JsonLocation location, Schema schema,
+        Function<JsonLocation, Schema> schemaResolver)
     {
         log("processSchema");
-        log("    uri    "+uri);
+        log("    location "+location);
         log("    schema "+schema);
 
-        processBasicSchema(uri, schema);
-
-        if (schema.isString())
-        {
-            processStringSchema(uri, schema.asString());
-        }
-        if (schema.isNumber())
-        {
-            processNumberSchema(uri, schema.asNumber());
-        }
-        if (schema.isArray())
-        {
-            processArraySchema(uri, schema.asArray());
-        }
-        if (schema.isObject())
-        {
-            processObjectSchema(uri, schema.asObject());
-        }
+        JsonNode node = getNode(location);
+        keywordDispatcher.dispatch(schema, location, node, schemaResolver);
     }
 
+    /**
+     * Creates a new {@link KeywordDispatcher} that contains the handlers 
+     * for all keywords that are supported by this generator. Further 
+     * handlers may be registered in the returned dispatcher, before it 
+     * is passed to the 
+     * {@link #SchemaGenerator(NodeRepository, KeywordDispatcher)} 
+     * constructor.
+     * 
+     * @return The {@link KeywordDispatcher}
+     */
+    public static KeywordDispatcher<Schema> createDefaultKeywordDispatcher()
+    {
+        KeywordDispatcher<Schema> dispatcher = 
+            new KeywordDispatcher<Schema>();
+        registerBasicKeywords(dispatcher);
+        registerStringKeywords(dispatcher);
+        registerNumberKeywords(dispatcher);
+        registerArrayKeywords(dispatcher);
+        registerObjectKeywords(dispatcher);
+        return dispatcher;
+    }
 
     /**
-     * Set the properties that are common for each {@link Schema},
-     * according to the values that are obtained from the
-     * {@link #getNode(URI) node for the given URI}.
+     * Register the handlers for the keywords that are common for each 
+     * {@link Schema}:
      * <ul>
      *   <li>{@link Schema#setSchemaString(String)}</li>
      *   <li>{@link Schema#setTitle(String)}</li>
@@ -354,173 +716,136 @@ public final class SchemaGenerator
      *   <li>{@link Schema#setId(String)}</li>
      *   <li>{@link Schema#setFormat(String)}</li>
      *   <li>{@link Schema#setDefaultString(String)}</li>
+     *   <li>{@link Schema#setEnumStrings(Set)}</li>
      *   <li>{@link Schema#setAllOf(List)}</li>
      *   <li>{@link Schema#setAnyOf(List)}</li>
      *   <li>{@link Schema#setOneOf(List)}</li>
      *   <li>{@link Schema#setNot(Schema)}</li>
-     *   <li>{@link Schema#setDefinitions(List)}</li>
+     *   <li>{@link Schema#setDefinitions(Map)}</li>
      * </ul>
-     * <br>
+     * The <code>"allOf"</code>, <code>"anyOf"</code>, <code>"oneOf"</code>
+     * and <code>"not"</code> schemas are only resolved if they have not 
+     * already been resolved in {@link #generateSchema}. 
+     * The type strings are also set during generation, and are not 
+     * overwritten here.
      *
-     * @param uri The URI
-     * @param schema The {@link StringSchema}
+     * @param dispatcher The {@link KeywordDispatcher}
      */
-    private void processBasicSchema(URI uri, Schema schema)
+    private static void registerBasicKeywords(
+        KeywordDispatcher<Schema> dispatcher)
     {
-        log("processBasicSchema");
-        log("    uri    "+uri);
-        log("    schema "+schema);
-
-        JsonNode node = getNode(uri);
-
-        schema.setSchemaString(
-            JsonUtils.getStringOptional(node, "$schema", null));
-        schema.setTitle(
-            JsonUtils.getStringOptional(node, "title", null));
-        schema.setDescription(
-            JsonUtils.getStringOptional(node, "description", null));
-        if (schema.getId() == null)
+        dispatcher.register("$schema", c -> 
+            c.getSchema().setSchemaString(c.getValue().asText()));
+        dispatcher.register("title", c -> 
+            c.getSchema().setTitle(c.getValue().asText()));
+        dispatcher.register("description", c -> 
+            c.getSchema().setDescription(c.getValue().asText()));
+        dispatcher.register("$id", c -> 
         {
-            schema.setId(
-                JsonUtils.getStringOptional(node, "$id", null));
-        }
-        schema.setFormat(
-            JsonUtils.getStringOptional(node, "format", null));
-        if (node.has("default"))
-        {
-            JsonNode defaultNode = node.get("default");
-            String defaultString = String.valueOf(defaultNode);
-            schema.setDefaultString(defaultString);
-        }
-
-        // This is done during generation, do NOT overwrite this here!
-        //schema.setTypeStrings(JsonUtils.getTypeStringsOptional(node));
-
-        if (node.has("enum"))
-        {
-            schema.setEnumStrings(new LinkedHashSet<String>(
-                JsonUtils.getArrayAsStringsOptional(node, "enum", null)));
-        }
-        if (node.has("const"))
+            if (c.getSchema().getId() == null)
+            {
+                c.getSchema().setId(c.getValue().asText());
+            }
+        });
+        dispatcher.register("format", c -> 
+            c.getSchema().setFormat(c.getValue().asText()));
+        dispatcher.register("default", c -> 
+            c.getSchema().setDefaultString(String.valueOf(c.getValue())));
+        dispatcher.register("enum", c -> 
         {
-            schema.setEnumStrings(Collections.singleton(
-                JsonUtils.getStringOptional(node, "const", null)));
-        }
+            // A "const" takes precedence over an "enum"
+            if (!c.getNode().has("const"))
+            {
+                c.getSchema().setEnumStrings(new LinkedHashSet<String>(
+                    JsonUtils.getArrayAsStringsOptional(
+                        c.getNode(), c.getKeyword(), null)));
+            }
+        });
+        dispatcher.register("const", c -> 
+            c.getSchema().setEnumStrings(
+                Collections.singleton(c.getValue().asText())));
 
-        if (node.has("allOf"))
+        dispatcher.register("allOf", c -> 
         {
-            List<Schema> subSchemas =
-                SchemaGeneratorUtils.getSubSchemasArray(
-                    uri, node, "allOf", schemaResolver);
-            schema.setAllOf(subSchemas);
-            if (schema.getTypeStrings() == null)
+            if (c.getSchema().getAllOf() == null)
             {
-                log("NOTE: processSchema: allOf overwrites empty types of parent");
+                c.getSchema().setAllOf(getSubSchemasArray(c));
             }
-        }
-        if (node.has("anyOf"))
+        });
+        dispatcher.register("anyOf", c -> 
         {
-            List<Schema> subSchemas =
-                SchemaGeneratorUtils.getSubSchemasArray(
-                    uri, node, "anyOf", schemaResolver);
-            schema.setAnyOf(subSchemas);
-            if (schema.getTypeStrings() == null)
+            if (c.getSchema().getAnyOf() == null)
             {
-                log("NOTE: processSchema: anyOf overwrites empty types of parent");
+                c.getSchema().setAnyOf(getSubSchemasArray(c));
             }
-        }
-        if (node.has("oneOf"))
+        });
+        dispatcher.register("oneOf", c -> 
         {
-            List<Schema> subSchemas =
-                SchemaGeneratorUtils.getSubSchemasArray(
-                    uri, node, "oneOf", schemaResolver);
-            schema.setOneOf(subSchemas);
-            if (schema.getTypeStrings() == null)
+            if (c.getSchema().getOneOf() == null)
             {
-                log("NOTE: processSchema: oneOf overwrites empty types of parent");
+                c.getSchema().setOneOf(getSubSchemasArray(c));
             }
-        }
-        if (node.has("not"))
+        });
+        dispatcher.register("not", c -> 
         {
-            Schema subSchema =
-                SchemaGeneratorUtils.getSubSchema(
-                    uri, node.get("not"), "not", schemaResolver);
-            schema.setNot(subSchema);
-        }
-        if (node.has("definitions"))
-        {
-            Map<String, Schema> subSchemas =
-                SchemaGeneratorUtils.getSubSchemasMap(
-                    uri, node, "definitions", schemaResolver);
-            schema.setDefinitions(subSchemas);
-        }
-
-
-        // XXX TODO Somehow detect unknown field names
-        // (note that some fields may be processed
-        // outside this "processBasicSchema" method!)
-        {
-            Set<String> knownFieldNames =
-                new LinkedHashSet<String>(Arrays.asList(
-                "$schema",
-                "title",
-                "description",
-                "id",
-                "format",
-                "disallow",
-                "enum",
-                "extends",
-                "definitions"
-            ));
-            Set<String> allFieldNames = new LinkedHashSet<String>();
-            Iterator<String> fieldNameIterator = node.fieldNames();
-            while (fieldNameIterator.hasNext())
+            if (c.getSchema().getNot() == null)
             {
-                String fieldName = fieldNameIterator.next();
-                allFieldNames.add(fieldName);
+                c.getSchema().setNot(SchemaGeneratorUtils.getSubSchema(
+                    c.getValueLocation(), c.getValue(), 
+                    c.getSchemaResolver()));
             }
-            Set<String> unknownFieldNames =
-                new LinkedHashSet<String>(allFieldNames);
-            unknownFieldNames.removeAll(knownFieldNames);
-
-            // TODO Handle unknownFieldNames
-            //System.out.println("Found unknownFieldNames "+unknownFieldNames);
-        }
+        });
+        dispatcher.register("definitions", c -> 
+            c.getSchema().setDefinitions(
+                SchemaGeneratorUtils.getSubSchemasMap(
+                    c.getLocation(), c.getNode(), c.getKeyword(), 
+                    c.getSchemaResolver())));
+    }
 
+    /**
+     * Returns the schemas that are contained in the array that is the 
+     * value of the keyword of the given context
+     * 
+     * @param context The {@link KeywordContext}
+     * @return The schemas
+     */
+    private static List<Schema> getSubSchemasArray(
+        KeywordContext<Schema> context)
+    {
+        return SchemaGeneratorUtils.getSubSchemasArray(
+            context.getLocation(), context.getNode(), context.getKeyword(), 
+            context.getSchemaResolver());
     }
 
     /**
-     * Set the properties that are specific for a {@link StringSchema},
-     * according to the values that are obtained from the
-     * {@link #getNode(URI) node for the given URI}.
+     * Register the handlers for the keywords that are specific for a 
+     * {@link StringSchema}:
      * <ul>
      *   <li>{@link StringSchema#setMaxLength(Integer)}</li>
      *   <li>{@link StringSchema#setMinLength(Integer)}</li>
      *   <li>{@link StringSchema#setPattern(String)}</li>
      * </ul>
      *
-     * @param uri The URI
-     * @param schema The {@link StringSchema}
+     * @param dispatcher The {@link KeywordDispatcher}
      */
-    private void processStringSchema(URI uri, StringSchema schema)
+    private static void registerStringKeywords(
+        KeywordDispatcher<Schema> dispatcher)
     {
-        log("processStringSchema");
-        log("    uri    "+uri);
-        log("    schema "+schema);
-
-        JsonNode node = getNode(uri);
-        schema.setMaxLength(
-            JsonUtils.getIntegerMinOptional(node, "maxLength", 0, null));
-        schema.setMinLength(
-            JsonUtils.getIntegerMinOptional(node, "minLength", 0, null));
-        schema.setPattern(
-            JsonUtils.getStringOptional(node, "pattern", null));
+        dispatcher.register("maxLength", Schema::isString, c -> 
+            c.getSchema().asString().setMaxLength(
+                JsonUtils.getIntegerMinOptional(
+                    c.getNode(), c.getKeyword(), 0, null)));
+        dispatcher.register("minLength", Schema::isString, c -> 
+            c.getSchema().asString().setMinLength(
+                JsonUtils.getIntegerMinOptional(
+                    c.getNode(), c.getKeyword(), 0, null)));
+        dispatcher.register("pattern", Schema::isString, c -> 
+            c.getSchema().asString().setPattern(c.getValue().asText()));
     }
 
     /**
-     * Set the properties that are specific for a {@link NumberSchema},
-     * according to the values that are obtained from the
-     * {@link #getNode(URI) node for the given URI}.
+     * Register the handlers for the keywords that are specific for a 
+     * {@link NumberSchema}:
      * <ul>
      *   <li>{@link NumberSchema#setMultipleOf(Number)}</li>
      *   <li>{@link NumberSchema#setMaximum(Number)}</li>
@@ -529,175 +854,145 @@ public final class SchemaGenerator
      *   <li>{@link NumberSchema#setExclusiveMinimum(Number)}</li>
      * </ul>
      *
-     * @param uri The URI
-     * @param schema The {@link NumberSchema}
+     * @param dispatcher The {@link KeywordDispatcher}
      */
-    private void processNumberSchema(URI uri, NumberSchema schema)
+    private static void registerNumberKeywords(
+        KeywordDispatcher<Schema> dispatcher)
     {
-        log("processNumberSchema");
-        log("    uri    "+uri);
-        log("    schema "+schema);
-
-        JsonNode node = getNode(uri);
-        schema.setMultipleOf(
-            JsonUtils.getNumberOptional(
-                node, "multipleOf", 0.0, true, null, false, null));
-        schema.setMaximum(JsonUtils.getNumberOptional(node, "maximum", null));
-        schema.setExclusiveMaximum(
-            JsonUtils.getNumberOptional(node, "exclusiveMaximum", null));
-        schema.setMinimum(JsonUtils.getNumberOptional(node, "minimum", null));
-        schema.setExclusiveMinimum(
-            JsonUtils.getNumberOptional(node, "exclusiveMinimum", null));
+        dispatcher.register("multipleOf", Schema::isNumber, c -> 
+            c.getSchema().asNumber().setMultipleOf(
+                JsonUtils.getNumberOptional(c.getNode(), c.getKeyword(), 
+                    0.0, true, null, false, null)));
+        dispatcher.register("maximum", Schema::isNumber, c -> 
+            c.getSchema().asNumber().setMaximum(
+                JsonUtils.getNumberOptional(
+                    c.getNode(), c.getKeyword(), null)));
+        dispatcher.register("exclusiveMaximum", Schema::isNumber, c -> 
+            c.getSchema().asNumber().setExclusiveMaximum(
+                JsonUtils.getNumberOptional(
+                    c.getNode(), c.getKeyword(), null)));
+        dispatcher.register("minimum", Schema::isNumber, c -> 
+            c.getSchema().asNumber().setMinimum(
+                JsonUtils.getNumberOptional(
+                    c.getNode(), c.getKeyword(), null)));
+        dispatcher.register("exclusiveMinimum", Schema::isNumber, c -> 
+            c.getSchema().asNumber().setExclusiveMinimum(
+                JsonUtils.getNumberOptional(
+                    c.getNode(), c.getKeyword(), null)));
     }
 
-
-
     /**
-     * Set the properties that are specific for a {@link ArraySchema},
-     * according to the values that are obtained from the
-     * {@link #getNode(URI) node for the given URI}.
+     * Register the handlers for the keywords that are specific for a 
+     * {@link ArraySchema}:
      * <ul>
      *   <li>{@link ArraySchema#setMaxItems(Integer)}</li>
      *   <li>{@link ArraySchema#setMinItems(Integer)}</li>
      *   <li>{@link ArraySchema#setUniqueItems(Boolean)}</li>
      * </ul>
-     * If the given node has an <code>"items"</code> property, then
-     * they will be processed with {@link #processArraySchemaItems}
+     * The <code>"items"</code> are processed with 
+     * {@link #processArraySchemaItems}
      *
-     * @param uri The URI
-     * @param schema The {@link NumberSchema}
+     * @param dispatcher The {@link KeywordDispatcher}
      */
-    private void processArraySchema(URI uri, ArraySchema schema)
+    private static void registerArrayKeywords(
+        KeywordDispatcher<Schema> dispatcher)
     {
-        log("processArraySchema");
-        log("    uri    "+uri);
-        log("    schema "+schema);
-
-        JsonNode node = getNode(uri);
-        schema.setMaxItems(
-            JsonUtils.getIntegerMinOptional(node, "maxItems", 0, null));
-        schema.setMinItems(
-            JsonUtils.getIntegerMinOptional(node, "minItems", 0, null));
-        schema.setUniqueItems(
-            JsonUtils.getBooleanOptional(node, "uniqueItems", null));
-        if (node.has("items"))
-        {
-            processArraySchemaItems(uri, schema);
-        }
+        dispatcher.register("maxItems", Schema::isArray, c -> 
+            c.getSchema().asArray().setMaxItems(
+                JsonUtils.getIntegerMinOptional(
+                    c.getNode(), c.getKeyword(), 0, null)));
+        dispatcher.register("minItems", Schema::isArray, c -> 
+            c.getSchema().asArray().setMinItems(
+                JsonUtils.getIntegerMinOptional(
+                    c.getNode(), c.getKeyword(), 0, null)));
+        dispatcher.register("uniqueItems", Schema::isArray, c -> 
+            c.getSchema().asArray().setUniqueItems(
+                c.getValue().asBoolean()));
+        dispatcher.register("items", Schema::isArray, 
+            SchemaGenerator::processArraySchemaItems);
     }
 
-
     /**
-     * Process all <code>"items"</code> entries of the
-     * {@link #getNode(URI) node for the given URI}, and set the
-     * resulting collection of {@link Schema} instances as the
-     * {@link ArraySchema#setItems(Collection) items} of the given
-     * {@link ArraySchema}.
+     * Process the <code>"items"</code> of an {@link ArraySchema}, and set 
+     * the resulting {@link Schema} as the 
+     * {@link ArraySchema#setItems(Schema) items} of the schema.
      *
-     * @param uri The URI
-     * @param schema The {@link ArraySchema}
+     * @param context The {@link KeywordContext}
      */
-    private void processArraySchemaItems(
-        URI uri, ArraySchema schema)
+    private static void processArraySchemaItems(
+        KeywordContext<Schema> context)
     {
-        JsonNode node = getNode(uri);
-        JsonNode itemsNode = node.get("items");
-        URI itemsNodeUri = URIs.appendToFragment(uri, "items");
+        JsonLocation itemsNodeLocation = context.getValueLocation();
 
         log("processArraySchemaItems:");
-        log("    itemsNodeUri "+itemsNodeUri);
-        log("    itemsNode    "+itemsNode);
-        Schema items = schemaResolver.apply(itemsNodeUri);
+        log("    itemsNodeLocation "+itemsNodeLocation);
+        log("    itemsNode    "+context.getValue());
+        Schema items = context.resolve(itemsNodeLocation);
 
-        schema.setItems(items);
+        context.getSchema().asArray().setItems(items);
     }
 
     /**
-     * Set the properties that are specific for a {@link ObjectSchema},
-     * according to the values that are obtained from the
-     * {@link #getNode(URI) node for the given URI}.<br>
-     * <br>
-     * If the node has an <code>"properties"</code> entry,
-     * then this will be processed by
-     * {@link #processObjectSchemaProperties}.<br>
-     * <br>
-     * If the node has an <code>"additionalProperties"</code> entry,
-     * then this will be processed by
-     * {@link #processObjectSchemaAdditionalProperties}.<br>
-     * <br>
-     * <br>
-     * <b>Note:</b> The following properties are not processed yet:
+     * Register the handlers for the keywords that are specific for a 
+     * {@link ObjectSchema}:
+     * <ul>
+     *   <li><code>"required"</code> is processed by 
+     *   {@link #processObjectSchemaRequired}</li>
+     *   <li><code>"properties"</code> is processed by 
+     *   {@link #processObjectSchemaProperties}</li>
+     *   <li><code>"additionalProperties"</code> is processed by 
+     *   {@link #processObjectSchemaAdditionalProperties}</li>
+     * </ul>
+     * <b>Note:</b> The following properties are not processed yet, and 
+     * only cause a warning:
      * <ul>
      *   <li>patternProperties</li>
      *   <li>dependencies</li>
      * </ul>
      *
-     * @param uri The URI
-     * @param schema The {@link ObjectSchema}
+     * @param dispatcher The {@link KeywordDispatcher}
      */
-    private void processObjectSchema(URI uri, ObjectSchema schema)
+    private static void registerObjectKeywords(
+        KeywordDispatcher<Schema> dispatcher)
     {
-        log("processObjectSchema");
-        log("    uri    "+uri);
-        log("    schema "+schema);
-
-        JsonNode node = getNode(uri);
-        if (node.has("required"))
-        {
-            URI requiredUri =
-                URIs.appendToFragment(uri, "required");
-            processObjectSchemaRequired(requiredUri, schema);
-        }
-        if (node.has("properties"))
-        {
-            URI propertiesUri =
-                URIs.appendToFragment(uri, "properties");
-            processObjectSchemaProperties(propertiesUri, schema);
-        }
-        if (node.has("additionalProperties"))
-        {
-            URI additionalPropertiesUri =
-                URIs.appendToFragment(uri, "additionalProperties");
-            processObjectSchemaAdditionalProperties(
-                additionalPropertiesUri, schema);
-        }
-        if (node.has("patternProperties"))
+        dispatcher.register("required", Schema::isObject, 
+            SchemaGenerator::processObjectSchemaRequired);
+        dispatcher.register("properties", Schema::isObject, 
+            SchemaGenerator::processObjectSchemaProperties);
+        dispatcher.register("additionalProperties", Schema::isObject, 
+            SchemaGenerator::processObjectSchemaAdditionalProperties);
+        dispatcher.register("patternProperties", Schema::isObject, c -> 
         {
             // TODO ObjectSchema patternProperties are not processed yet
-            //JsonNode patternPropertiesNode = node.get("patternProperties");
             log("processObjectSchema WARNING: does not handle patternProperties");
-            log("    uri    "+uri);
+            log("    location "+c.getLocation());
 
             // XXX patternProperties are not handled yet
             logger.warning("patternProperties are not handled yet");
-        }
-
-        if (node.has("dependencies"))
+        });
+        dispatcher.register("dependencies", Schema::isObject, c -> 
         {
             // TODO ObjectSchema dependencies are not processed yet
-            //JsonNode dependenciesNode = node.get("dependencies");
             log("processObjectSchema WARNING: does not handle dependencies");
-            log("    uri    "+uri);
+            log("    location "+c.getLocation());
 
             // XXX dependencies are not handled yet
             logger.warning("dependencies are not handled yet");
-        }
+        });
     }
 
 
     /**
-     * Process the required properties that are contained in the
-     * {@link #getNode(URI) node for the given URI}, and
-     * assign them as the {@link ObjectSchema#setRequired(List) required}
-     * list in the given {@link ObjectSchema}
+     * Process the <code>"required"</code> properties of an 
+     * {@link ObjectSchema}, and assign them as the 
+     * {@link ObjectSchema#setRequired(List) required} list of the schema
      *
-     * @param uri The URI
-     * @param schema The {@link ObjectSchema}
+     * @param context The {@link KeywordContext}
      */
-    private void processObjectSchemaRequired(
-        URI uri, ObjectSchema schema)
+    private static void processObjectSchemaRequired(
+        KeywordContext<Schema> context)
     {
-        JsonNode node = getNode(uri);
+        JsonNode node = context.getValue();
         if (node.isArray())
         {
             List<String> required = new ArrayList<String>();
@@ -705,24 +1000,22 @@ public final class SchemaGenerator
             {
                 required.add(node.get(i).asText());
             }
-            //System.out.println("Setting required "+required+" for "+uri);
-            schema.setRequired(required);
+            context.getSchema().asObject().setRequired(required);
         }
     }
 
     /**
-     * Process the properties that are contained in the
-     * {@link #getNode(URI) node for the given URI}, and
-     * assign them as the {@link ObjectSchema#setProperties(Map) properties}
-     * to the given {@link ObjectSchema}
+     * Process the <code>"properties"</code> of an {@link ObjectSchema}, 
+     * and assign them as the {@link ObjectSchema#setProperties(Map) 
+     * properties} of the schema
      *
-     * @param uri The URI
-     * @param schema The {@link ObjectSchema}
+     * @param context The {@link KeywordContext}
      */
-    private void processObjectSchemaProperties(
-        URI uri, ObjectSchema schema)
+    private static void processObjectSchemaProperties(
+        KeywordContext<Schema> context)
     {
-        JsonNode node = getNode(uri);
+        JsonLocation location = context.getValueLocation();
+        JsonNode node = context.getValue();
         Map<String, Schema> properties = new LinkedHashMap<String, Schema>();
         Iterator<Entry<String, JsonNode>> fields = node.fields();
         while (fields.hasNext())
@@ -730,34 +1023,36 @@ public final class SchemaGenerator
             Entry<String, JsonNode> field = fields.next();
             String fieldName = field.getKey();
             JsonNode fieldValue = field.getValue();
-            URI propertyUri = URIs.appendToFragment(uri, fieldName);
+            JsonLocation propertyLocation = location.child(fieldName);
 
             log("processObjectSchemaProperties");
-            log("    propertyUri    "+propertyUri);
+            log("    propertyLocation    "+propertyLocation);
             log("    fieldValue     "+fieldValue);
 
-            Schema propertySchema = schemaResolver.apply(propertyUri);
+            Schema propertySchema = context.resolve(propertyLocation);
             properties.put(fieldName, propertySchema);
         }
         if (!properties.isEmpty())
         {
-            schema.setProperties(properties);
+            context.getSchema().asObject().setProperties(properties);
         }
     }
 
 
     /**
-     * Process the additional properties for the given {@link ObjectSchema}
+     * Process the <code>"additionalProperties"</code> of an 
+     * {@link ObjectSchema}
      *
      * TODO Proper comment
      *
-     * @param uri The URI
-     * @param schema The {@link ObjectSchema}
+     * @param context The {@link KeywordContext}
      */
-    private void processObjectSchemaAdditionalProperties(
-        URI uri, ObjectSchema schema)
+    private static void processObjectSchemaAdditionalProperties(
+        KeywordContext<Schema> context)
     {
-        JsonNode node = getNode(uri);
+        ObjectSchema schema = context.getSchema().asObject();
+        JsonLocation location = context.getValueLocation();
+        JsonNode node = context.getValue();
         if (node.isBoolean())
         {
             if (node.asBoolean())
@@ -775,25 +1070,40 @@ public final class SchemaGenerator
         else
         {
             log("processObjectSchemaAdditionalProperties");
-            log("    uri  "+uri);
+            log("    location "+location);
             log("    node "+node);
 
-            Schema additionalPropertiesSchema = schemaResolver.apply(uri);
+            Schema additionalPropertiesSchema = context.resolve(location);
             schema.setAdditionalProperties(additionalPropertiesSchema);
         }
     }
 
 
     /**
-     * Returns the canonical URI for the given URI, as obtained by
-     * {@link NodeRepository#getCanonicalUri(URI)}.
+     * Returns the canonical location for the given location, as obtained by
+     * {@link NodeRepository#getCanonicalLocation(JsonLocation)}.
      *
-     * @param uri The URI
-     * @return The canonical URI
+     * @param location The location
+     * @return The canonical location
      */
-    private URI getCanonicalUri(URI uri)
+    private JsonLocation getCanonicalLocation(JsonLocation location)
     {
-        return nodeRepository.getCanonicalUri(uri);
+        return nodeRepository.getCanonicalLocation(location);
+    }
+
+    /**
+     * Returns the URI of the given location. If the location is inside
+     * a definition of a bundle that is recorded in the 
+     * {@link BundleOrigins}, then this is the URI in the original 
+     * document, so that the names that are derived from the URI are 
+     * the same as for the original documents.
+     *
+     * @param location The location
+     * @return The URI
+     */
+    private URI toOriginalUri(JsonLocation location)
+    {
+        return bundleOrigins.toOriginalUri(location);
     }
 
     /**
@@ -803,9 +1113,20 @@ public final class SchemaGenerator
      * @param schema The {@link Schema}
      * @return The list of URIs
      */
+    @Override
     public List<URI> getUris(Schema schema)
     {
-        return schemaToUris.get(schema);
+        List<JsonLocation> locations = schemaToLocations.get(schema);
+        if (locations == null)
+        {
+            return null;
+        }
+        List<URI> uris = new ArrayList<URI>(locations.size());
+        for (JsonLocation location : locations)
+        {
+            uris.add(toOriginalUri(location));
+        }
+        return Collections.unmodifiableList(uris);
     }
 
     /**
@@ -817,14 +1138,26 @@ public final class SchemaGenerator
      * @param schema The {@link Schema}
      * @return The canonical URI
      */
+    @Override
     public URI getCanonicalUri(Schema schema)
     {
-        List<URI> uris = schemaToUris.get(schema);
-        if (uris == null || uris.size() < 1)
+        return toCanonicalUri(schemaToLocations.get(schema));
+    }
+
+    /**
+     * Returns the canonical URI of the first of the given locations, or
+     * <code>null</code> if the given list is <code>null</code> or empty
+     *
+     * @param locations The locations
+     * @return The canonical URI
+     */
+    private URI toCanonicalUri(List<JsonLocation> locations)
+    {
+        if (locations == null || locations.size() < 1)
         {
             return null;
         }
-        return getCanonicalUri(uris.get(0));
+        return toOriginalUri(getCanonicalLocation(locations.get(0)));
     }
 
     /**
@@ -832,43 +1165,117 @@ public final class SchemaGenerator
      *
      * @return The root {@link Schema}
      */
+    @Override
     public Schema getRootSchema()
     {
-        return schemas.get(nodeRepository.getRootNode());
+        return getSchema(nodeRepository.getRootLocation());
     }
 
     /**
-     * Obtain the node for the given URI from the {@link NodeRepository}
+     * Returns the {@link Schema} that was generated for the given URI. 
+     * This may, for example, be one of the root URIs of a 
+     * {@link NodeRepository} that was created for multiple roots. If 
+     * no {@link Schema} was generated for the given URI, then 
+     * <code>null</code> is returned.
      *
      * @param uri The URI
+     * @return The {@link Schema}
+     */
+    @Override
+    public Schema getSchema(URI uri)
+    {
+        return getSchema(nodeRepository.getLocation(uri));
+    }
+
+    /**
+     * Returns the {@link Schema} that was generated for the given location,
+     * or <code>null</code> if no {@link Schema} was generated for this 
+     * location
+     *
+     * @param location The location
+     * @return The {@link Schema}
+     */
+    private Schema getSchema(JsonLocation location)
+    {
+        JsonLocation canonicalLocation = getCanonicalLocation(location);
+        JsonNode node = getNode(canonicalLocation);
+        if (node == null)
+        {
+            return null;
+        }
+        return schemas.get(new SchemaKey(node, canonicalLocation));
+    }
+
+    /**
+     * Obtain the node for the given location from the {@link NodeRepository}
+     *
+     * @param location The location
      * @return The node
      */
-    private JsonNode getNode(URI uri)
+    private JsonNode getNode(JsonLocation location)
     {
-        return nodeRepository.get(uri);
+        return nodeRepository.get(location);
     }
 
     /**
      * Computes an unmodifiable mapping from {@link Schema} instances to
-     * unmodifiable lists of all URIs that identify the respective
-     * {@link Schema}.
+     * unmodifiable lists of all locations that identify the respective
+     * {@link Schema}. The schemas are sorted by the position of their 
+     * location in the {@link NodeRepository}, and schemas for locations
+     * that are not stored in the {@link NodeRepository} are sorted by 
+     * their location, so that the order does not depend on the order in
+     * which the schemas have been resolved. If multiple keys are mapped
+     * to the same {@link Schema}, because equivalent schemas have been 
+     * merged, then the locations for all these keys are combined.
      *
      * @return The mapping
      */
-    private Map<Schema, List<URI>> computeSchemaToUrisMapping()
+    private Map<Schema, List<JsonLocation>> computeSchemaToLocationsMapping()
     {
-        Map<JsonNode, List<URI>> nodeToUris =
-            nodeRepository.computeNodeToUrisMapping();
-        Map<Schema, List<URI>> schemaToUris =
-            new LinkedHashMap<Schema, List<URI>>();
-        for (Entry<JsonNode, Schema> entry : schemas.entrySet())
+        Map<JsonLocation, Integer> locationIndices = 
+            new HashMap<JsonLocation, Integer>();
+        for (JsonLocation location : nodeRepository.getLocations())
+        {
+            locationIndices.put(location, locationIndices.size());
+        }
+        List<SchemaKey> keys = new ArrayList<SchemaKey>(schemas.keySet());
+        keys.sort(Comparator
+            .comparing((SchemaKey k) -> 
+                locationIndices.getOrDefault(k.location, Integer.MAX_VALUE))
+            .thenComparing(k -> k.location.toString()));
+        
+        Map<JsonNode, List<JsonLocation>> nodeToLocations =
+            nodeRepository.computeNodeToLocationsMapping();
+        Map<Schema, List<JsonLocation>> schemaToLocations =
+            new LinkedHashMap<Schema, List<JsonLocation>>();
+        for (SchemaKey key : keys)
         {
-            JsonNode node = entry.getKey();
-            Schema schema = entry.getValue();
-            List<URI> uris = nodeToUris.get(node);
-            schemaToUris.put(schema, uris);
+            Schema schema = schemas.get(key);
+            List<JsonLocation> locations = null;
+            if (key.node.isContainerNode())
+            {
+                locations = nodeToLocations.get(key.node);
+            }
+            else
+            {
+                locations = Collections.singletonList(key.location);
+            }
+            List<JsonLocation> previousLocations = 
+                schemaToLocations.get(schema);
+            if (previousLocations != null && locations != null)
+            {
+                List<JsonLocation> combinedLocations = 
+                    new ArrayList<JsonLocation>(previousLocations);
+                combinedLocations.addAll(locations);
+                locations = Collections.unmodifiableList(combinedLocations);
+            }
+            else if (previousLocations != null)
+            {
+                locations = previousLocations;
+            }
+            schemaToLocations.put(schema, locations);
         }
-        return Collections.unmodifiableMap(schemaToUris);
+        return Collections.unmodifiableMap(schemaToLocations);
     }
 
     /**
@@ -877,12 +1284,10 @@ public final class SchemaGenerator
      *
      * @return The {@link Schema} set
      */
+    @Override
     public Set<Schema> getSchemaSet()
     {
-        return Collections.unmodifiableSet(
-            new LinkedHashSet<Schema>(schemas.values()));
+        return Collections.unmodifiableSet(schemaToLocations.keySet());
     }
 
 }
-
-
@@ -31,6 +31,7 @@ import java.util.Collection;
 
 import de.javagl.jsonmodelgen.json.schema.codemodel.ClassNameGenerator;
 import de.javagl.jsonmodelgen.json.schema.codemodel.ClassNameUtils;
+import de.javagl.jsonmodelgen.json.schema.codemodel.GeneratorConfig;
 import de.javagl.jsonmodelgen.json.schema.v202012.ObjectSchema;
 
 /**
@@ -39,10 +40,25 @@ import de.javagl.jsonmodelgen.json.schema.v202012.ObjectSchema;
  */
 class DefaultClassNameGenerator implements ClassNameGenerator<ObjectSchema>
 {
+    /**
+     * The {@link GeneratorConfig}
+     */
+    private final GeneratorConfig config;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param config The {@link GeneratorConfig}
+     */
+    DefaultClassNameGenerator(GeneratorConfig config)
+    {
+        this.config = config;
+    }
+    
     @Override
     public String generateClassName(ObjectSchema schema, Collection<URI> uris)
     {
-        String className = ClassNameUtils.deriveClassName(uris);
+        String className = ClassNameUtils.deriveClassName(uris, config);
         return className;
     }
 }
\ No newline at end of file
@@ -34,6 +34,11 @@ import java.util.Collection;
  */
 public class ArraySchema extends Schema
 {
+    /**
+     * Serial UID
+     */
+    private static final long serialVersionUID = 1L;
+
     /**
      * See {@link #getAdditionalItems()}
      */
@@ -33,6 +33,11 @@ package de.javagl.jsonmodelgen.json.schema.v4;
  */
 public class BooleanSchema extends Schema
 {
+    /**
+     * Serial UID
+     */
+    private static final long serialVersionUID = 1L;
+
     @Override
     public BooleanSchema asBoolean()
     {
@@ -0,0 +1,360 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.v4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.function.Function;
+
+import de.javagl.jsonmodelgen.json.schema.codemodel.SchemaStructure;
+
+/**
+ * Implementation of a {@link SchemaStructure} for {@link Schema} 
+ * instances. The content of a schema consists of all its properties 
+ * except for its ID and its subschemas, and the number and names of 
+ * its subschemas.
+ */
+public final class DefaultSchemaStructure implements SchemaStructure<Schema>
+{
+    /**
+     * The single instance of this class
+     */
+    public static final DefaultSchemaStructure INSTANCE = 
+        new DefaultSchemaStructure();
+    
+    @Override
+    public Object getContent(Schema schema)
+    {
+        List<Object> content = new ArrayList<Object>();
+        content.add(schema.getClass());
+        content.addAll(Arrays.asList(
+            schema.getSchemaString(),
+            schema.getTitle(),
+            schema.getDescription(),
+            schema.getDefaultString(),
+            listOf(schema.getTypeStrings()),
+            listOf(schema.getEnumStrings()),
+            schema.getFormat(),
+            sizeOf(schema.getAllOf()),
+            sizeOf(schema.getAnyOf()),
+            sizeOf(schema.getOneOf()),
+            keysOf(schema.getDefinitions())));
+        if (schema.isObject())
+        {
+            ObjectSchema objectSchema = schema.asObject();
+            content.addAll(Arrays.asList(
+                objectSchema.isAny(),
+                objectSchema.getMaxProperties(),
+                objectSchema.getMinProperties(),
+                objectSchema.getRequired(),
+                keysOf(objectSchema.getProperties()),
+                keysOf(objectSchema.getPatternProperties()),
+                objectSchema.getDependencies()));
+        }
+        if (schema.isArray())
+        {
+            ArraySchema arraySchema = schema.asArray();
+            content.addAll(Arrays.asList(
+                sizeOf(arraySchema.getItems()),
+                arraySchema.getMaxItems(),
+                arraySchema.getMinItems(),
+                arraySchema.getUniqueItems()));
+        }
+        if (schema.isString())
+        {
+            StringSchema stringSchema = schema.asString();
+            content.addAll(Arrays.asList(
+                stringSchema.getMaxLength(),
+                stringSchema.getMinLength(),
+                stringSchema.getPattern()));
+        }
+        if (schema.isNumber())
+        {
+            NumberSchema numberSchema = schema.asNumber();
+            content.addAll(Arrays.asList(
+                numberSchema.getMultipleOf(),
+                numberSchema.getMaximum(),
+                numberSchema.isExclusiveMaximum(),
+                numberSchema.getMinimum(),
+                numberSchema.isExclusiveMinimum()));
+        }
+        return content;
+    }
+    
+    @Override
+    public List<Schema> getSubSchemas(Schema schema)
+    {
+        List<Schema> subSchemas = new ArrayList<Schema>();
+        addAll(subSchemas, schema.getAllOf());
+        addAll(subSchemas, schema.getAnyOf());
+        addAll(subSchemas, schema.getOneOf());
+        subSchemas.add(schema.getNot());
+        addAll(subSchemas, valuesOf(schema.getDefinitions()));
+        if (schema.isObject())
+        {
+            ObjectSchema objectSchema = schema.asObject();
+            subSchemas.add(objectSchema.getAdditionalProperties());
+            addAll(subSchemas, valuesOf(objectSchema.getProperties()));
+            addAll(subSchemas, 
+                valuesOf(objectSchema.getPatternProperties()));
+        }
+        if (schema.isArray())
+        {
+            ArraySchema arraySchema = schema.asArray();
+            subSchemas.add(arraySchema.getAdditionalItems());
+            addAll(subSchemas, arraySchema.getItems());
+        }
+        return subSchemas;
+    }
+    
+    @Override
+    public void replaceSubSchemas(
+        Schema schema, Function<Schema, Schema> replacement)
+    {
+        if (schema.getAllOf() != null)
+        {
+            schema.setAllOf(
+                replaceAll(schema.getAllOf(), replacement));
+        }
+        if (schema.getAnyOf() != null)
+        {
+            schema.setAnyOf(
+                replaceAll(schema.getAnyOf(), replacement));
+        }
+        if (schema.getOneOf() != null)
+        {
+            schema.setOneOf(
+                replaceAll(schema.getOneOf(), replacement));
+        }
+        if (schema.getNot() != null)
+        {
+            schema.setNot(replacement.apply(schema.getNot()));
+        }
+        if (schema.getDefinitions() != null)
+        {
+            schema.setDefinitions(
+                replaceAll(schema.getDefinitions(), replacement));
+        }
+        if (schema.isObject())
+        {
+            ObjectSchema objectSchema = schema.asObject();
+            if (objectSchema.getAdditionalProperties() != null)
+            {
+                objectSchema.setAdditionalProperties(replacement.apply(
+                    objectSchema.getAdditionalProperties()));
+            }
+            if (objectSchema.getProperties() != null)
+            {
+                objectSchema.setProperties(replaceAll(
+                    objectSchema.getProperties(), replacement));
+            }
+            if (objectSchema.getPatternProperties() != null)
+            {
+                objectSchema.setPatternProperties(replaceAll(
+                    objectSchema.getPatternProperties(), replacement));
+            }
+        }
+        if (schema.isArray())
+        {
+            ArraySchema arraySchema = schema.asArray();
+            if (arraySchema.getAdditionalItems() != null)
+            {
+                arraySchema.setAdditionalItems(
+                    replacement.apply(arraySchema.getAdditionalItems()));
+            }
+            if (arraySchema.getItems() != null)
+            {
+                arraySchema.setItems(replaceAll(
+                    arraySchema.getItems(), replacement));
+            }
+        }
+    }
+    
+    /**
+     * Returns the size of the given collection, or -1 if it is 
+     * <code>null</code>
+     * 
+     * @param collection The collection
+     * @return The size
+     */
+    private static int sizeOf(Collection<?> collection)
+    {
+        if (collection == null)
+        {
+            return -1;
+        }
+        return collection.size();
+    }
+    
+    /**
+     * Returns a list containing the elements of the given set, in their
+     * iteration order, or <code>null</code> if the given set is 
+     * <code>null</code>. This way, sets are only equal when the order
+     * of their elements is equal.
+     * 
+     * @param set The set
+     * @return The list
+     */
+    private static List<String> listOf(Set<String> set)
+    {
+        if (set == null)
+        {
+            return null;
+        }
+        return new ArrayList<String>(set);
+    }
+    
+    /**
+     * Returns a list containing the keys of the given map, or 
+     * <code>null</code> if the given map is <code>null</code>
+     * 
+     * @param map The map
+     * @return The keys
+     */
+    private static List<String> keysOf(Map<String, ?> map)
+    {
+        if (map == null)
+        {
+            return null;
+        }
+        return new ArrayList<String>(map.keySet());
+    }
+    
+    /**
+     * Returns the values of the given map, or an empty collection if
+     * the given map is <code>null</code>
+     * 
+     * @param map The map
+     * @return The values
+     */
+    private static Collection<Schema> valuesOf(Map<String, Schema> map)
+    {
+        if (map == null)
+        {
+            return Collections.emptyList();
+        }
+        return map.values();
+    }
+    
+    /**
+     * Add all elements of the given collection to the given list, if 
+     * the collection is not <code>null</code>
+     * 
+     * @param list The list
+     * @param collection The collection
+     */
+    private static void addAll(
+        List<Schema> list, Collection<Schema> collection)
+    {
+        if (collection != null)
+        {
+            list.addAll(collection);
+        }
+    }
+    
+    /**
+     * Returns a list containing the results of applying the given 
+     * function to the elements of the given list
+     * 
+     * @param list The list
+     * @param replacement The replacement function
+     * @return The resulting list
+     */
+    private static List<Schema> replaceAll(
+        List<Schema> list, Function<Schema, Schema> replacement)
+    {
+        List<Schema> result = new ArrayList<Schema>(list.size());
+        for (Schema element : list)
+        {
+            result.add(replacement.apply(element));
+        }
+        return result;
+    }
+    
+    /**
+     * Returns a collection containing the results of applying the given 
+     * function to the elements of the given collection. If the given 
+     * collection is a set, then the result is a set.
+     * 
+     * @param collection The collection
+     * @param replacement The replacement function
+     * @return The resulting collection
+     */
+    private static Collection<Schema> replaceAll(
+        Collection<Schema> collection, Function<Schema, Schema> replacement)
+    {
+        Collection<Schema> result = null;
+        if (collection instanceof Set<?>)
+        {
+            result = new LinkedHashSet<Schema>();
+        }
+        else
+        {
+            result = new ArrayList<Schema>(collection.size());
+        }
+        for (Schema element : collection)
+        {
+            result.add(replacement.apply(element));
+        }
+        return result;
+    }
+    
+    /**
+     * Returns a map containing the results of applying the given 
+     * function to the values of the given map
+     * 
+     * @param map The map
+     * @param replacement The replacement function
+     * @return The resulting map
+     */
+    private static Map<String, Schema> replaceAll(
+        Map<String, Schema> map, Function<Schema, Schema> replacement)
+    {
+        Map<String, Schema> result = new LinkedHashMap<String, Schema>();
+        for (Entry<String, Schema> entry : map.entrySet())
+        {
+            result.put(entry.getKey(), replacement.apply(entry.getValue()));
+        }
+        return result;
+    }
+    
+    /**
+     * Private constructor for the {@link #INSTANCE}
+     */
+    private DefaultSchemaStructure()
+    {
+        // Private constructor for the singleton instance
+    }
+}
@@ -33,6 +33,11 @@ package de.javagl.jsonmodelgen.json.schema.v4;
  */
 public class IntegerSchema extends NumberSchema
 {
+    /**
+     * Serial UID
+     */
+    private static final long serialVersionUID = 1L;
+
     @Override
     public IntegerSchema asInteger()
     {
@@ -32,6 +32,11 @@ package de.javagl.jsonmodelgen.json.schema.v4;
  */
 public class NumberSchema extends Schema
 {
+    /**
+     * Serial UID
+     */
+    private static final long serialVersionUID = 1L;
+
     /**
      * See {@link #getMultipleOf()}
      */
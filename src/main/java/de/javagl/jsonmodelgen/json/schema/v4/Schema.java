@@ -26,17 +26,29 @@
  */
 package de.javagl.jsonmodelgen.json.schema.v4;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import de.javagl.jsonmodelgen.json.schema.codemodel.SchemaSnapshot;
+
 /**
  * A class representing a JSON schema, version 04, according to the definitions
  * https://tools.ietf.org/html/draft-zyp-json-schema-04
  * https://tools.ietf.org/html/draft-fge-json-schema-validation-00 and
+ * <br>
+ * <br>
+ * Schemas are serializable, so that a resolved schema graph can be 
+ * stored in a {@link SchemaSnapshot}.
  */
-public class Schema
+public class Schema implements Serializable
 {
+    /**
+     * Serial UID
+     */
+    private static final long serialVersionUID = 1L;
+
     /**
      * See {@link #getId()}
      */
@@ -28,15 +28,21 @@ package de.javagl.jsonmodelgen.json.schema.v4.codemodel;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -51,28 +57,35 @@ import com.sun.codemodel.JDocComment;
 import com.sun.codemodel.JExpression;
 import com.sun.codemodel.JFieldVar;
 import com.sun.codemodel.JMod;
-import com.sun.codemodel.JPackage;
 import com.sun.codemodel.JType;
 import com.sun.codemodel.writer.FileCodeWriter;
 
-import de.javagl.jsonmodelgen.GlTFConfig;
+import de.javagl.jsonmodelgen.json.schema.codemodel.ClassEmitter;
 import de.javagl.jsonmodelgen.json.schema.codemodel.ClassNameGenerator;
 import de.javagl.jsonmodelgen.json.schema.codemodel.CodeModelInitializers;
 import de.javagl.jsonmodelgen.json.schema.codemodel.CodeModels;
+import de.javagl.jsonmodelgen.json.schema.codemodel.ConcurrentFileCodeWriter;
+import de.javagl.jsonmodelgen.json.schema.codemodel.ConcurrentFileCodeWriter.WriteMode;
+import de.javagl.jsonmodelgen.json.schema.codemodel.GeneratorConfig;
+import de.javagl.jsonmodelgen.json.schema.codemodel.InMemoryCompiler;
+import de.javagl.jsonmodelgen.json.schema.codemodel.JarCodeWriter;
+import de.javagl.jsonmodelgen.json.schema.codemodel.MemoryCodeWriter;
+import de.javagl.jsonmodelgen.json.schema.codemodel.SchemaGeneratorUtils;
+import de.javagl.jsonmodelgen.json.schema.codemodel.SchemaGraph;
 import de.javagl.jsonmodelgen.json.schema.codemodel.StringUtils;
 import de.javagl.jsonmodelgen.json.schema.v4.ArraySchema;
 import de.javagl.jsonmodelgen.json.schema.v4.BooleanSchema;
+import de.javagl.jsonmodelgen.json.schema.v4.DefaultSchemaStructure;
 import de.javagl.jsonmodelgen.json.schema.v4.IntegerSchema;
 import de.javagl.jsonmodelgen.json.schema.v4.NumberSchema;
 import de.javagl.jsonmodelgen.json.schema.v4.ObjectSchema;
 import de.javagl.jsonmodelgen.json.schema.v4.Schema;
-import de.javagl.jsonmodelgen.json.schema.v4.SchemaGenerator;
 import de.javagl.jsonmodelgen.json.schema.v4.SchemaUtils;
 import de.javagl.jsonmodelgen.json.schema.v4.StringSchema;
 
 /**
  * A class for generating classes from the {@link Schema} information that
- * was generated by a {@link SchemaGenerator}
+ * is contained in a {@link SchemaGraph}
  */
 public class ClassGenerator
 {
@@ -97,12 +110,16 @@ public class ClassGenerator
      */
     private int resolvingLogIndent = 0;
 
+    /**
+     * The {@link GeneratorConfig} of this generator
+     */
+    private final GeneratorConfig config;
+
     /**
      * The {@link ClassNameGenerator} that will generate the names
      * of classes for {@link ObjectSchema} instances
      */
-    private final ClassNameGenerator<ObjectSchema> classNameGenerator =
-        new DefaultClassNameGenerator();
+    private final ClassNameGenerator<ObjectSchema> classNameGenerator;
 
     /**
      * The function that receives a {@link Schema} and returns a CodeModel
@@ -125,12 +142,16 @@ public class ClassGenerator
         @Override
         public JType createObjectType(ObjectSchema schema)
         {
+            if (includedSchemas != null && !includedSchemas.contains(schema))
+            {
+                return codeModel.ref(Object.class);
+            }
             if (!containsRelevantInformation(schema) &&
                 !usesImplicitExtension(schema))
             {
                 return doCreateObjectTypeFromExtended(schema);
             }
-            List<URI> uris = schemaGenerator.getUris(schema);
+            List<URI> uris = schemaGraph.getUris(schema);
             String className =
                 classNameGenerator.generateClassName(schema, uris);
             JDefinedClass definedClass =
@@ -138,8 +159,12 @@ public class ClassGenerator
             if (!pendingTypes.contains(schema))
             {
                 pendingTypes.add(schema);
-                initializeObjectType(definedClass, schema);
-                pendingTypes.remove(schema);
+                pendingInitializations.add(() -> 
+                {
+                    initializeObjectType(definedClass, schema);
+                    pendingTypes.remove(schema);
+                    emit(definedClass);
+                });
             }
             return definedClass;
         }
@@ -201,10 +226,25 @@ public class ClassGenerator
     private final Set<Schema> pendingTypes;
 
     /**
-     * The {@link SchemaGenerator} which generated the {@link Schema} for
+     * The queue of classes that have been defined, but not yet been 
+     * initialized. Initializing a class may define further classes, which
+     * are then appended to this queue, instead of being initialized 
+     * recursively.
+     */
+    private final Deque<Runnable> pendingInitializations;
+
+    /**
+     * The optional {@link ClassEmitter} that writes each class as soon as
+     * it has been initialized. If this is <code>null</code>, then the 
+     * classes are only written by the <code>generate</code> methods.
+     */
+    private final ClassEmitter classEmitter;
+
+    /**
+     * The {@link SchemaGraph} that contains the {@link Schema} for
      * which this instance should generate the classes
      */
-    private SchemaGenerator schemaGenerator;
+    private SchemaGraph<Schema> schemaGraph;
 
     /**
      * The code model that will be used to create the classes
@@ -227,29 +267,86 @@ public class ClassGenerator
      */
     private Map<Schema, JType> types;
 
+    /**
+     * The set of {@link Schema} instances for which classes may be 
+     * generated, or <code>null</code> if classes may be generated for 
+     * all schemas. See {@link GeneratorConfig#getSelection()}.
+     */
+    private final Set<Schema> includedSchemas;
+
     /**
      * Creates a new class generator for the {@link Schema} definitions that
-     * have been generated by the given {@link SchemaGenerator}.
+     * are contained in the given {@link SchemaGraph}.
      *
-     * @param schemaGenerator The {@link SchemaGenerator}
+     * @param schemaGraph The {@link SchemaGraph}
      * @param packageName The package name that should be used for the
      * generated classes
      * @param headerCode The header code for every file
      */
     public ClassGenerator(
-        SchemaGenerator schemaGenerator, String packageName, String headerCode)
+        SchemaGraph<Schema> schemaGraph, String packageName, String headerCode)
+    {
+        this(schemaGraph, packageName, headerCode, 
+            GeneratorConfig.DEFAULT);
+    }
+
+    /**
+     * Creates a new class generator for the {@link Schema} definitions that
+     * are contained in the given {@link SchemaGraph}, using the
+     * given {@link GeneratorConfig}.
+     *
+     * @param schemaGraph The {@link SchemaGraph}
+     * @param packageName The package name that should be used for the
+     * generated classes
+     * @param headerCode The header code for every file
+     * @param config The {@link GeneratorConfig}
+     */
+    public ClassGenerator(SchemaGraph<Schema> schemaGraph, 
+        String packageName, String headerCode, GeneratorConfig config)
+    {
+        this(schemaGraph, packageName, headerCode, config, null);
+    }
+
+    /**
+     * Creates a new class generator for the {@link Schema} definitions that
+     * are contained in the given {@link SchemaGraph}, which 
+     * writes each class with the given {@link ClassEmitter} as soon as
+     * it has been initialized.
+     *
+     * @param schemaGraph The {@link SchemaGraph}
+     * @param packageName The package name that should be used for the
+     * generated classes
+     * @param headerCode The header code for every file
+     * @param config The {@link GeneratorConfig}
+     * @param classEmitter The optional {@link ClassEmitter}
+     * @throws UncheckedIOException If the {@link ClassEmitter} caused an
+     * IO error
+     */
+    private ClassGenerator(SchemaGraph<Schema> schemaGraph, 
+        String packageName, String headerCode, GeneratorConfig config, 
+        ClassEmitter classEmitter)
     {
-        this.schemaGenerator = schemaGenerator;
+        this.classEmitter = classEmitter;
+        this.config = config;
+        this.classNameGenerator = new DefaultClassNameGenerator(config);
+        this.schemaGraph = schemaGraph;
         this.packageName = packageName;
         this.headerCode = headerCode;
         this.typeCreator = new DefaultTypeCreator();
         this.pendingTypes = new LinkedHashSet<Schema>();
+        this.pendingInitializations = new ArrayDeque<Runnable>();
         this.typeResolver = this::doResolveType;
         this.codeModel = new JCodeModel();
         
+        List<Schema> rootSchemas = 
+            Collections.singletonList(schemaGraph.getRootSchema());
+        List<Schema> selectedSchemas = findSelectedSchemas(rootSchemas);
+        this.includedSchemas = 
+            computeIncludedSchemas(rootSchemas, selectedSchemas);
+        
         types = new LinkedHashMap<Schema, JType>();
 
-        Schema schema = schemaGenerator.getRootSchema();
+        Schema schema = schemaGraph.getRootSchema();
         if (!schema.isObject())
         {
             logger.severe("Root schema was no object");
@@ -257,40 +354,488 @@ public class ClassGenerator
         }
         ObjectSchema objectSchema = schema.asObject();
         typeResolver.apply(objectSchema);
+        while (!pendingInitializations.isEmpty())
+        {
+            pendingInitializations.poll().run();
+        }
+        for (Schema selectedSchema : selectedSchemas)
+        {
+            typeResolver.apply(selectedSchema);
+            while (!pendingInitializations.isEmpty())
+            {
+                pendingInitializations.poll().run();
+            }
+        }
     }
 
     /**
-     * Write the generated classes to the given destination directory
-     *
-     * @param destinationDirectory The destination directory
-     * @throws IOException If an IO error occurs
+     * Returns the {@link Schema} instances that are selected by the 
+     * {@link GeneratorConfig#getSelection()}, starting at the given root
+     * schemas. If the selection is empty, then the list is empty.
+     * 
+     * @param rootSchemas The root {@link Schema} instances
+     * @return The selected schemas
      */
-    public void generate(File destinationDirectory) throws IOException
+    private List<Schema> findSelectedSchemas(List<Schema> rootSchemas)
+    {
+        List<Schema> selectedSchemas = new ArrayList<Schema>();
+        Set<String> selection = config.getSelection();
+        if (selection.isEmpty())
+        {
+            return selectedSchemas;
+        }
+        Set<Schema> allSchemas = SchemaGeneratorUtils.computeReachableSchemas(
+            rootSchemas, DefaultSchemaStructure.INSTANCE);
+        for (String entry : selection)
+        {
+            List<Schema> schemas = 
+                findSelectedSchemas(rootSchemas, allSchemas, entry);
+            if (schemas.isEmpty())
+            {
+                logger.warning("No class or property path matches the "
+                    + "selection " + entry);
+            }
+            selectedSchemas.addAll(schemas);
+        }
+        return selectedSchemas;
+    }
+
+    /**
+     * Computes the set of {@link Schema} instances for which classes may
+     * be generated, based on the {@link GeneratorConfig#getSelection()}.
+     * These are the given root schemas, and all schemas that are reachable
+     * from the selected schemas or from the schemas that are extended by 
+     * the root schemas. If the selection is empty, then <code>null</code> 
+     * is returned.
+     * 
+     * @param rootSchemas The root {@link Schema} instances
+     * @param selectedSchemas The selected {@link Schema} instances
+     * @return The included schemas
+     */
+    private Set<Schema> computeIncludedSchemas(
+        List<Schema> rootSchemas, List<Schema> selectedSchemas)
+    {
+        if (config.getSelection().isEmpty())
+        {
+            return null;
+        }
+        List<Schema> startSchemas = new ArrayList<Schema>(selectedSchemas);
+        for (Schema rootSchema : rootSchemas)
+        {
+            if (rootSchema.getAllOf() != null)
+            {
+                startSchemas.addAll(rootSchema.getAllOf());
+            }
+        }
+        Set<Schema> includedSchemas = 
+            SchemaGeneratorUtils.computeReachableSchemas(
+                startSchemas, DefaultSchemaStructure.INSTANCE);
+        includedSchemas.addAll(rootSchemas);
+        logger.info("Selected " + includedSchemas.size() + " schemas");
+        return includedSchemas;
+    }
+
+    /**
+     * Returns the {@link Schema} instances that are selected by the given 
+     * entry of the {@link GeneratorConfig#getSelection()}. These are the
+     * schemas of the properties that are found at the given path, 
+     * starting at one of the root schemas, and the object schemas from 
+     * the given set for which a class with the given name would be 
+     * generated.
+     * 
+     * @param rootSchemas The root {@link Schema} instances
+     * @param allSchemas All {@link Schema} instances
+     * @param entry The entry of the selection
+     * @return The selected schemas
+     */
+    private List<Schema> findSelectedSchemas(List<Schema> rootSchemas, 
+        Set<Schema> allSchemas, String entry)
+    {
+        List<Schema> selectedSchemas = new ArrayList<Schema>();
+        for (Schema rootSchema : rootSchemas)
+        {
+            Schema schema = resolvePropertyPath(rootSchema, entry);
+            if (schema != null)
+            {
+                selectedSchemas.add(schema);
+            }
+        }
+        for (Schema schema : allSchemas)
+        {
+            if (!schema.isObject())
+            {
+                continue;
+            }
+            ObjectSchema objectSchema = schema.asObject();
+            if (!containsRelevantInformation(objectSchema) &&
+                !usesImplicitExtension(objectSchema))
+            {
+                continue;
+            }
+            List<URI> uris = schemaGraph.getUris(schema);
+            String className = 
+                classNameGenerator.generateClassName(objectSchema, uris);
+            if (entry.equals(className))
+            {
+                selectedSchemas.add(schema);
+            }
+        }
+        return selectedSchemas;
+    }
+
+    /**
+     * Resolves the given path of property names, separated by 
+     * <code>/</code> slashes, starting at the given {@link Schema}. 
+     * Array and map schemas along the path are passed through, so that
+     * the path <code>"meshes/primitives"</code> refers to the 
+     * <code>primitives</code> property of the items of the 
+     * <code>meshes</code> array. Returns <code>null</code> if there
+     * is no property for the given path.
+     * 
+     * @param schema The {@link Schema}
+     * @param path The path
+     * @return The {@link Schema} of the property
+     */
+    private static Schema resolvePropertyPath(Schema schema, String path)
     {
-        CodeWriter source = new CodeWriter()
+        Schema current = schema;
+        for (String propertyName : path.split("/"))
         {
-            CodeWriter delegate = new FileCodeWriter(destinationDirectory);
+            current = findProperty(unwrapContainers(current), propertyName);
+            if (current == null)
+            {
+                return null;
+            }
+        }
+        return current;
+    }
 
-            @Override
-            public OutputStream openBinary(JPackage pkg, String fileName)
-                throws IOException
+    /**
+     * Returns the {@link Schema} of the property with the given name in
+     * the given {@link Schema}, or in one of the schemas that it extends,
+     * or <code>null</code> if there is no such property
+     * 
+     * @param schema The {@link Schema}
+     * @param propertyName The property name
+     * @return The {@link Schema} of the property
+     */
+    private static Schema findProperty(Schema schema, String propertyName)
+    {
+        if (schema.isObject())
+        {
+            Map<String, Schema> properties = 
+                schema.asObject().getProperties();
+            if (properties != null && properties.containsKey(propertyName))
+            {
+                return properties.get(propertyName);
+            }
+        }
+        List<Schema> allOf = schema.getAllOf();
+        if (allOf != null)
+        {
+            for (Schema extendedSchema : allOf)
             {
-                OutputStream result = delegate.openBinary(pkg, fileName);
-                if (headerCode != null)
+                Schema property = findProperty(extendedSchema, propertyName);
+                if (property != null)
                 {
-                    result.write(headerCode.getBytes());
+                    return property;
                 }
-                return result;
             }
+        }
+        return null;
+    }
 
-            @Override
-            public void close() throws IOException
+    /**
+     * Returns the {@link Schema} of the elements of the given schema, if 
+     * it is an array schema or a map schema (i.e. an object schema that
+     * only has additional properties), repeatedly. Otherwise, the given 
+     * schema is returned.
+     * 
+     * @param schema The {@link Schema}
+     * @return The unwrapped {@link Schema}
+     */
+    private static Schema unwrapContainers(Schema schema)
+    {
+        Set<Schema> visited = new LinkedHashSet<Schema>();
+        Schema current = schema;
+        while (visited.add(current))
+        {
+            Collection<Schema> items = 
+                current.isArray() ? current.asArray().getItems() : null;
+            if (items != null && items.size() == 1)
             {
-                delegate.close();
+                current = items.iterator().next();
             }
-        };
+            else if (current.isObject() 
+                && current.asObject().getProperties() == null
+                && current.asObject().getAdditionalProperties() != null)
+            {
+                current = current.asObject().getAdditionalProperties();
+            }
+            else
+            {
+                break;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Generate the classes for the {@link Schema} definitions that are
+     * contained in the given {@link SchemaGraph}, and write each
+     * class to the given code writer as soon as it is complete, using a
+     * {@link ClassEmitter}. This way, the code model does not have to 
+     * contain all classes at the same time. The remaining classes (for
+     * example, enums) are written at the end. The output is the same as
+     * when creating a generator and writing the classes with one of the
+     * <code>generate</code> methods. The code writer will be closed.
+     *
+     * @param schemaGraph The {@link SchemaGraph}
+     * @param packageName The package name that should be used for the
+     * generated classes
+     * @param codeWriter The code writer, for example, a 
+     * {@link ConcurrentFileCodeWriter} that also adds the header code 
+     * for every file
+     * @throws IOException If an IO error occurs
+     */
+    public static void generateStreaming(SchemaGraph<Schema> schemaGraph, 
+        String packageName, CodeWriter codeWriter) throws IOException
+    {
+        generateStreaming(schemaGraph, packageName, 
+            GeneratorConfig.DEFAULT, codeWriter);
+    }
+
+    /**
+     * Generate the classes for the {@link Schema} definitions that are
+     * contained in the given {@link SchemaGraph}, using the given
+     * {@link GeneratorConfig}, and write each class to the given code 
+     * writer as soon as it is complete. See 
+     * {@link #generateStreaming(SchemaGraph, String, CodeWriter)}.
+     *
+     * @param schemaGraph The {@link SchemaGraph}
+     * @param packageName The package name that should be used for the
+     * generated classes
+     * @param config The {@link GeneratorConfig}
+     * @param codeWriter The code writer
+     * @throws IOException If an IO error occurs
+     */
+    public static void generateStreaming(SchemaGraph<Schema> schemaGraph, 
+        String packageName, GeneratorConfig config, CodeWriter codeWriter) 
+            throws IOException
+    {
+        ClassEmitter classEmitter = new ClassEmitter(codeWriter);
+        ClassGenerator classGenerator = null;
+        try
+        {
+            classGenerator = new ClassGenerator(
+                schemaGraph, packageName, null, config, classEmitter);
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+        classGenerator.codeModel.build(codeWriter);
+    }
+
+    /**
+     * Write the given class with the {@link ClassEmitter}, if it is not
+     * <code>null</code>
+     *
+     * @param definedClass The class
+     * @throws UncheckedIOException If an IO error occurs
+     */
+    private void emit(JDefinedClass definedClass)
+    {
+        if (classEmitter == null)
+        {
+            return;
+        }
+        try
+        {
+            classEmitter.emit(definedClass);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the generated classes to the given destination directory.
+     * The files are written concurrently, by a thread pool that uses
+     * one thread for each available processor.
+     *
+     * @param destinationDirectory The destination directory
+     * @throws IOException If an IO error occurs
+     */
+    public void generate(File destinationDirectory) throws IOException
+    {
+        generate(destinationDirectory, WriteMode.ALWAYS);
+    }
+
+    /**
+     * Write the generated classes to the given destination directory.
+     * The files are written concurrently, by a thread pool that uses
+     * one thread for each available processor.
+     *
+     * @param destinationDirectory The destination directory
+     * @param writeMode The {@link WriteMode} that determines whether
+     * unchanged files are written and stale files are deleted
+     * @throws IOException If an IO error occurs
+     */
+    public void generate(File destinationDirectory, WriteMode writeMode) 
+        throws IOException
+    {
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executorService = 
+            Executors.newFixedThreadPool(numThreads);
+        try
+        {
+            generate(destinationDirectory, executorService, writeMode);
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Write the generated classes to the given destination directory.
+     * The classes are rendered into memory, and the files are written 
+     * by the given executor service, using a 
+     * {@link ConcurrentFileCodeWriter}
+     *
+     * @param destinationDirectory The destination directory
+     * @param executorService The executor service that writes the files
+     * @throws IOException If an IO error occurs
+     */
+    public void generate(File destinationDirectory, 
+        ExecutorService executorService) throws IOException
+    {
+        generate(destinationDirectory, executorService, WriteMode.ALWAYS);
+    }
+
+    /**
+     * Write the generated classes to the given destination directory.
+     * The classes are rendered into memory, and the files are written 
+     * by the given executor service, using a 
+     * {@link ConcurrentFileCodeWriter} with the given {@link WriteMode}
+     *
+     * @param destinationDirectory The destination directory
+     * @param executorService The executor service that writes the files
+     * @param writeMode The {@link WriteMode} that determines whether
+     * unchanged files are written and stale files are deleted
+     * @throws IOException If an IO error occurs
+     */
+    public void generate(File destinationDirectory, 
+        ExecutorService executorService, WriteMode writeMode) 
+            throws IOException
+    {
+        ConcurrentFileCodeWriter source = new ConcurrentFileCodeWriter(
+            destinationDirectory, headerCode, executorService, writeMode);
         CodeWriter resource = new FileCodeWriter(destinationDirectory);
         codeModel.build(source, resource);
+        logger.info("Generated files: " 
+            + source.getWrittenFileCount() + " written, "
+            + source.getUnchangedFileCount() + " unchanged, "
+            + source.getDeletedFileCount() + " deleted");
+    }
+
+    /**
+     * Write the sources of the generated classes into the given JAR file,
+     * using a {@link JarCodeWriter}. If the file already exists, it is 
+     * overwritten.
+     *
+     * @param sourceJarFile The JAR file for the sources
+     * @throws IOException If an IO error occurs
+     */
+    public void generateJar(File sourceJarFile) throws IOException
+    {
+        CodeWriter codeWriter = new JarCodeWriter(sourceJarFile, headerCode);
+        codeModel.build(codeWriter);
+    }
+
+    /**
+     * Write the sources of the generated classes into the given source
+     * JAR file, compile them in memory, as described in {@link #compile()},
+     * and write the compiled classes into the given class JAR file. If 
+     * the files already exist, they are overwritten.
+     *
+     * @param sourceJarFile The JAR file for the sources
+     * @param classJarFile The JAR file for the compiled classes
+     * @throws IOException If an IO error occurs
+     * @throws IllegalStateException If no Java compiler is available, or
+     * the generated classes do not compile
+     */
+    public void generateJars(File sourceJarFile, File classJarFile) 
+        throws IOException
+    {
+        generateJar(sourceJarFile);
+        Map<String, byte[]> classes = compile();
+        JarCodeWriter.writeClasses(classJarFile, classes);
+    }
+
+    /**
+     * Render the generated classes into memory, and return the mapping
+     * from fully qualified class names to the source code
+     *
+     * @return The sources
+     * @throws IOException If an IO error occurs
+     */
+    public Map<String, String> generateSources() throws IOException
+    {
+        MemoryCodeWriter codeWriter = new MemoryCodeWriter(headerCode);
+        codeModel.build(codeWriter);
+        return codeWriter.getSources();
+    }
+
+    /**
+     * Compile the generated classes in memory, without writing any files.
+     * The sources are compiled in parallel batches, by a thread pool that
+     * uses one thread for each available processor. The result is a 
+     * mapping from binary class names to bytecode, which may be passed to
+     * {@link InMemoryCompiler#createClassLoader(Map, ClassLoader)} to 
+     * load the classes.
+     *
+     * @return The compiled classes
+     * @throws IOException If an IO error occurs
+     * @throws IllegalStateException If no Java compiler is available, or
+     * the generated classes do not compile
+     */
+    public Map<String, byte[]> compile() throws IOException
+    {
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executorService = 
+            Executors.newFixedThreadPool(numThreads);
+        try
+        {
+            return compile(executorService, numThreads);
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Compile the generated classes in memory, without writing any files,
+     * using an {@link InMemoryCompiler} with the given executor service
+     * and number of batches
+     *
+     * @param executorService The executor service that compiles the 
+     * batches
+     * @param numBatches The number of batches
+     * @return The compiled classes
+     * @throws IOException If an IO error occurs
+     * @throws IllegalStateException If no Java compiler is available, or
+     * the generated classes do not compile
+     */
+    public Map<String, byte[]> compile(
+        ExecutorService executorService, int numBatches) throws IOException
+    {
+        InMemoryCompiler compiler = 
+            new InMemoryCompiler(executorService, numBatches);
+        return compiler.compile(generateSources());
     }
 
     /**
@@ -334,7 +879,7 @@ public class ClassGenerator
         {
             logger.log(resolvingLogLevel, "resolveType");
             logger.log(resolvingLogLevel, "    uri       "+
-                schemaGenerator.getCanonicalUri(schema));
+                schemaGraph.getCanonicalUri(schema));
             logger.log(resolvingLogLevel, "    schema    "+
                 SchemaUtils.createShortSchemaDebugString(schema));
         }
@@ -359,7 +904,7 @@ public class ClassGenerator
         {
             logger.log(creatingLogLevel, "createType");
             logger.log(creatingLogLevel, "    uri       "+
-                schemaGenerator.getCanonicalUri(schema));
+                schemaGraph.getCanonicalUri(schema));
             logger.log(creatingLogLevel, "    schema    "+
                 SchemaUtils.createShortSchemaDebugString(schema));
         }
@@ -406,7 +951,7 @@ public class ClassGenerator
             logger.log(creatingLogLevel,
                 "createType: WARNING: Could not create type");
             logger.log(creatingLogLevel, "    uri       "+
-                schemaGenerator.getCanonicalUri(schema));
+                schemaGraph.getCanonicalUri(schema));
             logger.log(creatingLogLevel, "    schema    "+
                 SchemaUtils.createShortSchemaDebugString(schema));
             logger.log(creatingLogLevel, "    using Object.class");
@@ -429,7 +974,7 @@ public class ClassGenerator
         {
             logger.log(creatingLogLevel, "createObjectType");
             logger.log(creatingLogLevel, "    uri       "+
-                schemaGenerator.getCanonicalUri(objectSchema));
+                schemaGraph.getCanonicalUri(objectSchema));
             logger.log(creatingLogLevel, "    schema    "+
                 SchemaUtils.createShortSchemaDebugString(objectSchema));
         }
@@ -439,7 +984,7 @@ public class ClassGenerator
 //        {
 //            logger.info("    className "+className);
 //            logger.info("    Schema details:");
-//            URI uri = schemaGenerator.getCanonicalUri(objectSchema);
+//            URI uri = schemaGraph.getCanonicalUri(objectSchema);
 //            logger.info(SchemaUtils.createSchemaDebugString(uri, objectSchema));
 //        }
 
@@ -561,7 +1106,7 @@ public class ClassGenerator
         CodeModelMethods.addGetter(definedClass, "additionalProperties",
             typedMapType, additionalPropertiesSchema, false);
         
-        if (GlTFConfig.CREATE_ADDERS_AND_REMOVERS)
+        if (config.isCreateAddersAndRemovers())
         {
             CodeModelMethods.addAdderForMap(
                 definedClass, "additionalProperties", 
@@ -854,7 +1399,7 @@ public class ClassGenerator
             CodeModelMethods.addGetter(
                 definedClass, propertyName, propertyType, propertySchema, isRequired);
             
-            if (GlTFConfig.CREATE_ADDERS_AND_REMOVERS)
+            if (config.isCreateAddersAndRemovers())
             {
                 if (CodeModels.isSubtypeOf(propertyType, Map.class))
                 {
@@ -876,7 +1421,7 @@ public class ClassGenerator
                 }
             }
 
-            if (GlTFConfig.CREATE_GETTERS_WITH_DEFAULT)
+            if (config.isCreateGettersWithDefault())
             {
                 if (!isRequired && propertySchema.getDefaultString() != null)
                 {
@@ -982,6 +1527,12 @@ public class ClassGenerator
                 e.printStackTrace();
             }
         }
+        if (definedClass.isHidden())
+        {
+            logger.warning("The class " + className + " was already "
+                + "emitted, omitting the documentation of " 
+                + schemaGraph.getCanonicalUri(schema));
+        }
         JDocComment docComment = definedClass.javadoc();
         StringBuilder sb = new StringBuilder();
         String description = schema.getDescription();
@@ -991,7 +1542,7 @@ public class ClassGenerator
             sb.append("\n");
             sb.append("\n");
         }
-        URI canonicalUri = schemaGenerator.getCanonicalUri(schema);
+        URI canonicalUri = schemaGraph.getCanonicalUri(schema);
         sb.append("Auto-generated for "+
             StringUtils.extractSchemaName(canonicalUri));
         docComment.append(StringUtils.format(sb.toString(),
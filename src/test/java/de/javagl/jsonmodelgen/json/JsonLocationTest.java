@@ -0,0 +1,149 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.net.URI;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests for the escaping of JSON pointer tokens in {@link JsonLocation}
+ */
+@SuppressWarnings("javadoc")
+public class JsonLocationTest
+{
+    private static final URI DOCUMENT_URI = 
+        URI.create("file:/test/document.schema.json");
+    
+    private NodeRepository nodeRepository;
+    
+    private JsonLocation documentLocation;
+    
+    @Before
+    public void setUp() throws IOException
+    {
+        String json = "{ \"definitions\": { "
+            + "\"a/b~c\": { \"type\": \"string\" }, "
+            + "\"x y\": { \"type\": \"number\" } }, "
+            + "\"properties\": { "
+            + "\"first\": { \"$ref\": \"#/definitions/a~1b~0c\" }, "
+            + "\"second\": { \"$ref\": \"#/definitions/x%20y\" } } }";
+        JsonNode document = new ObjectMapper().readTree(json);
+        DocumentLoader documentLoader = uri -> 
+            DOCUMENT_URI.equals(URIs.removeFragment(uri)) ? document : null;
+        nodeRepository = new NodeRepository(DOCUMENT_URI, documentLoader);
+        documentLocation = nodeRepository.getLocation(DOCUMENT_URI);
+    }
+    
+    @Test
+    public void testSlashAndTildeAreEscapedInUri()
+    {
+        JsonLocation location = 
+            documentLocation.child("definitions").child("a/b~c");
+        assertEquals(URI.create(DOCUMENT_URI + "#/definitions/a~1b~0c"), 
+            location.toUri());
+    }
+    
+    @Test
+    public void testInvalidFragmentCharactersArePercentEncodedInUri()
+    {
+        JsonLocation location = documentLocation.child("a b#c%d");
+        assertEquals(URI.create(DOCUMENT_URI + "#/a%20b%23c%25d"), 
+            location.toUri());
+    }
+    
+    @Test
+    public void testPlainTokensAreNotChangedInUri()
+    {
+        JsonLocation location = 
+            documentLocation.child("properties").child("$ref").child(0);
+        assertEquals(URI.create(DOCUMENT_URI + "#/properties/$ref/0"), 
+            location.toUri());
+    }
+    
+    @Test
+    public void testEscapedTokensAreUnescapedFromUri()
+    {
+        JsonLocation location = nodeRepository.getLocation(
+            URI.create(DOCUMENT_URI + "#/definitions/a~1b~0c"));
+        assertEquals("a/b~c", location.getToken());
+        assertSame(documentLocation.child("definitions").child("a/b~c"), 
+            location);
+    }
+    
+    @Test
+    public void testPercentEncodedTokensAreUnescapedFromUri()
+    {
+        JsonLocation location = nodeRepository.getLocation(
+            URI.create(DOCUMENT_URI + "#/definitions/x%20y"));
+        assertEquals("x y", location.getToken());
+        assertSame(documentLocation.child("definitions").child("x y"), 
+            location);
+    }
+    
+    @Test
+    public void testUriRoundTrip()
+    {
+        JsonLocation location = 
+            documentLocation.child("definitions").child("~/ %#~0");
+        assertSame(location, nodeRepository.getLocation(location.toUri()));
+    }
+    
+    @Test
+    public void testReferencesWithEscapedPointersAreResolved()
+    {
+        JsonLocation definitions = documentLocation.child("definitions");
+        JsonLocation properties = documentLocation.child("properties");
+        assertSame(definitions.child("a/b~c"), 
+            nodeRepository.getCanonicalLocation(properties.child("first")));
+        assertSame(definitions.child("x y"), 
+            nodeRepository.getCanonicalLocation(properties.child("second")));
+    }
+    
+    @Test
+    public void testNodesAreFoundThroughEscapedReferences()
+    {
+        JsonNode first = nodeRepository.get(
+            URI.create(DOCUMENT_URI + "#/properties/first/type"));
+        assertNotNull(first);
+        assertEquals("string", first.asText());
+        
+        JsonNode second = nodeRepository.get(
+            URI.create(DOCUMENT_URI + "#/properties/second/type"));
+        assertNotNull(second);
+        assertEquals("number", second.asText());
+    }
+}
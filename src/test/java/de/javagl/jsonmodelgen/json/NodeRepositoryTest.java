@@ -0,0 +1,147 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests for the resolution of <code>"$ref"</code> targets in the 
+ * {@link NodeRepository}
+ */
+@SuppressWarnings("javadoc")
+public class NodeRepositoryTest
+{
+    private static final URI ROOT_URI = 
+        URI.create("file:/test/root.schema.json");
+    
+    private final Map<URI, JsonNode> documents = 
+        new LinkedHashMap<URI, JsonNode>();
+    
+    private NodeRepository nodeRepository;
+    
+    @Before
+    public void setUp() throws IOException
+    {
+        put("root.schema.json", "{ \"properties\": { "
+            + "\"viaDocument\": { \"$ref\": "
+            + "\"a.schema.json#/properties/b/properties/inner\" }, "
+            + "\"viaDefinition\": { \"$ref\": "
+            + "\"#/definitions/alias/properties/value\" }, "
+            + "\"viaChain\": { \"$ref\": "
+            + "\"a.schema.json#/properties/c/properties/inner\" } }, "
+            + "\"definitions\": { "
+            + "\"alias\": { \"$ref\": \"#/definitions/target\" }, "
+            + "\"target\": { \"properties\": { "
+            + "\"value\": { \"type\": \"integer\" } } } } }");
+        put("a.schema.json", "{ \"properties\": { "
+            + "\"b\": { \"$ref\": \"b.schema.json\" }, "
+            + "\"c\": { \"$ref\": \"#/properties/b\" } } }");
+        put("b.schema.json", "{ \"properties\": { "
+            + "\"inner\": { \"type\": \"string\" } } }");
+        DocumentLoader documentLoader = 
+            uri -> documents.get(URIs.removeFragment(uri));
+        nodeRepository = new NodeRepository(ROOT_URI, documentLoader);
+    }
+    
+    private void put(String name, String json) throws IOException
+    {
+        documents.put(ROOT_URI.resolve(name), 
+            new ObjectMapper().readTree(json));
+    }
+    
+    private JsonLocation getCanonicalLocation(String uriString)
+    {
+        JsonLocation location = 
+            nodeRepository.getLocation(ROOT_URI.resolve(uriString));
+        return nodeRepository.getCanonicalLocation(location);
+    }
+    
+    @Test
+    public void testRefThroughRefInOtherDocument()
+    {
+        JsonLocation canonicalLocation = getCanonicalLocation(
+            "root.schema.json#/properties/viaDocument");
+        assertEquals(
+            ROOT_URI.resolve("b.schema.json#/properties/inner"), 
+            canonicalLocation.toUri());
+        JsonNode node = nodeRepository.get(canonicalLocation);
+        assertNotNull(node);
+        assertEquals("string", node.get("type").asText());
+    }
+    
+    @Test
+    public void testRefThroughRefInSameDocument()
+    {
+        JsonLocation canonicalLocation = getCanonicalLocation(
+            "root.schema.json#/properties/viaDefinition");
+        assertEquals(
+            ROOT_URI.resolve("root.schema.json#/definitions/target"
+                + "/properties/value"), 
+            canonicalLocation.toUri());
+        JsonNode node = nodeRepository.get(canonicalLocation);
+        assertNotNull(node);
+        assertEquals("integer", node.get("type").asText());
+    }
+    
+    @Test
+    public void testRefThroughChainOfRefs()
+    {
+        JsonLocation canonicalLocation = getCanonicalLocation(
+            "root.schema.json#/properties/viaChain");
+        assertEquals(
+            ROOT_URI.resolve("b.schema.json#/properties/inner"), 
+            canonicalLocation.toUri());
+        assertEquals("string", 
+            nodeRepository.get(canonicalLocation).get("type").asText());
+    }
+    
+    @Test
+    public void testCyclicRefsAreNotResolved() throws IOException
+    {
+        put("cycle.schema.json", "{ \"definitions\": { "
+            + "\"x\": { \"$ref\": \"#/definitions/y/properties/p\" }, "
+            + "\"y\": { \"$ref\": \"#/definitions/x\" } }, "
+            + "\"properties\": { \"p\": { "
+            + "\"$ref\": \"#/definitions/x/properties/q\" } } }");
+        URI cycleUri = ROOT_URI.resolve("cycle.schema.json");
+        NodeRepository cycleRepository = new NodeRepository(cycleUri, 
+            uri -> documents.get(URIs.removeFragment(uri)));
+        assertNotNull(cycleRepository.getRootNode());
+    }
+}
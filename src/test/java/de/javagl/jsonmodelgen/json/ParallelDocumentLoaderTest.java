@@ -0,0 +1,293 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests for the {@link ParallelDocumentLoader}, comparing the prefetching
+ * {@link NodeRepository} with the sequential one for documents that are
+ * served by a local HTTP server
+ */
+@SuppressWarnings("javadoc")
+public class ParallelDocumentLoaderTest
+{
+    private HttpServer server;
+    
+    private ExecutorService serverExecutorService;
+    
+    private ExecutorService executorService;
+    
+    private final Map<String, AtomicInteger> requestCounts = 
+        new ConcurrentHashMap<String, AtomicInteger>();
+    
+    @Before
+    public void setUp() throws IOException
+    {
+        Map<String, String> documents = new LinkedHashMap<String, String>();
+        documents.put("/schemas/root.schema.json", "{ \"properties\": { "
+            + "\"a\": { \"$ref\": \"a.schema.json\" }, "
+            + "\"b\": { \"$ref\": \"sub/b.schema.json#/definitions/b\" }, "
+            + "\"c\": { \"$ref\": \"#/definitions/c\" } }, "
+            + "\"definitions\": { \"c\": { \"type\": \"string\" } } }");
+        documents.put("/schemas/a.schema.json", "{ \"properties\": { "
+            + "\"b\": { \"$ref\": \"sub/b.schema.json#/definitions/b\" }, "
+            + "\"root\": { \"$ref\": \"root.schema.json\" } } }");
+        documents.put("/schemas/sub/b.schema.json", "{ \"definitions\": { "
+            + "\"b\": { \"properties\": { "
+            + "\"d\": { \"$ref\": \"../d.schema.json\" }, "
+            + "\"self\": { \"$ref\": \"#/definitions/b\" } } } } }");
+        documents.put("/schemas/d.schema.json", 
+            "{ \"type\": \"array\", \"items\": { \"type\": \"number\" } }");
+        
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> 
+        {
+            String path = exchange.getRequestURI().getPath();
+            requestCounts.computeIfAbsent(path, p -> new AtomicInteger())
+                .incrementAndGet();
+            respond(exchange, documents.get(path));
+        });
+        serverExecutorService = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverExecutorService);
+        server.start();
+        executorService = Executors.newFixedThreadPool(4);
+    }
+    
+    @After
+    public void tearDown()
+    {
+        server.stop(0);
+        serverExecutorService.shutdownNow();
+        executorService.shutdownNow();
+    }
+    
+    /**
+     * Send the given JSON string as a GZIP-encoded response, or send a 
+     * 404 response if the string is <code>null</code>
+     * 
+     * @param exchange The exchange
+     * @param json The JSON string
+     * @throws IOException If an IO error occurs
+     */
+    private static void respond(HttpExchange exchange, String json) 
+        throws IOException
+    {
+        if (json == null)
+        {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(baos))
+        {
+            gzip.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] body = baos.toByteArray();
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        exchange.getResponseHeaders().set(
+            "Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody())
+        {
+            os.write(body);
+        }
+    }
+    
+    private URI createUri(String path)
+    {
+        return URI.create("http://127.0.0.1:" 
+            + server.getAddress().getPort() + path);
+    }
+    
+    private static List<URI> toUris(Iterable<JsonLocation> locations)
+    {
+        List<URI> uris = new ArrayList<URI>();
+        for (JsonLocation location : locations)
+        {
+            uris.add(location.toUri());
+        }
+        return uris;
+    }
+    
+    @Test
+    public void testPrefetchingRepositoryEqualsSequentialRepository()
+    {
+        URI rootUri = createUri("/schemas/root.schema.json");
+        NodeRepository sequential = new NodeRepository(rootUri);
+        requestCounts.clear();
+        NodeRepository prefetched = 
+            new NodeRepository(rootUri, executorService);
+        
+        for (String path : new String[] { "/schemas/root.schema.json", 
+            "/schemas/a.schema.json", "/schemas/sub/b.schema.json", 
+            "/schemas/d.schema.json" })
+        {
+            AtomicInteger count = requestCounts.get(path);
+            assertEquals("Request count for " + path, 
+                1, count == null ? 0 : count.get());
+        }
+        assertEquals(4, requestCounts.size());
+        
+        assertEquals(sequential.getDocumentUris(), 
+            prefetched.getDocumentUris());
+        assertEquals(toUris(sequential.getLocations()), 
+            toUris(prefetched.getLocations()));
+        
+        Map<URI, URI> sequentialReferences = new LinkedHashMap<URI, URI>();
+        for (Entry<JsonLocation, JsonLocation> entry : 
+            sequential.getReferences().entrySet())
+        {
+            sequentialReferences.put(
+                entry.getKey().toUri(), entry.getValue().toUri());
+        }
+        Map<URI, URI> prefetchedReferences = new LinkedHashMap<URI, URI>();
+        for (Entry<JsonLocation, JsonLocation> entry : 
+            prefetched.getReferences().entrySet())
+        {
+            prefetchedReferences.put(
+                entry.getKey().toUri(), entry.getValue().toUri());
+        }
+        assertEquals(sequentialReferences, prefetchedReferences);
+        assertTrue(sequentialReferences.containsKey(
+            createUri("/schemas/root.schema.json#/properties/b")));
+        
+        for (JsonLocation location : sequential.getLocations())
+        {
+            URI uri = location.toUri();
+            JsonLocation prefetchedLocation = prefetched.getLocation(uri);
+            assertEquals("Canonical location of " + uri,
+                sequential.getCanonicalLocation(location).toUri(),
+                prefetched.getCanonicalLocation(prefetchedLocation).toUri());
+            assertEquals("Node at " + uri, 
+                sequential.get(location), prefetched.get(prefetchedLocation));
+        }
+    }
+    
+    @Test
+    public void testMissingDocumentIsNotFatal()
+    {
+        URI rootUri = createUri("/schemas/missing.schema.json");
+        ParallelDocumentLoader loader = 
+            new ParallelDocumentLoader(executorService);
+        loader.prefetch(rootUri);
+        assertEquals(null, loader.load(rootUri));
+        assertEquals(1, requestCounts.get(
+            "/schemas/missing.schema.json").get());
+    }
+    
+    @Test
+    public void testFailureCancelsRemainingTasks() throws Exception
+    {
+        URI rootUri = URI.create("file:/test/root.schema.json");
+        URI slowUri = URI.create("file:/test/slow.schema.json");
+        URI failUri = URI.create("file:/test/fail.schema.json");
+        JsonNode root = new ObjectMapper().readTree("{ \"properties\": { "
+            + "\"slow\": { \"$ref\": \"slow.schema.json\" }, "
+            + "\"fail\": { \"$ref\": \"fail.schema.json\" } } }");
+        
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch slowInterrupted = new CountDownLatch(1);
+        DocumentLoader delegate = uri -> 
+        {
+            if (uri.equals(rootUri))
+            {
+                return root;
+            }
+            if (uri.equals(slowUri))
+            {
+                slowStarted.countDown();
+                try
+                {
+                    Thread.sleep(60000);
+                }
+                catch (InterruptedException e)
+                {
+                    slowInterrupted.countDown();
+                }
+                return null;
+            }
+            if (uri.equals(failUri))
+            {
+                try
+                {
+                    slowStarted.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("Failure for " + uri);
+            }
+            return null;
+        };
+        ParallelDocumentLoader loader = 
+            new ParallelDocumentLoader(executorService, delegate);
+        try
+        {
+            loader.prefetch(rootUri);
+            fail("Expected JsonException");
+        }
+        catch (JsonException e)
+        {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertTrue("Remaining task was not cancelled", 
+            slowInterrupted.await(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import de.javagl.jsonmodelgen.json.schema.v202012.SchemaGenerator;
+import de.javagl.jsonmodelgen.json.schema.v202012.codemodel.ClassGenerator;
+
+/**
+ * Tests for the {@link SchemaBundler}, and for generating classes from 
+ * the bundles that it creates
+ */
+@SuppressWarnings("javadoc")
+public class SchemaBundlerTest
+{
+    private static final URI ROOT_URI = 
+        URI.create("file:/test/glTF.schema.json");
+    
+    private static final URI BUNDLE_URI = 
+        URI.create("file:/bundle/glTF.schema.json");
+    
+    private final Map<URI, JsonNode> documents = 
+        new LinkedHashMap<URI, JsonNode>();
+    
+    private ObjectNode bundle;
+    
+    @Before
+    public void setUp() throws IOException
+    {
+        put("glTF.schema.json", "{ \"type\": \"object\", "
+            + "\"description\": \"The root\", "
+            + "\"allOf\": [ { \"$ref\": \"glTFProperty.schema.json\" } ], "
+            + "\"properties\": { "
+            + "\"camera\": { \"$ref\": "
+            + "\"camera.schema.json#/properties/perspective\" }, "
+            + "\"nodes\": { \"type\": \"array\", "
+            + "\"items\": { \"$ref\": \"node.schema.json\" } }, "
+            + "\"accessors\": { \"type\": \"array\", "
+            + "\"items\": { \"$ref\": \"accessor.schema.json\" } }, "
+            + "\"asset\": { \"$ref\": \"asset.schema.json\" } } }");
+        put("glTFProperty.schema.json", "{ \"type\": \"object\", "
+            + "\"description\": \"A property\", "
+            + "\"properties\": { \"extras\": { \"type\": \"object\", "
+            + "\"description\": \"The extras\" } } }");
+        put("node.schema.json", "{ \"type\": \"object\", "
+            + "\"description\": \"A node\", "
+            + "\"allOf\": [ { \"$ref\": \"glTFProperty.schema.json\" } ], "
+            + "\"properties\": { "
+            + "\"children\": { \"type\": \"array\", "
+            + "\"items\": { \"type\": \"integer\" } }, "
+            + "\"matrix\": { \"type\": \"array\", "
+            + "\"items\": { \"type\": \"number\" } } } }");
+        put("accessor.schema.json", "{ \"type\": \"object\", "
+            + "\"description\": \"An accessor\", "
+            + "\"properties\": { "
+            + "\"min\": { \"type\": \"array\", "
+            + "\"items\": { \"type\": \"number\" } }, "
+            + "\"max\": { \"type\": \"array\", "
+            + "\"items\": { \"type\": \"number\" } } } }");
+        put("asset.schema.json", "{ \"type\": \"object\", "
+            + "\"description\": \"The asset\", "
+            + "\"allOf\": [ { \"$ref\": \"glTFProperty.schema.json\" } ], "
+            + "\"properties\": { \"version\": { \"type\": \"string\" } } }");
+        put("camera.schema.json", "{ \"type\": \"object\", "
+            + "\"description\": \"A camera\", "
+            + "\"properties\": { \"perspective\": { \"type\": \"object\", "
+            + "\"description\": \"A perspective camera\", "
+            + "\"properties\": { \"yfov\": { \"type\": \"number\" } } } } }");
+        NodeRepository nodeRepository = new NodeRepository(ROOT_URI, 
+            uri -> documents.get(URIs.removeFragment(uri)));
+        bundle = new SchemaBundler(nodeRepository).createBundle();
+    }
+    
+    private void put(String name, String json) throws IOException
+    {
+        documents.put(ROOT_URI.resolve(name), 
+            new ObjectMapper().readTree(json));
+    }
+    
+    private static Map<String, String> generateSources(
+        NodeRepository nodeRepository) throws IOException
+    {
+        SchemaGenerator schemaGenerator = 
+            new SchemaGenerator(nodeRepository);
+        ClassGenerator classGenerator = 
+            new ClassGenerator(schemaGenerator, "com.example", "");
+        return classGenerator.generateSources();
+    }
+    
+    private static Map<String, String> generateSourcesV4(
+        NodeRepository nodeRepository) throws IOException
+    {
+        de.javagl.jsonmodelgen.json.schema.v4.SchemaGenerator 
+            schemaGenerator = 
+                new de.javagl.jsonmodelgen.json.schema.v4.SchemaGenerator(
+                    nodeRepository);
+        de.javagl.jsonmodelgen.json.schema.v4.codemodel.ClassGenerator 
+            classGenerator = 
+                new de.javagl.jsonmodelgen.json.schema.v4.codemodel
+                    .ClassGenerator(schemaGenerator, "com.example", "");
+        return classGenerator.generateSources();
+    }
+    
+    private NodeRepository createDocumentsRepository()
+    {
+        return new NodeRepository(ROOT_URI, 
+            uri -> documents.get(URIs.removeFragment(uri)));
+    }
+    
+    private NodeRepository createBundleRepository(Set<URI> loadedUris)
+    {
+        return new NodeRepository(BUNDLE_URI, uri -> 
+        {
+            URI documentUri = URIs.removeFragment(uri);
+            loadedUris.add(documentUri);
+            return documentUri.equals(BUNDLE_URI) ? bundle : null;
+        });
+    }
+    
+    @Test
+    public void testBundleContainsOnlyLocalReferences()
+    {
+        for (JsonNode ref : bundle.findValues("$ref"))
+        {
+            assertTrue(ref.asText(), ref.asText().startsWith("#/"));
+        }
+    }
+    
+    @Test
+    public void testDefinitionsRecordTheirOriginalDocuments()
+    {
+        JsonNode definitions = bundle.get("$defs");
+        assertEquals(documents.size() - 1, definitions.size());
+        for (URI documentUri : documents.keySet())
+        {
+            String name = ROOT_URI.resolve(".").relativize(
+                documentUri).toString();
+            if (documentUri.equals(ROOT_URI))
+            {
+                assertFalse(definitions.has(name));
+                continue;
+            }
+            JsonNode definition = definitions.get(name);
+            assertNotNull(name, definition);
+            assertEquals(name, definition.get(
+                BundleOrigins.ORIGIN_KEYWORD).asText());
+        }
+    }
+    
+    @Test
+    public void testLoadingTheBundleFetchesNoOtherDocument() 
+        throws IOException
+    {
+        Set<URI> loadedUris = new LinkedHashSet<URI>();
+        NodeRepository nodeRepository = createBundleRepository(loadedUris);
+        generateSources(nodeRepository);
+        assertEquals(Collections.singleton(BUNDLE_URI), loadedUris);
+        assertEquals(Collections.singleton(BUNDLE_URI), 
+            nodeRepository.getDocumentUris());
+    }
+    
+    @Test
+    public void testBundleGeneratesTheSameSources() throws IOException
+    {
+        Map<String, String> expected = 
+            generateSources(createDocumentsRepository());
+        Map<String, String> actual = generateSources(
+            createBundleRepository(new LinkedHashSet<URI>()));
+        assertEquals(expected.keySet(), actual.keySet());
+        assertEquals(expected, actual);
+        assertTrue(actual.get("com.example.Accessor").contains(
+            "private Number[] min;"));
+    }
+    
+    @Test
+    public void testBundleGeneratesTheSameSourcesV4() throws IOException
+    {
+        Map<String, String> expected = 
+            generateSourcesV4(createDocumentsRepository());
+        Map<String, String> actual = generateSourcesV4(
+            createBundleRepository(new LinkedHashSet<URI>()));
+        assertEquals(expected.keySet(), actual.keySet());
+        assertEquals(expected, actual);
+    }
+    
+    @Test
+    public void testFragmentReferenceIntoDefinition()
+    {
+        NodeRepository nodeRepository = 
+            createBundleRepository(new LinkedHashSet<URI>());
+        JsonLocation location = nodeRepository.getLocation(
+            BUNDLE_URI.resolve("#/properties/camera"));
+        JsonLocation canonicalLocation = 
+            nodeRepository.getCanonicalLocation(location);
+        assertEquals(BUNDLE_URI.resolve(
+            "#/$defs/camera.schema.json/properties/perspective"), 
+            canonicalLocation.toUri());
+        assertEquals("A perspective camera", nodeRepository.get(
+            canonicalLocation).get("description").asText());
+    }
+    
+    @Test
+    public void testOrdinaryDefinitionsAreNotRenamed() throws IOException
+    {
+        JsonNode root = new ObjectMapper().readTree("{ "
+            + "\"type\": \"object\", \"properties\": { "
+            + "\"node\": { \"$ref\": \"#/$defs/node.schema.json\" } }, "
+            + "\"$defs\": { \"node.schema.json\": { \"type\": \"object\", "
+            + "\"properties\": { \"name\": { \"type\": \"string\" } } } } }");
+        NodeRepository nodeRepository = new NodeRepository(ROOT_URI, 
+            uri -> URIs.removeFragment(uri).equals(ROOT_URI) ? root : null);
+        Map<String, String> sources = generateSources(nodeRepository);
+        assertFalse(sources.toString(), 
+            sources.containsKey("com.example.Node"));
+        for (String source : sources.values())
+        {
+            assertFalse(source.contains(
+                "Auto-generated for node.schema.json"));
+        }
+    }
+}
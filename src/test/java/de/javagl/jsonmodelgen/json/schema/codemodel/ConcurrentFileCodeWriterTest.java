@@ -0,0 +1,300 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.codemodel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.codemodel.CodeWriter;
+import com.sun.codemodel.JClassAlreadyExistsException;
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JFieldVar;
+import com.sun.codemodel.JMethod;
+import com.sun.codemodel.JMod;
+import com.sun.codemodel.JPackage;
+import com.sun.codemodel.writer.FileCodeWriter;
+
+import de.javagl.jsonmodelgen.json.schema.codemodel.ConcurrentFileCodeWriter.WriteMode;
+
+/**
+ * Tests for the {@link ConcurrentFileCodeWriter}: Its output is the same
+ * as that of a {@link FileCodeWriter}, and the {@link WriteMode}s 
+ * determine which files are written
+ */
+@SuppressWarnings("javadoc")
+public class ConcurrentFileCodeWriterTest
+{
+    private static final long OLD_TIME_STAMP = 1000000000000L;
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private ExecutorService executorService;
+    
+    private File target;
+    
+    private File packageDirectory;
+    
+    @Before
+    public void setUp() throws IOException
+    {
+        executorService = Executors.newFixedThreadPool(2);
+        target = temporaryFolder.newFolder("target");
+        packageDirectory = new File(target, "com/example");
+    }
+    
+    @After
+    public void tearDown()
+    {
+        executorService.shutdown();
+    }
+    
+    private ConcurrentFileCodeWriter generate(WriteMode writeMode, 
+        String... classNames) throws IOException
+    {
+        JCodeModel codeModel = new JCodeModel();
+        for (String className : classNames)
+        {
+            try
+            {
+                codeModel._class("com.example." + className);
+            }
+            catch (JClassAlreadyExistsException e)
+            {
+                throw new AssertionError(e);
+            }
+        }
+        ConcurrentFileCodeWriter codeWriter = new ConcurrentFileCodeWriter(
+            target, "// Header\n", executorService, writeMode);
+        codeModel.build(codeWriter);
+        return codeWriter;
+    }
+    
+    private File file(String className)
+    {
+        return new File(packageDirectory, className + ".java");
+    }
+    
+    /**
+     * Create a code model with classes in multiple packages, with 
+     * fields, methods, imports and documentation
+     * 
+     * @return The code model
+     * @throws JClassAlreadyExistsException Will not happen
+     */
+    private static JCodeModel createCodeModel() 
+        throws JClassAlreadyExistsException
+    {
+        JCodeModel codeModel = new JCodeModel();
+        for (int i = 0; i < 40; i++)
+        {
+            String packageName = "com.example" + (i % 3 == 0 ? "" : ".sub");
+            JDefinedClass definedClass = 
+                codeModel._class(packageName + ".Type" + i);
+            definedClass.javadoc().add(
+                "Documentation of type " + i + ", with \u00e4 umlaut");
+            JFieldVar field = definedClass.field(JMod.PRIVATE, 
+                codeModel.ref(List.class).narrow(String.class), "values");
+            JMethod getter = definedClass.method(
+                JMod.PUBLIC, field.type(), "getValues");
+            getter.body()._return(field);
+        }
+        return codeModel;
+    }
+    
+    /**
+     * Returns the files in the given directory and its subdirectories,
+     * as paths relative to the given directory, sorted
+     * 
+     * @param directory The directory
+     * @return The paths
+     * @throws IOException If an IO error occurs
+     */
+    private static List<Path> listFiles(File directory) throws IOException
+    {
+        Path root = directory.toPath();
+        try (Stream<Path> paths = Files.walk(root))
+        {
+            return paths.filter(Files::isRegularFile)
+                .map(root::relativize)
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+    
+    @Test
+    public void testOutputIsByteIdenticalToFileCodeWriter() 
+        throws IOException, JClassAlreadyExistsException
+    {
+        String headerCode = "// Header\n// Second line\n";
+        
+        // The writer that was used before the ConcurrentFileCodeWriter
+        // was introduced: A FileCodeWriter that writes the header
+        File expectedDirectory = temporaryFolder.newFolder("expected");
+        CodeWriter fileCodeWriter = new CodeWriter()
+        {
+            CodeWriter delegate = new FileCodeWriter(expectedDirectory);
+            
+            @Override
+            public OutputStream openBinary(JPackage pkg, String fileName)
+                throws IOException
+            {
+                OutputStream result = delegate.openBinary(pkg, fileName);
+                result.write(headerCode.getBytes());
+                return result;
+            }
+            
+            @Override
+            public void close() throws IOException
+            {
+                delegate.close();
+            }
+        };
+        createCodeModel().build(fileCodeWriter);
+        
+        File actualDirectory = temporaryFolder.newFolder("actual");
+        ConcurrentFileCodeWriter concurrentFileCodeWriter = 
+            new ConcurrentFileCodeWriter(
+                actualDirectory, headerCode, executorService);
+        createCodeModel().build(concurrentFileCodeWriter);
+        
+        List<Path> expectedFiles = listFiles(expectedDirectory);
+        assertEquals(40, expectedFiles.size());
+        assertEquals(expectedFiles, listFiles(actualDirectory));
+        for (Path path : expectedFiles)
+        {
+            byte[] expected = Files.readAllBytes(
+                expectedDirectory.toPath().resolve(path));
+            byte[] actual = Files.readAllBytes(
+                actualDirectory.toPath().resolve(path));
+            assertArrayEquals("Contents of " + path, expected, actual);
+        }
+    }
+    
+    @Test
+    public void testAlwaysWritesAllFiles() throws IOException
+    {
+        generate(WriteMode.ALWAYS, "A", "B");
+        ConcurrentFileCodeWriter codeWriter = 
+            generate(WriteMode.ALWAYS, "A", "B");
+        assertEquals(2, codeWriter.getWrittenFileCount());
+        assertEquals(0, codeWriter.getUnchangedFileCount());
+        String content = new String(
+            Files.readAllBytes(file("A").toPath()), StandardCharsets.UTF_8);
+        assertTrue(content.startsWith("// Header\n"));
+    }
+    
+    @Test
+    public void testChangedKeepsUnchangedFiles() throws IOException
+    {
+        generate(WriteMode.CHANGED, "A", "B");
+        assertTrue(file("A").setLastModified(OLD_TIME_STAMP));
+        assertTrue(file("B").setLastModified(OLD_TIME_STAMP));
+        
+        ConcurrentFileCodeWriter codeWriter = 
+            generate(WriteMode.CHANGED, "A", "B");
+        assertEquals(0, codeWriter.getWrittenFileCount());
+        assertEquals(2, codeWriter.getUnchangedFileCount());
+        assertEquals(OLD_TIME_STAMP, file("A").lastModified());
+        assertEquals(OLD_TIME_STAMP, file("B").lastModified());
+    }
+    
+    @Test
+    public void testChangedWritesModifiedFiles() throws IOException
+    {
+        generate(WriteMode.CHANGED, "A", "B");
+        Files.write(file("A").toPath(), 
+            "// Modified".getBytes(StandardCharsets.UTF_8));
+        assertTrue(file("A").setLastModified(OLD_TIME_STAMP));
+        assertTrue(file("B").setLastModified(OLD_TIME_STAMP));
+        
+        ConcurrentFileCodeWriter codeWriter = 
+            generate(WriteMode.CHANGED, "A", "B");
+        assertEquals(1, codeWriter.getWrittenFileCount());
+        assertEquals(1, codeWriter.getUnchangedFileCount());
+        assertTrue(file("A").lastModified() != OLD_TIME_STAMP);
+        assertEquals(OLD_TIME_STAMP, file("B").lastModified());
+        String content = new String(
+            Files.readAllBytes(file("A").toPath()), StandardCharsets.UTF_8);
+        assertTrue(content.contains("class A"));
+    }
+    
+    @Test
+    public void testChangedDoesNotDeleteFiles() throws IOException
+    {
+        generate(WriteMode.CHANGED, "A", "B");
+        ConcurrentFileCodeWriter codeWriter = 
+            generate(WriteMode.CHANGED, "A");
+        assertEquals(0, codeWriter.getDeletedFileCount());
+        assertTrue(file("B").exists());
+    }
+    
+    @Test
+    public void testSynchronizeDeletesStaleJavaFiles() throws IOException
+    {
+        generate(WriteMode.SYNCHRONIZE, "A", "B");
+        File otherFile = new File(packageDirectory, "notes.txt");
+        Files.write(otherFile.toPath(), 
+            "Notes".getBytes(StandardCharsets.UTF_8));
+        File otherDirectory = new File(target, "com/other");
+        assertTrue(otherDirectory.mkdirs());
+        File otherPackageFile = new File(otherDirectory, "C.java");
+        Files.write(otherPackageFile.toPath(), 
+            "class C {}".getBytes(StandardCharsets.UTF_8));
+        
+        ConcurrentFileCodeWriter codeWriter = 
+            generate(WriteMode.SYNCHRONIZE, "A");
+        assertEquals(0, codeWriter.getWrittenFileCount());
+        assertEquals(1, codeWriter.getUnchangedFileCount());
+        assertEquals(1, codeWriter.getDeletedFileCount());
+        assertTrue(file("A").exists());
+        assertFalse(file("B").exists());
+        assertTrue(otherFile.exists());
+        assertTrue(otherPackageFile.exists());
+    }
+}
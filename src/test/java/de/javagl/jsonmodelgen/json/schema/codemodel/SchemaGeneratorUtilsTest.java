@@ -0,0 +1,127 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.codemodel;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link SchemaGeneratorUtils#computeReachableSchemas}
+ */
+@SuppressWarnings("javadoc")
+public class SchemaGeneratorUtilsTest
+{
+    /**
+     * A {@link SchemaStructure} where the schemas are strings, and the 
+     * subschemas are given by a map
+     */
+    private static class GraphStructure implements SchemaStructure<String>
+    {
+        private final Map<String, List<String>> subSchemas = 
+            new LinkedHashMap<String, List<String>>();
+        
+        GraphStructure add(String schema, String... subSchemaArray)
+        {
+            subSchemas.put(schema, Arrays.asList(subSchemaArray));
+            return this;
+        }
+        
+        @Override
+        public Object getContent(String schema)
+        {
+            return schema;
+        }
+        
+        @Override
+        public List<String> getSubSchemas(String schema)
+        {
+            return subSchemas.getOrDefault(
+                schema, Collections.<String>emptyList());
+        }
+        
+        @Override
+        public void replaceSubSchemas(String schema, 
+            Function<String, String> replacement)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+    
+    private final GraphStructure graph = new GraphStructure()
+        .add("root", "a", "b")
+        .add("a", "c")
+        .add("b", "d")
+        .add("c", "a", "e")
+        .add("d", null, "d");
+    
+    private static Set<String> set(String... schemas)
+    {
+        return new LinkedHashSet<String>(Arrays.asList(schemas));
+    }
+    
+    @Test
+    public void testAllSchemasAreReachableFromRoot()
+    {
+        assertEquals(set("root", "a", "b", "c", "d", "e"), 
+            SchemaGeneratorUtils.computeReachableSchemas(
+                Collections.singleton("root"), graph));
+    }
+    
+    @Test
+    public void testCyclesAreFollowedOnce()
+    {
+        assertEquals(set("a", "c", "e"), 
+            SchemaGeneratorUtils.computeReachableSchemas(
+                Collections.singleton("a"), graph));
+    }
+    
+    @Test
+    public void testNullAndSelfReferencesAreIgnored()
+    {
+        assertEquals(set("d"), 
+            SchemaGeneratorUtils.computeReachableSchemas(
+                Collections.singleton("d"), graph));
+    }
+    
+    @Test
+    public void testMultipleStartSchemas()
+    {
+        assertEquals(set("e", "b", "d"), 
+            SchemaGeneratorUtils.computeReachableSchemas(
+                Arrays.asList("e", "b"), graph));
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.codemodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.javagl.jsonmodelgen.json.NodeRepository;
+import de.javagl.jsonmodelgen.json.URIs;
+import de.javagl.jsonmodelgen.json.schema.v202012.Schema;
+import de.javagl.jsonmodelgen.json.schema.v202012.SchemaGenerator;
+
+/**
+ * Tests for the {@link SchemaMerger} class, and for merging schemas in 
+ * the schema generator
+ */
+@SuppressWarnings("javadoc")
+public class SchemaMergerTest
+{
+    private static final URI ROOT_URI = 
+        URI.create("file:/test/root.schema.json");
+    
+    /**
+     * A simple schema type for the tests
+     */
+    private static class TestSchema
+    {
+        private final String content;
+        
+        private final List<TestSchema> subSchemas;
+        
+        TestSchema(String content, TestSchema... subSchemas)
+        {
+            this.content = content;
+            this.subSchemas = new ArrayList<TestSchema>(
+                Arrays.asList(subSchemas));
+        }
+        
+        @Override
+        public String toString()
+        {
+            return content;
+        }
+    }
+    
+    /**
+     * The {@link SchemaStructure} for {@link TestSchema} instances
+     */
+    private static class TestSchemaStructure 
+        implements SchemaStructure<TestSchema>
+    {
+        @Override
+        public Object getContent(TestSchema schema)
+        {
+            return schema.content;
+        }
+        
+        @Override
+        public List<TestSchema> getSubSchemas(TestSchema schema)
+        {
+            return schema.subSchemas;
+        }
+        
+        @Override
+        public void replaceSubSchemas(TestSchema schema, 
+            Function<TestSchema, TestSchema> replacement)
+        {
+            schema.subSchemas.replaceAll(replacement::apply);
+        }
+    }
+    
+    private final SchemaMerger<TestSchema> schemaMerger = 
+        new SchemaMerger<TestSchema>(new TestSchemaStructure());
+    
+    @Test
+    public void testEquivalentSchemasAreGrouped()
+    {
+        TestSchema a0 = new TestSchema("a");
+        TestSchema a1 = new TestSchema("a");
+        TestSchema b = new TestSchema("b");
+        Map<TestSchema, List<TestSchema>> groups = 
+            schemaMerger.computeEquivalentSchemas(Arrays.asList(a0, b, a1));
+        assertEquals(1, groups.size());
+        assertEquals(Arrays.asList(a0, a1), groups.get(a0));
+    }
+    
+    @Test
+    public void testSchemasWithEquivalentSubSchemasAreGrouped()
+    {
+        TestSchema c0 = new TestSchema("c");
+        TestSchema c1 = new TestSchema("c");
+        TestSchema p0 = new TestSchema("p", c0);
+        TestSchema p1 = new TestSchema("p", c1);
+        Map<TestSchema, List<TestSchema>> groups = schemaMerger
+            .computeEquivalentSchemas(Arrays.asList(p0, p1, c0, c1));
+        assertEquals(2, groups.size());
+        assertEquals(Arrays.asList(p0, p1), groups.get(p0));
+        assertEquals(Arrays.asList(c0, c1), groups.get(c0));
+    }
+    
+    @Test
+    public void testSchemasWithDifferentSubSchemasAreNotGrouped()
+    {
+        TestSchema c = new TestSchema("c");
+        TestSchema d = new TestSchema("d");
+        TestSchema p0 = new TestSchema("p", c);
+        TestSchema p1 = new TestSchema("p", d);
+        Map<TestSchema, List<TestSchema>> groups = schemaMerger
+            .computeEquivalentSchemas(Arrays.asList(p0, p1, c, d));
+        assertTrue(groups.isEmpty());
+    }
+    
+    @Test
+    public void testSchemasWithDifferentOrderOfSubSchemasAreNotGrouped()
+    {
+        TestSchema c = new TestSchema("c");
+        TestSchema d = new TestSchema("d");
+        TestSchema p0 = new TestSchema("p", c, d);
+        TestSchema p1 = new TestSchema("p", d, c);
+        Map<TestSchema, List<TestSchema>> groups = schemaMerger
+            .computeEquivalentSchemas(Arrays.asList(p0, p1, c, d));
+        assertTrue(groups.isEmpty());
+    }
+    
+    @Test
+    public void testExternalSubSchemasAreOnlyEquivalentToThemselves()
+    {
+        TestSchema c0 = new TestSchema("c");
+        TestSchema c1 = new TestSchema("c");
+        TestSchema p0 = new TestSchema("p", c0);
+        TestSchema p1 = new TestSchema("p", c1);
+        TestSchema p2 = new TestSchema("p", c0);
+        Map<TestSchema, List<TestSchema>> groups = schemaMerger
+            .computeEquivalentSchemas(Arrays.asList(p0, p1, p2));
+        assertEquals(1, groups.size());
+        assertEquals(Arrays.asList(p0, p2), groups.get(p0));
+    }
+    
+    @Test
+    public void testEquivalentCyclesAreGrouped()
+    {
+        TestSchema a0 = new TestSchema("a");
+        TestSchema b0 = new TestSchema("b", a0);
+        a0.subSchemas.add(b0);
+        TestSchema a1 = new TestSchema("a");
+        TestSchema b1 = new TestSchema("b", a1);
+        a1.subSchemas.add(b1);
+        Map<TestSchema, List<TestSchema>> groups = schemaMerger
+            .computeEquivalentSchemas(Arrays.asList(a0, b0, a1, b1));
+        assertEquals(2, groups.size());
+        assertEquals(Arrays.asList(a0, a1), groups.get(a0));
+        assertEquals(Arrays.asList(b0, b1), groups.get(b0));
+    }
+    
+    @Test
+    public void testCyclesOfDifferentLengthAreNotGrouped()
+    {
+        TestSchema a0 = new TestSchema("a");
+        a0.subSchemas.add(a0);
+        TestSchema a1 = new TestSchema("a");
+        TestSchema a2 = new TestSchema("a", a1);
+        a1.subSchemas.add(new TestSchema("b", a2));
+        Map<TestSchema, List<TestSchema>> groups = schemaMerger
+            .computeEquivalentSchemas(Arrays.asList(a0, a1, a2));
+        assertTrue(groups.isEmpty());
+    }
+    
+    @Test
+    public void testMergeReplacesSubSchemas()
+    {
+        TestSchema c0 = new TestSchema("c");
+        TestSchema c1 = new TestSchema("c");
+        TestSchema d = new TestSchema("d");
+        TestSchema root = new TestSchema("root", c0, c1, d);
+        List<TestSchema> schemas = Arrays.asList(root, c0, c1, d);
+        Map<TestSchema, List<TestSchema>> groups = 
+            schemaMerger.computeEquivalentSchemas(schemas);
+        Map<TestSchema, TestSchema> replacements = 
+            schemaMerger.merge(schemas, groups);
+        assertEquals(1, replacements.size());
+        assertSame(c0, replacements.get(c1));
+        assertEquals(Arrays.asList(c0, c0, d), root.subSchemas);
+    }
+    
+    @Test
+    public void testSchemaGeneratorMergesEquivalentSchemas() 
+        throws IOException
+    {
+        SchemaGenerator schemaGenerator = 
+            createSchemaGenerator(GeneratorConfig.DEFAULT
+                .withMergeEquivalentSchemas(true));
+        Map<String, Schema> properties = 
+            schemaGenerator.getRootSchema().asObject().getProperties();
+        assertSame(properties.get("first"), properties.get("second"));
+        assertNotSame(properties.get("first"), properties.get("third"));
+        
+        // The objects and their "x" properties are merged
+        Map<URI, List<URI>> mergedUris = schemaGenerator.getMergedUris();
+        assertEquals(2, mergedUris.size());
+        assertTrue(mergedUris.get(URI.create(ROOT_URI + "#/properties/first"))
+            .contains(URI.create(ROOT_URI + "#/properties/second")));
+    }
+    
+    @Test
+    public void testSchemaGeneratorDoesNotMergeByDefault() 
+        throws IOException
+    {
+        SchemaGenerator schemaGenerator = 
+            createSchemaGenerator(GeneratorConfig.DEFAULT);
+        Map<String, Schema> properties = 
+            schemaGenerator.getRootSchema().asObject().getProperties();
+        assertNotSame(properties.get("first"), properties.get("second"));
+        assertTrue(schemaGenerator.getMergedUris().isEmpty());
+    }
+    
+    private static SchemaGenerator createSchemaGenerator(
+        GeneratorConfig config) throws IOException
+    {
+        String point = "{ \"type\": \"object\", \"properties\": { "
+            + "\"x\": { \"type\": \"number\" } } }";
+        String label = "{ \"type\": \"object\", \"properties\": { "
+            + "\"x\": { \"type\": \"string\" } } }";
+        JsonNode document = new ObjectMapper().readTree(
+            "{ \"type\": \"object\", \"properties\": { "
+            + "\"first\": " + point + ", \"second\": " + point + ", "
+            + "\"third\": " + label + " } }");
+        NodeRepository nodeRepository = new NodeRepository(ROOT_URI, 
+            uri -> ROOT_URI.equals(URIs.removeFragment(uri)) ? document : null);
+        return new SchemaGenerator(nodeRepository, null, config);
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.codemodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.javagl.jsonmodelgen.json.DocumentLoader;
+import de.javagl.jsonmodelgen.json.NodeRepository;
+import de.javagl.jsonmodelgen.json.URIs;
+import de.javagl.jsonmodelgen.json.schema.v202012.Schema;
+import de.javagl.jsonmodelgen.json.schema.v202012.SchemaGenerator;
+
+/**
+ * Tests for the {@link SchemaSnapshot} class
+ */
+@SuppressWarnings("javadoc")
+public class SchemaSnapshotTest
+{
+    private static final URI ROOT_URI = 
+        URI.create("https://example.com/schema/root.schema.json");
+    
+    private static final URI ITEM_URI = 
+        URI.create("https://example.com/schema/item.schema.json");
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private Map<URI, JsonNode> documents;
+    
+    private DocumentLoader documentLoader;
+    
+    private File file;
+    
+    @Before
+    public void setUp() throws IOException
+    {
+        documents = new LinkedHashMap<URI, JsonNode>();
+        documents.put(ROOT_URI, objectMapper.readTree("{ "
+            + "\"type\": \"object\", \"properties\": { "
+            + "\"items\": { \"type\": \"array\", "
+            + "\"items\": { \"$ref\": \"item.schema.json\" } } } }"));
+        documents.put(ITEM_URI, objectMapper.readTree("{ "
+            + "\"type\": \"object\", \"properties\": { "
+            + "\"name\": { \"type\": \"string\" } } }"));
+        documentLoader = uri -> documents.get(URIs.removeFragment(uri));
+        file = new File(temporaryFolder.getRoot(), "test.snapshot");
+    }
+    
+    private SchemaGenerator writeSnapshot() throws IOException
+    {
+        NodeRepository nodeRepository = 
+            new NodeRepository(ROOT_URI, documentLoader);
+        SchemaGenerator schemaGenerator = new SchemaGenerator(nodeRepository);
+        SchemaSnapshot.create(schemaGenerator, nodeRepository)
+            .write(file, ROOT_URI);
+        return schemaGenerator;
+    }
+    
+    private void writeSnapshot(GeneratorConfig config) throws IOException
+    {
+        NodeRepository nodeRepository = 
+            new NodeRepository(ROOT_URI, documentLoader);
+        SchemaGenerator schemaGenerator = 
+            new SchemaGenerator(nodeRepository, null, config);
+        SchemaSnapshot.create(schemaGenerator, nodeRepository, config)
+            .write(file, ROOT_URI);
+    }
+    
+    private SchemaSnapshot<Schema> readSnapshot()
+    {
+        return SchemaSnapshot.read(
+            file, ROOT_URI, Schema.class, documentLoader);
+    }
+    
+    @Test
+    public void testSnapshotIsRestored() throws IOException
+    {
+        SchemaGenerator schemaGenerator = writeSnapshot();
+        SchemaSnapshot<Schema> snapshot = readSnapshot();
+        assertNotNull(snapshot);
+        assertEquals(schemaGenerator.getSchemaSet().size(), 
+            snapshot.getSchemaSet().size());
+        assertNotNull(snapshot.getRootSchema());
+        assertNotNull(snapshot.getSchema(ITEM_URI));
+        assertTrue(snapshot.getSchema(ITEM_URI).isObject());
+    }
+    
+    @Test
+    public void testMissingFileIsNotRead()
+    {
+        assertNull(readSnapshot());
+    }
+    
+    @Test
+    public void testSnapshotForDifferentRootIsNotRead() throws IOException
+    {
+        writeSnapshot();
+        assertNull(SchemaSnapshot.read(
+            file, ITEM_URI, Schema.class, documentLoader));
+    }
+    
+    @Test
+    public void testSnapshotIsRestoredForSameConfig() throws IOException
+    {
+        GeneratorConfig config = 
+            GeneratorConfig.DEFAULT.withMergeEquivalentSchemas(true);
+        writeSnapshot(config);
+        assertNotNull(SchemaSnapshot.read(file, ROOT_URI, 
+            GeneratorConfig.DEFAULT.withMergeEquivalentSchemas(true), 
+            Schema.class, documentLoader));
+    }
+    
+    @Test
+    public void testSnapshotForDifferentConfigIsNotRead() throws IOException
+    {
+        writeSnapshot(
+            GeneratorConfig.DEFAULT.withMergeEquivalentSchemas(true));
+        assertNull(readSnapshot());
+        
+        writeSnapshot();
+        assertNull(SchemaSnapshot.read(file, ROOT_URI, 
+            GeneratorConfig.DEFAULT.withCreateGettersWithDefault(false), 
+            Schema.class, documentLoader));
+        assertNotNull(readSnapshot());
+    }
+    
+    @Test
+    public void testChangedRemoteDocumentInvalidatesSnapshot() 
+        throws IOException
+    {
+        writeSnapshot();
+        documents.put(ITEM_URI, objectMapper.readTree("{ "
+            + "\"type\": \"object\", \"properties\": { "
+            + "\"name\": { \"type\": \"integer\" } } }"));
+        assertNull(readSnapshot());
+    }
+    
+    @Test
+    public void testReformattedDocumentDoesNotInvalidateSnapshot() 
+        throws IOException
+    {
+        writeSnapshot();
+        documents.put(ITEM_URI, objectMapper.readTree("{\n"
+            + "  \"type\" : \"object\",\n  \"properties\" : {\n"
+            + "    \"name\" : { \"type\" : \"string\" }\n  }\n}"));
+        assertNotNull(readSnapshot());
+    }
+    
+    @Test
+    public void testMissingDocumentInvalidatesSnapshot() throws IOException
+    {
+        writeSnapshot();
+        documents.remove(ITEM_URI);
+        assertNull(readSnapshot());
+    }
+    
+    @Test
+    public void testTruncatedFileIsDeleted() throws IOException
+    {
+        writeSnapshot();
+        byte[] data = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(data, data.length / 2));
+        assertNull(readSnapshot());
+        assertFalse(file.exists());
+    }
+    
+    @Test
+    public void testCorruptFileIsDeleted() throws IOException
+    {
+        Files.write(file.toPath(), 
+            "Not a snapshot".getBytes(StandardCharsets.UTF_8));
+        assertNull(readSnapshot());
+        assertFalse(file.exists());
+    }
+    
+    @Test
+    public void testSnapshotCanBeWrittenAfterCorruptFile() throws IOException
+    {
+        Files.write(file.toPath(), new byte[] { 0x1f, (byte) 0x8b, 0 });
+        assertNull(readSnapshot());
+        writeSnapshot();
+        assertNotNull(readSnapshot());
+    }
+}
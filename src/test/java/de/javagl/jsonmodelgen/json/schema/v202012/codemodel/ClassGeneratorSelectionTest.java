@@ -0,0 +1,185 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.v202012.codemodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.javagl.jsonmodelgen.json.NodeRepository;
+import de.javagl.jsonmodelgen.json.URIs;
+import de.javagl.jsonmodelgen.json.schema.codemodel.GeneratorConfig;
+import de.javagl.jsonmodelgen.json.schema.v202012.SchemaGenerator;
+
+/**
+ * Tests for generating the classes for a selected subset of the schemas
+ * with the {@link ClassGenerator}
+ */
+@SuppressWarnings("javadoc")
+public class ClassGeneratorSelectionTest
+{
+    private static final URI ROOT_URI = 
+        URI.create("file:/test/root.schema.json");
+    
+    private SchemaGenerator schemaGenerator;
+    
+    @Before
+    public void setUp() throws IOException
+    {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<URI, JsonNode> documents = new LinkedHashMap<URI, JsonNode>();
+        documents.put(ROOT_URI, objectMapper.readTree("{ "
+            + "\"type\": \"object\", \"properties\": { "
+            + "\"shapes\": { \"type\": \"array\", "
+            + "\"items\": { \"$ref\": \"shape.schema.json\" } }, "
+            + "\"labels\": { \"type\": \"array\", "
+            + "\"items\": { \"$ref\": \"label.schema.json\" } } } }"));
+        documents.put(ROOT_URI.resolve("shape.schema.json"), 
+            objectMapper.readTree("{ "
+            + "\"type\": \"object\", \"properties\": { "
+            + "\"points\": { \"type\": \"array\", "
+            + "\"items\": { \"$ref\": \"point.schema.json\" } }, "
+            + "\"parent\": { \"$ref\": \"shape.schema.json\" } } }"));
+        documents.put(ROOT_URI.resolve("point.schema.json"), 
+            objectMapper.readTree("{ "
+            + "\"type\": \"object\", \"properties\": { "
+            + "\"x\": { \"type\": \"number\" } } }"));
+        documents.put(ROOT_URI.resolve("label.schema.json"), 
+            objectMapper.readTree("{ "
+            + "\"type\": \"object\", \"properties\": { "
+            + "\"text\": { \"type\": \"string\" } } }"));
+        NodeRepository nodeRepository = new NodeRepository(ROOT_URI, 
+            uri -> documents.get(URIs.removeFragment(uri)));
+        schemaGenerator = new SchemaGenerator(nodeRepository);
+    }
+    
+    private Map<String, String> generateSources(String... selection) 
+        throws IOException
+    {
+        GeneratorConfig config = 
+            GeneratorConfig.DEFAULT.withSelection(Arrays.asList(selection));
+        ClassGenerator classGenerator = new ClassGenerator(
+            schemaGenerator, "com.example", "", config);
+        return classGenerator.generateSources();
+    }
+    
+    private static Set<String> classNames(String... simpleNames)
+    {
+        Set<String> classNames = new TreeSet<String>();
+        for (String simpleName : simpleNames)
+        {
+            classNames.add("com.example." + simpleName);
+        }
+        return classNames;
+    }
+    
+    @Test
+    public void testEmptySelectionGeneratesAllClasses() throws IOException
+    {
+        Map<String, String> sources = generateSources();
+        assertEquals(classNames("Root", "Shape", "Point", "Label"), 
+            new TreeSet<String>(sources.keySet()));
+    }
+    
+    @Test
+    public void testClassNameSelectsReachableClasses() throws IOException
+    {
+        Map<String, String> sources = generateSources("Shape");
+        assertEquals(classNames("Root", "Shape", "Point"), 
+            new TreeSet<String>(sources.keySet()));
+    }
+    
+    @Test
+    public void testLeafClassNameSelectsOnlyThisClass() throws IOException
+    {
+        Map<String, String> sources = generateSources("Point");
+        assertEquals(classNames("Root", "Point"), 
+            new TreeSet<String>(sources.keySet()));
+    }
+    
+    @Test
+    public void testPropertyPathSelectsReachableClasses() throws IOException
+    {
+        Map<String, String> sources = generateSources("labels");
+        assertEquals(classNames("Root", "Label"), 
+            new TreeSet<String>(sources.keySet()));
+    }
+    
+    @Test
+    public void testNestedPropertyPathSelectsReachableClasses() 
+        throws IOException
+    {
+        Map<String, String> sources = generateSources("shapes/points");
+        assertEquals(classNames("Root", "Point"), 
+            new TreeSet<String>(sources.keySet()));
+    }
+    
+    @Test
+    public void testUnknownSelectionOnlyGeneratesRootClass() 
+        throws IOException
+    {
+        Map<String, String> sources = generateSources("Missing");
+        assertEquals(classNames("Root"), 
+            new TreeSet<String>(sources.keySet()));
+    }
+    
+    @Test
+    public void testReferencesToExcludedClassesUseObject() 
+        throws IOException
+    {
+        Map<String, String> sources = generateSources("labels");
+        String rootSource = sources.get("com.example.Root");
+        assertTrue(rootSource.contains("List<Object> shapes"));
+        assertTrue(rootSource.contains("List<Label> labels"));
+    }
+    
+    @Test
+    public void testSelectedClassesCanBeCompiled() throws IOException
+    {
+        GeneratorConfig config = GeneratorConfig.DEFAULT
+            .withSelection(Collections.singleton("Shape"));
+        ClassGenerator classGenerator = new ClassGenerator(
+            schemaGenerator, "com.example", "", config);
+        Map<String, byte[]> classes = classGenerator.compile();
+        assertEquals(classNames("Root", "Shape", "Point"), 
+            new TreeSet<String>(classes.keySet()));
+    }
+}
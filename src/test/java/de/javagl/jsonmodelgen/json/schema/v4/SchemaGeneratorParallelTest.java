@@ -0,0 +1,182 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.v4;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.javagl.jsonmodelgen.json.NodeRepository;
+import de.javagl.jsonmodelgen.json.URIs;
+import de.javagl.jsonmodelgen.json.schema.v4.codemodel.ClassGenerator;
+
+/**
+ * Tests that the {@link SchemaGenerator} creates the same schemas and 
+ * the same classes when the components of the reference graph are 
+ * resolved in parallel as when they are resolved sequentially
+ */
+@SuppressWarnings("javadoc")
+public class SchemaGeneratorParallelTest
+{
+    private static final URI ROOT_URI = 
+        URI.create("file:/test/root.schema.json");
+    
+    private static final int NUM_DOCUMENTS = 24;
+    
+    private static final int NUM_RUNS = 5;
+    
+    private NodeRepository nodeRepository;
+    
+    private ForkJoinPool forkJoinPool;
+    
+    @Before
+    public void setUp() throws IOException
+    {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<URI, JsonNode> documents = new LinkedHashMap<URI, JsonNode>();
+        StringBuilder root = new StringBuilder();
+        root.append("{ \"type\": \"object\", \"properties\": { ");
+        for (int i = 0; i < NUM_DOCUMENTS; i++)
+        {
+            if (i > 0)
+            {
+                root.append(", ");
+            }
+            root.append("\"p" + i + "\": { \"$ref\": \"d" + i 
+                + ".schema.json\" }");
+            
+            // Each document contains a nested object, refers to itself,
+            // to a shared document, and, for odd indices, to the previous
+            // document, which refers back to it
+            String partner = (i % 2 == 1) ? "d" + (i - 1) : "d" + (i + 1);
+            documents.put(ROOT_URI.resolve("d" + i + ".schema.json"), 
+                objectMapper.readTree("{ \"type\": \"object\", "
+                + "\"description\": \"Document " + i + "\", "
+                + "\"properties\": { "
+                + "\"nested\": { \"type\": \"object\", \"properties\": { "
+                + "\"value\": { \"type\": \"integer\" } } }, "
+                + "\"self\": { \"$ref\": \"d" + i + ".schema.json\" }, "
+                + "\"shared\": { \"type\": \"array\", \"items\": "
+                + "{ \"$ref\": \"shared.schema.json\" } }, "
+                + "\"partner\": { \"$ref\": \"" + partner 
+                + ".schema.json\" } } }"));
+        }
+        root.append(" } }");
+        documents.put(ROOT_URI, objectMapper.readTree(root.toString()));
+        documents.put(ROOT_URI.resolve("shared.schema.json"), 
+            objectMapper.readTree("{ \"type\": \"object\", "
+            + "\"properties\": { \"name\": { \"type\": \"string\" } } }"));
+        nodeRepository = new NodeRepository(ROOT_URI, 
+            uri -> documents.get(URIs.removeFragment(uri)));
+        forkJoinPool = new ForkJoinPool(4);
+    }
+    
+    @After
+    public void tearDown()
+    {
+        forkJoinPool.shutdownNow();
+    }
+    
+    /**
+     * Returns a list that contains one string for each schema in the 
+     * schema set of the given generator, in the iteration order of the 
+     * set. The string consists of the type, URIs, and canonical URI of 
+     * the schema.
+     * 
+     * @param schemaGenerator The {@link SchemaGenerator}
+     * @return The list
+     */
+    private static List<String> describeSchemaSet(
+        SchemaGenerator schemaGenerator)
+    {
+        List<String> result = new ArrayList<String>();
+        for (Schema schema : schemaGenerator.getSchemaSet())
+        {
+            result.add(schema.getClass().getSimpleName() + " " 
+                + schemaGenerator.getUris(schema) + " " 
+                + schemaGenerator.getCanonicalUri(schema));
+        }
+        return result;
+    }
+    
+    private static Map<String, String> generateSources(
+        SchemaGenerator schemaGenerator) throws IOException
+    {
+        ClassGenerator classGenerator = 
+            new ClassGenerator(schemaGenerator, "com.example", "");
+        return classGenerator.generateSources();
+    }
+    
+    @Test
+    public void testParallelResolutionEqualsSequentialResolution() 
+        throws IOException
+    {
+        SchemaGenerator sequential = new SchemaGenerator(nodeRepository);
+        List<String> expectedSchemas = describeSchemaSet(sequential);
+        Map<String, String> expectedSources = generateSources(sequential);
+        assertEquals(2 * NUM_DOCUMENTS + 2, expectedSources.size());
+        
+        for (int i = 0; i < NUM_RUNS; i++)
+        {
+            SchemaGenerator parallel = 
+                new SchemaGenerator(nodeRepository, forkJoinPool);
+            assertEquals(expectedSchemas, describeSchemaSet(parallel));
+            
+            Map<String, String> sources = generateSources(parallel);
+            assertEquals(new ArrayList<String>(expectedSources.keySet()), 
+                new ArrayList<String>(sources.keySet()));
+            assertEquals(expectedSources, sources);
+        }
+    }
+    
+    @Test
+    public void testParallelResolutionReturnsSameRootSchema()
+    {
+        SchemaGenerator sequential = new SchemaGenerator(nodeRepository);
+        SchemaGenerator parallel = 
+            new SchemaGenerator(nodeRepository, forkJoinPool);
+        Schema sequentialRoot = sequential.getRootSchema();
+        Schema parallelRoot = parallel.getRootSchema();
+        assertEquals(sequential.getUris(sequentialRoot), 
+            parallel.getUris(parallelRoot));
+        assertEquals(sequential.getCanonicalUri(sequentialRoot), 
+            parallel.getCanonicalUri(parallelRoot));
+    }
+}
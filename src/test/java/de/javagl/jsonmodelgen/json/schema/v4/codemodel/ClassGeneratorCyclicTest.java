@@ -0,0 +1,146 @@
+/*
+ * JsonModelGen - Model Generation from JSON Schema 
+ *
+ * Copyright (c) 2015-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.jsonmodelgen.json.schema.v4.codemodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.javagl.jsonmodelgen.json.NodeRepository;
+import de.javagl.jsonmodelgen.json.URIs;
+import de.javagl.jsonmodelgen.json.schema.v4.SchemaGenerator;
+
+/**
+ * Tests for the classes that the {@link ClassGenerator} generates for 
+ * self-referential and mutually recursive schemas.<br>
+ * <br>
+ * Each class receives its class documentation exactly once. Before the
+ * initialization of the classes was queued, a class that referred to 
+ * itself received its documentation once more for each reference that 
+ * was resolved during its own initialization.
+ */
+@SuppressWarnings("javadoc")
+public class ClassGeneratorCyclicTest
+{
+    private static final URI ROOT_URI = 
+        URI.create("file:/test/node.schema.json");
+    
+    private Map<String, String> sources;
+    
+    @Before
+    public void setUp() throws IOException
+    {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<URI, JsonNode> documents = new LinkedHashMap<URI, JsonNode>();
+        documents.put(ROOT_URI, objectMapper.readTree("{ "
+            + "\"type\": \"object\", \"description\": \"A node\", "
+            + "\"properties\": { "
+            + "\"parent\": { \"$ref\": \"node.schema.json\" }, "
+            + "\"children\": { \"type\": \"array\", "
+            + "\"items\": { \"$ref\": \"node.schema.json\" } }, "
+            + "\"other\": { \"$ref\": \"other.schema.json\" } } }"));
+        documents.put(ROOT_URI.resolve("other.schema.json"), 
+            objectMapper.readTree("{ "
+            + "\"type\": \"object\", \"description\": \"The other\", "
+            + "\"properties\": { "
+            + "\"back\": { \"$ref\": \"node.schema.json\" } } }"));
+        NodeRepository nodeRepository = new NodeRepository(ROOT_URI, 
+            uri -> documents.get(URIs.removeFragment(uri)));
+        SchemaGenerator schemaGenerator = 
+            new SchemaGenerator(nodeRepository);
+        ClassGenerator classGenerator = 
+            new ClassGenerator(schemaGenerator, "com.example", "");
+        sources = classGenerator.generateSources();
+    }
+    
+    /**
+     * Returns the lines of the class documentation in the given source 
+     * code, with leading and trailing whitespace removed
+     * 
+     * @param source The source code
+     * @return The lines
+     */
+    private static String classDocumentation(String source)
+    {
+        int start = source.indexOf("/**");
+        int end = source.indexOf("*/", start);
+        StringBuilder sb = new StringBuilder();
+        for (String line : source.substring(start, end + 2).split("\\R"))
+        {
+            sb.append(line.trim()).append("\n");
+        }
+        return sb.toString();
+    }
+    
+    @Test
+    public void testClassesAreGenerated()
+    {
+        assertEquals(
+            new TreeSet<String>(
+                Arrays.asList("com.example.Node", "com.example.Other")),
+            new TreeSet<String>(sources.keySet()));
+    }
+    
+    @Test
+    public void testSelfReferentialClassIsDocumentedOnce()
+    {
+        assertEquals("/**\n* A node\n*\n"
+            + "* Auto-generated for node.schema.json\n*\n*/\n", 
+            classDocumentation(sources.get("com.example.Node")));
+    }
+    
+    @Test
+    public void testMutuallyRecursiveClassIsDocumentedOnce()
+    {
+        assertEquals("/**\n* The other\n*\n"
+            + "* Auto-generated for other.schema.json\n*\n*/\n", 
+            classDocumentation(sources.get("com.example.Other")));
+    }
+    
+    @Test
+    public void testReferencesUseTheGeneratedClasses()
+    {
+        String node = sources.get("com.example.Node");
+        assertTrue(node.contains("private Node parent;"));
+        assertTrue(node.contains("private List<Node> children;"));
+        assertTrue(node.contains("private Other other;"));
+        String other = sources.get("com.example.Other");
+        assertTrue(other.contains("private Node back;"));
+    }
+}